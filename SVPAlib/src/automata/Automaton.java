@@ -19,6 +19,8 @@ import java.util.Map;
 import org.sat4j.specs.TimeoutException;
 
 import theory.BooleanAlgebra;
+import utilities.IntArrayDeque;
+import utilities.LongIntHashMap;
 
 /**
  * Automaton abstract class
@@ -220,6 +222,18 @@ public abstract class Automaton<P, S> {
 		return isFinalConfiguration(currConf);
 	}
 
+	/**
+	 * Checks every input of <code>inputs</code>, on the common ForkJoinPool if <code>parallel</code> is true, in
+	 * which case <code>ba</code> has to be thread-safe. The automaton is simulated with a {@link BitsetSimulation}
+	 * that is built once for the whole batch.
+	 * 
+	 * @return for every input whether it is accepted
+	 * @throws TimeoutException
+	 */
+	public boolean[] accepts(List<List<S>> inputs, BooleanAlgebra<P, S> ba, boolean parallel) throws TimeoutException {
+		return BitsetSimulation.of(this, ba).accepts(inputs, parallel);
+	}
+
 	// ------------------------------------------------------
 	// Accessory functions
 	// ------------------------------------------------------
@@ -365,6 +379,22 @@ public abstract class Automaton<P, S> {
 			return reached.get(state);
 	}
 
+	/**
+	 * Same as getStateId for the pair of states (<code>first</code>, <code>second</code>), the pair is packed in a
+	 * long key of reached and is added to toVisit as two consecutive ints
+	 */
+	public static int getStateId(int first, int second, LongIntHashMap reached, IntArrayDeque toVisit) {
+		long key = LongIntHashMap.pack(first, second);
+		int id = reached.getOrDefault(key, -1);
+		if (id == -1) {
+			id = reached.size();
+			reached.put(key, id);
+			toVisit.addLast(first);
+			toVisit.addLast(second);
+		}
+		return id;
+	}
+
 	// ------------------------------------------------------
 	// Getters
 	// ------------------------------------------------------
@@ -0,0 +1,329 @@
+/**
+ * SVPAlib
+ * automata
+ */
+package automata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebra;
+import utilities.IntArrayDeque;
+
+/**
+ * Simulation of a nondeterministic automaton on concrete inputs where a configuration is a bitmap over the states. The
+ * states are numbered densely, the epsilon closure of every state is computed once, and the input moves of every state
+ * are stored in arrays together with the closure of their target. Checking finality and emptiness of a configuration
+ * takes one AND per word of the bitmap. The simulation is built once and can then be used for many inputs, also from
+ * several threads as long as the Boolean algebra is thread-safe.
+ *
+ * @param
+ * 			<P>
+ *            set of predicates over the domain S
+ * @param <S>
+ *            domain of the automaton alphabet
+ */
+public abstract class BitsetSimulation<P, S> {
+
+	// inputs per task when checking a batch in parallel
+	private static final int BATCH_THRESHOLD = 64;
+
+	protected final BooleanAlgebra<P, S> ba;
+
+	private final int words;
+	private final long[] initialConf;
+	private final long[] finalMask;
+	// the input moves of state q are moveStart[q] .. moveStart[q + 1]
+	private final int[] moveStart;
+	private final int[] lookahead;
+	private final int[][] targetClosure;
+	private final int maxLookahead;
+
+	/**
+	 * @return a simulation of <code>aut</code>
+	 */
+	public static <P, S> BitsetSimulation<P, S> of(Automaton<P, S> aut, BooleanAlgebra<P, S> ba) {
+		Numbering numbering = new Numbering(aut.getStates());
+		List<Move<P, S>> moves = new ArrayList<Move<P, S>>();
+		int[] moveStart = new int[numbering.size() + 1];
+		List<int[]> epsilonSuccessors = new ArrayList<int[]>(numbering.size());
+		for (int q = 0; q < numbering.size(); q++) {
+			moveStart[q] = moves.size();
+			IntArrayDeque epsilon = new IntArrayDeque();
+			for (Move<P, S> move : aut.getMovesFrom(numbering.states.get(q)))
+				if (move.isEpsilonTransition())
+					epsilon.addLast(numbering.index.get(move.to));
+				else
+					moves.add(move);
+			epsilonSuccessors.add(toArray(epsilon));
+		}
+		moveStart[numbering.size()] = moves.size();
+
+		int[] moveTo = new int[moves.size()];
+		int[] lookahead = new int[moves.size()];
+		for (int m = 0; m < moves.size(); m++) {
+			moveTo[m] = numbering.index.get(moves.get(m).to);
+			lookahead[m] = 1;
+		}
+		return new OfAutomaton<P, S>(ba, numbering, aut.getInitialState(), aut.getFinalStates(), epsilonSuccessors,
+				moveStart, moveTo, lookahead, moves);
+	}
+
+	/**
+	 * @return a simulation of <code>aut</code>, whose moves may read several symbols at once
+	 */
+	public static <P, S> BitsetSimulation<P, S> of(ExtendedAutomaton<P, S> aut, BooleanAlgebra<P, S> ba) {
+		Numbering numbering = new Numbering(aut.getStates());
+		List<ExtendedMove<P, S>> moves = new ArrayList<ExtendedMove<P, S>>();
+		int[] moveStart = new int[numbering.size() + 1];
+		List<int[]> epsilonSuccessors = new ArrayList<int[]>(numbering.size());
+		for (int q = 0; q < numbering.size(); q++) {
+			moveStart[q] = moves.size();
+			IntArrayDeque epsilon = new IntArrayDeque();
+			for (ExtendedMove<P, S> move : aut.getMovesFrom(numbering.states.get(q)))
+				if (move.isEpsilonTransition())
+					epsilon.addLast(numbering.index.get(move.to));
+				else
+					moves.add(move);
+			epsilonSuccessors.add(toArray(epsilon));
+		}
+		moveStart[numbering.size()] = moves.size();
+
+		int[] moveTo = new int[moves.size()];
+		int[] lookahead = new int[moves.size()];
+		for (int m = 0; m < moves.size(); m++) {
+			moveTo[m] = numbering.index.get(moves.get(m).to);
+			lookahead[m] = moves.get(m).lookahead;
+		}
+		return new OfExtendedAutomaton<P, S>(ba, numbering, aut.getInitialState(), aut.getFinalStates(),
+				epsilonSuccessors, moveStart, moveTo, lookahead, moves);
+	}
+
+	private BitsetSimulation(BooleanAlgebra<P, S> ba, Numbering numbering, Integer initialState,
+			Collection<Integer> finalStates, List<int[]> epsilonSuccessors, int[] moveStart, int[] moveTo,
+			int[] lookahead) {
+		this.ba = ba;
+		int n = numbering.size();
+		this.words = (n + 63) >>> 6;
+		this.moveStart = moveStart;
+		this.lookahead = lookahead;
+
+		int[][] closure = new int[n][];
+		for (int q = 0; q < n; q++)
+			closure[q] = closure(q, epsilonSuccessors, n);
+
+		initialConf = new long[words];
+		for (int q : closure[numbering.index.get(initialState)])
+			initialConf[q >>> 6] |= 1L << q;
+		finalMask = new long[words];
+		for (Integer state : finalStates) {
+			Integer q = numbering.index.get(state);
+			if (q != null)
+				finalMask[q >>> 6] |= 1L << q;
+		}
+
+		int max = 1;
+		targetClosure = new int[moveTo.length][];
+		for (int m = 0; m < moveTo.length; m++) {
+			targetClosure[m] = closure[moveTo[m]];
+			max = Math.max(max, lookahead[m]);
+		}
+		maxLookahead = max;
+	}
+
+	/**
+	 * @return true iff move <code>m</code> can read <code>input</code> from <code>position</code>, the input has at
+	 *         least as many symbols left as the lookahead of the move
+	 */
+	protected abstract boolean hasModel(int m, List<S> input, int position) throws TimeoutException;
+
+	/**
+	 * @return true if the automaton accepts <code>input</code>
+	 * @throws TimeoutException
+	 */
+	public boolean accepts(List<S> input) throws TimeoutException {
+		// confs[i % confs.length] is the set of states reached after reading
+		// exactly i symbols, moves reading several symbols fill the later ones
+		long[][] confs = new long[maxLookahead + 1][words];
+		System.arraycopy(initialConf, 0, confs[0], 0, words);
+
+		int length = input.size();
+		for (int position = 0; position < length; position++) {
+			long[] conf = confs[position % confs.length];
+			for (int w = 0; w < words; w++) {
+				long word = conf[w];
+				while (word != 0) {
+					int q = (w << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+					for (int m = moveStart[q]; m < moveStart[q + 1]; m++)
+						if (position + lookahead[m] <= length && hasModel(m, input, position)) {
+							long[] next = confs[(position + lookahead[m]) % confs.length];
+							for (int t : targetClosure[m])
+								next[t >>> 6] |= 1L << t;
+						}
+				}
+				conf[w] = 0;
+			}
+			if (isEmpty(confs))
+				return false;
+		}
+
+		long[] conf = confs[length % confs.length];
+		for (int w = 0; w < words; w++)
+			if ((conf[w] & finalMask[w]) != 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return for every input whether the automaton accepts it, the inputs are checked on the common ForkJoinPool if
+	 *         <code>parallel</code> is true
+	 * @throws TimeoutException
+	 */
+	public boolean[] accepts(List<List<S>> inputs, boolean parallel) throws TimeoutException {
+		boolean[] results = new boolean[inputs.size()];
+		if (!parallel) {
+			for (int i = 0; i < inputs.size(); i++)
+				results[i] = accepts(inputs.get(i));
+			return results;
+		}
+
+		BatchTask task = new BatchTask(inputs, results, 0, inputs.size());
+		ForkJoinPool.commonPool().invoke(task);
+		if (task.timeout != null)
+			throw task.timeout;
+		return results;
+	}
+
+	// checks the inputs from .. to, splitting the range while it is large
+	private class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final List<List<S>> inputs;
+		final boolean[] results;
+		final int from;
+		final int to;
+		TimeoutException timeout;
+
+		BatchTask(List<List<S>> inputs, boolean[] results, int from, int to) {
+			this.inputs = inputs;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > BATCH_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				BatchTask left = new BatchTask(inputs, results, from, mid);
+				BatchTask right = new BatchTask(inputs, results, mid, to);
+				invokeAll(left, right);
+				timeout = left.timeout != null ? left.timeout : right.timeout;
+				return;
+			}
+			try {
+				for (int i = from; i < to; i++)
+					results[i] = accepts(inputs.get(i));
+			} catch (TimeoutException e) {
+				timeout = e;
+			}
+		}
+	}
+
+	private static boolean isEmpty(long[][] confs) {
+		for (long[] conf : confs)
+			for (long word : conf)
+				if (word != 0)
+					return false;
+		return true;
+	}
+
+	// the states reachable from q with epsilon moves, q included
+	private static int[] closure(int q, List<int[]> epsilonSuccessors, int n) {
+		if (epsilonSuccessors.get(q).length == 0)
+			return new int[] { q };
+		boolean[] reached = new boolean[n];
+		IntArrayDeque toVisit = new IntArrayDeque();
+		IntArrayDeque closure = new IntArrayDeque();
+		reached[q] = true;
+		toVisit.addLast(q);
+		while (!toVisit.isEmpty()) {
+			int p = toVisit.removeFirst();
+			closure.addLast(p);
+			for (int r : epsilonSuccessors.get(p))
+				if (!reached[r]) {
+					reached[r] = true;
+					toVisit.addLast(r);
+				}
+		}
+		int[] res = toArray(closure);
+		Arrays.sort(res);
+		return res;
+	}
+
+	private static int[] toArray(IntArrayDeque deque) {
+		int[] res = new int[deque.size()];
+		for (int i = 0; i < res.length; i++)
+			res[i] = deque.removeFirst();
+		return res;
+	}
+
+	// the states of the automaton numbered 0, 1, ...
+	private static class Numbering {
+		final List<Integer> states;
+		final Map<Integer, Integer> index;
+
+		Numbering(Collection<Integer> states) {
+			this.states = new ArrayList<Integer>(states);
+			this.index = new HashMap<Integer, Integer>();
+			for (Integer state : this.states)
+				index.put(state, index.size());
+		}
+
+		int size() {
+			return states.size();
+		}
+	}
+
+	private static class OfAutomaton<P, S> extends BitsetSimulation<P, S> {
+		private final List<Move<P, S>> moves;
+
+		OfAutomaton(BooleanAlgebra<P, S> ba, Numbering numbering, Integer initialState,
+				Collection<Integer> finalStates, List<int[]> epsilonSuccessors, int[] moveStart, int[] moveTo,
+				int[] lookahead, List<Move<P, S>> moves) {
+			super(ba, numbering, initialState, finalStates, epsilonSuccessors, moveStart, moveTo, lookahead);
+			this.moves = moves;
+		}
+
+		@Override
+		protected boolean hasModel(int m, List<S> input, int position) throws TimeoutException {
+			return moves.get(m).hasModel(input.get(position), ba);
+		}
+	}
+
+	private static class OfExtendedAutomaton<P, S> extends BitsetSimulation<P, S> {
+		private final List<ExtendedMove<P, S>> moves;
+
+		OfExtendedAutomaton(BooleanAlgebra<P, S> ba, Numbering numbering, Integer initialState,
+				Collection<Integer> finalStates, List<int[]> epsilonSuccessors, int[] moveStart, int[] moveTo,
+				int[] lookahead, List<ExtendedMove<P, S>> moves) {
+			super(ba, numbering, initialState, finalStates, epsilonSuccessors, moveStart, moveTo, lookahead);
+			this.moves = moves;
+		}
+
+		@Override
+		protected boolean hasModel(int m, List<S> input, int position) throws TimeoutException {
+			ExtendedMove<P, S> move = moves.get(m);
+			return move.hasModel(input.subList(position, position + move.lookahead), ba);
+		}
+	}
+}
@@ -153,6 +153,18 @@ public abstract class ExtendedAutomaton<P, S> {
 		return false;
 	}
 
+	/**
+	 * Checks every input of <code>inputs</code>, on the common ForkJoinPool if <code>parallel</code> is true, in
+	 * which case <code>ba</code> has to be thread-safe. The automaton is simulated with a {@link BitsetSimulation}
+	 * that is built once for the whole batch.
+	 * 
+	 * @return for every input whether it is accepted
+	 * @throws TimeoutException
+	 */
+	public boolean[] accepts(List<List<S>> inputs, BooleanAlgebra<P, S> ba, boolean parallel) throws TimeoutException {
+		return BitsetSimulation.of(this, ba).accepts(inputs, parallel);
+	}
+
 	// ------------------------------------------------------
 	// Accessory functions
 	// ------------------------------------------------------
@@ -1,6 +1,7 @@
 package automata.safa;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -10,6 +11,8 @@ import org.sat4j.specs.ContradictionException;
 import org.sat4j.specs.ISolver;
 import org.sat4j.specs.TimeoutException;
 
+import utilities.Pair;
+
 public class SATRelation extends SAFARelation {
 	private class SATFactory extends BooleanExpressionFactory<Integer> {
 		private ISolver solver;
@@ -137,37 +140,78 @@ public class SATRelation extends SAFARelation {
 
 	SATFactory factory;
 	BooleanExpressionMorphism<Integer> coerce;
+	// Pairs already known to be related. The relation only grows, so a
+	// positive membership answer stays valid for the lifetime of the solver.
+	private HashSet<Pair<Integer, Integer>> members;
 
 	public SATRelation(ISolver s) {
 		factory = new SATFactory(s);
 		coerce = new BooleanExpressionMorphism<>((state) -> 2 * state + 2, factory);
+		members = new HashSet<>();
 	}
 
 	public SATRelation() {
 		this(SolverFactory.newDefault());
 	}
-	
-	private int mkIff(BooleanExpression p, BooleanExpression q) throws TimeoutException {
-		int pname = coerce.apply(p);
-		int qname = coerce.apply(q);
-		
-		return factory.MkOr(factory.MkAnd(pname, qname), factory.MkAnd(-pname, -qname));
+
+	private static Pair<Integer, Integer> key(int pname, int qname) {
+		return pname < qname ? new Pair<>(pname, qname) : new Pair<>(qname, pname);
 	}
-	
+
+	/**
+	 * (p,q) is in the congruence iff p <=> q is entailed by the clauses added
+	 * so far. This is decided with two queries under assumptions ({p, -q} and
+	 * {-p, q}) instead of naming the biconditional with fresh clauses, so the
+	 * solver keeps only the clauses of the relation and the learned clauses
+	 * stay useful across queries.
+	 */
 	public boolean isMember(BooleanExpression p, BooleanExpression q) throws TimeoutException {
-		VecInt mem = new VecInt();
-		mem.push(-mkIff(p, q));
-		return !factory.getSolver().isSatisfiable(mem, false);
+		int pname = coerce.apply(p);
+		int qname = coerce.apply(q);
+		if (pname == qname) {
+			return true;
+		}
+		Pair<Integer, Integer> pair = key(pname, qname);
+		if (members.contains(pair)) {
+			return true;
+		}
+		ISolver solver = factory.getSolver();
+		VecInt pNotQ = new VecInt();
+		pNotQ.push(pname);
+		pNotQ.push(-qname);
+		if (solver.isSatisfiable(pNotQ, false)) {
+			return false;
+		}
+		VecInt qNotP = new VecInt();
+		qNotP.push(-pname);
+		qNotP.push(qname);
+		if (solver.isSatisfiable(qNotP, false)) {
+			return false;
+		}
+		members.add(pair);
+		return true;
 	}
-	
+
 	public boolean add(BooleanExpression p, BooleanExpression q) throws TimeoutException {
-		VecInt pair = new VecInt();
-		pair.push(mkIff(p, q));
-		try {
-			factory.solver.addClause(pair);
+		int pname = coerce.apply(p);
+		int qname = coerce.apply(q);
+		if (pname == qname) {
 			return true;
+		}
+		// p => q and q => p
+		VecInt pImpliesQ = new VecInt();
+		pImpliesQ.push(-pname);
+		pImpliesQ.push(qname);
+		VecInt qImpliesP = new VecInt();
+		qImpliesP.push(pname);
+		qImpliesP.push(-qname);
+		try {
+			factory.solver.addClause(pImpliesQ);
+			factory.solver.addClause(qImpliesP);
 		} catch (ContradictionException e) {
 			return false;
 		}
+		members.add(key(pname, qname));
+		return true;
 	}
 }
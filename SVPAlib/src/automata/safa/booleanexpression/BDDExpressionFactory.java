@@ -12,6 +12,14 @@ public class BDDExpressionFactory extends BooleanExpressionFactory<BDDExpression
 		this.solver = new BDDSolver(num);
 	}
 
+	/**
+	 * Builds the state expressions with <code>solver</code>, e.g. one that reorders its variables
+	 */
+	public BDDExpressionFactory(BDDSolver solver) {
+		super();
+		this.solver = solver;
+	}
+
 	@Override
 	public BDDExpression MkAnd(BDDExpression left, BDDExpression right) {
 		return new BDDExpression (solver.MkAnd(left.bdd, right.bdd));
@@ -0,0 +1,189 @@
+/**
+ * SVPAlib
+ * automata.sfa
+ */
+package automata.sfa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebra;
+import utilities.IntBitSet;
+import utilities.Pair;
+
+/**
+ * Language inclusion between two possibly nondeterministic SFAs without determinizing either of them. The left
+ * automaton is explored together with the subset automaton of the right one, and a pair (p, S) is only expanded if no
+ * pair (p, S') with S' a subset of S has been reached before: every word that leads from (p, S) to a counterexample
+ * also leads from (p, S') to one. The outgoing minterms of a subset are computed once by {@link SubsetConstruction}.
+ * The exploration is breadth-first, so the witness is a shortest word in the left language but not in the right one:
+ * a new pair only subsumes the pairs for the same state that are at least as deep, a shallower pair with a larger
+ * subset may still lead to a shorter counterexample.
+ */
+class AntichainInclusion<A, B> {
+
+	// a reached pair, with the move that reached it for building the witness
+	private static class Node<A> {
+		final int state;
+		final IntBitSet subset;
+		final Node<A> parent;
+		final A guard;
+		// the length of the path that reached it
+		final int depth;
+		boolean subsumed;
+
+		Node(int state, IntBitSet subset, Node<A> parent, A guard) {
+			this.state = state;
+			this.subset = subset;
+			this.parent = parent;
+			this.guard = guard;
+			this.depth = parent == null ? 0 : parent.depth + 1;
+		}
+	}
+
+	private final SFA<A, B> left;
+	private final SubsetConstruction<A, B> right;
+	private final BooleanAlgebra<A, B> ba;
+	// for every state of left, the subsets it has been reached with that are not subsumed
+	private final HashMap<Integer, List<Node<A>>> antichains;
+	private final LinkedList<Node<A>> toVisit;
+
+	private AntichainInclusion(SFA<A, B> left, SFA<A, B> right, BooleanAlgebra<A, B> ba) {
+		this.left = left;
+		this.right = new SubsetConstruction<A, B>(right);
+		this.ba = ba;
+		this.antichains = new HashMap<Integer, List<Node<A>>>();
+		this.toVisit = new LinkedList<Node<A>>();
+	}
+
+	/**
+	 * Checks whether the language of <code>aut1</code> is included in the language of <code>aut2</code>
+	 *
+	 * @return true and null if it is, false and a word accepted by <code>aut1</code> but not by <code>aut2</code>
+	 *         otherwise
+	 * @throws TimeoutException
+	 */
+	static <A, B> Pair<Boolean, List<B>> isIncluded(SFA<A, B> aut1, SFA<A, B> aut2, BooleanAlgebra<A, B> ba,
+			long timeout) throws TimeoutException {
+
+		long deadline = SFA.deadline(System.currentTimeMillis(), timeout);
+
+		SFA<A, B> left = aut1.isEpsilonFree() ? aut1 : aut1.removeEpsilonMoves(ba);
+		SFA<A, B> right = aut2.isEpsilonFree() ? aut2 : aut2.removeEpsilonMoves(ba);
+
+		List<A> witness = new AntichainInclusion<A, B>(left, right, ba).search(right.getInitialState(), deadline);
+		if (witness == null)
+			return new Pair<Boolean, List<B>>(true, null);
+
+		List<B> concreteWitness = new LinkedList<B>();
+		for (A pred : witness)
+			concreteWitness.add(ba.generateWitness(pred));
+		return new Pair<Boolean, List<B>>(false, concreteWitness);
+	}
+
+	/**
+	 * Checks whether <code>aut1</code> and <code>aut2</code> accept the same language, by checking inclusion in
+	 * both directions
+	 *
+	 * @return true and null if they do, false and a word accepted by exactly one of them otherwise
+	 * @throws TimeoutException
+	 */
+	static <A, B> Pair<Boolean, List<B>> areEquivalent(SFA<A, B> aut1, SFA<A, B> aut2, BooleanAlgebra<A, B> ba,
+			long timeout) throws TimeoutException {
+
+		long startTime = System.currentTimeMillis();
+		Pair<Boolean, List<B>> result = isIncluded(aut1, aut2, ba, timeout);
+		if (!result.first)
+			return result;
+		long leftover = timeout - (System.currentTimeMillis() - startTime);
+		return isIncluded(aut2, aut1, ba, leftover);
+	}
+
+	// returns the guards of a path to a counterexample, null if there is none
+	private List<A> search(Integer rightInitialState, long deadline) throws TimeoutException {
+		Node<A> init = new Node<A>(left.getInitialState(), right.singleton(rightInitialState), null, null);
+		if (isCounterexample(init))
+			return witnessOf(init);
+		addToAntichain(init);
+
+		while (!toVisit.isEmpty()) {
+			if (System.currentTimeMillis() > deadline)
+				throw new TimeoutException();
+
+			Node<A> curr = toVisit.removeFirst();
+			if (curr.subsumed)
+				continue;
+
+			List<Pair<A, IntBitSet>> row = right.movesFrom(curr.subset, ba, deadline);
+			// the characters on which the subset has no move, computed when needed
+			A uncovered = null;
+
+			for (SFAInputMove<A, B> move : left.getInputMovesFrom(curr.state)) {
+				for (Pair<A, IntBitSet> minterm : row) {
+					A conj = ba.MkAnd(move.guard, minterm.first);
+					if (ba.IsSatisfiable(conj)) {
+						Node<A> next = new Node<A>(move.to, minterm.second, curr, conj);
+						if (isCounterexample(next))
+							return witnessOf(next);
+						addToAntichain(next);
+					}
+				}
+
+				if (uncovered == null) {
+					ArrayList<A> guards = new ArrayList<A>(row.size());
+					for (Pair<A, IntBitSet> minterm : row)
+						guards.add(minterm.first);
+					uncovered = guards.isEmpty() ? ba.True() : ba.MkNot(ba.MkOr(guards));
+				}
+				A conj = ba.MkAnd(move.guard, uncovered);
+				if (ba.IsSatisfiable(conj)) {
+					Node<A> next = new Node<A>(move.to, IntBitSet.EMPTY, curr, conj);
+					if (isCounterexample(next))
+						return witnessOf(next);
+					addToAntichain(next);
+				}
+			}
+		}
+		return null;
+	}
+
+	private boolean isCounterexample(Node<A> node) {
+		return left.isFinalState(node.state) && !right.isFinal(node.subset);
+	}
+
+	// adds node unless a smaller subset was reached with the same state, and
+	// drops the nodes it subsumes: the ones with a larger subset that are not
+	// shallower, the search is breadth-first so no node is deeper than node
+	private void addToAntichain(Node<A> node) {
+		List<Node<A>> antichain = antichains.get(node.state);
+		if (antichain == null) {
+			antichain = new ArrayList<Node<A>>();
+			antichains.put(node.state, antichain);
+		}
+		for (Node<A> other : antichain)
+			if (other.subset.isSubsetOf(node.subset))
+				return;
+
+		int kept = 0;
+		for (Node<A> other : antichain) {
+			if (other.depth >= node.depth && node.subset.isSubsetOf(other.subset))
+				other.subsumed = true;
+			else
+				antichain.set(kept++, other);
+		}
+		antichain.subList(kept, antichain.size()).clear();
+		antichain.add(node);
+		toVisit.add(node);
+	}
+
+	private List<A> witnessOf(Node<A> node) {
+		LinkedList<A> witness = new LinkedList<A>();
+		for (Node<A> curr = node; curr.parent != null; curr = curr.parent)
+			witness.addFirst(curr.guard);
+		return witness;
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * SVPAlib
+ * automata.sfa
+ */
+package automata.sfa;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebra;
+
+/**
+ * An SFA determinized and normalized, with its states numbered from 0, and the number of accepted paths of every
+ * length from every state. A move can stand for several words, its weight: <code>count(r, q) = sum over the moves
+ * q -g-> t of weight(g) * count(r - 1, t)</code>. The counts are BigIntegers and the table is extended on demand; the
+ * rows already computed are never modified. Shared by {@link WitnessEnumerator} and {@link UniformWordSampler}.
+ *
+ * @param
+ * 			<P>
+ *            set of predicates over the domain S
+ * @param <S>
+ *            domain of the automaton alphabet
+ */
+class CountedPaths<P, S> {
+
+	final int initialState;
+	final boolean[] isFinal;
+	// the moves of state q: their targets, guards and weights
+	final int[][] targets;
+	final List<List<P>> guards;
+	private final BigInteger[][] weights;
+	// counts.get(r)[q] is the number of accepted paths of length r from q
+	private final List<BigInteger[]> counts;
+
+	/**
+	 * The accepted paths of <code>aut</code>, the moves of every state are sorted by <code>moveOrder</code> on their
+	 * guards unless it is null, and a move weighs <code>weight</code> of its guard, or 1 if <code>weight</code> is
+	 * null
+	 *
+	 * @throws TimeoutException
+	 */
+	CountedPaths(SFA<P, S> aut, BooleanAlgebra<P, S> ba, final Comparator<? super P> moveOrder,
+			Function<? super P, BigInteger> weight) throws TimeoutException {
+		SFA<P, S> dfa = aut.determinize(ba).normalize(ba);
+
+		Map<Integer, Integer> index = new HashMap<Integer, Integer>();
+		for (Integer state : dfa.getStates())
+			index.put(state, index.size());
+		int n = index.size();
+
+		initialState = index.get(dfa.getInitialState());
+		isFinal = new boolean[n];
+		targets = new int[n][];
+		weights = new BigInteger[n][];
+		guards = new ArrayList<List<P>>(n);
+		for (int q = 0; q < n; q++)
+			guards.add(null);
+		for (Integer state : dfa.getStates()) {
+			int q = index.get(state);
+			isFinal[q] = dfa.isFinalState(state);
+
+			List<SFAInputMove<P, S>> moves = new ArrayList<SFAInputMove<P, S>>(dfa.getInputMovesFrom(state));
+			if (moveOrder != null)
+				Collections.sort(moves, new Comparator<SFAInputMove<P, S>>() {
+					@Override
+					public int compare(SFAInputMove<P, S> m1, SFAInputMove<P, S> m2) {
+						return moveOrder.compare(m1.guard, m2.guard);
+					}
+				});
+
+			targets[q] = new int[moves.size()];
+			weights[q] = new BigInteger[moves.size()];
+			List<P> stateGuards = new ArrayList<P>(moves.size());
+			for (int i = 0; i < moves.size(); i++) {
+				targets[q][i] = index.get(moves.get(i).to);
+				weights[q][i] = weight == null ? BigInteger.ONE : weight.apply(moves.get(i).guard);
+				stateGuards.add(moves.get(i).guard);
+			}
+			guards.set(q, stateGuards);
+		}
+
+		counts = new ArrayList<BigInteger[]>();
+		BigInteger[] base = new BigInteger[n];
+		for (int q = 0; q < n; q++)
+			base[q] = isFinal[q] ? BigInteger.ONE : BigInteger.ZERO;
+		counts.add(base);
+	}
+
+	/**
+	 * @return the number of accepted paths of length <code>r</code> from <code>q</code>
+	 */
+	BigInteger count(int r, int q) {
+		synchronized (counts) {
+			extendTo(r);
+			return counts.get(r)[q];
+		}
+	}
+
+	/**
+	 * @return the rows 0 .. <code>length</code> of the counts, which can be read without locking
+	 */
+	BigInteger[][] rowsUpTo(int length) {
+		synchronized (counts) {
+			extendTo(length);
+			return counts.subList(0, length + 1).toArray(new BigInteger[length + 1][]);
+		}
+	}
+
+	private void extendTo(int length) {
+		while (counts.size() <= length) {
+			BigInteger[] previous = counts.get(counts.size() - 1);
+			BigInteger[] next = new BigInteger[isFinal.length];
+			for (int p = 0; p < isFinal.length; p++) {
+				BigInteger sum = BigInteger.ZERO;
+				for (int i = 0; i < targets[p].length; i++)
+					sum = sum.add(weights[p][i].multiply(previous[targets[p][i]]));
+				next[p] = sum;
+			}
+			counts.add(next);
+		}
+	}
+
+	/**
+	 * Draws an accepted path of length <code>length</code> uniformly, counting a move as many times as its weight.
+	 * Sets <code>moves[d]</code> to the move taken at step d and <code>choices[d]</code> to which of its weight,
+	 * between 0 and the weight excluded, was drawn.
+	 *
+	 * @param rows
+	 *            the rows 0 .. <code>length</code> of the counts
+	 * @return false if there is no such path
+	 */
+	boolean samplePath(BigInteger[][] rows, int length, Random random, int[] moves, BigInteger[] choices) {
+		if (rows[length][initialState].signum() == 0)
+			return false;
+
+		int q = initialState;
+		for (int remaining = length; remaining > 0; remaining--) {
+			// pick every move with probability proportional to its share of the
+			// count
+			BigInteger pick = uniform(rows[remaining][q], random);
+			int i = 0;
+			while (true) {
+				BigInteger after = rows[remaining - 1][targets[q][i]];
+				BigInteger share = weights[q][i].multiply(after);
+				if (pick.compareTo(share) < 0) {
+					// pick / after is uniform in 0 .. weight - 1
+					choices[length - remaining] = pick.divide(after);
+					break;
+				}
+				pick = pick.subtract(share);
+				i++;
+			}
+			moves[length - remaining] = i;
+			q = targets[q][i];
+		}
+		return true;
+	}
+
+	// a uniformly random number in 0 .. bound - 1
+	static BigInteger uniform(BigInteger bound, Random random) {
+		BigInteger r;
+		do {
+			r = new BigInteger(bound.bitLength(), random);
+		} while (r.compareTo(bound) >= 0);
+		return r;
+	}
+}
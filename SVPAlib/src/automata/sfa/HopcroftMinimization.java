@@ -0,0 +1,200 @@
+/**
+ * SVPAlib
+ * automata.sfa
+ */
+package automata.sfa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebra;
+import utilities.IntArrayDeque;
+import utilities.Pair;
+
+/**
+ * Hopcroft's minimization lifted to SFAs through the minterms of all the guards, the algorithm Min^H of the POPL14 paper
+ * by D'Antoni and Veanes. Once the minterms are known the automaton is a DFA over the alphabet of minterms and the
+ * partition is refined without further calls to the Boolean algebra. The partition is kept in int arrays: the states of
+ * a block are contiguous in <code>elems</code>, and the states marked while processing a splitter are moved to the
+ * front of their block. When a block is split, only the smaller half is added to the blocks still to be used as
+ * splitters, unless the block was waiting already, so every state is in O(log n) splitters.
+ */
+final class HopcroftMinimization {
+
+	private HopcroftMinimization() {
+	}
+
+	/**
+	 * @return the minimal SFA equivalent to <code>aut</code>
+	 * @assume <code>aut</code> is deterministic and total
+	 * @throws TimeoutException
+	 */
+	static <A, B> SFA<A, B> minimize(SFA<A, B> aut, BooleanAlgebra<A, B> ba) throws TimeoutException {
+
+		// number the states densely
+		Map<Integer, Integer> index = new HashMap<Integer, Integer>();
+		List<Integer> states = new ArrayList<Integer>(aut.getStates());
+		for (Integer state : states)
+			index.put(state, index.size());
+		int n = states.size();
+
+		// the alphabet is the set of minterms of the guards
+		List<SFAInputMove<A, B>> moves = new ArrayList<SFAInputMove<A, B>>(aut.getInputMovesFrom(states));
+		ArrayList<A> guards = new ArrayList<A>(moves.size());
+		for (SFAInputMove<A, B> move : moves)
+			guards.add(move.guard);
+		Collection<Pair<A, ArrayList<Integer>>> minterms = ba.GetMinterms(guards);
+		int m = minterms.size();
+
+		// pre[preStart[a * n + q] .. preStart[a * n + q + 1]) are the states
+		// that reach q with minterm a
+		int[] preStart = new int[m * n + 1];
+		int[] pre = new int[m * n];
+		int[] targetOf = new int[m * n];
+		int a = 0;
+		for (Pair<A, ArrayList<Integer>> minterm : minterms) {
+			for (int i = 0; i < moves.size(); i++)
+				if (minterm.second.get(i) == 1) {
+					int to = index.get(moves.get(i).to);
+					targetOf[a * n + index.get(moves.get(i).from)] = to;
+					preStart[a * n + to + 1]++;
+				}
+			a++;
+		}
+		for (int k = 0; k < m * n; k++)
+			preStart[k + 1] += preStart[k];
+		int[] fill = new int[m * n];
+		for (a = 0; a < m; a++)
+			for (int q = 0; q < n; q++) {
+				int k = a * n + targetOf[a * n + q];
+				pre[preStart[k] + fill[k]++] = q;
+			}
+
+		// the first split makes the smaller of the final and non-final states
+		// waiting
+		Partition partition = new Partition(n);
+		for (int q = 0; q < n; q++)
+			if (aut.isFinalState(states.get(q)))
+				partition.mark(q);
+		partition.split();
+
+		int[] splitter = new int[n];
+		while (!partition.waiting.isEmpty()) {
+			int block = partition.waiting.removeLast();
+			partition.isWaiting[block] = false;
+
+			// the block itself may be split while it is used
+			int size = partition.end[block] - partition.first[block];
+			System.arraycopy(partition.elems, partition.first[block], splitter, 0, size);
+
+			for (a = 0; a < m; a++) {
+				for (int s = 0; s < size; s++) {
+					int k = a * n + splitter[s];
+					for (int p = preStart[k]; p < preStart[k + 1]; p++)
+						partition.mark(pre[p]);
+				}
+				partition.split();
+			}
+		}
+
+		// one state per block, with the moves of the first state in the block
+		Collection<SFAMove<A, B>> transitions = new ArrayList<SFAMove<A, B>>();
+		Collection<Integer> finalStates = new HashSet<Integer>();
+		for (int block = 0; block < partition.blocks; block++) {
+			Integer representative = states.get(partition.elems[partition.first[block]]);
+			if (aut.isFinalState(representative))
+				finalStates.add(block);
+			for (SFAInputMove<A, B> move : aut.getInputMovesFrom(representative))
+				transitions.add(new SFAInputMove<A, B>(block, partition.blockOf[index.get(move.to)], move.guard));
+		}
+		Integer initialState = partition.blockOf[index.get(aut.getInitialState())];
+
+		return SFA.MkSFA(transitions, initialState, finalStates, ba, false);
+	}
+
+	// a partition of 0..n-1 in which some elements can be marked before
+	// splitting every block into its marked and unmarked elements
+	private static class Partition {
+		final int[] elems;
+		final int[] loc;
+		final int[] blockOf;
+		final int[] first;
+		final int[] end;
+		// the marked elements of a block are elems[first[b] .. mid[b])
+		final int[] mid;
+		final boolean[] isWaiting;
+		final IntArrayDeque waiting;
+		final IntArrayDeque touched;
+		int blocks;
+
+		Partition(int n) {
+			elems = new int[n];
+			loc = new int[n];
+			blockOf = new int[n];
+			first = new int[n];
+			end = new int[n];
+			mid = new int[n];
+			isWaiting = new boolean[n];
+			waiting = new IntArrayDeque();
+			touched = new IntArrayDeque();
+			for (int q = 0; q < n; q++) {
+				elems[q] = q;
+				loc[q] = q;
+			}
+			end[0] = n;
+			blocks = n > 0 ? 1 : 0;
+		}
+
+		void mark(int q) {
+			int b = blockOf[q];
+			int i = loc[q];
+			if (i < mid[b])
+				return;
+			if (mid[b] == first[b])
+				touched.addLast(b);
+			int j = mid[b]++;
+			int other = elems[j];
+			elems[j] = q;
+			loc[q] = j;
+			elems[i] = other;
+			loc[other] = i;
+		}
+
+		// splits every touched block into its marked and unmarked elements,
+		// the marked ones get a new block
+		void split() {
+			while (!touched.isEmpty()) {
+				int b = touched.removeLast();
+				if (mid[b] == end[b]) {
+					mid[b] = first[b];
+					continue;
+				}
+				int nb = blocks++;
+				first[nb] = first[b];
+				mid[nb] = first[b];
+				end[nb] = mid[b];
+				first[b] = mid[b];
+				for (int i = first[nb]; i < end[nb]; i++)
+					blockOf[elems[i]] = nb;
+
+				if (isWaiting[b] || end[nb] - first[nb] <= end[b] - first[b])
+					makeWaiting(nb);
+				else
+					makeWaiting(b);
+			}
+		}
+
+		private void makeWaiting(int b) {
+			if (!isWaiting[b]) {
+				isWaiting[b] = true;
+				waiting.addLast(b);
+			}
+		}
+	}
+}
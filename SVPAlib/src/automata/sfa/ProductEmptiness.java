@@ -0,0 +1,126 @@
+/**
+ * SVPAlib
+ * automata.sfa
+ */
+package automata.sfa;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebra;
+import utilities.LongIntHashMap;
+
+/**
+ * Emptiness of the intersection of two SFAs, decided on the fly. The product is only visited as far as a depth-first
+ * search needs to reach an accepting pair of states, so when the intersection is not empty the search stops at the
+ * first word in it, and no transitions of the product are ever stored. The difference of two SFAs is empty iff the
+ * first is included in the second, which {@link AntichainInclusion} decides on the fly as well.
+ */
+final class ProductEmptiness {
+
+	// a pair of states on the current path, with the moves left to try
+	private static class Frame<A, B> {
+		final int state1;
+		final int state2;
+		final A guard;
+		final List<SFAInputMove<A, B>> moves1;
+		final List<SFAInputMove<A, B>> moves2;
+		int i = 0;
+		int j = 0;
+
+		Frame(int state1, int state2, A guard, List<SFAInputMove<A, B>> moves1, List<SFAInputMove<A, B>> moves2) {
+			this.state1 = state1;
+			this.state2 = state2;
+			this.guard = guard;
+			this.moves1 = moves1;
+			this.moves2 = moves2;
+		}
+	}
+
+	private ProductEmptiness() {
+	}
+
+	/**
+	 * @return a word accepted by both <code>aut1</code> and <code>aut2</code>, null if there is none
+	 * @throws TimeoutException
+	 */
+	static <A, B> List<B> intersectionWitness(SFA<A, B> aut1, SFA<A, B> aut2, BooleanAlgebra<A, B> ba, long timeout)
+			throws TimeoutException {
+
+		long deadline = SFA.deadline(System.currentTimeMillis(), timeout);
+
+		if (aut1.isEmpty() || aut2.isEmpty())
+			return null;
+
+		SFA<A, B> left = aut1.isEpsilonFree() ? aut1 : aut1.removeEpsilonMoves(ba);
+		SFA<A, B> right = aut2.isEpsilonFree() ? aut2 : aut2.removeEpsilonMoves(ba);
+
+		LongIntHashMap reached = new LongIntHashMap();
+		ArrayList<Frame<A, B>> path = new ArrayList<Frame<A, B>>();
+		int init1 = left.getInitialState();
+		int init2 = right.getInitialState();
+		reached.put(LongIntHashMap.pack(init1, init2), 0);
+		path.add(new Frame<A, B>(init1, init2, null, movesFrom(left, init1), movesFrom(right, init2)));
+
+		while (!path.isEmpty()) {
+			if (System.currentTimeMillis() > deadline)
+				throw new TimeoutException();
+
+			Frame<A, B> top = path.get(path.size() - 1);
+			if (left.isFinalState(top.state1) && right.isFinalState(top.state2))
+				return witnessOf(path, ba);
+
+			// try the next pair of moves out of the top of the path
+			Frame<A, B> next = null;
+			while (next == null && top.i < top.moves1.size() && !top.moves2.isEmpty()) {
+				SFAInputMove<A, B> move1 = top.moves1.get(top.i);
+				SFAInputMove<A, B> move2 = top.moves2.get(top.j);
+				if (++top.j == top.moves2.size()) {
+					top.j = 0;
+					top.i++;
+				}
+
+				long pair = LongIntHashMap.pack(move1.to, move2.to);
+				if (reached.containsKey(pair))
+					continue;
+				A conj = ba.MkAnd(move1.guard, move2.guard);
+				if (ba.IsSatisfiable(conj)) {
+					reached.put(pair, reached.size());
+					next = new Frame<A, B>(move1.to, move2.to, conj, movesFrom(left, move1.to),
+							movesFrom(right, move2.to));
+				}
+			}
+
+			if (next != null)
+				path.add(next);
+			else
+				path.remove(path.size() - 1);
+		}
+		return null;
+	}
+
+	/**
+	 * @return a word accepted by <code>aut1</code> but not by <code>aut2</code>, null if there is none
+	 * @throws TimeoutException
+	 */
+	static <A, B> List<B> differenceWitness(SFA<A, B> aut1, SFA<A, B> aut2, BooleanAlgebra<A, B> ba, long timeout)
+			throws TimeoutException {
+		return AntichainInclusion.isIncluded(aut1, aut2, ba, timeout).second;
+	}
+
+	// as a list so that a frame can resume where it stopped
+	private static <A, B> List<SFAInputMove<A, B>> movesFrom(SFA<A, B> aut, int state) {
+		return new ArrayList<SFAInputMove<A, B>>(aut.getInputMovesFrom(state));
+	}
+
+	private static <A, B> List<B> witnessOf(List<Frame<A, B>> path, BooleanAlgebra<A, B> ba)
+			throws TimeoutException {
+		List<B> witness = new LinkedList<B>();
+		for (int k = 1; k < path.size(); k++)
+			witness.add(ba.generateWitness(path.get(k).guard));
+		return witness;
+	}
+}
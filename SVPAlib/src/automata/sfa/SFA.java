@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
 
 import org.sat4j.specs.TimeoutException;
 
@@ -30,6 +31,8 @@ import automata.safa.SAFAInputMove;
 import automata.safa.booleanexpression.PositiveBooleanExpression;
 import theory.BooleanAlgebra;
 import utilities.Block;
+import utilities.IntArrayDeque;
+import utilities.IntBitSet;
 import utilities.Pair;
 import utilities.Timers;
 import utilities.UnionFindHopKarp;
@@ -332,6 +335,16 @@ public class SFA<P, S> extends Automaton<P, S> {
 		return MkSFA(transitions, initialState, finalStates, ba);
 	}
 
+	/**
+	 * Same as intersectionWith, but explores the product in parallel on the common ForkJoinPool. <code>ba</code>
+	 * has to be thread-safe.
+	 * 
+	 * @throws TimeoutException
+	 */
+	public SFA<P, S> intersectionParallelWith(SFA<P, S> aut, BooleanAlgebra<P, S> ba) throws TimeoutException {
+		return SFAParallelConstructions.intersection(this, aut, ba, ForkJoinPool.commonPool(), Long.MAX_VALUE);
+	}
+
 	/**
 	 * Computes <code>this</code> minus <code>aut</code> as a new SFA
 	 * 
@@ -371,6 +384,16 @@ public class SFA<P, S> extends Automaton<P, S> {
 		return union(this, aut1, ba);
 	}
 
+	/**
+	 * Computes the union with <code>aut</code> as a product automaton explored in parallel on the common
+	 * ForkJoinPool, see {@link SFAParallelConstructions#union}. <code>ba</code> has to be thread-safe.
+	 * 
+	 * @throws TimeoutException
+	 */
+	public SFA<P, S> unionParallelWith(SFA<P, S> aut, BooleanAlgebra<P, S> ba) throws TimeoutException {
+		return SFAParallelConstructions.union(this, aut, ba, ForkJoinPool.commonPool(), Long.MAX_VALUE);
+	}
+
 	/**
 	 * Computes the union of <code>aut1</code> and <code>aut2</code> as a new
 	 * SFA
@@ -610,18 +633,14 @@ public class SFA<P, S> extends Automaton<P, S> {
 			if (System.currentTimeMillis() - startTime > timeout)
 				throw new TimeoutException();
 
-			A totGuard = null;
+			// the guard to the sink is the complement of the union of the
+			// guards out of the state, true if there are no transitions
+			ArrayList<A> guards = new ArrayList<A>();
 			for (SFAInputMove<A, B> move : sfa.getInputMovesFrom(state)) {
 				transitions.add(move);
-				if (totGuard == null)
-					totGuard = ba.MkNot(move.guard);
-				else
-					totGuard = ba.MkAnd(totGuard, ba.MkNot(move.guard));
+				guards.add(move.guard);
 			}
-			// If there are not transitions out of the state set the guard to
-			// the sink to true
-			if (totGuard == null)
-				totGuard = ba.True();
+			A totGuard = guards.isEmpty() ? ba.True() : ba.MkNot(ba.MkOr(guards));
 			if (ba.IsSatisfiable(totGuard)) {
 				addSink = true;
 				transitions.add(new SFAInputMove<A, B>(state, sinkState, totGuard));
@@ -680,10 +699,10 @@ public class SFA<P, S> extends Automaton<P, S> {
 	 */
 	public static <A, B> Pair<Boolean, List<B>> areEquivalentPlusWitness(SFA<A, B> aut1, SFA<A, B> aut2, BooleanAlgebra<A, B> ba, long timeout)
 			throws TimeoutException {
-		if (!aut1.isDeterministic)
-			aut1.determinize(ba);
-		if (!aut2.isDeterministic)
-			aut2.determinize(ba);
+		// the product below is only sound for deterministic automata, the
+		// antichain check avoids determinizing the nondeterministic ones
+		if (!aut1.isDeterministic(ba) || !aut2.isDeterministic(ba))
+			return AntichainInclusion.areEquivalent(aut1, aut2, ba, timeout);
 
 		SFA<A, B> tmp1 = collapseMultipleTransitions(aut1, ba, timeout);
 		SFA<A, B> tmp2 = collapseMultipleTransitions(aut2, ba, timeout);
@@ -700,6 +719,83 @@ public class SFA<P, S> extends Automaton<P, S> {
 	}
 	
 	
+	/**
+	 * Checks whether every word accepted by the automaton is accepted by aut
+	 * 
+	 * @throws TimeoutException
+	 */
+	public boolean isIncludedIn(SFA<P, S> aut, BooleanAlgebra<P, S> ba) throws TimeoutException {
+		return isIncludedPlusWitness(this, aut, ba, Long.MAX_VALUE).first;
+	}
+
+	/**
+	 * Checks whether every word accepted by the automaton is accepted by aut and returns a word accepted by the
+	 * automaton but not by aut if not. Second element is null if included.
+	 * 
+	 * @throws TimeoutException
+	 */
+	public Pair<Boolean, List<S>> isIncludedPlusWitnessIn(SFA<P, S> aut, BooleanAlgebra<P, S> ba)
+			throws TimeoutException {
+		return isIncludedPlusWitness(this, aut, ba, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Checks whether the language of aut1 is included in the language of aut2 and returns a concrete witness if not.
+	 * Second element is null if included. Neither automaton is determinized, see {@link AntichainInclusion}.
+	 * 
+	 * @throws TimeoutException
+	 */
+	public static <A, B> Pair<Boolean, List<B>> isIncludedPlusWitness(SFA<A, B> aut1, SFA<A, B> aut2,
+			BooleanAlgebra<A, B> ba, long timeout) throws TimeoutException {
+		return AntichainInclusion.isIncluded(aut1, aut2, ba, timeout);
+	}
+
+	/**
+	 * Checks whether no word is accepted by both the automaton and aut, without building their intersection
+	 * 
+	 * @throws TimeoutException
+	 */
+	public boolean isIntersectionEmptyWith(SFA<P, S> aut, BooleanAlgebra<P, S> ba) throws TimeoutException {
+		return intersectionWitness(this, aut, ba, Long.MAX_VALUE) == null;
+	}
+
+	/**
+	 * @return a word accepted by both the automaton and aut, null if there is none
+	 * @throws TimeoutException
+	 */
+	public List<S> intersectionWitnessWith(SFA<P, S> aut, BooleanAlgebra<P, S> ba) throws TimeoutException {
+		return intersectionWitness(this, aut, ba, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Searches the product of aut1 and aut2 depth-first and stops at the first pair of final states, see
+	 * {@link ProductEmptiness}
+	 * 
+	 * @return a word accepted by both aut1 and aut2, null if there is none
+	 * @throws TimeoutException
+	 */
+	public static <A, B> List<B> intersectionWitness(SFA<A, B> aut1, SFA<A, B> aut2, BooleanAlgebra<A, B> ba,
+			long timeout) throws TimeoutException {
+		return ProductEmptiness.intersectionWitness(aut1, aut2, ba, timeout);
+	}
+
+	/**
+	 * Checks whether every word accepted by the automaton is accepted by aut, without complementing aut
+	 * 
+	 * @throws TimeoutException
+	 */
+	public boolean isDifferenceEmptyWith(SFA<P, S> aut, BooleanAlgebra<P, S> ba) throws TimeoutException {
+		return differenceWitnessWith(aut, ba) == null;
+	}
+
+	/**
+	 * @return a word accepted by the automaton but not by aut, null if there is none
+	 * @throws TimeoutException
+	 */
+	public List<S> differenceWitnessWith(SFA<P, S> aut, BooleanAlgebra<P, S> ba) throws TimeoutException {
+		return ProductEmptiness.differenceWitness(this, aut, ba, Long.MAX_VALUE);
+	}
+
 	/**
 	 * checks whether aut1 is equivalent to aut2, if not returns a symbolic
 	 * sequence of predicates as a witness
@@ -1120,12 +1216,46 @@ public class SFA<P, S> extends Automaton<P, S> {
 		return determinize(this, ba, timeout);
 	}
 
+	// the time at which an operation started at startTime with the given timeout expires
+	static long deadline(long startTime, long timeout) {
+		return timeout >= Long.MAX_VALUE - startTime ? Long.MAX_VALUE : startTime + timeout;
+	}
+
+	/**
+	 * Maximum number of subset states built by {@link #determinize(SFA, BooleanAlgebra, long)}
+	 */
+	public static final int DEFAULT_DETERMINIZATION_BUDGET = 1 << 20;
+
+	/**
+	 * Same as determinize, but explores the subsets in parallel on the common ForkJoinPool. <code>ba</code> has to
+	 * be thread-safe.
+	 * 
+	 * @return an equivalent deterministic SFA
+	 * @throws TimeoutException
+	 */
+	public SFA<P, S> determinizeParallel(BooleanAlgebra<P, S> ba) throws TimeoutException {
+		return SFAParallelConstructions.determinize(this, ba, ForkJoinPool.commonPool(), Long.MAX_VALUE,
+				DEFAULT_DETERMINIZATION_BUDGET);
+	}
+
 	/**
 	 * @return a deterministic SFA that is equivalent to <code>aut</code>
 	 * @throws TimeoutException
 	 */
 	public static <A, B> SFA<A, B> determinize(SFA<A, B> aut, BooleanAlgebra<A, B> ba, long timeout)
 			throws TimeoutException {
+		return determinize(aut, ba, timeout, DEFAULT_DETERMINIZATION_BUDGET);
+	}
+
+	/**
+	 * Subset construction where every subset state is an {@link IntBitSet}, see {@link SubsetConstruction}.
+	 * 
+	 * @return a deterministic SFA that is equivalent to <code>aut</code>
+	 * @throws TimeoutException
+	 *             if the timeout expires or if more than <code>maxStates</code> subset states are needed
+	 */
+	public static <A, B> SFA<A, B> determinize(SFA<A, B> aut, BooleanAlgebra<A, B> ba, long timeout, int maxStates)
+			throws TimeoutException {
 
 		long startTime = System.currentTimeMillis();
 
@@ -1137,80 +1267,51 @@ public class SFA<P, S> extends Automaton<P, S> {
 		if (!aut.isEpsilonFree)
 			autChecked = aut.removeEpsilonMoves(ba);
 
+		long deadline = deadline(startTime, timeout);
+		SubsetConstruction<A, B> subsets = new SubsetConstruction<A, B>(autChecked);
+
 		// components of new SFA
 		Collection<SFAMove<A, B>> transitions = new ArrayList<SFAMove<A, B>>();
 		Integer initialState = 0;
 		Collection<Integer> finalStates = new HashSet<Integer>();
 
 		// reached contains the subset states we discovered and maps them to a
-		// stateId
-		HashMap<Collection<Integer>, Integer> reachedStates = new HashMap<Collection<Integer>, Integer>();
-		// toVisit contains the subset states we still have not explored
-		LinkedList<Collection<Integer>> toVisitStates = new LinkedList<Collection<Integer>>();
+		// stateId, toVisit maps the ids that still have to be explored to
+		// their subset
+		HashMap<IntBitSet, Integer> reachedStates = new HashMap<IntBitSet, Integer>();
+		ArrayList<IntBitSet> toVisit = new ArrayList<IntBitSet>();
+		IntArrayDeque toVisitStates = new IntArrayDeque();
 
 		// the initial state is the set {aut.initialState}
-		Collection<Integer> detInitialState = new HashSet<Integer>();
-		detInitialState.add(initialState);
-		initialState = 0;
-
-		reachedStates.put(detInitialState, 0);
-		toVisitStates.add(detInitialState);
-
-		long availableMemory = Runtime.getRuntime().totalMemory();
+		IntBitSet detInitialState = subsets.singleton(autChecked.initialState);
+		reachedStates.put(detInitialState, initialState);
+		toVisit.add(detInitialState);
+		toVisitStates.addLast(initialState);
 
 		// Explore the automaton until no new subset states can be reached
 		while (!toVisitStates.isEmpty()) {
 
-			long freeMemory = Runtime.getRuntime().freeMemory();
-			if (freeMemory < 0.1 * availableMemory)
-				throw new TimeoutException("Out of memory");
-
-			if (System.currentTimeMillis() - startTime > timeout)
+			if (System.currentTimeMillis() > deadline)
 				throw new TimeoutException();
 
-			Collection<Integer> currentState = toVisitStates.removeFirst();
-			int currentStateId = reachedStates.get(currentState);
+			int currentStateId = toVisitStates.removeFirst();
+			IntBitSet currentState = toVisit.set(currentStateId, null);
 
 			// check if final
-			if (autChecked.isFinalConfiguration(currentState))
+			if (subsets.isFinal(currentState))
 				finalStates.add(currentStateId);
 
-			// get all the moves out of the states in the current subset
-			ArrayList<SFAInputMove<A, B>> movesFromCurrState = new ArrayList<SFAInputMove<A, B>>(
-					autChecked.getInputMovesFrom(currentState));
-
-			// put in a separate list all the predicates of the moves and in the
-			// same order. We will use them to build the minterms
-			ArrayList<A> predicatesOfMoves = new ArrayList<A>();
-			for (SFAInputMove<A, B> inter : movesFromCurrState)
-				predicatesOfMoves.add(inter.guard);
-
-			// build the minterms using the predicates and iterate over them:
-			// each minterm is a predicate together with the the corresponding
-			// set of transition IDs
-			for (Pair<A, ArrayList<Integer>> minterm : ba.GetMinterms(predicatesOfMoves,
-					timeout - (System.currentTimeMillis() - startTime))) {
-
-				if (System.currentTimeMillis() - startTime > timeout)
-					throw new TimeoutException();
-
-				A guard = minterm.first;
-
-				// The new state contains all the target states of the moves
-				// with bit 1
-				ArrayList<Integer> moveBits = minterm.second;
-				Collection<Integer> toState = new HashSet<Integer>();
-				for (int moveIndex = 0; moveIndex < moveBits.size(); moveIndex++)
-					if (moveBits.get(moveIndex) == 1)
-						// add the target state of the moveIndex-th move in the
-						// list
-						toState.add(movesFromCurrState.get(moveIndex).to);
-
-				// Add new move if target state is not the empty set
-				if (toState.size() > 0) {
-					int toStateId = getStateId(toState, reachedStates, toVisitStates);
-					transitions.add(new SFAInputMove<A, B>(currentStateId, toStateId, guard));
+			for (Pair<A, IntBitSet> move : subsets.movesFrom(currentState, ba, deadline)) {
+				Integer toStateId = reachedStates.get(move.second);
+				if (toStateId == null) {
+					if (reachedStates.size() >= maxStates)
+						throw new TimeoutException("Out of memory: more than " + maxStates + " subset states");
+					toStateId = reachedStates.size();
+					reachedStates.put(move.second, toStateId);
+					toVisit.add(move.second);
+					toVisitStates.addLast(toStateId);
 				}
+				transitions.add(new SFAInputMove<A, B>(currentStateId, toStateId, move.first));
 			}
 		}
 
@@ -1281,11 +1382,30 @@ public class SFA<P, S> extends Automaton<P, S> {
 		return getMinimalOf(this, ba);
 	}
 
+	/**
+	 * @return a minimized copy of the SFA, computed with {@link HopcroftMinimization} if <code>hopcroft</code> is
+	 *         true and with the refinement over local minterms otherwise
+	 * @throws TimeoutException
+	 */
+	public SFA<P, S> minimize(BooleanAlgebra<P, S> ba, boolean hopcroft) throws TimeoutException {
+		return getMinimalOf(this, ba, hopcroft);
+	}
+
 	/**
 	 * @return a minimized copy of <code>aut<code>
 	 * @throws TimeoutException
 	 */
 	public static <A, B> SFA<A, B> getMinimalOf(SFA<A, B> aut, BooleanAlgebra<A, B> ba) throws TimeoutException {
+		return getMinimalOf(aut, ba, false);
+	}
+
+	/**
+	 * @return a minimized copy of <code>aut<code>, computed with {@link HopcroftMinimization} if
+	 *         <code>hopcroft</code> is true and with the refinement over local minterms otherwise
+	 * @throws TimeoutException
+	 */
+	public static <A, B> SFA<A, B> getMinimalOf(SFA<A, B> aut, BooleanAlgebra<A, B> ba, boolean hopcroft)
+			throws TimeoutException {
 
 		if (aut.isEmpty)
 			return getEmptySFA(ba);
@@ -1296,6 +1416,9 @@ public class SFA<P, S> extends Automaton<P, S> {
 
 		totalAut = totalAut.mkTotal(ba);
 
+		if (hopcroft)
+			return HopcroftMinimization.minimize(totalAut, ba);
+
 		// This algorithm is presented the POPL14 paper by D'Antoni and Veanes
 		// Minimization of symbolic automata
 
@@ -0,0 +1,317 @@
+/**
+ * SVPAlib
+ * automata.sfa
+ */
+package automata.sfa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.sat4j.specs.TimeoutException;
+
+import automata.Move;
+import theory.BooleanAlgebra;
+import utilities.IntBitSet;
+import utilities.LongIntHashMap;
+import utilities.Pair;
+
+/**
+ * Parallel versions of {@link SFA#determinize}, {@link SFA#intersection} and a product-based union.
+ *
+ * The reachable states of the result are explored by a ForkJoinPool: every newly reached state becomes a task that
+ * computes the moves leaving it (minterms for determinization, guard conjunctions for products) and forks the states
+ * it reaches first. Reached states are claimed in a concurrent map. When the exploration is over, the states are
+ * renumbered breadth-first from the initial state following the moves in the order they were computed, so the result
+ * does not depend on the scheduling and is the same in every run.
+ *
+ * The Boolean algebra is called from several threads at once and has to be thread-safe.
+ *
+ * @param <K>
+ *            The type of the states explored
+ * @param <A>
+ *            The type of predicates forming the Boolean algebra
+ */
+public class SFAParallelConstructions<K, A> {
+
+	// the moves leaving a state and whether it is final
+	private interface Expansion<K, A> {
+		boolean isFinal(K state) throws TimeoutException;
+
+		List<Pair<A, K>> movesFrom(K state) throws TimeoutException;
+	}
+
+	// a reached state, moves is written by the task that explores it
+	private static class Node<K, A> {
+		boolean isFinal;
+		List<Pair<A, K>> moves;
+	}
+
+	private final Expansion<K, A> expansion;
+	private final long deadline;
+	private final int maxStates;
+
+	private final ConcurrentHashMap<K, Node<K, A>> reached;
+	private final AtomicBoolean cancelled;
+	private volatile TimeoutException timeout;
+
+	private SFAParallelConstructions(Expansion<K, A> expansion, long deadline, int maxStates) {
+		this.expansion = expansion;
+		this.deadline = deadline;
+		this.maxStates = maxStates;
+		this.reached = new ConcurrentHashMap<K, Node<K, A>>();
+		this.cancelled = new AtomicBoolean(false);
+	}
+
+	/**
+	 * Determinizes <code>aut</code> in parallel, see {@link SFA#determinize(SFA, BooleanAlgebra, long, int)}
+	 *
+	 * @param pool pool that runs the exploration
+	 * @throws TimeoutException
+	 *             if the timeout expires or if more than <code>maxStates</code> subset states are needed
+	 */
+	public static <A, B> SFA<A, B> determinize(SFA<A, B> aut, final BooleanAlgebra<A, B> ba, ForkJoinPool pool,
+			long timeout, int maxStates) throws TimeoutException {
+		final long deadline = SFA.deadline(System.currentTimeMillis(), timeout);
+
+		if (aut.isDeterministic(ba))
+			return aut;
+
+		SFA<A, B> autChecked = aut;
+		if (!aut.isEpsilonFree())
+			autChecked = aut.removeEpsilonMoves(ba);
+
+		final SubsetConstruction<A, B> subsets = new SubsetConstruction<A, B>(autChecked);
+		Expansion<IntBitSet, A> expansion = new Expansion<IntBitSet, A>() {
+			public boolean isFinal(IntBitSet state) {
+				return subsets.isFinal(state);
+			}
+
+			public List<Pair<A, IntBitSet>> movesFrom(IntBitSet state) throws TimeoutException {
+				return subsets.movesFrom(state, ba, deadline);
+			}
+		};
+		SFAParallelConstructions<IntBitSet, A> exploration = new SFAParallelConstructions<IntBitSet, A>(expansion,
+				deadline, maxStates);
+		SFA<A, B> determinized = exploration.run(subsets.singleton(autChecked.getInitialState()), pool, ba, false);
+		// set isDetermistic to true to avoid future redundancy
+		determinized.setIsDet(true);
+		return determinized;
+	}
+
+	/**
+	 * Intersects <code>aut1</code> and <code>aut2</code> in parallel, see {@link SFA#intersection}
+	 *
+	 * @param pool pool that runs the exploration
+	 * @throws TimeoutException
+	 */
+	public static <A, B> SFA<A, B> intersection(SFA<A, B> aut1, SFA<A, B> aut2, BooleanAlgebra<A, B> ba,
+			ForkJoinPool pool, long timeout) throws TimeoutException {
+		if (aut1.isEmpty() || aut2.isEmpty())
+			return SFA.getEmptySFA(ba);
+		return product(aut1, aut2, ba, pool, timeout, false);
+	}
+
+	/**
+	 * Computes the union of <code>aut1</code> and <code>aut2</code> in parallel as a product automaton, in which a
+	 * component that has no move on a character continues as a dead state. Unlike {@link SFA#union}, the result has
+	 * no epsilon moves and is deterministic if both automata are.
+	 *
+	 * @param pool pool that runs the exploration
+	 * @throws TimeoutException
+	 */
+	public static <A, B> SFA<A, B> union(SFA<A, B> aut1, SFA<A, B> aut2, BooleanAlgebra<A, B> ba, ForkJoinPool pool,
+			long timeout) throws TimeoutException {
+		if (aut1.isEmpty() && aut2.isEmpty())
+			return SFA.getEmptySFA(ba);
+		return product(aut1, aut2, ba, pool, timeout, true);
+	}
+
+	// the product of aut1 and aut2, final if both (or, for a union, either) components are final
+	private static <A, B> SFA<A, B> product(SFA<A, B> aut1, SFA<A, B> aut2, final BooleanAlgebra<A, B> ba,
+			ForkJoinPool pool, long timeout, final boolean union) throws TimeoutException {
+		long deadline = SFA.deadline(System.currentTimeMillis(), timeout);
+		final Closures<A, B> closures1 = new Closures<A, B>(aut1, ba, union);
+		final Closures<A, B> closures2 = new Closures<A, B>(aut2, ba, union);
+
+		Expansion<Long, A> expansion = new Expansion<Long, A>() {
+			public boolean isFinal(Long state) {
+				boolean final1 = closures1.isFinal(LongIntHashMap.first(state));
+				boolean final2 = closures2.isFinal(LongIntHashMap.second(state));
+				return union ? final1 || final2 : final1 && final2;
+			}
+
+			public List<Pair<A, Long>> movesFrom(Long state) throws TimeoutException {
+				List<SFAInputMove<A, B>> moves1 = closures1.movesFrom(LongIntHashMap.first(state));
+				List<SFAInputMove<A, B>> moves2 = closures2.movesFrom(LongIntHashMap.second(state));
+				List<Pair<A, Long>> moves = new ArrayList<Pair<A, Long>>();
+				// Try to pair transitions out of both automata
+				for (SFAInputMove<A, B> ct1 : moves1)
+					for (SFAInputMove<A, B> ct2 : moves2) {
+						A intersGuard = ba.MkAnd(ct1.guard, ct2.guard);
+						if (ba.IsSatisfiable(intersGuard))
+							moves.add(new Pair<A, Long>(intersGuard, LongIntHashMap.pack(ct1.to, ct2.to)));
+					}
+				if (union) {
+					// characters that only one of the components can read
+					A notGuard2 = closures2.notGuards(LongIntHashMap.second(state));
+					for (SFAInputMove<A, B> ct1 : moves1) {
+						A onlyGuard = ba.MkAnd(ct1.guard, notGuard2);
+						if (ba.IsSatisfiable(onlyGuard))
+							moves.add(new Pair<A, Long>(onlyGuard, LongIntHashMap.pack(ct1.to, Closures.DEAD)));
+					}
+					A notGuard1 = closures1.notGuards(LongIntHashMap.first(state));
+					for (SFAInputMove<A, B> ct2 : moves2) {
+						A onlyGuard = ba.MkAnd(ct2.guard, notGuard1);
+						if (ba.IsSatisfiable(onlyGuard))
+							moves.add(new Pair<A, Long>(onlyGuard, LongIntHashMap.pack(Closures.DEAD, ct2.to)));
+					}
+				}
+				return moves;
+			}
+		};
+		SFAParallelConstructions<Long, A> exploration = new SFAParallelConstructions<Long, A>(expansion, deadline,
+				Integer.MAX_VALUE);
+		return exploration.run(LongIntHashMap.pack(aut1.getInitialState(), aut2.getInitialState()), pool, ba, true);
+	}
+
+	// explores the states reachable from initial and builds the renumbered SFA
+	private <B> SFA<A, B> run(K initial, ForkJoinPool pool, BooleanAlgebra<A, B> ba, boolean remUnreachableStates)
+			throws TimeoutException {
+		reached.put(initial, new Node<K, A>());
+		pool.invoke(new ExploreTask(null, initial));
+		if (timeout != null)
+			throw timeout;
+
+		// renumber breadth-first
+		Map<K, Integer> ids = new HashMap<K, Integer>();
+		LinkedList<K> toVisit = new LinkedList<K>();
+		ids.put(initial, 0);
+		toVisit.add(initial);
+		Collection<SFAMove<A, B>> transitions = new ArrayList<SFAMove<A, B>>();
+		Collection<Integer> finalStates = new HashSet<Integer>();
+		while (!toVisit.isEmpty()) {
+			K state = toVisit.removeFirst();
+			int id = ids.get(state);
+			Node<K, A> node = reached.get(state);
+			if (node.isFinal)
+				finalStates.add(id);
+			for (Pair<A, K> move : node.moves)
+				transitions.add(new SFAInputMove<A, B>(id, SFA.getStateId(move.second, ids, toVisit), move.first));
+		}
+		return SFA.MkSFA(transitions, 0, finalStates, ba, remUnreachableStates);
+	}
+
+	private void abort(TimeoutException toe) {
+		timeout = toe;
+		cancelled.set(true);
+	}
+
+	private class ExploreTask extends CountedCompleter<Void> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final K state;
+
+		ExploreTask(CountedCompleter<?> parent, K state) {
+			super(parent);
+			this.state = state;
+		}
+
+		@Override
+		public void compute() {
+			try {
+				if (!cancelled.get()) {
+					if (System.currentTimeMillis() > deadline)
+						throw new TimeoutException();
+					Node<K, A> node = reached.get(state);
+					node.isFinal = expansion.isFinal(state);
+					node.moves = expansion.movesFrom(state);
+					for (Pair<A, K> move : node.moves) {
+						if (reached.putIfAbsent(move.second, new Node<K, A>()) == null) {
+							if (reached.size() > maxStates)
+								throw new TimeoutException("Out of memory: more than " + maxStates + " states");
+							addToPendingCount(1);
+							new ExploreTask(this, move.second).fork();
+						}
+					}
+				}
+			} catch (TimeoutException toe) {
+				abort(toe);
+			}
+			tryComplete();
+		}
+	}
+
+	/**
+	 * The epsilon closures of the states of an SFA, with their input moves and final flags, computed before the
+	 * exploration starts since the accessors of SFA create missing entries. The state {@link #DEAD} has no moves.
+	 */
+	private static class Closures<A, B> {
+
+		static final int DEAD = Integer.MIN_VALUE;
+
+		private final Map<Integer, List<SFAInputMove<A, B>>> movesFrom;
+		private final Map<Integer, A> notGuards;
+		private final HashSet<Integer> finalStates;
+		private final BooleanAlgebra<A, B> ba;
+
+		Closures(SFA<A, B> aut, BooleanAlgebra<A, B> ba, boolean withNotGuards) throws TimeoutException {
+			this.ba = ba;
+			movesFrom = new HashMap<Integer, List<SFAInputMove<A, B>>>();
+			notGuards = new HashMap<Integer, A>();
+			finalStates = new HashSet<Integer>();
+			for (Integer state : aut.getStates()) {
+				List<SFAInputMove<A, B>> moves = new ArrayList<SFAInputMove<A, B>>();
+				Collection<Integer> closure = epsClosure(aut, state);
+				for (Integer s : closure) {
+					moves.addAll(aut.getInputMovesFrom(s));
+					if (aut.isFinalState(s))
+						finalStates.add(state);
+				}
+				movesFrom.put(state, moves);
+				if (withNotGuards) {
+					List<A> guards = new ArrayList<A>();
+					for (SFAInputMove<A, B> move : moves)
+						guards.add(move.guard);
+					notGuards.put(state, ba.MkNot(ba.MkOr(guards)));
+				}
+			}
+		}
+
+		private static <A, B> Collection<Integer> epsClosure(SFA<A, B> aut, Integer state) {
+			HashSet<Integer> closure = new HashSet<Integer>();
+			LinkedList<Integer> toVisit = new LinkedList<Integer>();
+			closure.add(state);
+			toVisit.add(state);
+			while (!toVisit.isEmpty())
+				for (Move<A, B> move : aut.getMovesFrom(toVisit.removeFirst()))
+					if (move.isEpsilonTransition() && closure.add(move.to))
+						toVisit.add(move.to);
+			return closure;
+		}
+
+		boolean isFinal(int state) {
+			return finalStates.contains(state);
+		}
+
+		List<SFAInputMove<A, B>> movesFrom(int state) {
+			List<SFAInputMove<A, B>> moves = movesFrom.get(state);
+			return moves == null ? new ArrayList<SFAInputMove<A, B>>() : moves;
+		}
+
+		// the characters on which state has no move
+		A notGuards(int state) {
+			A notGuard = notGuards.get(state);
+			return notGuard == null ? ba.True() : notGuard;
+		}
+	}
+}
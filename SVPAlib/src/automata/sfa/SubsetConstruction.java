@@ -0,0 +1,124 @@
+/**
+ * SVPAlib
+ * automata.sfa
+ */
+package automata.sfa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebra;
+import utilities.IntBitSet;
+import utilities.Pair;
+
+/**
+ * The transition function of the subset automaton of an epsilon-free SFA. The states of the SFA are numbered densely
+ * and a subset state is an {@link IntBitSet} over these numbers. The outgoing moves of a subset only depend on its
+ * members that have moves, so the minterms and target subsets are computed once per such set of members and shared
+ * by all subsets that contain it.
+ * The SFA is only read by the constructor, so one instance can be used by parallel explorations as long as the
+ * Boolean algebra is thread-safe.
+ */
+class SubsetConstruction<A, B> {
+
+	private final Map<Integer, Integer> index;
+	private final List<List<SFAInputMove<A, B>>> movesOf;
+	private final int[][] targetsOf;
+	private final IntBitSet finalMask;
+	private final IntBitSet activeMask;
+	private final int words;
+	// outgoing guards and target subsets, keyed by the members that have moves
+	private final ConcurrentHashMap<IntBitSet, List<Pair<A, IntBitSet>>> rows;
+
+	SubsetConstruction(SFA<A, B> aut) {
+		index = new HashMap<Integer, Integer>();
+		for (Integer state : aut.getStates())
+			index.put(state, index.size());
+		words = IntBitSet.wordsFor(index.size());
+		movesOf = new ArrayList<List<SFAInputMove<A, B>>>(index.size());
+		targetsOf = new int[index.size()][];
+		long[] finalWords = new long[words];
+		long[] activeWords = new long[words];
+		for (Integer state : aut.getStates()) {
+			int i = index.get(state);
+			List<SFAInputMove<A, B>> moves = new ArrayList<SFAInputMove<A, B>>(aut.getInputMovesFrom(state));
+			movesOf.add(moves);
+			targetsOf[i] = new int[moves.size()];
+			for (int m = 0; m < moves.size(); m++)
+				targetsOf[i][m] = index.get(moves.get(m).to);
+			if (aut.isFinalState(state))
+				IntBitSet.set(finalWords, i);
+			if (!moves.isEmpty())
+				IntBitSet.set(activeWords, i);
+		}
+		finalMask = IntBitSet.of(finalWords);
+		activeMask = IntBitSet.of(activeWords);
+		rows = new ConcurrentHashMap<IntBitSet, List<Pair<A, IntBitSet>>>();
+	}
+
+	/**
+	 * @return the subset containing only <code>state</code>
+	 */
+	IntBitSet singleton(Integer state) {
+		return IntBitSet.singleton(index.get(state));
+	}
+
+	boolean isFinal(IntBitSet subset) {
+		return subset.intersects(finalMask);
+	}
+
+	/**
+	 * @return the minterms of the moves leaving <code>subset</code>, each with the subset it leads to. Minterms that
+	 *         lead to the empty subset are left out.
+	 */
+	List<Pair<A, IntBitSet>> movesFrom(IntBitSet subset, BooleanAlgebra<A, B> ba, long deadline)
+			throws TimeoutException {
+		IntBitSet active = subset.and(activeMask);
+		List<Pair<A, IntBitSet>> row = rows.get(active);
+		if (row != null)
+			return row;
+
+		// get all the moves out of the states in the subset and put their
+		// predicates in a separate list in the same order. We will use them to
+		// build the minterms
+		ArrayList<A> predicatesOfMoves = new ArrayList<A>();
+		ArrayList<Integer> targetsOfMoves = new ArrayList<Integer>();
+		for (int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1))
+			for (int m = 0; m < targetsOf[i].length; m++) {
+				predicatesOfMoves.add(movesOf.get(i).get(m).guard);
+				targetsOfMoves.add(targetsOf[i][m]);
+			}
+
+		// build the minterms using the predicates and iterate over them: each
+		// minterm is a predicate together with the the corresponding set of
+		// transition IDs
+		row = new ArrayList<Pair<A, IntBitSet>>();
+		long[] scratch = new long[words];
+		for (Pair<A, ArrayList<Integer>> minterm : ba.GetMinterms(predicatesOfMoves,
+				deadline - System.currentTimeMillis())) {
+
+			if (System.currentTimeMillis() > deadline)
+				throw new TimeoutException();
+
+			// The new state contains all the target states of the moves with
+			// bit 1
+			ArrayList<Integer> moveBits = minterm.second;
+			for (int moveIndex = 0; moveIndex < moveBits.size(); moveIndex++)
+				if (moveBits.get(moveIndex) == 1)
+					IntBitSet.set(scratch, targetsOfMoves.get(moveIndex));
+
+			IntBitSet toState = IntBitSet.of(scratch);
+			if (!toState.isEmpty())
+				row.add(new Pair<A, IntBitSet>(minterm.first, toState));
+			for (int w = 0; w < words; w++)
+				scratch[w] = 0;
+		}
+		List<Pair<A, IntBitSet>> previous = rows.putIfAbsent(active, row);
+		return previous == null ? row : previous;
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * SVPAlib
+ * automata.sfa
+ */
+package automata.sfa;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebra;
+import theory.characters.CharPred;
+
+/**
+ * Draws words of a given length accepted by an SFA uniformly at random among all the accepted words of that length.
+ * The SFA is determinized first, so that every accepted word has exactly one accepting path. A move then stands for
+ * as many symbols as its guard has models, and the number of accepted words of length r from state q is
+ * <code>count(r, q) = sum over the moves q -g-> t of |g| * count(r - 1, t)</code>, computed with BigIntegers and
+ * extended on demand. A word is drawn symbol by symbol, picking every move with probability proportional to its share
+ * of the count and then a model of its guard uniformly.
+ *
+ * @param
+ * 			<P>
+ *            set of predicates over the domain S
+ * @param <S>
+ *            domain of the automaton alphabet
+ */
+public class UniformWordSampler<P, S> {
+
+	/**
+	 * The models of a predicate, numbered from 0
+	 */
+	public interface Models<P, S> {
+		/**
+		 * @return the number of models of <code>guard</code>
+		 */
+		BigInteger count(P guard);
+
+		/**
+		 * @return the model <code>k</code> of <code>guard</code>, where 0 &le; k &lt; count(guard)
+		 */
+		S get(P guard, BigInteger k);
+	}
+
+	/**
+	 * The characters of a {@link CharPred}, in increasing order
+	 */
+	public static final Models<CharPred, Character> CHARACTERS = new Models<CharPred, Character>() {
+		@Override
+		public BigInteger count(CharPred guard) {
+			return BigInteger.valueOf(guard.cardinality());
+		}
+
+		@Override
+		public Character get(CharPred guard, BigInteger k) {
+			return guard.nthChar(k.intValue());
+		}
+	};
+
+	// words drawn from the same random generator when sampling a batch
+	private static final int STREAM_SIZE = 64;
+
+	private final Models<P, S> models;
+	private final CountedPaths<P, S> paths;
+
+	/**
+	 * Sampler of the words accepted by <code>aut</code>
+	 *
+	 * @throws TimeoutException
+	 */
+	public UniformWordSampler(SFA<P, S> aut, BooleanAlgebra<P, S> ba, final Models<P, S> models)
+			throws TimeoutException {
+		this.models = models;
+		// a move stands for all the models of its guard
+		this.paths = new CountedPaths<P, S>(aut, ba, null, new Function<P, BigInteger>() {
+			@Override
+			public BigInteger apply(P guard) {
+				return models.count(guard);
+			}
+		});
+	}
+
+	/**
+	 * @return a sampler of the words accepted by <code>aut</code> over characters
+	 * @throws TimeoutException
+	 */
+	public static UniformWordSampler<CharPred, Character> of(SFA<CharPred, Character> aut,
+			BooleanAlgebra<CharPred, Character> ba) throws TimeoutException {
+		return new UniformWordSampler<CharPred, Character>(aut, ba, CHARACTERS);
+	}
+
+	/**
+	 * @return the number of accepted words of length <code>length</code>
+	 */
+	public BigInteger countOfLength(int length) {
+		return paths.count(length, paths.initialState);
+	}
+
+	/**
+	 * @return an accepted word of length <code>length</code>, where all the accepted words of that length are equally
+	 *         likely, null if there is none
+	 */
+	public List<S> sample(int length, Random random) {
+		return sample(paths.rowsUpTo(length), length, random);
+	}
+
+	// the rows are not modified once computed, so they are read without
+	// locking
+	private List<S> sample(BigInteger[][] rows, int length, Random random) {
+		int[] moves = new int[length];
+		BigInteger[] choices = new BigInteger[length];
+		if (!paths.samplePath(rows, length, random, moves, choices))
+			return null;
+
+		List<S> word = new ArrayList<S>(length);
+		int q = paths.initialState;
+		for (int d = 0; d < length; d++) {
+			// the choice is uniform among the models of the guard
+			word.add(models.get(paths.guards.get(q).get(moves[d]), choices[d]));
+			q = paths.targets[q][moves[d]];
+		}
+		return word;
+	}
+
+	/**
+	 * @return <code>howMany</code> words of length <code>length</code> drawn independently and uniformly, an empty
+	 *         list if there is no such word. The words are drawn in streams of {@value #STREAM_SIZE}, every stream with
+	 *         its own random generator derived from <code>seed</code>, and the streams are run on the common
+	 *         ForkJoinPool if <code>parallel</code> is true. The result only depends on the seed.
+	 */
+	public List<List<S>> sample(int length, int howMany, long seed, boolean parallel) {
+		BigInteger[][] rows = paths.rowsUpTo(length);
+		if (rows[length][paths.initialState].signum() == 0)
+			return new ArrayList<List<S>>();
+
+		@SuppressWarnings("unchecked")
+		List<S>[] words = new List[howMany];
+		int streams = (howMany + STREAM_SIZE - 1) / STREAM_SIZE;
+		SampleTask task = new SampleTask(rows, length, seed, words, 0, streams);
+		if (parallel)
+			ForkJoinPool.commonPool().invoke(task);
+		else
+			task.sampleStreams();
+		return Arrays.asList(words);
+	}
+
+	// draws the streams from .. to, splitting the range while it is large
+	private class SampleTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final BigInteger[][] rows;
+		final int length;
+		final long seed;
+		final List<S>[] words;
+		final int from;
+		final int to;
+
+		SampleTask(BigInteger[][] rows, int length, long seed, List<S>[] words, int from, int to) {
+			this.rows = rows;
+			this.length = length;
+			this.seed = seed;
+			this.words = words;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new SampleTask(rows, length, seed, words, from, mid),
+						new SampleTask(rows, length, seed, words, mid, to));
+				return;
+			}
+			sampleStreams();
+		}
+
+		void sampleStreams() {
+			for (int stream = from; stream < to; stream++) {
+				Random random = new Random(seed + stream * 0x9E3779B97F4A7C15L);
+				int end = Math.min(words.length, (stream + 1) * STREAM_SIZE);
+				for (int w = stream * STREAM_SIZE; w < end; w++)
+					words[w] = sample(rows, length, random);
+			}
+		}
+	}
+}
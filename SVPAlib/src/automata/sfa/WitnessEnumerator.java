@@ -0,0 +1,288 @@
+/**
+ * SVPAlib
+ * automata.sfa
+ */
+package automata.sfa;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebra;
+import theory.characters.CharPred;
+
+/**
+ * Enumerates the words accepted by an SFA lazily, by increasing length and lexicographically among words of the same
+ * length. The SFA is determinized and normalized first, so that every accepted path stands for a different set of
+ * words, and every move contributes one witness to the words it is on. The number of paths of every length from every
+ * state is counted, which lets the enumeration skip the moves that cannot lead to an accepted word of the current
+ * length and lets {@link #sample(int, Random)} draw a path of a given length uniformly at random. Only the counts and
+ * the current path are kept in memory, not the words enumerated so far.
+ *
+ * @param
+ * 			<P>
+ *            set of predicates over the domain S
+ * @param <S>
+ *            domain of the automaton alphabet
+ */
+public class WitnessEnumerator<P, S> {
+
+	private final CountedPaths<P, S> paths;
+	private final int initialState;
+	private final boolean[] isFinal;
+	// the moves of state q sorted by their witness: their targets and
+	// witnesses
+	private final int[][] targets;
+	private final List<List<S>> witnesses;
+	private final boolean isFinite;
+
+	/**
+	 * Enumerator of the words accepted by <code>aut</code>, the symbols of a word are the witnesses
+	 * <code>witness</code> picks for the guards and words of the same length are ordered by <code>order</code> on
+	 * their symbols. The enumeration is deterministic as long as <code>witness</code> is.
+	 *
+	 * @throws TimeoutException
+	 */
+	public WitnessEnumerator(SFA<P, S> aut, BooleanAlgebra<P, S> ba, final Function<? super P, ? extends S> witness,
+			final Comparator<? super S> order) throws TimeoutException {
+		paths = new CountedPaths<P, S>(aut, ba, new Comparator<P>() {
+			@Override
+			public int compare(P g1, P g2) {
+				return order.compare(witness.apply(g1), witness.apply(g2));
+			}
+		}, null);
+		initialState = paths.initialState;
+		isFinal = paths.isFinal;
+		targets = paths.targets;
+
+		witnesses = new ArrayList<List<S>>(targets.length);
+		for (List<P> guards : paths.guards) {
+			List<S> stateWitnesses = new ArrayList<S>(guards.size());
+			for (P guard : guards)
+				stateWitnesses.add(witness.apply(guard));
+			witnesses.add(stateWitnesses);
+		}
+
+		isFinite = !hasUsefulCycle();
+	}
+
+	/**
+	 * @return an enumerator of the words accepted by <code>aut</code> over characters, where the witness of a guard is
+	 *         its smallest character
+	 * @throws TimeoutException
+	 */
+	public static WitnessEnumerator<CharPred, Character> of(SFA<CharPred, Character> aut,
+			BooleanAlgebra<CharPred, Character> ba) throws TimeoutException {
+		return new WitnessEnumerator<CharPred, Character>(aut, ba, new Function<CharPred, Character>() {
+			@Override
+			public Character apply(CharPred guard) {
+				return guard.intervalLeft(0);
+			}
+		}, Comparator.<Character> naturalOrder());
+	}
+
+	/**
+	 * @return the number of accepted paths of length <code>length</code>, that is of words of that length up to the
+	 *         choice of the witness of every guard
+	 */
+	public BigInteger countOfLength(int length) {
+		return count(length, initialState);
+	}
+
+	/**
+	 * @return true if the automaton accepts words of unbounded length
+	 */
+	public boolean isInfinite() {
+		return !isFinite;
+	}
+
+	/**
+	 * @return all accepted words in length-lexicographic order
+	 */
+	public Iterator<List<S>> iterator() {
+		return iterator(0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the accepted words whose length is between <code>minLength</code> and <code>maxLength</code> included,
+	 *         in length-lexicographic order
+	 */
+	public Iterator<List<S>> iterator(int minLength, int maxLength) {
+		return new LengthLexIterator(minLength, maxLength);
+	}
+
+	/**
+	 * @return an accepted word of length <code>length</code>, where every accepted path of that length is equally
+	 *         likely, null if there is none
+	 */
+	public List<S> sample(int length, Random random) {
+		int[] moves = new int[length];
+		if (!paths.samplePath(paths.rowsUpTo(length), length, random, moves, new BigInteger[length]))
+			return null;
+
+		List<S> word = new ArrayList<S>(length);
+		int q = initialState;
+		for (int d = 0; d < length; d++) {
+			word.add(witnesses.get(q).get(moves[d]));
+			q = targets[q][moves[d]];
+		}
+		return word;
+	}
+
+	private BigInteger count(int r, int q) {
+		return paths.count(r, q);
+	}
+
+	// whether a cycle can be reached from the initial state and can reach a
+	// final state, that is whether the language is infinite
+	private boolean hasUsefulCycle() {
+		int n = isFinal.length;
+		// the states that can reach a final state
+		boolean[] useful = new boolean[n];
+		boolean changed = true;
+		for (int q = 0; q < n; q++)
+			useful[q] = isFinal[q];
+		while (changed) {
+			changed = false;
+			for (int q = 0; q < n; q++)
+				if (!useful[q])
+					for (int t : targets[q])
+						if (useful[t]) {
+							useful[q] = true;
+							changed = true;
+							break;
+						}
+		}
+
+		// depth-first search for a back edge among the useful states
+		int[] color = new int[n];
+		int[] stack = new int[n];
+		int[] nextMove = new int[n];
+		for (int root = 0; root < n; root++) {
+			if (!useful[root] || color[root] != 0)
+				continue;
+			int depth = 0;
+			stack[0] = root;
+			color[root] = 1;
+			while (depth >= 0) {
+				int q = stack[depth];
+				if (nextMove[q] < targets[q].length) {
+					int t = targets[q][nextMove[q]++];
+					if (!useful[t])
+						continue;
+					if (color[t] == 1)
+						return true;
+					if (color[t] == 0) {
+						color[t] = 1;
+						stack[++depth] = t;
+					}
+				} else {
+					color[q] = 2;
+					depth--;
+				}
+			}
+		}
+		return false;
+	}
+
+	// depth-first search of the paths of the current length, moves that lead
+	// to no accepted path of the remaining length are skipped
+	private class LengthLexIterator implements Iterator<List<S>> {
+		private final int maxLength;
+		private int length;
+		private int[] path;
+		private int[] moveOfStep;
+		private List<S> next;
+		private boolean startOfLength;
+
+		LengthLexIterator(int minLength, int maxLength) {
+			this.maxLength = maxLength;
+			this.length = minLength;
+			this.startOfLength = true;
+			this.next = advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public List<S> next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			List<S> word = next;
+			next = advance();
+			return word;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private List<S> advance() {
+			while (length <= maxLength) {
+				if (startOfLength) {
+					startOfLength = false;
+					if (count(length, initialState).signum() > 0) {
+						path = new int[length + 1];
+						moveOfStep = new int[length];
+						path[0] = initialState;
+						descend(0);
+						return word();
+					}
+				} else {
+					// the deepest step that has another useful move
+					for (int d = length - 1; d >= 0; d--) {
+						int i = nextUsefulMove(path[d], moveOfStep[d] + 1, length - d - 1);
+						if (i >= 0) {
+							moveOfStep[d] = i;
+							path[d + 1] = targets[path[d]][i];
+							descend(d + 1);
+							return word();
+						}
+					}
+				}
+
+				// no more words of this length
+				if (isFinite && length >= isFinal.length)
+					return null;
+				length++;
+				startOfLength = true;
+			}
+			return null;
+		}
+
+		// completes the path from depth d with the first useful moves
+		private void descend(int d) {
+			for (; d < length; d++) {
+				moveOfStep[d] = nextUsefulMove(path[d], 0, length - d - 1);
+				path[d + 1] = targets[path[d]][moveOfStep[d]];
+			}
+		}
+
+		// the first move of q from i on after which an accepted path of
+		// length remaining exists, -1 if there is none
+		private int nextUsefulMove(int q, int i, int remaining) {
+			for (; i < targets[q].length; i++)
+				if (count(remaining, targets[q][i]).signum() > 0)
+					return i;
+			return -1;
+		}
+
+		private List<S> word() {
+			List<S> word = new ArrayList<S>(length);
+			for (int d = 0; d < length; d++)
+				word.add(witnesses.get(path[d]).get(moveOfStep[d]));
+			return word;
+		}
+	}
+}
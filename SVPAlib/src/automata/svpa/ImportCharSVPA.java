@@ -236,8 +236,7 @@ public class ImportCharSVPA {
 			ICharPred predicate = null;
 			try {
 				// try to parse the string as a unary char predicate
-				predicate = parseCharPredicate(rest);
-				predicate.setAsReturn();
+				predicate = parseCharPredicate(rest).returnCopy();
 			} catch (AutomataException eUnary) {
 				// otherwise, try to parse as a binary char predicate
 				try {
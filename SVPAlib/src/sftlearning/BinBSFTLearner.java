@@ -481,7 +481,7 @@ public class BinBSFTLearner<P extends CharPred, F extends TermInterface, S> {
                     // Cannot simply assume i will be next state because we can have multiple transitions from i to j with different predicates
                     // Add the transition i---pred_j (key) / terms_j (sepPreds.get(key)) ---> j (index)
 
-                    if (key.intervals != null && !key.intervals.isEmpty() && key.intervals.get(0) != null) {
+                    if (key.getIntervals() != null && !key.getIntervals().isEmpty() && key.getIntervals().get(0) != null) {
                         moves.add(new SFTInputMove<>(i, sepPreds.get(key).getValue(), key, sepPreds.get(key).getKey()));
                     }
                 }
@@ -9,6 +9,7 @@ import theory.characters.CharPred;
 import theory.intervals.UnaryCharIntervalSolver;
 import transducers.sft.SFT;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Scanner;
@@ -91,6 +92,8 @@ public class CompareToSpec {
             System.out.println("The learned model can be found at: "+savePath+"learnedModel"+currentDateTime+".dot");
         } catch (TimeoutException e) {
             e.printStackTrace();
+        } catch (IOException e) {
+            System.out.println("Could not read the specification: " + e.getMessage());
         }
     }
 }
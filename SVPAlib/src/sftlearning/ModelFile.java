@@ -0,0 +1,643 @@
+package sftlearning;
+
+import automata.sfa.SFA;
+import automata.sfa.SFAEpsilon;
+import automata.sfa.SFAInputMove;
+import automata.sfa.SFAMove;
+import org.sat4j.specs.TimeoutException;
+import theory.characters.CharConstant;
+import theory.characters.CharFunc;
+import theory.characters.CharOffset;
+import theory.characters.CharPred;
+import theory.intervals.UnaryCharIntervalSolver;
+import transducers.sft.SFT;
+import transducers.sft.SFTEpsilon;
+import transducers.sft.SFTInputMove;
+import transducers.sft.SFTMove;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A compact, versioned binary file holding one SFA or SFT over characters.
+ *
+ * The file starts with a fixed header (magic number, version, kind, flags and the size of every section) followed by
+ * the sections, all big-endian:
+ * - the ids of the states and whether each state is final
+ * - the predicate table: for every distinct guard the offset of its intervals, then the interval bounds as chars
+ * - the term table: for every distinct output function a tag (offset or constant) and its value
+ * - the input moves in compressed sparse row form: per state the offset of its moves, per move its target, its guard
+ *   and the offset of its output terms
+ * - the epsilon moves in the same form, with their outputs as chars
+ * - the tails of the final states of an SFT, as chars
+ *
+ * Files are read and written through memory-mapped buffers. Only the header is read lazily: opening a file checks the
+ * header and the size of the file, and the first call to {@link #toSFA()} or {@link #toSFT()} decodes the whole body
+ * at once into the model, which is kept afterwards. A file is written to a temporary file in the same directory that
+ * then replaces the target in one rename, so a file that is still open or mapped is never overwritten in place.
+ */
+public class ModelFile {
+
+    /** "SVMF" */
+    public static final int MAGIC = 0x53564D46;
+    public static final short VERSION = 1;
+
+    private static final byte KIND_SFA = 0;
+    private static final byte KIND_SFT = 1;
+    private static final byte FLAG_DETERMINISTIC = 1;
+
+    private static final byte TERM_OFFSET = 0;
+    private static final byte TERM_CONSTANT = 1;
+
+    private static final int HEADER_SIZE = 4 + 2 + 1 + 1 + 11 * 4;
+
+    private final String path;
+    private final ByteBuffer buffer;
+    private final byte kind;
+    private final byte flags;
+    private final int states;
+    private final int initial;
+    private final int inputMoves;
+    private final int epsilonMoves;
+    private final int predicates;
+    private final int intervals;
+    private final int terms;
+    private final int outputTerms;
+    private final int epsilonOutputs;
+    private final int tails;
+    private final int tailChars;
+
+    private SFA<CharPred, Character> sfa;
+    private SFT<CharPred, CharFunc, Character> sft;
+
+    private ModelFile(String path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a model file");
+            }
+            short version = buffer.getShort(4);
+            if (version != VERSION) {
+                throw new IOException(path + " has version " + version + ", only version " + VERSION + " is supported");
+            }
+            kind = buffer.get(6);
+            flags = buffer.get(7);
+            states = buffer.getInt(8);
+            initial = buffer.getInt(12);
+            inputMoves = buffer.getInt(16);
+            epsilonMoves = buffer.getInt(20);
+            predicates = buffer.getInt(24);
+            intervals = buffer.getInt(28);
+            terms = buffer.getInt(32);
+            outputTerms = buffer.getInt(36);
+            epsilonOutputs = buffer.getInt(40);
+            tails = buffer.getInt(44);
+            tailChars = buffer.getInt(48);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(path + " is too short for a model file");
+        }
+        if (kind != KIND_SFA && kind != KIND_SFT) {
+            throw new IOException(path + " contains a model of unknown kind " + kind);
+        }
+        if (states <= 0 || initial < 0 || initial >= states || inputMoves < 0 || epsilonMoves < 0 || predicates < 0
+                || intervals < 0 || terms < 0 || outputTerms < 0 || epsilonOutputs < 0 || tails < 0 || tailChars < 0) {
+            throw new IOException(path + " has a corrupt header");
+        }
+        long expected = size(states, inputMoves, epsilonMoves, predicates, intervals, terms, outputTerms,
+                epsilonOutputs, tails, tailChars);
+        if (expected != buffer.capacity()) {
+            throw new IOException(path + " should be " + expected + " bytes long but is " + buffer.capacity());
+        }
+    }
+
+    /**
+     * Opens the model file at <code>path</code>, only its header is read
+     * @param path path of the file
+     * @return the opened file
+     * @throws IOException if the file cannot be read or is not a model file of a supported version
+     */
+    public static ModelFile open(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ModelFile(path, buffer);
+        }
+    }
+
+    /**
+     * @return true if the file holds an SFT, false if it holds an SFA
+     */
+    public boolean isSFT() {
+        return kind == KIND_SFT;
+    }
+
+    public int stateCount() {
+        return states;
+    }
+
+    public int transitionCount() {
+        return inputMoves + epsilonMoves;
+    }
+
+    /**
+     * @return the SFA in the file
+     * @throws IOException if the file holds an SFT or its content is corrupt
+     */
+    public synchronized SFA<CharPred, Character> toSFA() throws IOException, TimeoutException {
+        if (kind != KIND_SFA) {
+            throw new IOException(path + " holds an SFT, not an SFA");
+        }
+        if (sfa == null) {
+            Decoder decoder = new Decoder();
+            List<SFAMove<CharPred, Character>> transitions = new ArrayList<>(inputMoves + epsilonMoves);
+            for (int q = 0; q < states; q++) {
+                for (int m = decoder.moveStart(q); m < decoder.moveStart(q + 1); m++) {
+                    transitions.add(new SFAInputMove<>(decoder.stateIds[q], decoder.state(decoder.moveTo(m)),
+                            decoder.predicate(decoder.movePredicate(m))));
+                }
+                for (int e = decoder.epsilonStart(q); e < decoder.epsilonStart(q + 1); e++) {
+                    transitions.add(new SFAEpsilon<>(decoder.stateIds[q], decoder.state(decoder.epsilonTo(e))));
+                }
+            }
+            List<Integer> finalStates = new ArrayList<>();
+            for (int q = 0; q < states; q++) {
+                if (decoder.isFinal(q)) {
+                    finalStates.add(decoder.stateIds[q]);
+                }
+            }
+            sfa = SFA.MkSFA(transitions, decoder.stateIds[initial], finalStates, new UnaryCharIntervalSolver(), false);
+        }
+        return sfa;
+    }
+
+    /**
+     * @return the SFT in the file
+     * @throws IOException if the file holds an SFA or its content is corrupt
+     */
+    public synchronized SFT<CharPred, CharFunc, Character> toSFT() throws IOException, TimeoutException {
+        if (kind != KIND_SFT) {
+            throw new IOException(path + " holds an SFA, not an SFT");
+        }
+        if (sft == null) {
+            Decoder decoder = new Decoder();
+            List<SFTMove<CharPred, CharFunc, Character>> transitions = new ArrayList<>(inputMoves + epsilonMoves);
+            for (int q = 0; q < states; q++) {
+                for (int m = decoder.moveStart(q); m < decoder.moveStart(q + 1); m++) {
+                    List<CharFunc> outputs = new ArrayList<>();
+                    for (int o = decoder.outputStart(m); o < decoder.outputStart(m + 1); o++) {
+                        outputs.add(decoder.term(decoder.outputTerm(o)));
+                    }
+                    transitions.add(new SFTInputMove<>(decoder.stateIds[q], decoder.state(decoder.moveTo(m)),
+                            decoder.predicate(decoder.movePredicate(m)), outputs));
+                }
+                for (int e = decoder.epsilonStart(q); e < decoder.epsilonStart(q + 1); e++) {
+                    transitions.add(new SFTEpsilon<CharPred, CharFunc, Character>(decoder.stateIds[q],
+                            decoder.state(decoder.epsilonTo(e)), decoder.epsilonOutputs(e)));
+                }
+            }
+            Map<Integer, Set<List<Character>>> finalStatesAndTails = new HashMap<>();
+            for (int q = 0; q < states; q++) {
+                if (decoder.isFinal(q)) {
+                    finalStatesAndTails.put(decoder.stateIds[q], new HashSet<>());
+                }
+            }
+            for (int t = 0; t < tails; t++) {
+                Set<List<Character>> stateTails = finalStatesAndTails.get(decoder.state(decoder.tailState(t)));
+                if (stateTails == null) {
+                    throw new IOException(path + " has a tail for a state that is not final");
+                }
+                stateTails.add(decoder.tail(t));
+            }
+            sft = SFT.MkSFT(transitions, decoder.stateIds[initial], finalStatesAndTails,
+                    new UnaryCharIntervalSolver(), (flags & FLAG_DETERMINISTIC) != 0);
+        }
+        return sft;
+    }
+
+    /**
+     * Writes <code>aut</code> to a model file at <code>path</code>
+     * @throws IOException
+     */
+    public static void write(SFA<CharPred, Character> aut, String path) throws IOException {
+        Encoder encoder = new Encoder(aut.getStates(), aut.getInitialState(), aut.getFinalStates());
+        for (Integer state : encoder.stateIds) {
+            for (SFAInputMove<CharPred, Character> move : aut.getInputMovesFrom(state)) {
+                encoder.addInputMove(move.to, move.guard, Collections.<CharFunc>emptyList());
+            }
+            for (SFAEpsilon<CharPred, Character> move : aut.getEpsilonFrom(state)) {
+                encoder.addEpsilonMove(move.to, Collections.<Character>emptyList());
+            }
+            encoder.endState();
+        }
+        encoder.write(path, KIND_SFA, (byte) 0);
+    }
+
+    /**
+     * Writes <code>sft</code> to a model file at <code>path</code>
+     * @throws IOException
+     */
+    public static void write(SFT<CharPred, CharFunc, Character> sft, String path) throws IOException {
+        Encoder encoder = new Encoder(sft.getStates(), sft.getInitialState(), sft.getFinalStates());
+        for (Integer state : encoder.stateIds) {
+            for (SFTInputMove<CharPred, CharFunc, Character> move : sft.getInputMovesFrom(state)) {
+                encoder.addInputMove(move.to, move.guard, move.outputFunctions);
+            }
+            for (SFTEpsilon<CharPred, CharFunc, Character> move : sft.getEpsilonMovesFrom(state)) {
+                encoder.addEpsilonMove(move.to, move.outputs);
+            }
+            encoder.endState();
+        }
+        for (Map.Entry<Integer, Set<List<Character>>> entry : sft.getFinalStatesAndTails().entrySet()) {
+            for (List<Character> tail : entry.getValue()) {
+                encoder.addTail(entry.getKey(), tail);
+            }
+        }
+        encoder.write(path, KIND_SFT, sft.isDeterministic() ? FLAG_DETERMINISTIC : 0);
+    }
+
+    // the size in bytes of a file with the given section sizes
+    private static long size(long states, long inputMoves, long epsilonMoves, long predicates, long intervals,
+                             long terms, long outputTerms, long epsilonOutputs, long tails, long tailChars) {
+        return HEADER_SIZE
+                + 4 * states + states                                   // state ids, final flags
+                + 4 * (predicates + 1) + 4 * intervals                  // predicate offsets, bounds
+                + terms + 8 * terms                                     // term tags, values
+                + 4 * (states + 1) + 4 * inputMoves + 4 * inputMoves    // move offsets, targets, guards
+                + 4 * (inputMoves + 1) + 4 * outputTerms                // output offsets, output terms
+                + 4 * (states + 1) + 4 * epsilonMoves                   // epsilon offsets, targets
+                + 4 * (epsilonMoves + 1) + 2 * epsilonOutputs           // epsilon output offsets, outputs
+                + 4 * tails + 4 * (tails + 1) + 2 * tailChars;          // tail states, tail offsets, tails
+    }
+
+    // reads the sections of the file, the offsets of the sections follow from the header
+    private class Decoder {
+        final int[] stateIds = new int[states];
+        final Map<Integer, Integer> indexOf = new HashMap<>();
+        final CharPred[] predicateTable = new CharPred[predicates];
+        final CharFunc[] termTable = new CharFunc[terms];
+
+        final int finalFlags;
+        final int predicateStarts;
+        final int bounds;
+        final int termTags;
+        final int termValues;
+        final int moveStarts;
+        final int moveTargets;
+        final int moveGuards;
+        final int outputStarts;
+        final int outputs;
+        final int epsilonStarts;
+        final int epsilonTargets;
+        final int epsilonOutputStarts;
+        final int epsilonOutputChars;
+        final int tailStates;
+        final int tailStarts;
+        final int tailCharsStart;
+
+        Decoder() throws IOException {
+            int offset = HEADER_SIZE;
+            for (int q = 0; q < states; q++) {
+                stateIds[q] = buffer.getInt(offset + 4 * q);
+                if (indexOf.put(stateIds[q], q) != null) {
+                    throw new IOException(path + " declares state " + stateIds[q] + " twice");
+                }
+            }
+            offset += 4 * states;
+            finalFlags = offset;
+            offset += states;
+            predicateStarts = offset;
+            offset += 4 * (predicates + 1);
+            bounds = offset;
+            offset += 4 * intervals;
+            termTags = offset;
+            offset += terms;
+            termValues = offset;
+            offset += 8 * terms;
+            moveStarts = offset;
+            offset += 4 * (states + 1);
+            moveTargets = offset;
+            offset += 4 * inputMoves;
+            moveGuards = offset;
+            offset += 4 * inputMoves;
+            outputStarts = offset;
+            offset += 4 * (inputMoves + 1);
+            outputs = offset;
+            offset += 4 * outputTerms;
+            epsilonStarts = offset;
+            offset += 4 * (states + 1);
+            epsilonTargets = offset;
+            offset += 4 * epsilonMoves;
+            epsilonOutputStarts = offset;
+            offset += 4 * (epsilonMoves + 1);
+            epsilonOutputChars = offset;
+            offset += 2 * epsilonOutputs;
+            tailStates = offset;
+            offset += 4 * tails;
+            tailStarts = offset;
+            offset += 4 * (tails + 1);
+            tailCharsStart = offset;
+
+            checkOffsets(moveStarts, states, inputMoves);
+            checkOffsets(outputStarts, inputMoves, outputTerms);
+            checkOffsets(epsilonStarts, states, epsilonMoves);
+            checkOffsets(epsilonOutputStarts, epsilonMoves, epsilonOutputs);
+            checkOffsets(predicateStarts, predicates, intervals);
+            checkOffsets(tailStarts, tails, tailChars);
+        }
+
+        // the n + 1 offsets at position start have to be increasing from 0 to total
+        private void checkOffsets(int start, int n, int total) throws IOException {
+            int previous = 0;
+            for (int i = 0; i <= n; i++) {
+                int current = buffer.getInt(start + 4 * i);
+                if (current < previous || (i == 0 && current != 0) || (i == n && current != total)) {
+                    throw new IOException(path + " has corrupt offsets");
+                }
+                previous = current;
+            }
+        }
+
+        boolean isFinal(int q) {
+            return buffer.get(finalFlags + q) != 0;
+        }
+
+        int state(int q) throws IOException {
+            if (q < 0 || q >= states) {
+                throw new IOException(path + " refers to state " + q + " of " + states);
+            }
+            return stateIds[q];
+        }
+
+        int moveStart(int q) {
+            return buffer.getInt(moveStarts + 4 * q);
+        }
+
+        int moveTo(int m) {
+            return buffer.getInt(moveTargets + 4 * m);
+        }
+
+        int movePredicate(int m) {
+            return buffer.getInt(moveGuards + 4 * m);
+        }
+
+        int outputStart(int m) {
+            return buffer.getInt(outputStarts + 4 * m);
+        }
+
+        int outputTerm(int o) {
+            return buffer.getInt(outputs + 4 * o);
+        }
+
+        int epsilonStart(int q) {
+            return buffer.getInt(epsilonStarts + 4 * q);
+        }
+
+        int epsilonTo(int e) {
+            return buffer.getInt(epsilonTargets + 4 * e);
+        }
+
+        List<Character> epsilonOutputs(int e) {
+            return chars(epsilonOutputChars, buffer.getInt(epsilonOutputStarts + 4 * e),
+                    buffer.getInt(epsilonOutputStarts + 4 * (e + 1)));
+        }
+
+        int tailState(int t) {
+            return buffer.getInt(tailStates + 4 * t);
+        }
+
+        List<Character> tail(int t) {
+            return chars(tailCharsStart, buffer.getInt(tailStarts + 4 * t), buffer.getInt(tailStarts + 4 * (t + 1)));
+        }
+
+        private List<Character> chars(int start, int from, int to) {
+            List<Character> chars = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                chars.add(buffer.getChar(start + 2 * i));
+            }
+            return chars;
+        }
+
+        // the predicates are decoded the first time they are used
+        CharPred predicate(int p) throws IOException {
+            if (p < 0 || p >= predicates) {
+                throw new IOException(path + " refers to predicate " + p + " of " + predicates);
+            }
+            if (predicateTable[p] == null) {
+                int from = buffer.getInt(predicateStarts + 4 * p);
+                int to = buffer.getInt(predicateStarts + 4 * (p + 1));
+                ImmutableList.Builder<ImmutablePair<Character, Character>> pairs = ImmutableList.builder();
+                for (int i = from; i < to; i++) {
+                    pairs.add(ImmutablePair.of(buffer.getChar(bounds + 4 * i), buffer.getChar(bounds + 4 * i + 2)));
+                }
+                try {
+                    predicateTable[p] = CharPred.ofNormalizedIntervals(pairs.build());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(path + " has predicate " + p + " with unsorted intervals");
+                }
+            }
+            return predicateTable[p];
+        }
+
+        CharFunc term(int t) throws IOException {
+            if (t < 0 || t >= terms) {
+                throw new IOException(path + " refers to term " + t + " of " + terms);
+            }
+            if (termTable[t] == null) {
+                byte tag = buffer.get(termTags + t);
+                long value = buffer.getLong(termValues + 8 * t);
+                if (tag == TERM_OFFSET) {
+                    termTable[t] = value == 0 ? CharOffset.IDENTITY : new CharOffset(value);
+                } else if (tag == TERM_CONSTANT) {
+                    termTable[t] = new CharConstant((char) value);
+                } else {
+                    throw new IOException(path + " has term " + t + " of unknown kind " + tag);
+                }
+            }
+            return termTable[t];
+        }
+    }
+
+    // collects the sections of a model before they are written
+    private static class Encoder {
+        final List<Integer> stateIds;
+        final Map<Integer, Integer> indexOf = new HashMap<>();
+        final Set<Integer> finalStates;
+        final int initial;
+
+        final Map<CharPred, Integer> predicateIndex = new LinkedHashMap<>();
+        final Map<CharFunc, Integer> termIndex = new LinkedHashMap<>();
+
+        final List<Integer> moveStarts = new ArrayList<>();
+        final List<Integer> moveTargets = new ArrayList<>();
+        final List<Integer> moveGuards = new ArrayList<>();
+        final List<Integer> outputStarts = new ArrayList<>();
+        final List<Integer> outputs = new ArrayList<>();
+        final List<Integer> epsilonStarts = new ArrayList<>();
+        final List<Integer> epsilonTargets = new ArrayList<>();
+        final List<Integer> epsilonOutputStarts = new ArrayList<>();
+        final StringBuilder epsilonOutputs = new StringBuilder();
+        final List<Integer> tailStates = new ArrayList<>();
+        final List<Integer> tailStarts = new ArrayList<>();
+        final StringBuilder tailChars = new StringBuilder();
+
+        Encoder(Collection<Integer> states, Integer initialState, Collection<Integer> finalStates) {
+            this.stateIds = new ArrayList<>(states);
+            if (!states.contains(initialState)) {
+                stateIds.add(initialState);
+            }
+            for (Integer state : finalStates) {
+                if (!states.contains(state)) {
+                    stateIds.add(state);
+                }
+            }
+            Collections.sort(stateIds);
+            for (Integer state : stateIds) {
+                indexOf.put(state, indexOf.size());
+            }
+            this.finalStates = new HashSet<>(finalStates);
+            this.initial = indexOf.get(initialState);
+            moveStarts.add(0);
+            outputStarts.add(0);
+            epsilonStarts.add(0);
+            epsilonOutputStarts.add(0);
+            tailStarts.add(0);
+        }
+
+        void addInputMove(Integer to, CharPred guard, List<CharFunc> terms) {
+            moveTargets.add(indexOf.get(to));
+            moveGuards.add(index(predicateIndex, guard));
+            for (CharFunc term : terms) {
+                if (!(term instanceof CharOffset) && !(term instanceof CharConstant)) {
+                    throw new IllegalArgumentException("cannot store the output function " + term);
+                }
+                outputs.add(index(termIndex, term));
+            }
+            outputStarts.add(outputs.size());
+        }
+
+        void addEpsilonMove(Integer to, List<Character> output) {
+            epsilonTargets.add(indexOf.get(to));
+            for (Character c : output) {
+                epsilonOutputs.append(c.charValue());
+            }
+            epsilonOutputStarts.add(epsilonOutputs.length());
+        }
+
+        void endState() {
+            moveStarts.add(moveTargets.size());
+            epsilonStarts.add(epsilonTargets.size());
+        }
+
+        void addTail(Integer state, List<Character> tail) {
+            tailStates.add(indexOf.get(state));
+            for (Character c : tail) {
+                tailChars.append(c.charValue());
+            }
+            tailStarts.add(tailChars.length());
+        }
+
+        private static <T> int index(Map<T, Integer> table, T element) {
+            Integer index = table.get(element);
+            if (index == null) {
+                index = table.size();
+                table.put(element, index);
+            }
+            return index;
+        }
+
+        void write(String path, byte kind, byte flags) throws IOException {
+            int intervals = 0;
+            for (CharPred predicate : predicateIndex.keySet()) {
+                intervals += predicate.intervalCount();
+            }
+            int states = stateIds.size();
+            long size = size(states, moveTargets.size(), epsilonTargets.size(), predicateIndex.size(), intervals,
+                    termIndex.size(), outputs.size(), epsilonOutputs.length(), tailStates.size(), tailChars.length());
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("the model is too large for a model file");
+            }
+
+            Path target = Paths.get(path).toAbsolutePath();
+            Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                fill(temporary, kind, flags, states, intervals, (int) size);
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        // maps file and writes the model into it
+        private void fill(Path file, byte kind, byte flags, int states, int intervals, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putShort(VERSION).put(kind).put(flags);
+                buffer.putInt(states).putInt(initial).putInt(moveTargets.size()).putInt(epsilonTargets.size());
+                buffer.putInt(predicateIndex.size()).putInt(intervals).putInt(termIndex.size());
+                buffer.putInt(outputs.size()).putInt(epsilonOutputs.length()).putInt(tailStates.size());
+                buffer.putInt(tailChars.length());
+
+                for (Integer state : stateIds) {
+                    buffer.putInt(state);
+                }
+                for (Integer state : stateIds) {
+                    buffer.put(finalStates.contains(state) ? (byte) 1 : (byte) 0);
+                }
+
+                int offset = 0;
+                buffer.putInt(offset);
+                for (CharPred predicate : predicateIndex.keySet()) {
+                    offset += predicate.intervalCount();
+                    buffer.putInt(offset);
+                }
+                for (CharPred predicate : predicateIndex.keySet()) {
+                    for (int i = 0; i < predicate.intervalCount(); i++) {
+                        buffer.putChar(predicate.intervalLeft(i)).putChar(predicate.intervalRight(i));
+                    }
+                }
+
+                for (CharFunc term : termIndex.keySet()) {
+                    buffer.put(term instanceof CharOffset ? TERM_OFFSET : TERM_CONSTANT);
+                }
+                for (CharFunc term : termIndex.keySet()) {
+                    buffer.putLong(term instanceof CharOffset ? ((CharOffset) term).increment : ((CharConstant) term).c);
+                }
+
+                putAll(buffer, moveStarts);
+                putAll(buffer, moveTargets);
+                putAll(buffer, moveGuards);
+                putAll(buffer, outputStarts);
+                putAll(buffer, outputs);
+                putAll(buffer, epsilonStarts);
+                putAll(buffer, epsilonTargets);
+                putAll(buffer, epsilonOutputStarts);
+                for (int i = 0; i < epsilonOutputs.length(); i++) {
+                    buffer.putChar(epsilonOutputs.charAt(i));
+                }
+                putAll(buffer, tailStates);
+                putAll(buffer, tailStarts);
+                for (int i = 0; i < tailChars.length(); i++) {
+                    buffer.putChar(tailChars.charAt(i));
+                }
+                buffer.force();
+            }
+        }
+
+        private static void putAll(ByteBuffer buffer, List<Integer> values) {
+            for (Integer value : values) {
+                buffer.putInt(value);
+            }
+        }
+    }
+}
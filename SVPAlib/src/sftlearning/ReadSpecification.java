@@ -3,250 +3,435 @@
  */
 package sftlearning;
 
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.sat4j.specs.TimeoutException;
 import specifications.CyberchefSpecifications;
-import theory.BooleanAlgebraSubst;
 import theory.characters.CharConstant;
 import theory.characters.CharFunc;
 import theory.characters.CharOffset;
 import theory.characters.CharPred;
 import theory.intervals.UnaryCharIntervalSolver;
 import transducers.sft.SFT;
+import transducers.sft.SFTEpsilon;
 import transducers.sft.SFTInputMove;
 import transducers.sft.SFTMove;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.*;
 
+/**
+ * Reads an SFT from a .dot file as written by Automaton.createDotFile.
+ *
+ * The file is read once, character by character, by a tokenizer that recognizes identifiers, quoted strings, "->"
+ * and the punctuation of the dot language. Statements are recognized from the tokens, so a statement does not have to
+ * be on a line of its own. State declarations give the final states (peripheries=2), the edge from the invisible XX
+ * node gives the initial state and every other edge is a transition whose label is parsed in place. Errors are
+ * reported with the line they occur on instead of ending the program.
+ */
 public class ReadSpecification {
 
-    public static SFT<CharPred, CharFunc, Character> read(String filePath) throws TimeoutException {
-        Map<Integer, Boolean> states = new HashMap<>();
-        UnaryCharIntervalSolver ba = new UnaryCharIntervalSolver();
+    // the label of an epsilon transition starts with an epsilon followed by /
+    private static final String EPSILON_LABEL = "&#949;/";
 
-        Scanner sc = null;
-        try {
-            sc = new Scanner(new File(filePath));
-        } catch (FileNotFoundException e) {
-            System.out.println("Could not find the specified file. Exiting...");
-            System.exit(0);
+    /**
+     * Reads the SFT in the .dot file at <code>filePath</code>
+     * @param filePath path of the .dot file
+     * @return the SFT
+     * @throws IOException if the file cannot be read or is not a valid .dot file of an SFT
+     * @throws TimeoutException
+     */
+    public static SFT<CharPred, CharFunc, Character> read(String filePath) throws IOException, TimeoutException {
+        try (Reader reader = new BufferedReader(new FileReader(filePath))) {
+            return read(reader, filePath);
+        }
+    }
+
+    /**
+     * Reads an SFT in the .dot format from <code>reader</code>
+     * @param reader the characters of the .dot file
+     * @param name name of the input that is used in the error messages
+     * @return the SFT
+     * @throws IOException if the input cannot be read or is not a valid .dot file of an SFT
+     * @throws TimeoutException
+     */
+    public static SFT<CharPred, CharFunc, Character> read(Reader reader, String name) throws IOException, TimeoutException {
+        return new Parser(reader, name).parse();
+    }
+
+    private static class Parser {
+        // kinds of tokens
+        static final int EOF = 0;
+        static final int ID = 1;
+        static final int STRING = 2;
+        static final int ARROW = 3;
+        static final int PUNCTUATION = 4;
+
+        final Reader reader;
+        final String name;
+        final StringBuilder text = new StringBuilder();
+        int line = 1;
+        int lookahead = -2;
+        boolean pendingArrow = false;
+
+        // the current token
+        int kind;
+        int tokenLine;
+
+        final Map<Integer, Set<List<Character>>> finalStates = new HashMap<>();
+        final List<SFTMove<CharPred, CharFunc, Character>> transitions = new ArrayList<>();
+        Integer initialState = null;
+
+        Parser(Reader reader, String name) {
+            this.reader = reader;
+            this.name = name;
+        }
+
+        SFT<CharPred, CharFunc, Character> parse() throws IOException, TimeoutException {
+            next();
+            if (kind == ID && text.toString().equals("strict")) {
+                next();
+            }
+            if (kind != ID || !text.toString().equals("digraph")) {
+                throw error("expected digraph");
+            }
+            next();
+            if (kind == ID || kind == STRING) {
+                next();
+            }
+            expect('{');
+            while (!isPunctuation('}')) {
+                statement();
+            }
+            next();
+            if (kind != EOF) {
+                throw error("unexpected " + describe() + " after the end of the graph");
+            }
+            if (initialState == null) {
+                throw error("the initial state is not declared");
+            }
+            return SFT.MkSFT(transitions, initialState, finalStates, new UnaryCharIntervalSolver());
         }
-        // First line contains name which is not important
-        String line = null;
-        List<SFTMove<CharPred, CharFunc, Character>> transitions = new ArrayList<>();
-        int initialState = -1;
-        while (sc.hasNextLine() && (line = sc.nextLine()) != null) {
-            if (line.matches("[0-9]+\\[.*\\]")) {
-                // This line contains a state declaration
-                List<Character> num = new ArrayList<>();
-                int i = 0;
-                while (i<line.length() && Character.isDigit(line.charAt(i))) {
-                    num.add(line.charAt(i));
-                    i++;
+
+        // node, edge or graph attribute, the current token is its first token
+        private void statement() throws IOException, TimeoutException {
+            if (kind == PUNCTUATION && text.charAt(0) == ';') {
+                next();
+                return;
+            }
+            if (kind != ID && kind != STRING) {
+                throw error("unexpected " + describe());
+            }
+            String from = text.toString();
+            int fromLine = tokenLine;
+            next();
+            if (isPunctuation('=')) {
+                // graph attribute such as rankdir=LR
+                next();
+                value();
+                return;
+            }
+            if (kind == ARROW) {
+                next();
+                if (kind != ID) {
+                    throw error("expected the target of the edge from " + from);
                 }
-                String state = num.toString().replace("[", "").replace("]", "");
-                // Add to set of states
-
-                String other = line.substring(i);
-                String label = "";
-                boolean isFinal = false;
-                String[] attributes = other.split(",");
-                for (String attr : attributes) {
-                    if (attr.startsWith("label")) {
-                        label = attr.split("=")[1];
-                    } else if (attr.startsWith("peripheries")) {
-                        int numPeripheries = Integer.valueOf(attr.split("=")[1].replace("]", ""));
-                        if (numPeripheries == 2) {
-                            isFinal = true;
-                        }
+                String to = text.toString();
+                next();
+                Map<String, String> attributes = attributes();
+                if (from.startsWith("XX")) {
+                    initialState = state(to, fromLine);
+                } else {
+                    String label = attributes.get("label");
+                    if (label == null) {
+                        throw new IOException(name + ":" + fromLine + ": the edge " + from + " -> " + to + " has no label");
                     }
+                    transition(state(from, fromLine), state(to, fromLine), label, fromLine);
                 }
-                states.put(Integer.valueOf(state), isFinal);
-            } else if (line.matches("[0-9]+ -> [0-9]+ \\[.*\\]")) {
-                // This line contains a transition declaration
-                // Parse from state
-                int i = 0;
-                String from = "";
-                String to = "";
-
-                // Get chars representing from state
-                while (i<line.length() && Character.isDigit(line.charAt(i))) {
-                    from += line.charAt(i);
-                    i++;
+                return;
+            }
+            Map<String, String> attributes = attributes();
+            if (!from.startsWith("XX")) {
+                Integer state = state(from, fromLine);
+                if ("2".equals(attributes.get("peripheries"))) {
+                    finalStates.put(state, new HashSet<>());
                 }
+            }
+        }
 
-                // Skip all characters (which should be " -> " that are not digits
-                while (i<line.length() && !Character.isDigit(line.charAt(i))) {
-                    i++;
+        // an optional attribute list [a=b, c="d"]
+        private Map<String, String> attributes() throws IOException {
+            Map<String, String> attributes = new HashMap<>();
+            if (!isPunctuation('[')) {
+                return attributes;
+            }
+            next();
+            while (!isPunctuation(']')) {
+                if (kind != ID) {
+                    throw error("expected an attribute name");
+                }
+                String key = text.toString();
+                next();
+                expect('=');
+                attributes.put(key, value());
+                if (isPunctuation(',') || isPunctuation(';')) {
+                    next();
                 }
+            }
+            next();
+            return attributes;
+        }
+
+        private String value() throws IOException {
+            if (kind != ID && kind != STRING) {
+                throw error("expected a value");
+            }
+            String value = text.toString();
+            next();
+            return value;
+        }
+
+        private Integer state(String id, int line) throws IOException {
+            try {
+                return Integer.valueOf(id);
+            } catch (NumberFormatException e) {
+                throw new IOException(name + ":" + line + ": " + id + " is not a state");
+            }
+        }
 
-                // Get chars representing to state
-                while (i<line.length() && Character.isDigit(line.charAt(i))) {
-                    to += line.charAt(i);
-                    i++;
+        // parses the label "[guard]/terms" or "&#949;/outputs" of a transition
+        private void transition(Integer from, Integer to, String label, int line) throws IOException {
+            if (label.startsWith(EPSILON_LABEL)) {
+                // every output is followed by a newline
+                List<Character> outputs = new ArrayList<>();
+                for (int i = EPSILON_LABEL.length(); i < label.length(); i++) {
+                    if (label.charAt(i) != '\n') {
+                        outputs.add(label.charAt(i));
+                    }
                 }
+                transitions.add(new SFTEpsilon<CharPred, CharFunc, Character>(from, to, outputs));
+                return;
+            }
 
-                // Read guard and term functions for transition
-                String attributes = line.substring(i);
-                attributes = attributes.trim();
-                if (attributes.startsWith("[label=\"[")) {
-                    attributes = attributes.substring("[label=\"[".length());
+            LabelReader labelReader = new LabelReader(label, line);
+            CharPred guard = labelReader.guard();
+            List<CharFunc> terms = new ArrayList<>();
+            if (labelReader.pos < label.length()) {
+                if (label.charAt(labelReader.pos) != '/') {
+                    throw new IOException(name + ":" + line + ": expected / after the guard in " + label);
                 }
-                if (attributes.endsWith("\"]")) {
-                    attributes = attributes.substring(0, attributes.length()-"\"]".length());
+                labelReader.pos++;
+                while (labelReader.pos < label.length()) {
+                    terms.add(labelReader.term());
+                    // terms are separated by a single space
+                    if (labelReader.pos < label.length()) {
+                        if (label.charAt(labelReader.pos) != ' ') {
+                            throw new IOException(name + ":" + line + ": expected a space between the terms in " + label);
+                        }
+                        labelReader.pos++;
+                    }
                 }
-                // Should now be left with [...]/...
-                String[] label = attributes.split("\\]/");
+            }
+            transitions.add(new SFTInputMove<>(from, to, guard, terms));
+        }
+
+        // reads the guard and the terms of a label, characters are printed as in CharPred.printChar
+        private class LabelReader {
+            final String label;
+            final int line;
+            int pos = 0;
+
+            LabelReader(String label, int line) {
+                this.label = label;
+                this.line = line;
+            }
 
-                String guard = label[0];
-                String term = null;
-                if (label.length > 1) {
-                    term = label[1];
+            CharPred guard() throws IOException {
+                if (pos >= label.length() || label.charAt(pos) != '[') {
+                    throw new IOException(name + ":" + line + ": expected [ at the start of the guard in " + label);
+                }
+                pos++;
+                ImmutableList.Builder<ImmutablePair<Character, Character>> intervals = ImmutableList.builder();
+                while (pos < label.length() && label.charAt(pos) != ']') {
+                    char left = character();
+                    char right = left;
+                    if (pos < label.length() - 1 && label.charAt(pos) == '-' && label.charAt(pos + 1) != ']') {
+                        pos++;
+                        right = character();
+                        if (right < left) {
+                            throw new IOException(name + ":" + line + ": empty range " + left + "-" + right + " in " + label);
+                        }
+                    }
+                    intervals.add(ImmutablePair.of(left, right));
+                }
+                if (pos >= label.length()) {
+                    throw new IOException(name + ":" + line + ": missing ] at the end of the guard in " + label);
                 }
+                pos++;
+                return new CharPred(intervals.build());
+            }
 
-                CharPred guards = parseGuard(guard, ba);
-                List<CharFunc> terms = parseTerms(term);
+            CharFunc term() throws IOException {
+                if (label.startsWith("x+", pos) && pos + 2 < label.length()
+                        && (Character.isDigit(label.charAt(pos + 2)) || label.charAt(pos + 2) == '-')) {
+                    int end = pos + 3;
+                    while (end < label.length() && Character.isDigit(label.charAt(end))) {
+                        end++;
+                    }
+                    try {
+                        long increment = Long.parseLong(label.substring(pos + 2, end));
+                        pos = end;
+                        return increment == 0 ? CharOffset.IDENTITY : new CharOffset(increment);
+                    } catch (NumberFormatException e) {
+                        throw new IOException(name + ":" + line + ": invalid offset in " + label);
+                    }
+                }
+                return new CharConstant(character());
+            }
 
-                transitions.add(new SFTInputMove<>(Integer.valueOf(from), Integer.valueOf(to), guards, terms));
-            } else if (line.matches("XX[0-9]+ \\[.*\\]XX[0-9]+ -> [0-9]+") || line.matches("XX[0-9]+ -> [0-9]+")) {
-                // This line reveals the initial state
-                String[] lineParts = line.split(" ");
-                String number = lineParts[lineParts.length-1];
-                initialState = Integer.valueOf(number);
+            // a single, possibly escaped, character
+            char character() throws IOException {
+                char c = label.charAt(pos++);
+                if (c != '\\') {
+                    return c;
+                }
+                if (pos >= label.length()) {
+                    throw new IOException(name + ":" + line + ": incomplete escape at the end of " + label);
+                }
+                char escaped = label.charAt(pos++);
+                switch (escaped) {
+                    case 't': return '\t';
+                    case 'b': return '\b';
+                    case 'n': return '\n';
+                    case 'r': return '\r';
+                    case 'f': return '\f';
+                    case '-': case '(': case ')': case '[': case ']': case '\'': case '"': case '\\':
+                        return escaped;
+                    case 'u':
+                        if (pos + 4 > label.length()) {
+                            throw new IOException(name + ":" + line + ": incomplete unicode escape in " + label);
+                        }
+                        try {
+                            char u = (char) Integer.parseInt(label.substring(pos, pos + 4), 16);
+                            pos += 4;
+                            return u;
+                        } catch (NumberFormatException e) {
+                            throw new IOException(name + ":" + line + ": invalid unicode escape in " + label);
+                        }
+                    default:
+                        throw new IOException(name + ":" + line + ": the character " + escaped + " should not be escaped in " + label);
+                }
             }
         }
-        Map<Integer, Set<List<Character>>> finalStates = new HashMap<>();
-        for (Integer state : states.keySet()) {
-            if (states.get(state)) {
-                finalStates.put(state, new HashSet<>());
-            }
+
+        private boolean isPunctuation(char c) {
+            return kind == PUNCTUATION && text.charAt(0) == c;
         }
-        return SFT.MkSFT(transitions, initialState, finalStates, ba);
-    }
 
-    /**
-     * Parses a string that represents the term functions
-     * Note that it ASSUMES that all separate functions are separated by a space
-     *
-     * @param term
-     * @return
-     */
-    private static List<CharFunc> parseTerms(String term) {
-        // The string that is provided should look like "x+0 a b c x x+0"
-        List<CharFunc> terms = new ArrayList<>();
-        List<Character> parts = new ArrayList<>();
-        if (term != null && !term.isEmpty()) {
-            for (char c : term.toCharArray()) {
-                parts.add(c);
+        private void expect(char c) throws IOException {
+            if (!isPunctuation(c)) {
+                throw error("expected " + c + " but found " + describe());
             }
-            int i = 0;
-            while (i < parts.size()) {
-                // TODO: This first part of the if should no longer be necessary now that the identity function is outputted as x+0 instead of x + 0
-                if (i < (parts.size() - 2) && parts.get(i) == 'x' && parts.get(i+1) == '+' && parts.get(i+2) == '0') {
-                    terms.add(CharOffset.IDENTITY);
-                    i += 3;
-                } else if (i < (parts.size() - 1) && parts.get(i) == '\\'){
-                    String s = "" + parts.get(i) + parts.get(i+1);
-                    // Make sure to replace \\x by corresponding x
-                    s = s.replace("\\n", "\n");
-                    s = s.replace("\\r", "\r");
-                    s = s.replace("\\f", "\f");
-                    s = s.replace("\\t", "\t");
-                    s = s.replace("\\b", "\b");
-                    s = s.replace("\\\\", "\\");
-                    terms.add(new CharConstant(s.charAt(0)));
-                    i += 2;
-                } else {
-                    terms.add(new CharConstant(parts.get(i)));
-                    i++;
-                }
-                i++; // Skip space after an output term
+            next();
+        }
+
+        private String describe() {
+            switch (kind) {
+                case EOF: return "the end of the file";
+                case STRING: return "\"" + text + "\"";
+                case ARROW: return "->";
+                default: return text.toString();
             }
         }
-//        System.out.println("Parsed terms into: "+terms);
-        return terms;
-    }
 
-    /**
-     * Parses a string that represents the guard of a transition
-     * It works as follows:
-     * - takes first character, if it is followed by - and a second character, then the range (first, second) is added
-     * - characters may be esaped with a \ thus when encountering a \ then take the following character
-     *      - the following characters should be escaped (each character is separated by a space): - ( ) [ ] \t \b \n \r \f ' " \
-     * - the unicode character < 0x20 and > 0x7f are written down in unicode
-     * - if multiple characters follow each other without a - inbetween, then they are all added separately
-     *
-     * @param guard
-     * @return
-     */
-    private static CharPred parseGuard(String guard, BooleanAlgebraSubst<CharPred, CharFunc, Character> ba) throws TimeoutException {
-        CharPred pred = ba.False();
-        char[] chars = guard.toCharArray();
-        int i = 0;
-        Character previous = null;
-        Character next = null;
-        boolean findRange = false;
-        while (i < chars.length) {
-            // Recognize the character
-            if (chars[i] == '\\' && chars[i+1] == 'u') {
-                // Recognize a unicode char
-                String identifier = "" + chars[i+2] + chars[i+3] + chars[i+4] + chars[i+5];
-                // ASSUMES that it 'fits' in a single char!!
-                int id = Integer.valueOf(identifier, 16);
-                next = (char) id;
-                i += 6;
-            } else if (chars[i] == '\\') {
-                // Recognize an escaped character
-                if (chars[i+1] == 't') {
-                    next = '\t';
-                } else if (chars[i+1] == 'b') {
-                    next = '\b';
-                } else if (chars[i+1] == 'n') {
-                    next = '\n';
-                } else if (chars[i+1] == 'r') {
-                    next = '\r';
-                } else if (chars[i+1] == 'f') {
-                    next = '\f';
-                } else if (chars[i+1] == '-' || chars[i+1] =='(' || chars[i+1] == ')' || chars[i+1] == '[' || chars[i+1] == ']' || chars[i+1] == '\'' || chars[i+1] == '"' || chars[i+1] == '\\') {
-                    next = chars[i+1];
-                } else {
-                    System.err.print("This character should not be escaped!");
-                }
-                i += 2;
-            } else if (chars[i] == '-') {
-                // Check whether it is a '-' to indicate a range, Remember the left bound of the range
-                previous = next;
-                findRange = true;
-                i++;
+        private IOException error(String message) {
+            return new IOException(name + ":" + tokenLine + ": " + message);
+        }
+
+        private int read() throws IOException {
+            int c;
+            if (lookahead != -2) {
+                c = lookahead;
+                lookahead = -2;
             } else {
-                // It was an ordinary char
-                next = chars[i];
-                i++;
+                c = reader.read();
+            }
+            if (c == '\n') {
+                line++;
             }
+            return c;
+        }
 
-            // If the last character is not in a range, add it to the predicate
-            if (!findRange && i == chars.length) {
-                pred = ba.MkOr(pred, new CharPred(next, next));
-                next = null;
+        private int peek() throws IOException {
+            if (lookahead == -2) {
+                lookahead = reader.read();
             }
+            return lookahead;
+        }
 
-            // If we have found the right bound of the range, then add the range
-            if (findRange && previous != null && previous != next) {
-                pred = ba.MkOr(pred, new CharPred(previous, next));
-                // Reset bounds
-                previous = null;
-                next = null;
-                findRange = false;
-            } else if (!findRange && previous != null) {
-                // It was not a range so we need to add the previous character
-                pred = ba.MkOr(pred, new CharPred(previous, previous));
-                previous = null;
+        // reads the next token into kind and text
+        private void next() throws IOException {
+            text.setLength(0);
+            if (pendingArrow) {
+                pendingArrow = false;
+                kind = ARROW;
+                return;
+            }
+            int c = read();
+            while (c != -1 && Character.isWhitespace(c)) {
+                c = read();
+            }
+            tokenLine = line;
+            if (c == -1) {
+                kind = EOF;
+            } else if (c == '"') {
+                // the content is kept as it is, a backslash only protects the next character from ending the string
+                kind = STRING;
+                c = read();
+                while (c != '"') {
+                    if (c == -1) {
+                        throw new IOException(name + ":" + tokenLine + ": unterminated string");
+                    }
+                    text.append((char) c);
+                    if (c == '\\') {
+                        c = read();
+                        if (c == -1) {
+                            throw new IOException(name + ":" + tokenLine + ": unterminated string");
+                        }
+                        text.append((char) c);
+                    }
+                    c = read();
+                }
+            } else if (c == '-' && peek() == '>') {
+                read();
+                kind = ARROW;
+            } else if (isIdChar(c)) {
+                kind = ID;
+                text.append((char) c);
+                while (isIdChar(peek())) {
+                    int d = read();
+                    if (d == '-' && peek() == '>') {
+                        // 0->1 without spaces, the arrow is the next token
+                        read();
+                        pendingArrow = true;
+                        break;
+                    }
+                    text.append((char) d);
+                }
+            } else if ("{}[]=,;".indexOf(c) >= 0) {
+                kind = PUNCTUATION;
+                text.append((char) c);
+            } else {
+                throw new IOException(name + ":" + tokenLine + ": unexpected character " + (char) c);
             }
-            previous = next;
         }
-//        System.out.println("Parsed guard into: "+pred.toString());
-        return pred;
+
+        private boolean isIdChar(int c) {
+            return c != -1 && (Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-');
+        }
     }
 
     public static void main(String[] args) {
@@ -277,7 +462,7 @@ public class ReadSpecification {
             if (!equal) {
                 System.out.println("Witness: "+SFT.witness1disequality(spec, read, new UnaryCharIntervalSolver()));
             }
-        } catch (TimeoutException e) {
+        } catch (TimeoutException | IOException e) {
             e.printStackTrace();
         }
     }
@@ -16,6 +16,7 @@ import theory.intervals.UnaryCharIntervalSolver;
 import transducers.sft.SFT;
 import transducers.sft.SFTInputMove;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
@@ -55,8 +56,7 @@ public class SpecificationChecking {
      */
     public static boolean checkBlacklistInput(SFT<CharPred, CharFunc, Character> sft, SFA<CharPred, Character> blacklist) throws TimeoutException {
         SFA<CharPred, Character> inputLanguage = sft.getDomain(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> intersection = inputLanguage.intersectionWith(blacklist, new UnaryCharIntervalSolver());
-        return intersection.isEmpty();
+        return inputLanguage.isIntersectionEmptyWith(blacklist, new UnaryCharIntervalSolver());
     }
 
     /**
@@ -68,8 +68,7 @@ public class SpecificationChecking {
      */
     public static boolean checkBlacklistOutput(SFT<CharPred, CharFunc, Character> sft, SFA<CharPred, Character> blacklist) throws TimeoutException {
         SFA<CharPred, Character> outputLanguage = sft.getOutputSFA(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> intersection = outputLanguage.intersectionWith(blacklist, new UnaryCharIntervalSolver());
-        return intersection.isEmpty();
+        return outputLanguage.isIntersectionEmptyWith(blacklist, new UnaryCharIntervalSolver());
     }
 
     /**
@@ -102,10 +101,8 @@ public class SpecificationChecking {
      * @return true if the symbolic finite transducer accepts ONLY inputs specified in the whitelist
      */
     public static boolean checkSubsetWhitelistInput(SFT<CharPred, CharFunc, Character> sft, SFA<CharPred, Character> whitelist) throws TimeoutException {
-        SFA<CharPred, Character> outputLanguage = sft.getOutputSFA(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> complementWhitelist = whitelist.complement(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> intersection = complementWhitelist.intersectionWith(outputLanguage, new UnaryCharIntervalSolver());
-        return intersection.isEmpty();
+        SFA<CharPred, Character> inputLanguage = sft.getDomain(new UnaryCharIntervalSolver());
+        return inputLanguage.isIncludedIn(whitelist, new UnaryCharIntervalSolver());
     }
 
     /**
@@ -117,9 +114,7 @@ public class SpecificationChecking {
      */
     public static boolean checkSubsetWhitelistOutput(SFT<CharPred, CharFunc, Character> sft, SFA<CharPred, Character> whitelist) throws TimeoutException {
         SFA<CharPred, Character> outputLanguage = sft.getOutputSFA(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> complementWhitelist = whitelist.complement(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> intersection = complementWhitelist.intersectionWith(outputLanguage, new UnaryCharIntervalSolver());
-        return intersection.isEmpty();
+        return outputLanguage.isIncludedIn(whitelist, new UnaryCharIntervalSolver());
     }
 
     /**
@@ -131,9 +126,7 @@ public class SpecificationChecking {
      */
     public static boolean checkHasLengthInput(SFT<CharPred, CharFunc, Character> sft, SFA<CharPred, Character> lengthAutomaton) throws TimeoutException {
         SFA<CharPred, Character> inputLanguage = sft.getDomain(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> complementLength = lengthAutomaton.complement(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> intersection = inputLanguage.intersectionWith(complementLength, new UnaryCharIntervalSolver());
-        return intersection.isEmpty();
+        return inputLanguage.isIncludedIn(lengthAutomaton, new UnaryCharIntervalSolver());
     }
 
     /**
@@ -145,9 +138,7 @@ public class SpecificationChecking {
      */
     public static boolean checkHasLengthOutput(SFT<CharPred, CharFunc, Character> sft, SFA<CharPred, Character> lengthAutomaton) throws TimeoutException {
         SFA<CharPred, Character> outputLanguage = sft.getOutputSFA(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> complementLength = lengthAutomaton.complement(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> intersection = outputLanguage.intersectionWith(complementLength, new UnaryCharIntervalSolver());
-        return intersection.isEmpty();
+        return outputLanguage.isIncludedIn(lengthAutomaton, new UnaryCharIntervalSolver());
     }
 
     /**
@@ -159,8 +150,7 @@ public class SpecificationChecking {
      */
     public static boolean checkHasNotLengthInput(SFT<CharPred, CharFunc, Character> sft, SFA<CharPred, Character> lengthAutomaton) throws TimeoutException {
         SFA<CharPred, Character> inputLanguage = sft.getDomain(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> intersection = inputLanguage.intersectionWith(lengthAutomaton, new UnaryCharIntervalSolver());
-        return intersection.isEmpty();
+        return inputLanguage.isIntersectionEmptyWith(lengthAutomaton, new UnaryCharIntervalSolver());
     }
 
     /**
@@ -171,8 +161,7 @@ public class SpecificationChecking {
      */
     public static boolean checkHasNotLengthOutput(SFT<CharPred, CharFunc, Character> sft, SFA<CharPred, Character> lengthAutomaton) throws TimeoutException {
         SFA<CharPred, Character> outputLanguage = sft.getOutputSFA(new UnaryCharIntervalSolver());
-        SFA<CharPred, Character> intersection = outputLanguage.intersectionWith(lengthAutomaton, new UnaryCharIntervalSolver());
-        return intersection.isEmpty();
+        return outputLanguage.isIntersectionEmptyWith(lengthAutomaton, new UnaryCharIntervalSolver());
     }
 
     /**
@@ -352,6 +341,52 @@ public class SpecificationChecking {
         return null;
     }
 
+    /**
+     * Compares a learned model with its specification
+     * @param learnedPath path to the .dot file of the learned model
+     * @param specPath path to the .dot file of the specification
+     * @param name name of the learned model that is used in the report
+     * @return report of the comparison, including a witness if the model is not correct
+     */
+    private static String compareToSpecification(String learnedPath, String specPath, String name) {
+        StringBuilder report = new StringBuilder();
+        try {
+            SFT<CharPred, CharFunc, Character> learned = load(learnedPath);
+            SFT<CharPred, CharFunc, Character> spec = load(specPath);
+            boolean equal =  SpecificationChecking.areEqual(learned, spec);
+            report.append(" Specification of " + name + " is correct?: " +equal+"\n");
+            if (!equal) {
+                List<Character> witness = learned.witness1disequalityParallel(spec, new UnaryCharIntervalSolver());
+                report.append("Witness: "+witness+"\n");
+
+                report.append(spec.toString()+"\n");
+                report.append("Learned model outputs: "+learned.outputOn(witness, new UnaryCharIntervalSolver())+"\n");
+                report.append("Specified model outputs: "+spec.outputOn(witness, new UnaryCharIntervalSolver())+"\n");
+                report.append(learned+"\n");
+                report.append(spec+"\n");
+            }
+        } catch (TimeoutException e1) {
+            e1.printStackTrace();
+        } catch (IOException e) {
+            report.append(" Could not read the model of " + name + ": " + e.getMessage() + "\n");
+        }
+        return report.toString();
+    }
+
+    /**
+     * Reads a model from a .dot file, or from a binary model file written by ModelFile for any other extension
+     * @param path path of the model
+     * @return the model
+     * @throws IOException if a binary model file cannot be read
+     * @throws TimeoutException
+     */
+    private static SFT<CharPred, CharFunc, Character> load(String path) throws IOException, TimeoutException {
+        if (path.endsWith(".dot")) {
+            return ReadSpecification.read(path);
+        }
+        return ModelFile.open(path).toSFT();
+    }
+
     public static void main(String[] args) {
 //        try {
 //            SFT sft = CyberchefSpecifications.getLowercaseSpec();
@@ -380,27 +415,23 @@ public class SpecificationChecking {
 //        }
 
 
+        // the models are independent, so they are compared to their specifications concurrently
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<String>> reports = new ArrayList<>();
         for (int i = 0; i < learnedModels.length; i++) {
+            String learnedModel = learnedModels[i];
+            String spec = specs[i];
+            reports.add(executor.submit(() -> compareToSpecification(learnedDir + learnedModel, specDir + spec, learnedModel)));
+        }
+        // print the reports in the order of the models
+        for (Future<String> report : reports) {
             try {
-                SFT learned = ReadSpecification.read(learnedDir + learnedModels[i]);
-                SFT spec = ReadSpecification.read(specDir + specs[i]);
-                boolean equal =  SpecificationChecking.areEqual(learned, spec);
-                System.out.println(" Specification of " + learnedModels[i] + " is correct?: " +equal);
-                if (!equal) {
-                    List<Character> witness = learned.witness1disequality(spec, new UnaryCharIntervalSolver());
-                    System.out.println("Witness: "+witness);
-                    String witString = "";
-
-                    System.out.println(spec.toString());
-                    System.out.println("Learned model outputs: "+learned.outputOn(witness, new UnaryCharIntervalSolver()));
-                    System.out.println("Specified model outputs: "+spec.outputOn(witness, new UnaryCharIntervalSolver()));
-                    System.out.println(learned);
-                    System.out.println(spec);
-                }
-            } catch (TimeoutException e1) {
-                e1.printStackTrace();
+                System.out.print(report.get());
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
             }
         }
+        executor.shutdown();
 //        //
 //        try {
 //            for (String s : learnedModels) {
@@ -3,6 +3,8 @@
  */
 package sftlearning;
 
+import automata.sfa.UniformWordSampler;
+import automata.sfa.WitnessEnumerator;
 import org.sat4j.specs.TimeoutException;
 import theory.characters.CharConstant;
 import theory.characters.CharFunc;
@@ -62,6 +64,8 @@ public class TestAutomaticEquivalenceOracle extends SymbolicOracle<CharPred, Cha
             case 5: return stateCoverageEO(compareTo);
             case 6: return transitionCoverageEO(compareTo);
             case 7: return predicateCoverageEO(compareTo);
+            case 8: return enumerationEO(compareTo);
+            case 9: return uniformEO(compareTo);
             default: return randomEO(compareTo);
         }
     }
@@ -349,14 +353,14 @@ public class TestAutomaticEquivalenceOracle extends SymbolicOracle<CharPred, Cha
         for (int state=0; state<hypothesis.stateCount(); state++) {
             Collection<SFTInputMove<CharPred, CharFunc, Character>> transitions = hypothesis.getInputMovesFrom(state);
             for (SFTInputMove<CharPred, CharFunc, Character> trans : transitions) {
-                for (int i=0; i<trans.guard.intervals.size(); i++) {
+                for (int i=0; i<trans.guard.getIntervals().size(); i++) {
                     for (int j=0; j<maxTestsPerPred; j++) {
                         List<Character> input = new ArrayList<>();
                         input.addAll(getAccessString(hypothesis, state));
                         Character c = CharPred.MIN_CHAR;
                         // Generate character which satisfies the guard of the transition
 
-                        while (c != null && (trans.guard.intervals.get(i).getLeft() > c || trans.guard.intervals.get(i).getRight() < c)) {
+                        while (c != null && (trans.guard.getIntervals().get(i).getLeft() > c || trans.guard.getIntervals().get(i).getRight() < c)) {
                             int random = ThreadLocalRandom.current().nextInt(1, 400);
                             c = CharPred.MIN_CHAR;
                             for (int k = 0; k < random; k++) {
@@ -417,6 +421,48 @@ public class TestAutomaticEquivalenceOracle extends SymbolicOracle<CharPred, Cha
         return null;
     }
 
+    /**
+     * Equivalence oracle which tests the inputs in the domain of the hypothesis by increasing length,
+     * from minLength to maxLength, without generating any input twice
+     * @param hypothesis
+     * @return counterexample
+     * @throws TimeoutException
+     */
+    public List<Character> enumerationEO(SFT<CharPred, CharFunc, Character> hypothesis) throws TimeoutException {
+        WitnessEnumerator<CharPred, Character> inputs = WitnessEnumerator.of(hypothesis.getDomain(ba), ba);
+        Iterator<List<Character>> it = inputs.iterator(minLength, maxLength);
+        for (int i=0; i<numTests && it.hasNext(); i++) {
+            List<Character> input = it.next();
+            if (!hypothesis.outputOn(input, ba).equals(o.checkMembership(input))) {
+                return input;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Equivalence oracle which tests numTests inputs drawn uniformly from the domain of the hypothesis,
+     * spread evenly over the lengths from minLength to maxLength
+     * @param hypothesis
+     * @return counterexample
+     * @throws TimeoutException
+     */
+    public List<Character> uniformEO(SFT<CharPred, CharFunc, Character> hypothesis) throws TimeoutException {
+        UniformWordSampler<CharPred, Character> sampler = UniformWordSampler.of(hypothesis.getDomain(ba), ba);
+        int lengths = maxLength - minLength + 1;
+        for (int length=minLength; length<=maxLength; length++) {
+            // the remainder goes to the shortest lengths, so that numTests inputs are tested in total
+            int tests = numTests / lengths + (length - minLength < numTests % lengths ? 1 : 0);
+            long seed = ThreadLocalRandom.current().nextLong();
+            for (List<Character> input : sampler.sample(length, tests, seed, true)) {
+                if (!hypothesis.outputOn(input, ba).equals(o.checkMembership(input))) {
+                    return input;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Implementation for a sanitizers that encodes/escapes HTML by transforming <, > and & into their HTML entities.
      *
@@ -495,9 +541,11 @@ public class TestAutomaticEquivalenceOracle extends SymbolicOracle<CharPred, Cha
         System.out.println("5: State coverage");
         System.out.println("6: Transition coverage");
         System.out.println("7: Predicate coverage");
+        System.out.println("8: Enumeration");
+        System.out.println("9: Uniform random");
         Scanner sc = new Scanner(System.in);
         EO = sc.nextInt();
-        if (EO == 1 || EO == 2 || EO == 3) {
+        if (EO == 1 || EO == 2 || EO == 3 || EO == 8 || EO == 9) {
             System.out.println("Number of tests to run?");
             numTests = sc.nextInt();
         }
@@ -394,7 +394,7 @@ public class TestAutomaticOracles extends SymbolicOracle<CharPred, CharFunc, Cha
             Collection<SFTInputMove<CharPred, CharFunc, Character>> transitions = hypothesis.getInputMovesFrom(state);
             for (SFTInputMove<CharPred, CharFunc, Character> trans : transitions) {
                 intervalLoop:
-                for (int i=0; i<trans.guard.intervals.size(); i++) {
+                for (int i=0; i<trans.guard.getIntervals().size(); i++) {
                     for (int j=0; j<maxTestsPerPred; j++) {
                         List<Character> input = new ArrayList<>();
                         List<Character> accString = getAccessString(hypothesis, state);
@@ -406,8 +406,8 @@ public class TestAutomaticOracles extends SymbolicOracle<CharPred, CharFunc, Cha
                         Character c = 0;
                         // Generate character which satisfies the guard of the transition
                         boolean first = true;
-                        while (first || (c == 0 || trans.guard.intervals.get(i).getLeft() > c || trans.guard.intervals.get(i).getRight() < c)) {
-                            c = getRandomCharacter(trans.guard.intervals.get(i).right, trans.guard.intervals.get(i).left, MIN_CHAR, MAX_CHAR);
+                        while (first || (c == 0 || trans.guard.getIntervals().get(i).getLeft() > c || trans.guard.getIntervals().get(i).getRight() < c)) {
+                            c = getRandomCharacter(trans.guard.getIntervals().get(i).right, trans.guard.getIntervals().get(i).left, MIN_CHAR, MAX_CHAR);
                             if (c == 0) {
                                 break intervalLoop;
                             }
@@ -12,6 +12,7 @@ import theory.intervals.UnaryCharIntervalSolver;
 import transducers.sft.SFT;
 import transducers.sft.SFTInputMove;
 import transducers.sft.SFTMove;
+import transducers.sft.SFTStateAnalysis;
 import java.util.concurrent.ThreadLocalRandom;
 import static java.lang.Integer.max;
 import static java.lang.Integer.min;
@@ -115,6 +116,8 @@ public class TestAutomaticOraclesFIXED extends SymbolicOracle<CharPred, CharFunc
                 break;
             case 7: result = predicateCoverageEO(compareTo);
                 break;
+            case 8: result = distinguishingSuffixEO(compareTo);
+                break;
             default: result = predicateCoverageEO(compareTo);
         }
         timeEquivalence += (System.currentTimeMillis() - start);
@@ -187,8 +190,8 @@ public class TestAutomaticOraclesFIXED extends SymbolicOracle<CharPred, CharFunc
                     // NOTE: It chooses a random character from a RANGE of the actual complete algebra!
                     // Choose random guard to use for character generation
                     while (initialChar || c == 0) {
-                        int g = ThreadLocalRandom.current().nextInt(0, chosenTrans.guard.intervals.size());
-                        c = getRandomCharacter(chosenTrans.guard.intervals.get(g).getRight(), chosenTrans.guard.intervals.get(g).getLeft());
+                        int g = ThreadLocalRandom.current().nextInt(0, chosenTrans.guard.getIntervals().size());
+                        c = getRandomCharacter(chosenTrans.guard.getIntervals().get(g).getRight(), chosenTrans.guard.getIntervals().get(g).getLeft());
                         initialChar = false;
                     }
                     input.add(c);
@@ -314,8 +317,8 @@ public class TestAutomaticOraclesFIXED extends SymbolicOracle<CharPred, CharFunc
                     boolean first = true;
                     // Find first character which satisfies the guard of the transition leading to the current state
                     while (first || c == 0) {
-                        int l = ThreadLocalRandom.current().nextInt(0, trans.guard.intervals.size());
-                        c = getRandomCharacter(trans.guard.intervals.get(l).getRight(), trans.guard.intervals.get(l).getLeft());
+                        int l = ThreadLocalRandom.current().nextInt(0, trans.guard.getIntervals().size());
+                        c = getRandomCharacter(trans.guard.getIntervals().get(l).getRight(), trans.guard.getIntervals().get(l).getLeft());
                         first = false;
                     }
                     input.add(c);
@@ -359,8 +362,8 @@ public class TestAutomaticOraclesFIXED extends SymbolicOracle<CharPred, CharFunc
                     boolean first = true;
                     // Generate character which satisfies the guard of the transition
                     while (first || c == 0) {
-                        int j = ThreadLocalRandom.current().nextInt(0, trans.guard.intervals.size());
-                        c = getRandomCharacter(trans.guard.intervals.get(j).getRight(), trans.guard.intervals.get(j).getLeft());
+                        int j = ThreadLocalRandom.current().nextInt(0, trans.guard.getIntervals().size());
+                        c = getRandomCharacter(trans.guard.getIntervals().get(j).getRight(), trans.guard.getIntervals().get(j).getLeft());
                         first = false;
                     }
                     input.add(c);
@@ -396,7 +399,7 @@ public class TestAutomaticOraclesFIXED extends SymbolicOracle<CharPred, CharFunc
             Collection<SFTInputMove<CharPred, CharFunc, Character>> transitions = hypothesis.getInputMovesFrom(state);
             for (SFTInputMove<CharPred, CharFunc, Character> trans : transitions) {
                 intervalLoop:
-                for (int i=0; i<trans.guard.intervals.size(); i++) {
+                for (int i=0; i<trans.guard.getIntervals().size(); i++) {
                     for (int j=0; j<maxTestsPerPred; j++) {
                         List<Character> input = new ArrayList<>();
                         List<Character> accString = getAccessString(hypothesis, state);
@@ -406,7 +409,7 @@ public class TestAutomaticOraclesFIXED extends SymbolicOracle<CharPred, CharFunc
                         }
                         input.addAll(accString);
                         // Generate character which satisfies the guard of the transition
-                        char c = getRandomCharacter(trans.guard.intervals.get(i).right, trans.guard.intervals.get(i).left);
+                        char c = getRandomCharacter(trans.guard.getIntervals().get(i).right, trans.guard.getIntervals().get(i).left);
                         if (c == 0) {
                             break intervalLoop;
                         }
@@ -466,6 +469,50 @@ public class TestAutomaticOraclesFIXED extends SymbolicOracle<CharPred, CharFunc
         return null;
     }
 
+    /**
+     * Equivalence oracle which checks that every transition of the hypothesis leads to the right state: for every
+     * transition it tests the access string of its source state and a character of its guard, followed by the
+     * suffixes that distinguish its target state from every other state of the hypothesis
+     * @param hypothesis
+     * @return
+     * @throws TimeoutException
+     */
+    public List<Character> distinguishingSuffixEO(SFT<CharPred, CharFunc, Character> hypothesis) throws TimeoutException {
+        SFTStateAnalysis<CharPred, CharFunc, Character> analysis = hypothesis.getStateAnalysis(ba);
+        for (Integer state : hypothesis.getStates()) {
+            List<Character> accString = analysis.getAccessString(state);
+            if (accString == null) {
+                // There are no transitions leading to this state so we skip this as it is unreachable
+                continue;
+            }
+            for (SFTInputMove<CharPred, CharFunc, Character> trans : hypothesis.getInputMovesFrom(state)) {
+                Character c = CharPred.MIN_CHAR;
+                boolean first = true;
+                // Generate character which satisfies the guard of the transition
+                while (first || c == 0) {
+                    int j = ThreadLocalRandom.current().nextInt(0, trans.guard.getIntervals().size());
+                    c = getRandomCharacter(trans.guard.getIntervals().get(j).getRight(), trans.guard.getIntervals().get(j).getLeft());
+                    first = false;
+                }
+
+                for (Integer other : hypothesis.getStates()) {
+                    List<Character> suffix = analysis.getDistinguishingSuffix(trans.to, other);
+                    if (suffix == null) {
+                        continue;
+                    }
+                    List<Character> input = new ArrayList<>(accString);
+                    input.add(c);
+                    input.addAll(suffix);
+
+                    if (!hypothesis.outputOn(input, ba).equals(o.checkMembership(input))) {
+                        return input;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
     private static void setLearningSettings(Scanner sc) {
         System.out.println("Which Equivalence Oracle to use?");
         System.out.println("1: Random");
@@ -475,6 +522,7 @@ public class TestAutomaticOraclesFIXED extends SymbolicOracle<CharPred, CharFunc
         System.out.println("5: State coverage");
         System.out.println("6: Transition coverage");
         System.out.println("7: Predicate coverage");
+        System.out.println("8: Distinguishing suffixes");
         EO = sc.nextInt();
         if (EO == 1 || EO == 2 || EO == 3) {
             System.out.println("Number of tests to run?");
@@ -161,8 +161,8 @@ public class TestMembershipOracleStream extends SymbolicOracle<CharPred, CharFun
                     // NOTE: It chooses a random character from a RANGE of the actual complete algebra!
                     // Choose random guard to use for character generation
                     while (initialChar || c == 0) {
-                        int g = ThreadLocalRandom.current().nextInt(0, chosenTrans.guard.intervals.size());
-                        c = getRandomCharacter(chosenTrans.guard.intervals.get(g).getRight(), chosenTrans.guard.intervals.get(g).getLeft());
+                        int g = ThreadLocalRandom.current().nextInt(0, chosenTrans.guard.getIntervals().size());
+                        c = getRandomCharacter(chosenTrans.guard.getIntervals().get(g).getRight(), chosenTrans.guard.getIntervals().get(g).getLeft());
                         initialChar = false;
                     }
                     input.add(c);
@@ -288,8 +288,8 @@ public class TestMembershipOracleStream extends SymbolicOracle<CharPred, CharFun
                     boolean first = true;
                     // Find first character which satisfies the guard of the transition leading to the current state
                     while (first || c == 0) {
-                        int l = ThreadLocalRandom.current().nextInt(0, trans.guard.intervals.size());
-                        c = getRandomCharacter(trans.guard.intervals.get(l).getRight(), trans.guard.intervals.get(l).getLeft());
+                        int l = ThreadLocalRandom.current().nextInt(0, trans.guard.getIntervals().size());
+                        c = getRandomCharacter(trans.guard.getIntervals().get(l).getRight(), trans.guard.getIntervals().get(l).getLeft());
                         first = false;
                     }
                     input.add(c);
@@ -333,8 +333,8 @@ public class TestMembershipOracleStream extends SymbolicOracle<CharPred, CharFun
                     boolean first = true;
                     // Generate character which satisfies the guard of the transition
                     while (first || c == 0) {
-                        int j = ThreadLocalRandom.current().nextInt(0, trans.guard.intervals.size());
-                        c = getRandomCharacter(trans.guard.intervals.get(j).getRight(), trans.guard.intervals.get(j).getLeft());
+                        int j = ThreadLocalRandom.current().nextInt(0, trans.guard.getIntervals().size());
+                        c = getRandomCharacter(trans.guard.getIntervals().get(j).getRight(), trans.guard.getIntervals().get(j).getLeft());
                         first = false;
                     }
                     input.add(c);
@@ -370,7 +370,7 @@ public class TestMembershipOracleStream extends SymbolicOracle<CharPred, CharFun
             Collection<SFTInputMove<CharPred, CharFunc, Character>> transitions = hypothesis.getInputMovesFrom(state);
             for (SFTInputMove<CharPred, CharFunc, Character> trans : transitions) {
                 intervalLoop:
-                for (int i=0; i<trans.guard.intervals.size(); i++) {
+                for (int i=0; i<trans.guard.getIntervals().size(); i++) {
                     for (int j=0; j<maxTestsPerPred; j++) {
                         List<Character> input = new ArrayList<>();
                         List<Character> accString = getAccessString(hypothesis, state);
@@ -381,7 +381,7 @@ public class TestMembershipOracleStream extends SymbolicOracle<CharPred, CharFun
                         input.addAll(accString);
                         Character c = 0;
                         // Generate character which satisfies the guard of the transition
-                        c = getRandomCharacter(trans.guard.intervals.get(i).right, trans.guard.intervals.get(i).left, MIN_CHAR, MAX_CHAR);
+                        c = getRandomCharacter(trans.guard.getIntervals().get(i).right, trans.guard.getIntervals().get(i).left, MIN_CHAR, MAX_CHAR);
                         if (c == 0) {
                             break intervalLoop;
                         }
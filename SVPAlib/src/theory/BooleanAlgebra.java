@@ -31,6 +31,17 @@ public abstract class BooleanAlgebra<P, S> {
 	 */
 	public abstract P MkAtom(S s);
 	
+	/**
+	 * @return the predicate accepting exactly the elements of <code>elements</code>
+	 * @throws TimeoutException 
+	 */
+	public P MkAtoms(Collection<S> elements) throws TimeoutException {
+		ArrayList<P> atoms = new ArrayList<P>();
+		for (S s : elements)
+			atoms.add(MkAtom(s));
+		return MkOr(atoms);
+	}
+
 	/**
 	 * @return the complement of <code>p</code>
 	 * @throws TimeoutException 
@@ -102,6 +113,14 @@ public abstract class BooleanAlgebra<P, S> {
 	 */
 	public abstract Pair<S, S> generateWitnesses(P p1) throws TimeoutException;
 
+	/**
+	 * @return the size of <code>p1</code> in the representation of this algebra, such as its number of intervals
+	 *         or BDD nodes, 1 if the algebra does not measure its predicates (used to weigh cached results)
+	 */
+	protected int sizeOf(P p1) {
+		return 1;
+	}
+
 	/**
 	 * Given a set of <code>predicates</code>, returns all the satisfiable
 	 * Boolean combinations
@@ -113,7 +132,7 @@ public abstract class BooleanAlgebra<P, S> {
 	public Collection<Pair<P, ArrayList<Integer>>> GetMinterms(
 			ArrayList<P> predicates) {
 		try {
-			return GetMinterms(predicates, True(), Long.MAX_VALUE);
+			return GetMinterms(predicates, Long.MAX_VALUE);
 		} catch (TimeoutException e) {			
 			e.printStackTrace();
 			System.out.println("Minterm construction timeout");
@@ -133,6 +152,14 @@ public abstract class BooleanAlgebra<P, S> {
 			ArrayList<P> predicates, long timeout) throws TimeoutException {
 		return GetMinterms(predicates, True(), timeout);
 	}
+
+	/**
+	 * @return true iff this algebra overrides GetMinterms with its own construction, which wrappers such as
+	 *         CachingBooleanAlgebra then call instead of the generic one
+	 */
+	protected boolean hasOwnMinterms() {
+		return false;
+	}
 	
 	private Collection<Pair<P, ArrayList<Integer>>> GetMinterms(
 			ArrayList<P> predicates, P startPred, long timeout) throws TimeoutException {
@@ -195,22 +222,17 @@ public abstract class BooleanAlgebra<P, S> {
 		}
 		
 		//Build negated predicate
-		P largePred = False(); 
+		ArrayList<S> others = new ArrayList<S>();
 		for(int i=0;i<characterGroups.size();i++){			
 			if(i!=maxGroup)
-				for(S s: characterGroups.get(i))
-					largePred = MkOr(largePred, MkAtom(s));
+				others.addAll(characterGroups.get(i));
 		}
-		largePred = MkNot(largePred);
+		P largePred = MkNot(MkAtoms(others));
 		
 		//Build list of predicates
 		for(int i=0;i<characterGroups.size();i++){			
-			if(i!=maxGroup){
-				P ithPred = False();
-				for(S s: characterGroups.get(i))
-					ithPred = MkOr(ithPred, MkAtom(s));
-				out.add(ithPred);
-			}
+			if(i!=maxGroup)
+				out.add(MkAtoms(characterGroups.get(i)));
 			else
 				out.add(largePred);
 		}
@@ -234,9 +256,7 @@ public abstract class BooleanAlgebra<P, S> {
 		//Add union each group into corresponding predicate up to n-1 and keeptrack of leftover predicates
 		P leftover = True();
 		for(int i=0;i<predicateGroups.size()-1;i++){
-			P ithPred = False();
-			for(P el: predicateGroups.get(i))
-				ithPred = MkOr(ithPred, el);
+			P ithPred = MkOr(predicateGroups.get(i));
 			out.add(ithPred);
 			leftover = MkAnd(leftover, MkNot(ithPred));
 		}	
@@ -137,23 +137,18 @@ public abstract class BooleanAlgebraSubst<P extends CharPred,F extends TermInter
 		}
 
 		// Build negated predicate
-		P largePred = False();
+		List<S> others = new ArrayList<>();
 		for (Set<S> pred : predOutputGroups.keySet()) {
 			if (!pred.equals(maxGroup)) {
-				for (S s : pred) {
-					largePred = MkOr(largePred, MkAtom(s));
-				}
+				others.addAll(pred);
 			}
 		}
-		largePred = MkNot(largePred);
+		P largePred = MkNot(MkAtoms(others));
 
 		//Build list of predicates
 		for (Set<S> pred : predOutputGroups.keySet()) {
 			if (!pred.equals(maxGroup)) {
-				P ithPred = False();
-				for (S s : pred) {
-					ithPred = MkOr(ithPred, MkAtom(s));
-				}
+				P ithPred = MkAtoms(pred);
 
 				List<Character> fromChars = new ArrayList<>();
 				for (Object o : from) {
@@ -190,7 +185,7 @@ public abstract class BooleanAlgebraSubst<P extends CharPred,F extends TermInter
 				// Need to check whether output is generated in the same way for each atom in the predicate
 				// If not, then the predicate needs to be split into multiple transitions with different output functions
 				List<CharPred> preds = new ArrayList<>();
-				if (largePred.intervals.size()>=1) {
+				if (largePred.getIntervals().size()>=1) {
 					preds = splitPredicate(largePred, ot, fromChars);
 				} else {
 					preds.add(largePred);
@@ -308,8 +303,8 @@ public abstract class BooleanAlgebraSubst<P extends CharPred,F extends TermInter
 							i++;
 						}
 
-						for (int j=0; j<ithPred.intervals.size(); j++) {
-							ImmutablePair<Character, Character> subPred = ithPred.intervals.get(j);
+						for (int j=0; j<ithPred.getIntervals().size(); j++) {
+							ImmutablePair<Character, Character> subPred = ithPred.getIntervals().get(j);
 							CharPred pr = new CharPred(subPred.getLeft(), subPred.getRight());
 							// Need to find the specific interval in the predicate that needs to be split
 							if (pr.isSatisfiedBy(extension) && !isSplit) {
@@ -354,7 +349,7 @@ public abstract class BooleanAlgebraSubst<P extends CharPred,F extends TermInter
 									right = MkOr((P) right, (P) new CharPred(split, subPred.getRight()));
 								} else if (current.equals(subPred.getLeft()) && subPred.getRight().equals(subPred.getLeft()) && !isSplit) {
 //									System.out.println("Splitting AFTER this single predicate");
-									if (j == ithPred.intervals.size()-1) {
+									if (j == ithPred.getIntervals().size()-1) {
 										// The last single predicate satisfies the predicate, thus it becomes the right predicate
 										right = MkOr((P) right, (P) new CharPred(subPred.getLeft(), subPred.getRight()));
 									} else {
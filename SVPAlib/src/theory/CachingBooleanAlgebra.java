@@ -0,0 +1,338 @@
+/**
+ * SVPAlib
+ * theory
+ */
+package theory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.sat4j.specs.TimeoutException;
+
+import utilities.ClockCache;
+import utilities.Pair;
+
+/**
+ * CachingBooleanAlgebra: decorates a Boolean algebra with a memo table for its connectives, similar to the apply
+ * cache of a BDD package. The results of MkAnd, MkOr, MkNot, IsSatisfiable and AreEquivalent are kept in bounded
+ * CLOCK caches, all other operations are delegated to the wrapped algebra. An entry weighs the sizes of its operands
+ * and result as measured by {@link BooleanAlgebra#sizeOf}, so the capacity bounds the size of what is cached rather
+ * than the number of results.
+ * The caches are striped by the hash of the operands, so that one instance can be shared by parallel algorithms.
+ * Lookups compare predicates with equals, which is a reference comparison for interned predicates.
+ * @param <P> The type of predicates forming the Boolean algebra
+ * @param <S> The domain of the Boolean algebra
+ */
+public class CachingBooleanAlgebra<P, S> extends BooleanAlgebra<P, S> {
+
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final int STRIPES = 16;
+
+	private enum Op {
+		AND, OR, NOT, SAT, EQUIV
+	}
+
+	// an operation applied to its operands, second is null for unary operations
+	private static class OpKey {
+		final Op op;
+		final Object first;
+		final Object second;
+		final int hash;
+
+		OpKey(Op op, Object first, Object second) {
+			this.op = op;
+			this.first = first;
+			this.second = second;
+			this.hash = 31 * (31 * op.hashCode() + first.hashCode()) + (second == null ? 0 : second.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof OpKey))
+				return false;
+			OpKey other = (OpKey) obj;
+			return hash == other.hash && op == other.op && first.equals(other.first)
+					&& (second == null ? other.second == null : second.equals(other.second));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private final BooleanAlgebra<P, S> ba;
+	private final ClockCache<OpKey, Object>[] caches;
+
+	/**
+	 * Caches the connectives of <code>ba</code> with the default capacity
+	 */
+	public CachingBooleanAlgebra(BooleanAlgebra<P, S> ba) {
+		this(ba, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Caches the connectives of <code>ba</code>, keeping results whose operands and results have a total size of
+	 * at most about <code>capacity</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public CachingBooleanAlgebra(BooleanAlgebra<P, S> ba, int capacity) {
+		if (ba == null)
+			throw new IllegalArgumentException("ba cannot be null");
+		this.ba = ba;
+		this.caches = new ClockCache[STRIPES];
+		for (int i = 0; i < STRIPES; i++)
+			caches[i] = new ClockCache<OpKey, Object>(Math.max(1, capacity / STRIPES));
+	}
+
+	/**
+	 * @return the algebra whose connectives are cached
+	 */
+	public BooleanAlgebra<P, S> getAlgebra() {
+		return ba;
+	}
+
+	// ------------------------------------------------------
+	// Cached operations
+	// ------------------------------------------------------
+
+	@Override
+	public P MkNot(P p) throws TimeoutException {
+		OpKey key = new OpKey(Op.NOT, p, null);
+		@SuppressWarnings("unchecked")
+		P res = (P) lookup(key);
+		if (res == null) {
+			res = ba.MkNot(p);
+			store(key, res, sizeOf(p) + sizeOf(res));
+		}
+		return res;
+	}
+
+	@Override
+	public P MkOr(P p1, P p2) throws TimeoutException {
+		OpKey key = symmetricKey(Op.OR, p1, p2);
+		@SuppressWarnings("unchecked")
+		P res = (P) lookup(key);
+		if (res == null) {
+			res = ba.MkOr(p1, p2);
+			store(key, res, sizeOf(p1) + sizeOf(p2) + sizeOf(res));
+		}
+		return res;
+	}
+
+	@Override
+	public P MkAnd(P p1, P p2) throws TimeoutException {
+		OpKey key = symmetricKey(Op.AND, p1, p2);
+		@SuppressWarnings("unchecked")
+		P res = (P) lookup(key);
+		if (res == null) {
+			res = ba.MkAnd(p1, p2);
+			store(key, res, sizeOf(p1) + sizeOf(p2) + sizeOf(res));
+		}
+		return res;
+	}
+
+	@Override
+	public boolean IsSatisfiable(P p1) throws TimeoutException {
+		OpKey key = new OpKey(Op.SAT, p1, null);
+		Boolean res = (Boolean) lookup(key);
+		if (res == null) {
+			res = ba.IsSatisfiable(p1);
+			store(key, res, sizeOf(p1));
+		}
+		return res;
+	}
+
+	@Override
+	public boolean AreEquivalent(P p1, P p2) throws TimeoutException {
+		OpKey key = symmetricKey(Op.EQUIV, p1, p2);
+		Boolean res = (Boolean) lookup(key);
+		if (res == null) {
+			res = ba.AreEquivalent(p1, p2);
+			store(key, res, sizeOf(p1) + sizeOf(p2));
+		}
+		return res;
+	}
+
+	// And, Or and Equivalence are commutative, the operands are ordered by hash so that both orders share an entry
+	private OpKey symmetricKey(Op op, P p1, P p2) {
+		if (p2.hashCode() < p1.hashCode())
+			return new OpKey(op, p2, p1);
+		return new OpKey(op, p1, p2);
+	}
+
+	private Object lookup(OpKey key) {
+		return cacheOf(key).get(key);
+	}
+
+	private void store(OpKey key, Object value, int weight) {
+		cacheOf(key).put(key, value, weight);
+	}
+
+	private ClockCache<OpKey, Object> cacheOf(OpKey key) {
+		int h = key.hash ^ (key.hash >>> 16);
+		return caches[h & (STRIPES - 1)];
+	}
+
+	// ------------------------------------------------------
+	// Delegated operations
+	// ------------------------------------------------------
+
+	@Override
+	public P MkAtom(S s) {
+		return ba.MkAtom(s);
+	}
+
+	@Override
+	public P MkAtoms(Collection<S> elements) throws TimeoutException {
+		return ba.MkAtoms(elements);
+	}
+
+	@Override
+	public P MkOr(Collection<P> pset) throws TimeoutException {
+		return ba.MkOr(pset);
+	}
+
+	@Override
+	public P MkAnd(Collection<P> pset) throws TimeoutException {
+		return ba.MkAnd(pset);
+	}
+
+	@Override
+	public P True() {
+		return ba.True();
+	}
+
+	@Override
+	public P False() {
+		return ba.False();
+	}
+
+	@Override
+	public boolean HasModel(P p1, S el) throws TimeoutException {
+		return ba.HasModel(p1, el);
+	}
+
+	@Override
+	public boolean HasModel(P p1, S el1, S el2) throws TimeoutException {
+		return ba.HasModel(p1, el1, el2);
+	}
+
+	@Override
+	public S generateWitness(P p1) throws TimeoutException {
+		return ba.generateWitness(p1);
+	}
+
+	@Override
+	public Pair<S, S> generateWitnesses(P p1) throws TimeoutException {
+		return ba.generateWitnesses(p1);
+	}
+
+	@Override
+	public Collection<Pair<P, ArrayList<Integer>>> GetMinterms(ArrayList<P> predicates, long timeout)
+			throws TimeoutException {
+		if (ba.hasOwnMinterms())
+			return ba.GetMinterms(predicates, timeout);
+		return super.GetMinterms(predicates, timeout);
+	}
+
+	@Override
+	protected boolean hasOwnMinterms() {
+		return ba.hasOwnMinterms();
+	}
+
+	@Override
+	protected int sizeOf(P p1) {
+		return Math.max(1, ba.sizeOf(p1));
+	}
+
+	@Override
+	public ArrayList<P> GetSeparatingPredicates(ArrayList<Collection<S>> characterGroups, long timeout)
+			throws TimeoutException {
+		return ba.GetSeparatingPredicates(characterGroups, timeout);
+	}
+
+	@Override
+	public ArrayList<P> GetSeparatingPredicatesFromPredicates(ArrayList<Collection<P>> predicateGroups, long timeout)
+			throws TimeoutException {
+		return ba.GetSeparatingPredicatesFromPredicates(predicateGroups, timeout);
+	}
+
+	// ------------------------------------------------------
+	// Statistics
+	// ------------------------------------------------------
+
+	/**
+	 * @return the number of cached operations that were answered from the cache
+	 */
+	public long getHits() {
+		long hits = 0;
+		for (ClockCache<OpKey, Object> cache : caches)
+			hits += cache.getHits();
+		return hits;
+	}
+
+	/**
+	 * @return the number of cached operations that had to be computed by the wrapped algebra
+	 */
+	public long getMisses() {
+		long misses = 0;
+		for (ClockCache<OpKey, Object> cache : caches)
+			misses += cache.getMisses();
+		return misses;
+	}
+
+	/**
+	 * @return the number of results that were evicted to make room for new ones
+	 */
+	public long getEvictions() {
+		long evictions = 0;
+		for (ClockCache<OpKey, Object> cache : caches)
+			evictions += cache.getEvictions();
+		return evictions;
+	}
+
+	/**
+	 * @return the number of results currently cached
+	 */
+	public int size() {
+		int size = 0;
+		for (ClockCache<OpKey, Object> cache : caches)
+			size += cache.size();
+		return size;
+	}
+
+	/**
+	 * @return the total weight of the results currently cached, at most about the capacity
+	 */
+	public int weight() {
+		int weight = 0;
+		for (ClockCache<OpKey, Object> cache : caches)
+			weight += cache.weight();
+		return weight;
+	}
+
+	public void resetStatistics() {
+		for (ClockCache<OpKey, Object> cache : caches)
+			cache.resetStatistics();
+	}
+
+	/**
+	 * Empties the caches, the statistics are kept
+	 */
+	public void clear() {
+		for (ClockCache<OpKey, Object> cache : caches)
+			cache.clear();
+	}
+
+	@Override
+	public String toString() {
+		long hits = getHits();
+		long misses = getMisses();
+		long total = hits + misses;
+		return "CachingBooleanAlgebra(" + ba.getClass().getSimpleName() + "): " + hits + " hits, " + misses
+				+ " misses" + (total == 0 ? "" : String.format(" (%.1f%% hit rate)", 100.0 * hits / total)) + ", "
+				+ getEvictions() + " evictions, " + size() + " entries";
+	}
+}
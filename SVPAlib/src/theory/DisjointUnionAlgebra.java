@@ -13,14 +13,27 @@ import utilities.choice.Choice;
 import utilities.choice.InL;
 import utilities.choice.InR;
 
+/**
+ * DisjointUnionAlgebra: Boolean algebra over the disjoint union of two domains, whose predicates are pairs of
+ * predicates of the two algebras. Every connective works componentwise, so the operations are cached by wrapping the
+ * component algebras in a {@link CachingBooleanAlgebra}.
+ */
 public class DisjointUnionAlgebra<P1, S1, P2, S2> extends BooleanAlgebra<Pair<P1,P2>, Choice<S1,S2>> {
 
 	private BooleanAlgebra<P1,S1> ba1;
 	private BooleanAlgebra<P2,S2> ba2;
 	
 	public DisjointUnionAlgebra(BooleanAlgebra<P1,S1> ba1, BooleanAlgebra<P2,S2> ba2) {
-		this.ba1 = ba1;
-		this.ba2 = ba2;
+		this(ba1, ba2, CachingBooleanAlgebra.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Disjoint union of <code>ba1</code> and <code>ba2</code>, each component algebra caches results of a total size
+	 * of at most about <code>capacity</code>
+	 */
+	public DisjointUnionAlgebra(BooleanAlgebra<P1,S1> ba1, BooleanAlgebra<P2,S2> ba2, int capacity) {
+		this.ba1 = ba1 instanceof CachingBooleanAlgebra ? ba1 : new CachingBooleanAlgebra<P1, S1>(ba1, capacity);
+		this.ba2 = ba2 instanceof CachingBooleanAlgebra ? ba2 : new CachingBooleanAlgebra<P2, S2>(ba2, capacity);
 	}
 	
 	@Override
@@ -84,6 +97,8 @@ public class DisjointUnionAlgebra<P1, S1, P2, S2> extends BooleanAlgebra<Pair<P1
 
 	@Override
 	public boolean AreEquivalent(Pair<P1, P2> p1, Pair<P1, P2> p2) throws TimeoutException {
+		if (p1.equals(p2))
+			return true;
 		return ba1.AreEquivalent(p1.first, p2.first) && ba2.AreEquivalent(p1.second, p2.second);
 	}
 
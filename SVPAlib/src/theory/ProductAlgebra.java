@@ -1,5 +1,6 @@
 package theory;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -8,57 +9,142 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.sat4j.specs.TimeoutException;
 
 import theory.cartesian.CartesianProduct;
+import utilities.ClockCache;
 import utilities.Pair;
 
+/**
+ * ProductAlgebra: Boolean algebra of unions of products P1 x P2.
+ * All predicates returned by the connectives are normalized and hash-consed, so that equal results are the same
+ * object, and the results of MkAnd, MkOr, MkNot, IsSatisfiable and AreEquivalent are kept in bounded caches.
+ * The component algebras are wrapped in a {@link CachingBooleanAlgebra}, since normalizing a product asks them the
+ * same questions about the same components over and over.
+ */
 public class ProductAlgebra<P1, S1, P2, S2> extends BooleanAlgebra<CartesianProduct<P1, P2>, Pair<S1, S2>> {
 
+	public static final int DEFAULT_CAPACITY = 1 << 12;
+
 	private BooleanAlgebra<P1,S1> ba1;
 	private BooleanAlgebra<P2,S2> ba2;
-	
+
+	private final Map<CartesianProduct<P1, P2>, WeakReference<CartesianProduct<P1, P2>>> unique;
+	private final ClockCache<Pair<CartesianProduct<P1, P2>, CartesianProduct<P1, P2>>, CartesianProduct<P1, P2>> andCache;
+	private final ClockCache<Pair<CartesianProduct<P1, P2>, CartesianProduct<P1, P2>>, CartesianProduct<P1, P2>> orCache;
+	private final ClockCache<CartesianProduct<P1, P2>, CartesianProduct<P1, P2>> notCache;
+	private final ClockCache<CartesianProduct<P1, P2>, Boolean> satCache;
+	private final ClockCache<Pair<CartesianProduct<P1, P2>, CartesianProduct<P1, P2>>, Boolean> equivCache;
+
 	public ProductAlgebra(BooleanAlgebra<P1,S1> ba1, BooleanAlgebra<P2,S2> ba2) {
-		this.ba1 = ba1;
-		this.ba2 = ba2;
+		this(ba1, ba2, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Product of <code>ba1</code> and <code>ba2</code> caching at most <code>capacity</code> results per operation,
+	 * the component algebras cache results of a total size of at most about <code>capacity</code>
+	 */
+	public ProductAlgebra(BooleanAlgebra<P1,S1> ba1, BooleanAlgebra<P2,S2> ba2, int capacity) {
+		this.ba1 = ba1 instanceof CachingBooleanAlgebra ? ba1 : new CachingBooleanAlgebra<P1, S1>(ba1, capacity);
+		this.ba2 = ba2 instanceof CachingBooleanAlgebra ? ba2 : new CachingBooleanAlgebra<P2, S2>(ba2, capacity);
+		this.unique = new WeakHashMap<CartesianProduct<P1, P2>, WeakReference<CartesianProduct<P1, P2>>>();
+		this.andCache = new ClockCache<>(capacity);
+		this.orCache = new ClockCache<>(capacity);
+		this.notCache = new ClockCache<>(capacity);
+		this.satCache = new ClockCache<>(capacity);
+		this.equivCache = new ClockCache<>(capacity);
+	}
+
+	/**
+	 * Returns the normalized, hash-consed representative of <code>p</code>. A product that is not normalized yet is
+	 * copied, so the caller's object is left as it is.
+	 */
+	public CartesianProduct<P1, P2> canonical(CartesianProduct<P1, P2> p) throws TimeoutException {
+		if (!p.isNormalized()) {
+			p = new CartesianProduct<>(new ArrayList<>(p.getProducts()));
+			p.normalize(ba1, ba2);
+		}
+		synchronized (unique) {
+			WeakReference<CartesianProduct<P1, P2>> ref = unique.get(p);
+			CartesianProduct<P1, P2> representative = ref == null ? null : ref.get();
+			if (representative == null) {
+				unique.put(p, new WeakReference<>(p));
+				representative = p;
+			}
+			return representative;
+		}
+	}
+
+	// operands of commutative operations are ordered by hash so that both orders share an entry
+	private static <T> Pair<T, T> symmetricKey(T p1, T p2) {
+		if (p2.hashCode() < p1.hashCode())
+			return new Pair<>(p2, p1);
+		return new Pair<>(p1, p2);
+	}
+
+	// hash-conses a product built by the algebra itself, keeping it as it is if normalization times out
+	private CartesianProduct<P1, P2> tryCanonical(CartesianProduct<P1, P2> p) {
+		try {
+			return canonical(p);
+		} catch (TimeoutException e) {
+			return p;
+		}
 	}
 
 	@Override
 	public CartesianProduct<P1, P2> MkAtom(Pair<S1, S2> s) {
-		return new CartesianProduct<>(ba1.MkAtom(s.first), ba2.MkAtom(s.second));
+		return tryCanonical(new CartesianProduct<>(ba1.MkAtom(s.first), ba2.MkAtom(s.second)));
 	}
 
+	/**
+	 * The first components of a normalized product are disjoint, so its complement is the union of x &times; not y
+	 * for every pair x &times; y, and of the part of P1 not covered by any x.
+	 */
 	@Override
-	public CartesianProduct<P1, P2> MkNot(CartesianProduct<P1, P2> p) throws TimeoutException {						
-		ArrayList<CartesianProduct<P1, P2>> conjuncts = new ArrayList<>();
-		for (Pair<P1, P2> pair : p.getProducts()) {
-			List<Pair<P1, P2>> temp = new ArrayList<Pair<P1, P2>>();
-			temp.add(new Pair<P1, P2>(ba1.MkNot(pair.first), ba2.True()));
-			temp.add(new Pair<P1, P2>(ba1.True(), ba2.MkNot(pair.second)));
-			conjuncts.add(new CartesianProduct<P1, P2>(temp));
+	public CartesianProduct<P1, P2> MkNot(CartesianProduct<P1, P2> p) throws TimeoutException {
+		p = canonical(p);
+		CartesianProduct<P1, P2> res = notCache.get(p);
+		if (res == null) {
+			List<Pair<P1, P2>> complement = new ArrayList<Pair<P1, P2>>();
+			List<P1> covered = new ArrayList<P1>();
+			for (Pair<P1, P2> pair : p.getProducts()) {
+				complement.add(new Pair<P1, P2>(pair.first, ba2.MkNot(pair.second)));
+				covered.add(pair.first);
+			}
+			complement.add(new Pair<P1, P2>(ba1.MkNot(ba1.MkOr(covered)), ba2.True()));
+			res = canonical(new CartesianProduct<>(complement));
+			notCache.put(p, res);
+			notCache.put(res, p);
 		}
-		return MkAnd(conjuncts);
+		return res;
 	}
 
 	@Override
 	public CartesianProduct<P1, P2> MkOr(Collection<CartesianProduct<P1, P2>> pset) throws TimeoutException {
-		CartesianProduct<P1, P2> or = False();
-		for (CartesianProduct<P1, P2> a : pset) {
-			or = MkOr(or, a);
-		}
-		return or;
+		ArrayList<Pair<P1, P2>> newProducts = new ArrayList<>();
+		for (CartesianProduct<P1, P2> a : pset)
+			newProducts.addAll(a.getProducts());
+		return canonical(new CartesianProduct<>(newProducts));
 	}
 
 	@Override
 	public CartesianProduct<P1, P2> MkOr(CartesianProduct<P1, P2> p1, CartesianProduct<P1, P2> p2)
 			throws TimeoutException {
-			
-		ArrayList<Pair<P1, P2>> newProducts = new ArrayList<>(p1.getProducts());
-		newProducts.addAll(p2.getProducts());
-		CartesianProduct<P1, P2> pp= new CartesianProduct<>(newProducts);
-		pp.normalize(ba1, ba2);
-		return pp;
+		p1 = canonical(p1);
+		p2 = canonical(p2);
+		if (p1 == p2)
+			return p1;
+		Pair<CartesianProduct<P1, P2>, CartesianProduct<P1, P2>> key = symmetricKey(p1, p2);
+		CartesianProduct<P1, P2> res = orCache.get(key);
+		if (res == null) {
+			ArrayList<Pair<P1, P2>> newProducts = new ArrayList<>(p1.getProducts());
+			newProducts.addAll(p2.getProducts());
+			res = canonical(new CartesianProduct<>(newProducts));
+			orCache.put(key, res);
+		}
+		return res;
 	}
 
 	@Override
@@ -73,43 +159,68 @@ public class ProductAlgebra<P1, S1, P2, S2> extends BooleanAlgebra<CartesianProd
 	@Override
 	public CartesianProduct<P1, P2> MkAnd(CartesianProduct<P1, P2> p1, CartesianProduct<P1, P2> p2)
 			throws TimeoutException {
-
-		ArrayList<Pair<P1, P2>> newProducts = new ArrayList<>();
-		for (Pair<P1, P2> pair1 : p1.getProducts()) 
-			for (Pair<P1, P2> pair2 : p2.getProducts()) {
-				P1 newFirst = ba1.MkAnd(pair1.first, pair2.first);
-				if (ba1.IsSatisfiable(newFirst)) {
-					P2 newSecond = ba2.MkAnd(pair1.second, pair2.second);
-					if (ba2.IsSatisfiable(newSecond))
-						newProducts.add(new Pair<P1, P2>(newFirst, newSecond));
+		p1 = canonical(p1);
+		p2 = canonical(p2);
+		if (p1 == p2)
+			return p1;
+		Pair<CartesianProduct<P1, P2>, CartesianProduct<P1, P2>> key = symmetricKey(p1, p2);
+		CartesianProduct<P1, P2> res = andCache.get(key);
+		if (res == null) {
+			ArrayList<Pair<P1, P2>> newProducts = new ArrayList<>();
+			for (Pair<P1, P2> pair1 : p1.getProducts())
+				for (Pair<P1, P2> pair2 : p2.getProducts()) {
+					P1 newFirst = ba1.MkAnd(pair1.first, pair2.first);
+					if (ba1.IsSatisfiable(newFirst)) {
+						P2 newSecond = ba2.MkAnd(pair1.second, pair2.second);
+						if (ba2.IsSatisfiable(newSecond))
+							newProducts.add(new Pair<P1, P2>(newFirst, newSecond));
+					}
 				}
-			}
-
-		return new CartesianProduct<>(newProducts);
+			res = canonical(new CartesianProduct<>(newProducts));
+			andCache.put(key, res);
+		}
+		return res;
 	}
 
 	@Override
 	public CartesianProduct<P1, P2> True() {
-		return new CartesianProduct<>(ba1.True(),ba2.True());
+		return tryCanonical(new CartesianProduct<>(ba1.True(),ba2.True()));
 	}
 
 	@Override
 	public CartesianProduct<P1, P2> False() {
-		return new CartesianProduct<>();
+		return tryCanonical(new CartesianProduct<P1, P2>());
 	}
 
 	@Override
 	public boolean AreEquivalent(CartesianProduct<P1, P2> p1, CartesianProduct<P1, P2> p2) throws TimeoutException {
-		return IsSatisfiable(MkAnd(p1, MkNot(p2))) || IsSatisfiable(MkAnd(MkNot(p1), p2));
+		p1 = canonical(p1);
+		p2 = canonical(p2);
+		if (p1 == p2)
+			return true;
+		Pair<CartesianProduct<P1, P2>, CartesianProduct<P1, P2>> key = symmetricKey(p1, p2);
+		Boolean res = equivCache.get(key);
+		if (res == null) {
+			res = !IsSatisfiable(MkAnd(p1, MkNot(p2))) && !IsSatisfiable(MkAnd(MkNot(p1), p2));
+			equivCache.put(key, res);
+		}
+		return res;
 	}
 
 	@Override
 	public boolean IsSatisfiable(CartesianProduct<P1, P2> p1) throws TimeoutException {
+		Boolean res = p1.isNormalized() ? satCache.get(p1) : null;
+		if (res != null)
+			return res;
+		res = false;
 		for(Pair<P1,P2> p: p1.getProducts())
-			if(ba1.IsSatisfiable(p.first) && ba2.IsSatisfiable(p.second))
-				return true;
-		
-		return false;
+			if(ba1.IsSatisfiable(p.first) && ba2.IsSatisfiable(p.second)) {
+				res = true;
+				break;
+			}
+		if (p1.isNormalized())
+			satCache.put(p1, res);
+		return res;
 	}
 
 	@Override
@@ -57,7 +57,7 @@ public abstract class BDDFactory {
     /**
      * <p>Initializes a BDD factory of the given type with the given initial
      * node table size and operation cache size.  The type is a string that
-     * can be "buddy", "cudd", "cal", "j", "java", "jdd", "test", "typed", or
+     * can be "buddy", "cudd", "cal", "j", "java", "jdd", "concurrent", "test", "typed", or
      * a name of a class that has an init() method that returns a BDDFactory.
      * If it fails, it falls back to the "java" factory.</p>
      * 
@@ -74,6 +74,8 @@ public abstract class BDDFactory {
                 return MicroFactory.init(nodenum, cachesize);
             if (bddpackage.equals("jdd"))
                 return JDDFactory.init(nodenum, cachesize);
+            if (bddpackage.equals("concurrent"))
+                return ConcurrentFactory.init(nodenum, cachesize);
             if (bddpackage.equals("test"))
                 return TestBDDFactory.init(nodenum, cachesize);
         } catch (LinkageError e) {
@@ -1080,6 +1082,10 @@ public abstract class BDDFactory {
         public long time;
         public int usednum_before, usednum_after;
         
+        /* Number of reorderings so far and the time they took together */
+        public int num;
+        public long sumtime;
+        
         protected ReorderStats() { }
         
         public int gain() {
@@ -1090,19 +1096,21 @@ public abstract class BDDFactory {
         }
         
         public String toString() {
-            return "";
-//            StringBuffer sb = new StringBuffer();
-//            sb.append("Went from ");
-//            sb.append(usednum_before);
-//            sb.append(" to ");
-//            sb.append(usednum_after);
-//            sb.append(" nodes, gain = ");
-//            sb.append(gain());
-//            sb.append("% (");
-//            sb.append((float) time / 1000f);
-//            sb.append(" sec)");
-//            return sb.toString();
-
+            StringBuffer sb = new StringBuffer();
+            sb.append("Reordering #");
+            sb.append(num);
+            sb.append(": went from ");
+            sb.append(usednum_before);
+            sb.append(" to ");
+            sb.append(usednum_after);
+            sb.append(" nodes, gain = ");
+            sb.append(gain());
+            sb.append("% (");
+            sb.append((float) time / 1000f);
+            sb.append(" sec, ");
+            sb.append((float) sumtime / 1000f);
+            sb.append(" sec total)");
+            return sb.toString();
         }
     }
     
@@ -1709,6 +1717,8 @@ public abstract class BDDFactory {
         } else {
             s.time = System.currentTimeMillis() - s.time;
             s.usednum_after = getNodeNum();
+            s.num++;
+            s.sumtime += s.time;
         }
         if (reorder_callbacks == null) {
             bdd_default_reohandler(b, s);
@@ -1720,13 +1730,10 @@ public abstract class BDDFactory {
     protected void bdd_default_reohandler(boolean prestate, ReorderStats s) {
         int verbose = 1;
         if (verbose > 0) {
+            // the statistics were already updated by reorder_handler
             if (prestate) {
                 System.out.println("Start reordering");
-                s.usednum_before = getNodeNum();
-                s.time = System.currentTimeMillis();
             } else {
-                s.time = System.currentTimeMillis() - s.time;
-                s.usednum_after = getNodeNum();
                 System.out.println("End reordering. "+s);
             }
         }
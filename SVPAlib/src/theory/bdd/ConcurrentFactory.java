@@ -0,0 +1,1168 @@
+// ConcurrentFactory.java
+// Licensed under the terms of the GNU LGPL; see COPYING for details.
+package theory.bdd;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A BDD factory that can be shared by several threads.</p>
+ *
+ * <p>Nodes are immutable objects and the unique table is split in lock
+ * striped segments, so that threads building different parts of the BDD
+ * universe rarely wait for each other.  Every thread has its own operation
+ * cache, which needs no synchronization at all.  Nodes are only weakly
+ * referenced by the unique table: a node that is no longer reachable from a
+ * BDD object is reclaimed by the garbage collector and its entry is removed
+ * the next time the table is used, so there is no reference counting and
+ * free() is only needed to invalidate a BDD object.</p>
+ *
+ * <p>Variable reordering is not supported, the level of a variable is its
+ * index.</p>
+ *
+ * @see theory.bddalgebra.BDDSolver
+ */
+public class ConcurrentFactory extends BDDFactory {
+
+    public static final int STRIPES = 64;
+
+    private static final int TERMINAL_LEVEL = Integer.MAX_VALUE;
+
+    // operation codes of the cache, the BDDOp ids are 0 to 9
+    private static final int OP_NOT = 10;
+    private static final int OP_EXIST = 11;
+    private static final int OP_FORALL = 12;
+    private static final int OP_RESTRICT = 13;
+
+    // truth tables of the BDDOps indexed by id, entry 2*a+b is (a op b)
+    private static final boolean[][] TRUTH_TABLES = {
+        { false, false, false, true },  // and
+        { false, true, true, false },   // xor
+        { false, true, true, true },    // or
+        { true, true, true, false },    // nand
+        { true, false, false, false },  // nor
+        { true, true, false, true },    // imp
+        { true, false, false, true },   // biimp
+        { false, false, true, false },  // diff
+        { false, true, false, false },  // less
+        { true, false, true, true },    // invimp
+    };
+
+    /**
+     * An immutable, canonical BDD node.  Two nodes represent the same function
+     * if and only if they are the same object.
+     */
+    static final class Node {
+        final int level;
+        final Node low;
+        final Node high;
+        final int hash;
+
+        Node(int level, Node low, Node high, int hash) {
+            this.level = level;
+            this.low = low;
+            this.high = high;
+            this.hash = hash;
+        }
+
+        boolean isTerminal() {
+            return level == TERMINAL_LEVEL;
+        }
+    }
+
+    // the key of a node in the unique table
+    private static final class Key {
+        final int level;
+        final Node low;
+        final Node high;
+        final int hash;
+
+        Key(int level, Node low, Node high) {
+            this.level = level;
+            this.low = low;
+            this.high = high;
+            int h = level * 0x9E3779B1 + low.hash * 31 + high.hash * 0x85EBCA6B;
+            this.hash = h ^ (h >>> 15);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return level == k.level && low == k.low && high == k.high;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // a weak reference to a node that remembers its key, so that the entry can
+    // be removed once the node is collected
+    private static final class NodeRef extends WeakReference<Node> {
+        final Key key;
+
+        NodeRef(Node node, Key key, ReferenceQueue<Node> queue) {
+            super(node, queue);
+            this.key = key;
+        }
+    }
+
+    // per thread direct mapped operation cache
+    private static final class OpCache {
+        final int[] ops;
+        final Node[] first;
+        final Node[] second;
+        final Node[] results;
+        final int mask;
+
+        OpCache(int size) {
+            int capacity = 1;
+            while (capacity < size) capacity <<= 1;
+            ops = new int[capacity];
+            first = new Node[capacity];
+            second = new Node[capacity];
+            results = new Node[capacity];
+            mask = capacity - 1;
+        }
+
+        int slot(int op, Node a, Node b) {
+            int h = op * 0x9E3779B1 + a.hash * 31 + (b == null ? 0 : b.hash);
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        Node get(int op, Node a, Node b) {
+            int s = slot(op, a, b);
+            if (results[s] != null && ops[s] == op && first[s] == a && second[s] == b)
+                return results[s];
+            return null;
+        }
+
+        void put(int op, Node a, Node b, Node result) {
+            int s = slot(op, a, b);
+            ops[s] = op;
+            first[s] = a;
+            second[s] = b;
+            results[s] = result;
+        }
+    }
+
+    private final Node zeroNode = new Node(TERMINAL_LEVEL, null, null, 0);
+    private final Node oneNode = new Node(TERMINAL_LEVEL, null, null, 1);
+
+    private final Map<Key, NodeRef>[] stripes;
+    private final ReferenceQueue<Node> collected = new ReferenceQueue<Node>();
+
+    private volatile Node[] vars = new Node[0];
+    private volatile int cacheSize;
+    private final ThreadLocal<OpCache> caches = new ThreadLocal<OpCache>() {
+        protected OpCache initialValue() {
+            return new OpCache(cacheSize);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentFactory(int nodenum, int cachesize) {
+        stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new HashMap<Key, NodeRef>(Math.max(16, nodenum / STRIPES));
+        cacheSize = Math.max(1024, cachesize);
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#init(int, int)
+     */
+    public static BDDFactory init(int nodenum, int cachesize) {
+        return new ConcurrentFactory(nodenum, cachesize);
+    }
+
+    // ------------------------------------------------------
+    // Unique table and operations on nodes
+    // ------------------------------------------------------
+
+    // returns the canonical node (level, low, high)
+    private Node mk(int level, Node low, Node high) {
+        if (low == high)
+            return low;
+        expunge();
+        Key key = new Key(level, low, high);
+        Map<Key, NodeRef> stripe = stripes[key.hash & (STRIPES - 1)];
+        synchronized (stripe) {
+            NodeRef ref = stripe.get(key);
+            Node node = ref == null ? null : ref.get();
+            if (node == null) {
+                node = new Node(level, low, high, key.hash);
+                stripe.put(key, new NodeRef(node, key, collected));
+            }
+            return node;
+        }
+    }
+
+    // removes the entries of the nodes that were collected
+    private void expunge() {
+        NodeRef ref;
+        while ((ref = (NodeRef) collected.poll()) != null) {
+            Map<Key, NodeRef> stripe = stripes[ref.key.hash & (STRIPES - 1)];
+            synchronized (stripe) {
+                if (stripe.get(ref.key) == ref)
+                    stripe.remove(ref.key);
+            }
+        }
+    }
+
+    private Node terminal(boolean value) {
+        return value ? oneNode : zeroNode;
+    }
+
+    private Node not(Node f) {
+        if (f == zeroNode) return oneNode;
+        if (f == oneNode) return zeroNode;
+        OpCache cache = caches.get();
+        Node res = cache.get(OP_NOT, f, null);
+        if (res == null) {
+            res = mk(f.level, not(f.low), not(f.high));
+            cache.put(OP_NOT, f, null, res);
+        }
+        return res;
+    }
+
+    private Node apply(Node f, Node g, int op) {
+        switch (op) {
+            case 0: // and
+                if (f == zeroNode || g == zeroNode) return zeroNode;
+                if (f == oneNode || f == g) return g;
+                if (g == oneNode) return f;
+                break;
+            case 2: // or
+                if (f == oneNode || g == oneNode) return oneNode;
+                if (f == zeroNode || f == g) return g;
+                if (g == zeroNode) return f;
+                break;
+            default:
+                break;
+        }
+        if (f.isTerminal() && g.isTerminal())
+            return terminal(TRUTH_TABLES[op][2 * (f == oneNode ? 1 : 0) + (g == oneNode ? 1 : 0)]);
+
+        OpCache cache = caches.get();
+        Node res = cache.get(op, f, g);
+        if (res != null)
+            return res;
+        int level = Math.min(f.level, g.level);
+        Node f0 = f.level == level ? f.low : f;
+        Node f1 = f.level == level ? f.high : f;
+        Node g0 = g.level == level ? g.low : g;
+        Node g1 = g.level == level ? g.high : g;
+        res = mk(level, apply(f0, g0, op), apply(f1, g1, op));
+        cache.put(op, f, g, res);
+        return res;
+    }
+
+    // existential (or universal) quantification of the variables in the cube
+    private Node quantify(Node f, Node cube, boolean exist) {
+        while (!cube.isTerminal() && cube.level < f.level)
+            cube = cube.high;
+        if (f.isTerminal() || cube.isTerminal())
+            return f;
+        int op = exist ? OP_EXIST : OP_FORALL;
+        OpCache cache = caches.get();
+        Node res = cache.get(op, f, cube);
+        if (res != null)
+            return res;
+        Node low = quantify(f.low, cube, exist);
+        Node high = quantify(f.high, cube, exist);
+        if (f.level == cube.level)
+            res = apply(low, high, exist ? 2 : 0);
+        else
+            res = mk(f.level, low, high);
+        cache.put(op, f, cube, res);
+        return res;
+    }
+
+    // restricts f with the literals of the cube, a literal is negative when its high branch is zero
+    private Node restrict(Node f, Node cube) {
+        while (!cube.isTerminal() && cube.level < f.level)
+            cube = cube.high == zeroNode ? cube.low : cube.high;
+        if (f.isTerminal() || cube.isTerminal())
+            return f;
+        OpCache cache = caches.get();
+        Node res = cache.get(OP_RESTRICT, f, cube);
+        if (res != null)
+            return res;
+        if (f.level == cube.level) {
+            boolean positive = cube.high != zeroNode;
+            res = restrict(positive ? f.high : f.low, positive ? cube.high : cube.low);
+        } else {
+            res = mk(f.level, restrict(f.low, cube), restrict(f.high, cube));
+        }
+        cache.put(OP_RESTRICT, f, cube, res);
+        return res;
+    }
+
+    private Node ite(Node f, Node g, Node h) {
+        return apply(apply(f, g, 0), apply(not(f), h, 0), 2);
+    }
+
+    private Node veccompose(Node f, Node[] subst, Map<Node, Node> memo) {
+        if (f.isTerminal())
+            return f;
+        Node res = memo.get(f);
+        if (res == null) {
+            Node low = veccompose(f.low, subst, memo);
+            Node high = veccompose(f.high, subst, memo);
+            Node v = f.level < subst.length && subst[f.level] != null ? subst[f.level] : var(f.level);
+            res = ite(v, high, low);
+            memo.put(f, res);
+        }
+        return res;
+    }
+
+    private Node var(int var) {
+        Node[] v = vars;
+        if (var < 0 || var >= v.length)
+            throw new BDDException("unknown variable " + var);
+        return v[var];
+    }
+
+    private void reachable(Node f, Map<Node, Node> seen) {
+        if (f.isTerminal() || seen.containsKey(f))
+            return;
+        seen.put(f, f);
+        reachable(f.low, seen);
+        reachable(f.high, seen);
+    }
+
+    private Node satOne(Node f) {
+        if (f.isTerminal())
+            return f;
+        if (f.low != zeroNode)
+            return mk(f.level, satOne(f.low), zeroNode);
+        return mk(f.level, zeroNode, satOne(f.high));
+    }
+
+    /**
+     * Wrapper of a node.  The "With" operations replace the node of this
+     * object, so a BDD object must not be modified by several threads at once;
+     * the nodes themselves can be shared freely.
+     */
+    private class bdd extends BDD {
+        Node node;
+
+        bdd(Node node) {
+            this.node = node;
+        }
+
+        private Node node() {
+            if (node == null)
+                throw new BDDException("BDD was freed");
+            return node;
+        }
+
+        private Node nodeOf(BDD that) {
+            return ((bdd) that).node();
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#getFactory()
+         */
+        public BDDFactory getFactory() {
+            return ConcurrentFactory.this;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#isZero()
+         */
+        public boolean isZero() {
+            return node() == zeroNode;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#isOne()
+         */
+        public boolean isOne() {
+            return node() == oneNode;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#var()
+         */
+        public int var() {
+            if (node().isTerminal())
+                throw new BDDException("cannot get the variable of a terminal");
+            return node.level;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#high()
+         */
+        public BDD high() {
+            if (node().isTerminal())
+                throw new BDDException("cannot get the branch of a terminal");
+            return new bdd(node.high);
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#low()
+         */
+        public BDD low() {
+            if (node().isTerminal())
+                throw new BDDException("cannot get the branch of a terminal");
+            return new bdd(node.low);
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#id()
+         */
+        public BDD id() {
+            return new bdd(node());
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#not()
+         */
+        public BDD not() {
+            return new bdd(ConcurrentFactory.this.not(node()));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#ite(theory.bdd.BDD, theory.bdd.BDD)
+         */
+        public BDD ite(BDD thenBDD, BDD elseBDD) {
+            return new bdd(ConcurrentFactory.this.ite(node(), nodeOf(thenBDD), nodeOf(elseBDD)));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#relprod(theory.bdd.BDD, theory.bdd.BDD)
+         */
+        public BDD relprod(BDD that, BDD var) {
+            return applyEx(that, and, var);
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#compose(theory.bdd.BDD, int)
+         */
+        public BDD compose(BDD g, int var) {
+            Node v = ConcurrentFactory.this.var(var);
+            Node f1 = ConcurrentFactory.this.restrict(node(), v);
+            Node f0 = ConcurrentFactory.this.restrict(node, ConcurrentFactory.this.not(v));
+            return new bdd(ConcurrentFactory.this.ite(nodeOf(g), f1, f0));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#veccompose(theory.bdd.BDDPairing)
+         */
+        public BDD veccompose(BDDPairing pair) {
+            return new bdd(ConcurrentFactory.this.veccompose(node(), ((bddPairing) pair).subst(),
+                    new IdentityHashMap<Node, Node>()));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#constrain(theory.bdd.BDD)
+         */
+        public BDD constrain(BDD that) {
+            throw new BDDException("constrain is not supported by " + getVersion());
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#exist(theory.bdd.BDD)
+         */
+        public BDD exist(BDD var) {
+            return new bdd(quantify(node(), nodeOf(var), true));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#forAll(theory.bdd.BDD)
+         */
+        public BDD forAll(BDD var) {
+            return new bdd(quantify(node(), nodeOf(var), false));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#unique(theory.bdd.BDD)
+         */
+        public BDD unique(BDD var) {
+            throw new BDDException("unique is not supported by " + getVersion());
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#restrict(theory.bdd.BDD)
+         */
+        public BDD restrict(BDD var) {
+            return new bdd(ConcurrentFactory.this.restrict(node(), nodeOf(var)));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#restrictWith(theory.bdd.BDD)
+         */
+        public BDD restrictWith(BDD var) {
+            node = ConcurrentFactory.this.restrict(node(), nodeOf(var));
+            if (this != var)
+                var.free();
+            return this;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#simplify(theory.bdd.BDD)
+         */
+        public BDD simplify(BDD d) {
+            throw new BDDException("simplify is not supported by " + getVersion());
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#support()
+         */
+        public BDD support() {
+            IdentityHashMap<Node, Node> seen = new IdentityHashMap<Node, Node>();
+            reachable(node(), seen);
+            boolean[] used = new boolean[vars.length];
+            for (Node n : seen.keySet())
+                used[n.level] = true;
+            Node cube = oneNode;
+            for (int v = used.length - 1; v >= 0; v--)
+                if (used[v])
+                    cube = mk(v, zeroNode, cube);
+            return new bdd(cube);
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#apply(theory.bdd.BDD, theory.bdd.BDDFactory.BDDOp)
+         */
+        public BDD apply(BDD that, BDDOp opr) {
+            return new bdd(ConcurrentFactory.this.apply(node(), nodeOf(that), opr.id));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#applyWith(theory.bdd.BDD, theory.bdd.BDDFactory.BDDOp)
+         */
+        public BDD applyWith(BDD that, BDDOp opr) {
+            node = ConcurrentFactory.this.apply(node(), nodeOf(that), opr.id);
+            if (this != that)
+                that.free();
+            return this;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#applyAll(theory.bdd.BDD, theory.bdd.BDDFactory.BDDOp, theory.bdd.BDD)
+         */
+        public BDD applyAll(BDD that, BDDOp opr, BDD var) {
+            Node f = ConcurrentFactory.this.apply(node(), nodeOf(that), opr.id);
+            return new bdd(quantify(f, nodeOf(var), false));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#applyEx(theory.bdd.BDD, theory.bdd.BDDFactory.BDDOp, theory.bdd.BDD)
+         */
+        public BDD applyEx(BDD that, BDDOp opr, BDD var) {
+            Node f = ConcurrentFactory.this.apply(node(), nodeOf(that), opr.id);
+            return new bdd(quantify(f, nodeOf(var), true));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#applyUni(theory.bdd.BDD, theory.bdd.BDDFactory.BDDOp, theory.bdd.BDD)
+         */
+        public BDD applyUni(BDD that, BDDOp opr, BDD var) {
+            throw new BDDException("applyUni is not supported by " + getVersion());
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#satOne()
+         */
+        public BDD satOne() {
+            return new bdd(ConcurrentFactory.this.satOne(node()));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#fullSatOne()
+         */
+        public BDD fullSatOne() {
+            Node path = ConcurrentFactory.this.satOne(node());
+            if (path == zeroNode)
+                return new bdd(zeroNode);
+            // the variables that are not on the path are set to false
+            boolean[] onPath = new boolean[vars.length];
+            for (Node n = path; !n.isTerminal(); n = n.low == zeroNode ? n.high : n.low)
+                onPath[n.level] = true;
+            Node res = path;
+            for (int v = onPath.length - 1; v >= 0; v--)
+                if (!onPath[v])
+                    res = ConcurrentFactory.this.apply(res, ConcurrentFactory.this.not(ConcurrentFactory.this.var(v)), 0);
+            return new bdd(res);
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#satOne(theory.bdd.BDD, boolean)
+         */
+        public BDD satOne(BDD var, boolean pol) {
+            throw new BDDException("satOne(BDD, boolean) is not supported by " + getVersion());
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#allsat()
+         */
+        public List allsat() {
+            List<byte[]> result = new LinkedList<byte[]>();
+            byte[] assignment = new byte[vars.length];
+            for (int i = 0; i < assignment.length; i++)
+                assignment[i] = -1;
+            allsat(node(), assignment, result);
+            return result;
+        }
+
+        private void allsat(Node f, byte[] assignment, List<byte[]> result) {
+            if (f == zeroNode)
+                return;
+            if (f == oneNode) {
+                result.add(assignment.clone());
+                return;
+            }
+            assignment[f.level] = 0;
+            allsat(f.low, assignment, result);
+            assignment[f.level] = 1;
+            allsat(f.high, assignment, result);
+            assignment[f.level] = -1;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#replace(theory.bdd.BDDPairing)
+         */
+        public BDD replace(BDDPairing pair) {
+            return veccompose(pair);
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#replaceWith(theory.bdd.BDDPairing)
+         */
+        public BDD replaceWith(BDDPairing pair) {
+            node = ((bdd) veccompose(pair)).node;
+            return this;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#nodeCount()
+         */
+        public int nodeCount() {
+            IdentityHashMap<Node, Node> seen = new IdentityHashMap<Node, Node>();
+            reachable(node(), seen);
+            return seen.size();
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#pathCount()
+         */
+        public double pathCount() {
+            return pathCount(node(), new IdentityHashMap<Node, Double>());
+        }
+
+        private double pathCount(Node f, Map<Node, Double> memo) {
+            if (f.isTerminal())
+                return f == oneNode ? 1 : 0;
+            Double res = memo.get(f);
+            if (res == null) {
+                res = pathCount(f.low, memo) + pathCount(f.high, memo);
+                memo.put(f, res);
+            }
+            return res;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#satCount()
+         */
+        public double satCount() {
+            int varnum = vars.length;
+            Node f = node();
+            return Math.pow(2, level(f, varnum)) * satCount(f, varnum, new IdentityHashMap<Node, Double>());
+        }
+
+        private int level(Node f, int varnum) {
+            return f.isTerminal() ? varnum : f.level;
+        }
+
+        private double satCount(Node f, int varnum, Map<Node, Double> memo) {
+            if (f.isTerminal())
+                return f == oneNode ? 1 : 0;
+            Double res = memo.get(f);
+            if (res == null) {
+                res = Math.pow(2, level(f.low, varnum) - f.level - 1) * satCount(f.low, varnum, memo)
+                        + Math.pow(2, level(f.high, varnum) - f.level - 1) * satCount(f.high, varnum, memo);
+                memo.put(f, res);
+            }
+            return res;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#varProfile()
+         */
+        public int[] varProfile() {
+            IdentityHashMap<Node, Node> seen = new IdentityHashMap<Node, Node>();
+            reachable(node(), seen);
+            int[] profile = new int[vars.length];
+            for (Node n : seen.keySet())
+                profile[n.level]++;
+            return profile;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#equals(theory.bdd.BDD)
+         */
+        public boolean equals(BDD that) {
+            return that instanceof bdd && ((bdd) that).getFactory() == getFactory() && ((bdd) that).node == node;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#hashCode()
+         */
+        public int hashCode() {
+            return node == null ? -1 : node.hash;
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDD#free()
+         */
+        public void free() {
+            node = null;
+        }
+    }
+
+    private class bddPairing extends BDDPairing {
+        private Node[] subst = new Node[0];
+
+        synchronized Node[] subst() {
+            return subst.clone();
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDDPairing#set(int, int)
+         */
+        public void set(int oldvar, int newvar) {
+            set(oldvar, ithVar(newvar));
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDDPairing#set(int, theory.bdd.BDD)
+         */
+        public synchronized void set(int oldvar, BDD newvar) {
+            if (oldvar >= subst.length) {
+                Node[] larger = new Node[Math.max(oldvar + 1, vars.length)];
+                System.arraycopy(subst, 0, larger, 0, subst.length);
+                subst = larger;
+            }
+            subst[oldvar] = ((bdd) newvar).node();
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDDPairing#reset()
+         */
+        public synchronized void reset() {
+            subst = new Node[0];
+        }
+    }
+
+    // ------------------------------------------------------
+    // Factory
+    // ------------------------------------------------------
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#zero()
+     */
+    public BDD zero() {
+        return new bdd(zeroNode);
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#one()
+     */
+    public BDD one() {
+        return new bdd(oneNode);
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#initialize(int, int)
+     */
+    protected void initialize(int nodenum, int cachesize) {
+        setCacheSize(cachesize);
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#isInitialized()
+     */
+    public boolean isInitialized() {
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#done()
+     */
+    public void done() {
+        for (Map<Key, NodeRef> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setError(int)
+     */
+    public void setError(int code) {
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#clearError()
+     */
+    public void clearError() {
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setMaxNodeNum(int)
+     */
+    public int setMaxNodeNum(int size) {
+        // the table grows as needed
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setMinFreeNodes(double)
+     */
+    public double setMinFreeNodes(double x) {
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setMaxIncrease(int)
+     */
+    public int setMaxIncrease(int x) {
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setIncreaseFactor(double)
+     */
+    public double setIncreaseFactor(double x) {
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setCacheRatio(double)
+     */
+    public double setCacheRatio(double x) {
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setNodeTableSize(int)
+     */
+    public int setNodeTableSize(int n) {
+        return getNodeTableSize();
+    }
+
+    /**
+     * Sets the size of the operation caches of the threads that have not used
+     * this factory yet.
+     *
+     * @see theory.bdd.BDDFactory#setCacheSize(int)
+     */
+    public int setCacheSize(int n) {
+        int old = cacheSize;
+        cacheSize = Math.max(1024, n);
+        return old;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#getCacheSize()
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#varNum()
+     */
+    public int varNum() {
+        return vars.length;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setVarNum(int)
+     */
+    public synchronized int setVarNum(int num) {
+        Node[] old = vars;
+        if (num < old.length)
+            throw new BDDException("cannot decrease the number of variables");
+        Node[] larger = new Node[num];
+        System.arraycopy(old, 0, larger, 0, old.length);
+        for (int v = old.length; v < num; v++)
+            larger[v] = mk(v, zeroNode, oneNode);
+        vars = larger;
+        return old.length;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#duplicateVar(int)
+     */
+    public int duplicateVar(int var) {
+        throw new BDDException("duplicateVar is not supported by " + getVersion());
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#ithVar(int)
+     */
+    public BDD ithVar(int var) {
+        return new bdd(var(var));
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#nithVar(int)
+     */
+    public BDD nithVar(int var) {
+        return new bdd(not(var(var)));
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#printAll()
+     */
+    public void printAll() {
+        System.out.println(getNodeNum() + " nodes in " + STRIPES + " stripes");
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#printTable(theory.bdd.BDD)
+     */
+    public void printTable(BDD b) {
+        IdentityHashMap<Node, Node> seen = new IdentityHashMap<Node, Node>();
+        reachable(((bdd) b).node(), seen);
+        Map<Node, Integer> ids = new IdentityHashMap<Node, Integer>();
+        ids.put(zeroNode, 0);
+        ids.put(oneNode, 1);
+        for (Node n : seen.keySet())
+            ids.put(n, ids.size());
+        for (Node n : seen.keySet())
+            System.out.println("[" + ids.get(n) + "] " + n.level + ": " + ids.get(n.low) + " " + ids.get(n.high));
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#level2Var(int)
+     */
+    public int level2Var(int level) {
+        return level;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#var2Level(int)
+     */
+    public int var2Level(int var) {
+        return var;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#reorder(theory.bdd.BDDFactory.ReorderMethod)
+     */
+    public void reorder(ReorderMethod m) {
+        throw new BDDException("reordering is not supported by " + getVersion());
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#autoReorder(theory.bdd.BDDFactory.ReorderMethod)
+     */
+    public void autoReorder(ReorderMethod method) {
+        if (method != REORDER_NONE)
+            throw new BDDException("reordering is not supported by " + getVersion());
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#autoReorder(theory.bdd.BDDFactory.ReorderMethod, int)
+     */
+    public void autoReorder(ReorderMethod method, int max) {
+        autoReorder(method);
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#getReorderMethod()
+     */
+    public ReorderMethod getReorderMethod() {
+        return REORDER_NONE;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#getReorderTimes()
+     */
+    public int getReorderTimes() {
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#disableReorder()
+     */
+    public void disableReorder() {
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#enableReorder()
+     */
+    public void enableReorder() {
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#reorderVerbose(int)
+     */
+    public int reorderVerbose(int v) {
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#setVarOrder(int[])
+     */
+    public void setVarOrder(int[] neworder) {
+        for (int i = 0; i < neworder.length; i++)
+            if (neworder[i] != i)
+                throw new BDDException("reordering is not supported by " + getVersion());
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#makePair()
+     */
+    public BDDPairing makePair() {
+        return new bddPairing();
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#swapVar(int, int)
+     */
+    public void swapVar(int v1, int v2) {
+        throw new BDDException("reordering is not supported by " + getVersion());
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#addVarBlock(theory.bdd.BDD, boolean)
+     */
+    public void addVarBlock(BDD var, boolean fixed) {
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#addVarBlock(int, int, boolean)
+     */
+    public void addVarBlock(int first, int last, boolean fixed) {
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#varBlockAll()
+     */
+    public void varBlockAll() {
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#clearVarBlocks()
+     */
+    public void clearVarBlocks() {
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#printOrder()
+     */
+    public void printOrder() {
+        StringBuilder sb = new StringBuilder();
+        for (int v = 0; v < varNum(); v++)
+            sb.append(v == 0 ? "" : " ").append(v);
+        System.out.println(sb);
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#nodeCount(java.util.Collection)
+     */
+    public int nodeCount(Collection r) {
+        IdentityHashMap<Node, Node> seen = new IdentityHashMap<Node, Node>();
+        for (Iterator i = r.iterator(); i.hasNext(); )
+            reachable(((bdd) i.next()).node(), seen);
+        return seen.size();
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#getNodeTableSize()
+     */
+    public int getNodeTableSize() {
+        return getNodeNum();
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#getNodeNum()
+     */
+    public int getNodeNum() {
+        expunge();
+        int size = 0;
+        for (Map<Key, NodeRef> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#reorderGain()
+     */
+    public int reorderGain() {
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#printStat()
+     */
+    public void printStat() {
+        System.out.println(getVersion() + ": " + getNodeNum() + " live nodes, " + varNum() + " variables, "
+                + cacheSize + " cache entries per thread");
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#createDomain(int, BigInteger)
+     */
+    protected BDDDomain createDomain(int a, BigInteger b) {
+        return new bddDomain(a, b);
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#createBitVector(int)
+     */
+    protected BDDBitVector createBitVector(int a) {
+        return new bddBitVector(a);
+    }
+
+    private class bddDomain extends BDDDomain {
+
+        private bddDomain(int a, BigInteger b) {
+            super(a, b);
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDDDomain#getFactory()
+         */
+        public BDDFactory getFactory() { return ConcurrentFactory.this; }
+
+    }
+
+    private class bddBitVector extends BDDBitVector {
+
+        private bddBitVector(int a) {
+            super(a);
+        }
+
+        /* (non-Javadoc)
+         * @see theory.bdd.BDDBitVector#getFactory()
+         */
+        public BDDFactory getFactory() { return ConcurrentFactory.this; }
+
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#getVersion()
+     */
+    public String getVersion() {
+        return "ConcurrentFactory";
+    }
+}
@@ -707,6 +707,7 @@ public class JFactory extends BDDFactory {
     int cachesize; /* Size of the operator caches */
     long gbcclock; /* Clock ticks used in GBC */
     int usednodes_nextreorder; /* When to do reorder next time */
+    int peaknodenum; /* Largest number of nodes in use so far */
 
     static final int BDD_MEMORY = (-1); /* Out of memory */
     static final int BDD_VAR = (-2); /* Unknown variable */
@@ -3149,6 +3150,8 @@ public class JFactory extends BDDFactory {
         bddfreepos = NEXT(bddfreepos);
         bddfreenum--;
         bddproduced++;
+        if (bddnodesize - bddfreenum > peaknodenum)
+            peaknodenum = bddnodesize - bddfreenum;
 
         SETLEVELANDMARK(res, level);
         SETLOW(res, low);
@@ -3777,8 +3780,8 @@ public class JFactory extends BDDFactory {
     void bdd_checkreorder() {
         bdd_reorder_auto();
 
-        /* Do not reorder before twice as many nodes have been used */
-        usednodes_nextreorder = 2 * (bddnodesize - bddfreenum);
+        /* Do not reorder before reordergrowth times as many nodes have been used */
+        usednodes_nextreorder = (int) (reordergrowth * (bddnodesize - bddfreenum));
 
         /* And if very little was gained this time (< 20%) then wait until
          * even more nodes (upto twice as many again) have been used */
@@ -3790,7 +3793,7 @@ public class JFactory extends BDDFactory {
 
     boolean bdd_reorder_ready() {
         if ((bddreordermethod == BDD_REORDER_NONE)
-            || (vartree == null)
+            || (vartree == null && bddvarnum < 2)
             || (bddreordertimes == 0)
             || (reorderdisabled != 0))
             return false;
@@ -3804,6 +3807,7 @@ public class JFactory extends BDDFactory {
 
         bddreordermethod = method;
         bddreordertimes = 1;
+        reorder_implicitblocks();
 
         if ((top = bddtree_new(-1)) != null) {
             if (reorder_init() >= 0) {
@@ -4353,6 +4357,7 @@ public class JFactory extends BDDFactory {
             int v;
 
             /* Accumulate number of nodes for each block */
+            p[n] = new sizePair();
             p[n].val = 0;
             for (v = dis.first; v <= dis.last; v++)
                 p[n].val -= levels[v].nodenum;
@@ -4502,6 +4507,24 @@ public class JFactory extends BDDFactory {
         bddreordertimes--;
     }
 
+    /* Without blocks defined by the user every variable is a block of its
+     * own, rebuilt before each reordering so that new variables take part */
+    void reorder_implicitblocks() {
+        if (vartree != null && !implicitblocks)
+            return;
+        bdd_clrvarblocks();
+        bdd_varblockall();
+        implicitblocks = true;
+    }
+
+    /* Called before the user changes the blocks */
+    void bdd_userblocks() {
+        if (implicitblocks) {
+            bdd_clrvarblocks();
+            implicitblocks = false;
+        }
+    }
+
     int bdd_reorder_gain() {
         if (usednum_before == 0)
             return 0;
@@ -4938,6 +4961,64 @@ public class JFactory extends BDDFactory {
         return bdd_reorder_verbose(v);
     }
 
+    /**
+     * <p>Sets the number of nodes in use at which the first automatic
+     * reordering happens.  Like every automatic reordering it takes place when
+     * the node table is full, instead of growing the table.</p>
+     * 
+     * @param nodes  number of nodes in use
+     * @return old threshold
+     */
+    public int setReorderThreshold(int nodes) {
+        if (nodes < 0)
+            return bdd_error(BDD_RANGE);
+        int old = usednodes_nextreorder;
+        usednodes_nextreorder = nodes;
+        return old;
+    }
+
+    /**
+     * <p>Sets how much the number of nodes in use has to grow after an
+     * automatic reordering before the next one happens.  The default is 2,
+     * i.e. twice as many nodes.  If a reordering gained less than 20% the
+     * next one is postponed further.</p>
+     * 
+     * @param x  growth factor, at least 1
+     * @return old growth factor
+     */
+    public double setReorderGrowth(double x) {
+        if (x < 1)
+            return bdd_error(BDD_RANGE);
+        double old = reordergrowth;
+        reordergrowth = x;
+        return old;
+    }
+
+    /**
+     * <p>Returns the largest number of nodes that were in use at the same
+     * time, including nodes that were not garbage collected yet.</p>
+     * 
+     * @return peak number of nodes
+     */
+    public int getPeakNodeNum() {
+        return peaknodenum;
+    }
+
+    /**
+     * <p>Restarts the peak node count from the nodes currently in use.</p>
+     */
+    public void resetPeakNodeNum() {
+        peaknodenum = bddnodesize - bddfreenum;
+    }
+
+    /* (non-Javadoc)
+     * @see theory.bdd.BDDFactory#bdd_default_reohandler(boolean, theory.bdd.BDDFactory.ReorderStats)
+     */
+    protected void bdd_default_reohandler(boolean prestate, ReorderStats s) {
+        if (verbose > 0)
+            super.bdd_default_reohandler(prestate, s);
+    }
+
     /* (non-Javadoc)
      * @see net.sf.javabdd.BDDFactory#setVarOrder(int[])
      */
@@ -4962,6 +5043,13 @@ public class JFactory extends BDDFactory {
     /* Flag for disabling reordering temporarily */
     int reorderdisabled;
 
+    /* Number of nodes in use that triggers the next automatic reordering is
+     * reordergrowth times the number left by the previous one */
+    double reordergrowth = 2.0;
+
+    /* Are the blocks in vartree made by reorder_implicitblocks */
+    boolean implicitblocks;
+
     BddTree vartree;
     int blockid;
 
@@ -4997,6 +5085,7 @@ public class JFactory extends BDDFactory {
     void bdd_reorder_init() {
         reorderdisabled = 0;
         vartree = null;
+        implicitblocks = false;
 
         bdd_clrvarblocks();
         //bdd_reorder_hook(bdd_default_reohandler);
@@ -5183,7 +5272,7 @@ public class JFactory extends BDDFactory {
                 int hash2;
 
                 hash2 = NODEHASH2(VARr(n), LOW(n), HIGH(n));
-                SETNEXT(n, hash2);
+                SETNEXT(n, HASH(hash2));
                 SETHASH(hash2, n);
             } else {
                 SETNEXT(n, bddfreepos);
@@ -5813,6 +5902,7 @@ public class JFactory extends BDDFactory {
      */
     public void addVarBlock(BDD var, boolean fixed) {
         //int x = ((bdd) var)._index;
+        bdd_userblocks();
         int[] set = var.scanSet();
         bdd_addvarblock(set, fixed);
     }
@@ -5821,6 +5911,7 @@ public class JFactory extends BDDFactory {
      * @see net.sf.javabdd.BDDFactory#addVarBlock(int, int, boolean)
      */
     public void addVarBlock(int first, int last, boolean fixed) {
+        bdd_userblocks();
         bdd_intaddvarblock(first, last, fixed);
     }
 
@@ -5828,6 +5919,7 @@ public class JFactory extends BDDFactory {
      * @see net.sf.javabdd.BDDFactory#varBlockAll()
      */
     public void varBlockAll() {
+        bdd_userblocks();
         bdd_varblockall();
     }
 
@@ -5836,6 +5928,7 @@ public class JFactory extends BDDFactory {
      */
     public void clearVarBlocks() {
         bdd_clrvarblocks();
+        implicitblocks = false;
     }
 
     /* (non-Javadoc)
@@ -6598,6 +6691,8 @@ public class JFactory extends BDDFactory {
         INSTANCE.cachesize = this.cachesize;
         INSTANCE.gbcclock = this.gbcclock;
         INSTANCE.usednodes_nextreorder = this.usednodes_nextreorder;
+        INSTANCE.peaknodenum = this.peaknodenum;
+        INSTANCE.reordergrowth = this.reordergrowth;
         
         INSTANCE.bddrefstacktop = this.bddrefstacktop;
         INSTANCE.bddresized = this.bddresized;
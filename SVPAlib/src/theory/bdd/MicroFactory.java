@@ -4645,6 +4645,7 @@ public class MicroFactory extends BDDFactory {
             int v;
 
             /* Accumulate number of nodes for each block */
+            p[n] = new sizePair();
             p[n].val = 0;
             for (v = dis.first; v <= dis.last; v++)
                 p[n].val -= levels[v].nodenum;
@@ -5455,7 +5456,7 @@ public class MicroFactory extends BDDFactory {
                 int hash2;
 
                 hash2 = NODEHASH2(VARr(n), LOW(n), HIGH(n));
-                SETNEXT(n, hash2);
+                SETNEXT(n, HASH(hash2));
                 SETHASH(hash2, n);
             } else {
                 SETNEXT(n, bddfreepos);
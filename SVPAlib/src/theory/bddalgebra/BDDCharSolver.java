@@ -0,0 +1,436 @@
+/**
+ * BooleanAlgebras
+ * theory
+ */
+package theory.bddalgebra;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+import com.google.common.collect.ImmutableList;
+
+import theory.BooleanAlgebraSubst;
+import theory.bdd.BDD;
+import theory.bdd.BDDFactory;
+import theory.bdd.BDDPairing;
+import theory.bdd.ConcurrentFactory;
+import theory.characters.CharConstant;
+import theory.characters.CharFunc;
+import theory.characters.CharOffset;
+import theory.characters.CharPred;
+import theory.characters.StdCharPred;
+import utilities.ClockCache;
+import utilities.Pair;
+
+/**
+ * BDDCharSolver: a solver for the theory of characters that encodes a character as 16 BDD variables, most
+ * significant bit first. Predicates are still CharPreds, as required by BooleanAlgebraSubst, but the connectives,
+ * equivalence and substitution are computed on the BDDs of the predicates, so that a predicate with many scattered
+ * characters is combined in time proportional to its BDD rather than to its interval list. The results keep their
+ * BDD and only compute their intervals when a caller reads them; the BDDs of other CharPreds are cached.
+ * The BDDs live in a ConcurrentFactory, so the solver can be shared by parallel algorithms.
+ * The solver can be passed to SFT, SFTProduct and BinBSFTLearner wherever a UnaryCharIntervalSolver is accepted.
+ */
+public class BDDCharSolver extends BooleanAlgebraSubst<CharPred, CharFunc, Character> {
+
+	static final int BITS = 16;
+
+	private final BDDFactory factory;
+	// the bits of x are the variables 2i, the bits of y, used for substitutions, are the variables 2i+1
+	private final BDD[] xBits = new BDD[BITS];
+	private final BDD[] yBits = new BDD[BITS];
+	private final BDD xCube;
+	private final BDD yCube;
+	private final BDDPairing xToY;
+	private final BDDPairing yToX;
+
+	// the BDDs of the predicates that were not created by this solver
+	private final Map<CharPred, BDD> bdds = Collections.synchronizedMap(new WeakHashMap<CharPred, BDD>());
+	// the predicates of recent results, so that the intervals of a BDD are collected at most once
+	private final ClockCache<BDD, CharPred> preds = new ClockCache<BDD, CharPred>(1 << 16);
+	// relations y = x + increment, saturated at MIN_CHAR and MAX_CHAR, by increment
+	private final Map<Long, BDD> offsets = Collections.synchronizedMap(new HashMap<Long, BDD>());
+
+	public BDDCharSolver() {
+		factory = ConcurrentFactory.init(100000, 10000);
+		factory.setVarNum(2 * BITS);
+		BDD x = factory.one();
+		BDD y = factory.one();
+		xToY = factory.makePair();
+		yToX = factory.makePair();
+		for (int i = 0; i < BITS; i++) {
+			xBits[i] = factory.ithVar(2 * i);
+			yBits[i] = factory.ithVar(2 * i + 1);
+			x = x.and(xBits[i]);
+			y = y.and(yBits[i]);
+			xToY.set(2 * i, 2 * i + 1);
+			yToX.set(2 * i + 1, 2 * i);
+		}
+		xCube = x;
+		yCube = y;
+	}
+
+	// ------------------------------------------------------
+	// Conversions between CharPreds and BDDs
+	// ------------------------------------------------------
+
+	/**
+	 * @return the BDD over the variables of x of the characters in <code>p</code>
+	 */
+	public BDD toBDD(CharPred p) {
+		if (checkNotNull(p) instanceof BDDCharPred && ((BDDCharPred) p).solver == this)
+			return ((BDDCharPred) p).bdd;
+		BDD bdd = bdds.get(p);
+		if (bdd == null) {
+			int[] bounds = new int[2 * p.intervalCount()];
+			for (int i = 0; i < p.intervalCount(); i++) {
+				bounds[2 * i] = p.intervalLeft(i);
+				bounds[2 * i + 1] = p.intervalRight(i);
+			}
+			bdd = build(bounds, 0, bounds.length, 0, 0);
+			bdds.put(p, bdd);
+		}
+		return bdd;
+	}
+
+	// the BDD of the intervals bounds[from..to) clipped to the block of the characters that start with the
+	// bit-1 most significant bits of start
+	private BDD build(int[] bounds, int from, int to, int bit, int start) {
+		if (from == to)
+			return factory.zero();
+		int end = start + (1 << (BITS - bit)) - 1;
+		if (bounds[from] <= start && bounds[from + 1] >= end)
+			return factory.one();
+		int middle = start + (1 << (BITS - bit - 1));
+		// the intervals that start in the upper half, and the ones that end in the lower half
+		int upper = from;
+		while (upper < to && bounds[upper + 1] < middle)
+			upper += 2;
+		int lower = upper;
+		if (upper < to && bounds[upper] < middle)
+			lower += 2;
+		BDD low = build(bounds, from, lower, bit + 1, start);
+		BDD high = build(bounds, upper, to, bit + 1, middle);
+		return xBits[bit].ite(high, low);
+	}
+
+	/**
+	 * @return the CharPred of the characters whose encoding satisfies <code>bdd</code>, its intervals are collected
+	 *         from <code>bdd</code> when they are first read
+	 */
+	public CharPred toPred(BDD bdd) {
+		CharPred p = preds.get(checkNotNull(bdd));
+		if (p == null) {
+			p = new BDDCharPred(this, bdd);
+			preds.put(bdd, p);
+		}
+		return p;
+	}
+
+	// a result of the solver, which keeps its BDD
+	private static class BDDCharPred extends CharPred {
+		final BDDCharSolver solver;
+		final BDD bdd;
+
+		BDDCharPred(BDDCharSolver solver, BDD bdd) {
+			this.solver = solver;
+			this.bdd = bdd;
+		}
+
+		@Override
+		protected ImmutableList<ImmutablePair<Character, Character>> computeIntervals() {
+			IntervalCollector intervals = new IntervalCollector();
+			solver.collect(bdd, 0, 0, intervals);
+			return intervals.build();
+		}
+	}
+
+	private void collect(BDD bdd, int bit, int start, IntervalCollector intervals) {
+		if (bdd.isZero())
+			return;
+		if (bdd.isOne()) {
+			intervals.add(start, start + (1 << (BITS - bit)) - 1);
+			return;
+		}
+		int middle = start + (1 << (BITS - bit - 1));
+		if (bdd.var() == 2 * bit) {
+			collect(bdd.low(), bit + 1, start, intervals);
+			collect(bdd.high(), bit + 1, middle, intervals);
+		} else {
+			// the bit is irrelevant
+			collect(bdd, bit + 1, start, intervals);
+			collect(bdd, bit + 1, middle, intervals);
+		}
+	}
+
+	// ------------------------------------------------------
+	// Boolean algebra
+	// ------------------------------------------------------
+
+	@Override
+	public CharPred MkAtom(Character s) {
+		return new CharPred(checkNotNull(s)).intern();
+	}
+
+	@Override
+	public CharPred MkAtoms(Collection<Character> elements) {
+		char[] chars = new char[checkNotNull(elements).size()];
+		int n = 0;
+		for (Character c : elements)
+			chars[n++] = checkNotNull(c);
+		Arrays.sort(chars);
+		return CharPred.ofSortedChars(chars, n);
+	}
+
+	@Override
+	public CharPred MkNot(CharPred p) {
+		return toPred(toBDD(p).not());
+	}
+
+	@Override
+	public CharPred MkOr(Collection<CharPred> pset) {
+		BDD acc = factory.zero();
+		for (CharPred p : pset)
+			acc = acc.or(toBDD(p));
+		return toPred(acc);
+	}
+
+	@Override
+	public CharPred MkOr(CharPred p1, CharPred p2) {
+		return toPred(toBDD(p1).or(toBDD(p2)));
+	}
+
+	@Override
+	public CharPred MkAnd(Collection<CharPred> pset) {
+		BDD acc = factory.one();
+		for (CharPred p : pset)
+			acc = acc.and(toBDD(p));
+		return toPred(acc);
+	}
+
+	@Override
+	public CharPred MkAnd(CharPred p1, CharPred p2) {
+		return toPred(toBDD(p1).and(toBDD(p2)));
+	}
+
+	@Override
+	public CharPred True() {
+		return StdCharPred.TRUE;
+	}
+
+	@Override
+	public CharPred False() {
+		return StdCharPred.FALSE;
+	}
+
+	@Override
+	public boolean AreEquivalent(CharPred p1, CharPred p2) {
+		return toBDD(p1).equals(toBDD(p2));
+	}
+
+	@Override
+	public boolean IsSatisfiable(CharPred p) {
+		return !toBDD(p).isZero();
+	}
+
+	@Override
+	public boolean HasModel(CharPred p, Character el) {
+		if (!(checkNotNull(p) instanceof BDDCharPred))
+			return p.isSatisfiedBy(checkNotNull(el));
+		// follow the bits of el down the BDD
+		BDD bdd = toBDD(p);
+		for (int bit = 0; bit < BITS && !bdd.isZero() && !bdd.isOne(); bit++) {
+			if (bdd.var() == 2 * bit)
+				bdd = ((el >> (BITS - 1 - bit)) & 1) == 1 ? bdd.high() : bdd.low();
+		}
+		return bdd.isOne();
+	}
+
+	@Override
+	public boolean HasModel(CharPred p, Character el1, Character el2) {
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	/**
+	 * Walks a random path of the BDD of <code>p</code>, choosing irrelevant bits at random
+	 */
+	@Override
+	public Character generateWitness(CharPred p) {
+		BDD bdd = toBDD(p);
+		if (bdd.isZero())
+			return null;
+		Random r = new Random();
+		int c = 0;
+		for (int bit = 0; bit < BITS; bit++) {
+			boolean set;
+			if (!bdd.isOne() && bdd.var() == 2 * bit) {
+				if (bdd.low().isZero())
+					set = true;
+				else if (bdd.high().isZero())
+					set = false;
+				else
+					set = r.nextBoolean();
+				bdd = set ? bdd.high() : bdd.low();
+			} else {
+				set = r.nextBoolean();
+			}
+			if (set)
+				c |= 1 << (BITS - 1 - bit);
+		}
+		return (char) c;
+	}
+
+	@Override
+	public Pair<Character, Character> generateWitnesses(CharPred p) {
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	@Override
+	protected int sizeOf(CharPred p) {
+		return toBDD(p).nodeCount();
+	}
+
+	// ------------------------------------------------------
+	// Substitution
+	// ------------------------------------------------------
+
+	@Override
+	public CharFunc MkSubstFuncFunc(CharFunc f1, CharFunc f2) {
+		return checkNotNull(f2).substIn(checkNotNull(f1));
+	}
+
+	/**
+	 * For an offset the result is the set of x such that f(x), which saturates at MIN_CHAR and MAX_CHAR like
+	 * CharOffset.instantiateWith, satisfies <code>p</code>
+	 */
+	@Override
+	public CharPred MkSubstFuncPred(CharFunc f, CharPred p) {
+		if (checkNotNull(f) instanceof CharConstant)
+			return HasModel(p, ((CharConstant) f).c) ? True() : False();
+		long increment = ((CharOffset) f).increment;
+		if (increment == 0)
+			return checkNotNull(p);
+		BDD py = toBDD(p).replace(xToY);
+		return toPred(offsetRelation(increment).relprod(py, yCube));
+	}
+
+	@Override
+	public Character MkSubstFuncConst(CharFunc f, Character c) {
+		return checkNotNull(f).instantiateWith(checkNotNull(c));
+	}
+
+	@Override
+	public CharFunc MkFuncConst(Character c) {
+		return new CharConstant(checkNotNull(c));
+	}
+
+	@Override
+	public boolean CheckGuardedEquality(CharPred p, CharFunc f1, CharFunc f2) {
+		CharPred f1IsNotEqualTof2;
+		if (checkNotNull(f1) instanceof CharConstant && checkNotNull(f2) instanceof CharConstant)
+			f1IsNotEqualTof2 = ((CharConstant) f1).c == ((CharConstant) f2).c ? False() : True();
+		else if (f1 instanceof CharConstant)
+			f1IsNotEqualTof2 = MkNot(MkSubstFuncPred(f2, MkAtom(((CharConstant) f1).c)));
+		else if (f2 instanceof CharConstant)
+			f1IsNotEqualTof2 = MkNot(MkSubstFuncPred(f1, MkAtom(((CharConstant) f2).c)));
+		else
+			f1IsNotEqualTof2 = ((CharOffset) f1).increment == ((CharOffset) f2).increment ? False() : True();
+		return !IsSatisfiable(MkAnd(p, f1IsNotEqualTof2));
+	}
+
+	/**
+	 * \psi(y) = \exists x. p(x) \wedge f(x)=y, computed as a relational product with the relation of f
+	 */
+	@Override
+	public CharPred getRestrictedOutput(CharPred p, CharFunc f) {
+		if (!IsSatisfiable(checkNotNull(p)))
+			return False();
+		if (checkNotNull(f) instanceof CharConstant)
+			return new CharPred(((CharConstant) f).c);
+		long increment = ((CharOffset) f).increment;
+		if (increment == 0)
+			return p;
+		BDD outputs = toBDD(p).relprod(offsetRelation(increment), xCube);
+		return toPred(outputs.replace(yToX));
+	}
+
+	// the relation y = x + increment, where the result saturates at MIN_CHAR and MAX_CHAR
+	private BDD offsetRelation(long increment) {
+		BDD relation = offsets.get(increment);
+		if (relation != null)
+			return relation;
+
+		// add the two's complement of the increment bit by bit from the least significant one, sum[c] relates the
+		// low bits of x and y when the carry out of them is c
+		int addend = (int) (increment & ((1 << BITS) - 1));
+		BDD[] sum = { factory.one(), factory.zero() };
+		for (int bit = BITS - 1; bit >= 0; bit--) {
+			int a = (addend >> (BITS - 1 - bit)) & 1;
+			BDD[] next = { factory.zero(), factory.zero() };
+			for (int carry = 0; carry < 2; carry++) {
+				if (sum[carry].isZero())
+					continue;
+				for (int x = 0; x < 2; x++) {
+					int s = x + a + carry;
+					BDD term = sum[carry].and(literal(xBits[bit], x)).and(literal(yBits[bit], s & 1));
+					next[s >> 1] = next[s >> 1].or(term);
+				}
+			}
+			sum = next;
+		}
+		// a positive increment overflows when there is a carry, a negative one underflows when there is none
+		if (increment > 0)
+			relation = sum[0].or(sum[1].exist(yCube).and(yCube));
+		else
+			relation = sum[1].or(sum[0].exist(yCube).and(allZero(yBits)));
+		offsets.put(increment, relation);
+		return relation;
+	}
+
+	private BDD literal(BDD var, int value) {
+		return value == 1 ? var : var.not();
+	}
+
+	private BDD allZero(BDD[] bits) {
+		BDD res = factory.one();
+		for (BDD bit : bits)
+			res = res.and(bit.not());
+		return res;
+	}
+
+	// appends intervals in increasing order, merging the ones that touch
+	private static class IntervalCollector {
+		private final ImmutableList.Builder<ImmutablePair<Character, Character>> intervals = ImmutableList.builder();
+		private int left = -1;
+		private int right = -1;
+
+		void add(int from, int to) {
+			if (left != -1 && from == right + 1) {
+				right = to;
+			} else {
+				flush();
+				left = from;
+				right = to;
+			}
+		}
+
+		private void flush() {
+			if (left != -1)
+				intervals.add(ImmutablePair.of((char) left, (char) right));
+		}
+
+		ImmutableList<ImmutablePair<Character, Character>> build() {
+			flush();
+			return intervals.build();
+		}
+	}
+}
@@ -13,6 +13,8 @@ import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 import theory.BooleanAlgebra;
 import theory.bdd.BDD;
 import theory.bdd.BDDFactory;
+import theory.bdd.ConcurrentFactory;
+import theory.bdd.JFactory;
 import utilities.Pair;
 
 /**
@@ -34,6 +36,39 @@ public class BDDSolver extends BooleanAlgebra<BDD, BDD> {
 		factory.setVarNum(numVars);
 	}
 
+	/**
+	 * If <code>concurrent</code> is true the solver uses a ConcurrentFactory, so that
+	 * its predicates can be built and combined by several threads at the same time
+	 */
+	public BDDSolver(int numVars, boolean concurrent) {
+		super();
+		factory = concurrent ? ConcurrentFactory.init(500000, 125000) : BDDFactory.init(500000, 125000);
+		factory.setVarNum(numVars);
+	}
+
+	/**
+	 * Uses a JFactory that reorders the variables with <code>reorder</code> whenever the node table
+	 * fills up: BDDFactory.REORDER_SIFT moves every variable to its best level, REORDER_WIN2 swaps
+	 * neighbouring variables, and REORDER_SIFTITE and REORDER_WIN2ITE repeat until the order converges.
+	 * REORDER_WIN3 and REORDER_WIN3ITE are not supported by the reordering of JFactory and are rejected.
+	 */
+	public BDDSolver(int numVars, BDDFactory.ReorderMethod reorder) {
+		this(numVars, 500000, 125000, reorder);
+	}
+
+	/**
+	 * Same as BDDSolver(numVars, reorder) with an initial node table of <code>numNodes</code> nodes,
+	 * a smaller table fills up and reorders earlier
+	 */
+	public BDDSolver(int numVars, int numNodes, int cacheSize, BDDFactory.ReorderMethod reorder) {
+		super();
+		if (reorder == BDDFactory.REORDER_WIN3 || reorder == BDDFactory.REORDER_WIN3ITE)
+			throw new IllegalArgumentException("unsupported reordering method " + reorder);
+		factory = JFactory.init(numNodes, cacheSize);
+		factory.setVarNum(numVars);
+		factory.autoReorder(reorder);
+	}
+
 	@Override
 	public BDD MkNot(BDD p) {
 		return p.not();
@@ -107,6 +142,11 @@ public class BDDSolver extends BooleanAlgebra<BDD, BDD> {
 		throw new NotImplementedException();
 	}
 
+	@Override
+	protected int sizeOf(BDD p1) {
+		return p1.nodeCount();
+	}
+
 	@Override
 	public BDD MkAtom(BDD s) {
 		return s;
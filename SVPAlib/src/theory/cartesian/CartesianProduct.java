@@ -2,21 +2,36 @@ package theory.cartesian;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.sat4j.specs.TimeoutException;
 
 import theory.BooleanAlgebra;
 import utilities.Pair;
 
+/**
+ * A union of products P1 x P2. After <code>normalize</code> the first components are pairwise disjoint, the second
+ * components are satisfiable and pairwise inequivalent, and the product list can no longer be modified. For algebras
+ * whose predicates are canonical this representation is unique, and two normalized products are equal iff they
+ * contain the same pairs in any order.
+ */
 public class CartesianProduct<P1,P2> {
-	
+
 	List<Pair<P1,P2>> products;
-	
+
+	// normalize and reduce are no-ops on products they already processed
+	private boolean normalized;
+	private boolean reduced;
+	private int hash;
+
 	public CartesianProduct(){
 		products = new ArrayList<>();
 	}
-	
+
 	/**
 	 * Return language is p, and it forces equality with call if forceEquality=true
 	 */
@@ -24,20 +39,23 @@ public class CartesianProduct<P1,P2> {
 		this();
 		products = new ArrayList<>();
 		products.add(new Pair<>(p1,p2));
-	}	
-	
+	}
+
 	public CartesianProduct(List<Pair<P1,P2>> products) {
 		this.products = products;
 	}
-	
+
 	public <S1,S2> void normalize(BooleanAlgebra<P1,S1> ba1,BooleanAlgebra<P2,S2> ba2) throws TimeoutException{
+		if (normalized)
+			return;
+
 		ArrayList<Pair<P1,P2>> newProducts = new ArrayList<Pair<P1,P2>>();
-		
+
 		ArrayList<P1> firstProj = new ArrayList<>();
 		for(Pair<P1,P2> pair: products)
 			firstProj.add(pair.first);
-		
-		Collection<Pair<P1, ArrayList<Integer>>> minterms = ba1.GetMinterms(firstProj);		
+
+		Collection<Pair<P1, ArrayList<Integer>>> minterms = ba1.GetMinterms(firstProj);
 		for(Pair<P1, ArrayList<Integer>> minterm:minterms){
 			P1 currA = minterm.first;
 			P2 currB = ba2.False();
@@ -49,47 +67,111 @@ public class CartesianProduct<P1,P2> {
 				}
 			}
 
-			if (addflag) //avoid adding unsat regions
+			if (addflag && ba2.IsSatisfiable(currB)) //avoid adding unsat regions
 				newProducts.add(new Pair<>(currA, currB));
 		}
-		
+
 		products = newProducts;
+		reduced = false;
 		reduce(ba1, ba2);
+		products = Collections.unmodifiableList(products);
+		normalized = true;
 	}
-	
+
 	public <S1,S2> void reduce(BooleanAlgebra<P1, S1> ba1, BooleanAlgebra<P2, S2> ba2) throws TimeoutException {
-		List<Pair<P1,P2>> newProducts = new ArrayList<Pair<P1, P2>>();
+		if (reduced)
+			return;
 
-		//consolidate based on y-component
+		//consolidate based on y-component, equal components are grouped without asking the algebra
 		List<Pair<P1,P2>> consolid = new ArrayList<Pair<P1, P2>>();
-		while (products.size() > 0) {
-			Pair<P1, P2> curr = products.remove(0);
-			for (int i = products.size() - 1; i >= 0; i--) {
-				if (ba2.AreEquivalent(curr.second, products.get(i).second)) {
-					curr.setFirst(ba1.MkOr(curr.first, products.get(i).first));
-					products.remove(i);
-				}
-			}
-			consolid.add(curr);
+		for (Map.Entry<P2, List<P1>> group : groupBySecond(products).entrySet()) {
+			List<P1> firsts = group.getValue();
+			consolid.add(new Pair<P1, P2>(firsts.size() == 1 ? firsts.get(0) : ba1.MkOr(firsts), group.getKey()));
 		}
+		consolid = consolidate(consolid, ba1, ba2, false);
+
 		//consolidate based on x-component
-		while (consolid.size() > 0) {
-			Pair<P1, P2> curr = consolid.remove(0);
-			for (int i = consolid.size() - 1; i >= 0; i--) {
-				if (ba1.AreEquivalent(curr.first, consolid.get(i).first)) {
-					curr.setSecond(ba2.MkOr(curr.second, consolid.get(i).second));
-					consolid.remove(i);
+		products = consolidate(consolid, ba1, ba2, true);
+		reduced = true;
+	}
+
+	private static <P1, P2> Map<P2, List<P1>> groupBySecond(List<Pair<P1, P2>> products) {
+		Map<P2, List<P1>> groups = new LinkedHashMap<P2, List<P1>>();
+		for (Pair<P1, P2> pair : products) {
+			List<P1> group = groups.get(pair.second);
+			if (group == null) {
+				group = new ArrayList<P1>();
+				groups.put(pair.second, group);
+			}
+			group.add(pair.first);
+		}
+		return groups;
+	}
+
+	// merges pairs with equivalent first (byFirst) or second components, never modifies the given pairs
+	private static <P1, P2, S1, S2> List<Pair<P1, P2>> consolidate(List<Pair<P1, P2>> pairs,
+			BooleanAlgebra<P1, S1> ba1, BooleanAlgebra<P2, S2> ba2, boolean byFirst) throws TimeoutException {
+		List<Pair<P1, P2>> result = new ArrayList<Pair<P1, P2>>();
+		boolean[] merged = new boolean[pairs.size()];
+		for (int i = 0; i < pairs.size(); i++) {
+			if (merged[i])
+				continue;
+			P1 first = pairs.get(i).first;
+			P2 second = pairs.get(i).second;
+			for (int j = pairs.size() - 1; j > i; j--) {
+				if (merged[j])
+					continue;
+				Pair<P1, P2> other = pairs.get(j);
+				if (byFirst && ba1.AreEquivalent(first, other.first)) {
+					second = ba2.MkOr(second, other.second);
+					merged[j] = true;
+				} else if (!byFirst && ba2.AreEquivalent(second, other.second)) {
+					first = ba1.MkOr(first, other.first);
+					merged[j] = true;
 				}
 			}
-			newProducts.add(curr);
+			result.add(new Pair<P1, P2>(first, second));
 		}
-		products = newProducts;
+		return result;
 	}
 
 	public List<Pair<P1,P2>> getProducts(){
 		return products;
 	}
 
+	/**
+	 * @return true if this product was normalized, its product list is then unmodifiable
+	 */
+	public boolean isNormalized() {
+		return normalized;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CartesianProduct))
+			return false;
+		CartesianProduct<?, ?> other = (CartesianProduct<?, ?>) obj;
+		if (products.size() != other.products.size() || hashCode() != other.hashCode())
+			return false;
+		if (products.equals(other.products))
+			return true;
+		return new HashSet<Pair<?, ?>>(products).equals(new HashSet<Pair<?, ?>>(other.products));
+	}
+
+	@Override
+	public int hashCode() {
+		if (normalized && hash != 0)
+			return hash;
+		int h = 0;
+		for (Pair<P1, P2> pair : products)
+			h += pair.hashCode();
+		if (normalized)
+			hash = h;
+		return h;
+	}
+
 	@Override
 	public String toString() {
 		String ret = "";
@@ -59,7 +59,7 @@ public class CharOffset implements CharFunc {
 		
 	public CharPred substIn(CharPred p, UnaryCharIntervalSolver cs) {
 		ImmutableList.Builder<ImmutablePair<Character,Character>> intervals = ImmutableList.builder();
-		for (ImmutablePair<Character, Character> interval : checkNotNull(p).intervals) {
+		for (ImmutablePair<Character, Character> interval : checkNotNull(p).getIntervals()) {
 			long leftPrime = charSnap(interval.left - increment);
 			long rightPrime = charSnap(interval.right - increment);
 			intervals.add(ImmutablePair.of((char)leftPrime, (char)rightPrime));
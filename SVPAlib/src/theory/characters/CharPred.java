@@ -11,14 +11,17 @@ import com.google.common.collect.ImmutableList;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.WeakHashMap;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
@@ -66,10 +69,41 @@ public class CharPred extends ICharPred{
 		for (Character c : checkNotNull(characters)) {
 			intervals.add(ImmutablePair.of(checkNotNull(c), c));
 		}
-		CharPred res =  new CharPred(intervals.build(), isReturn);
-		if(isReturn)
-			res.setAsReturn();
-		return res;
+		return new CharPred(intervals.build(), isReturn);
+	}
+
+	/**
+	 * The set containing the first <code>length</code> characters of <code>sortedChars</code>, which have to be in
+	 * increasing order (duplicates are allowed). Runs of consecutive characters become a single interval.
+	 */
+	public static CharPred ofSortedChars(char[] sortedChars, int length) {
+		checkArgument(0 <= length && length <= checkNotNull(sortedChars).length);
+		ImmutableList.Builder<ImmutablePair<Character, Character>> intervals = ImmutableList.builder();
+		int i = 0;
+		while (i < length) {
+			char left = sortedChars[i];
+			char right = left;
+			for (i++; i < length && sortedChars[i] <= right + 1; i++) {
+				checkArgument(sortedChars[i] >= right);
+				right = sortedChars[i];
+			}
+			intervals.add(ImmutablePair.of(left, right));
+		}
+		return new CharPred(intervals.build(), false, true).intern();
+	}
+
+	/**
+	 * The set containing the intervals <code>intervals</code>, which have to be sorted, disjoint and non-adjacent
+	 * already. Only checks this in one pass instead of sorting and merging them again.
+	 */
+	public static CharPred ofNormalizedIntervals(ImmutableList<ImmutablePair<Character, Character>> intervals) {
+		for (int i = 0; i < checkNotNull(intervals).size(); i++) {
+			ImmutablePair<Character, Character> curr = intervals.get(i);
+			checkArgument(curr.left != null && curr.right != null && curr.left <= curr.right);
+			if (i > 0)
+				checkArgument(intervals.get(i - 1).right + 1 < curr.left);
+		}
+		return new CharPred(intervals, false, true).intern();
 	}
 
 	public CharPred(ImmutableList<ImmutablePair<Character, Character>> intervals){
@@ -82,9 +116,174 @@ public class CharPred extends ICharPred{
 					interval.left <= interval.right);
 		}
 
-		this.intervals = sortIntervals(checkNotNull(intervals));
-		if(isReturn)
-			setAsReturn();
+		this.packed = new Packed(sortIntervals(checkNotNull(intervals)));
+		this.isReturn = isReturn;
+	}
+
+	// intervals are already normalized
+	private CharPred(ImmutableList<ImmutablePair<Character, Character>> intervals, boolean isReturn, boolean normalized) {
+		this.packed = new Packed(intervals);
+		this.isReturn = isReturn;
+	}
+
+	/**
+	 * A predicate whose intervals are only computed, by {@link #computeIntervals()}, the first time they are read.
+	 * Lets solvers that represent predicates differently return CharPreds without converting every result.
+	 */
+	protected CharPred() {
+	}
+
+	/**
+	 * @return the normalized intervals of a predicate created with the constructor without arguments. Can be called
+	 *         more than once by concurrent readers and has to return the same intervals every time.
+	 */
+	protected ImmutableList<ImmutablePair<Character, Character>> computeIntervals() {
+		throw new UnsupportedOperationException("the intervals of this predicate are not computed lazily");
+	}
+
+	// the intervals and what is derived from them; the fields are final, so a lazily computed one can be published
+	// without locking
+	private static final class Packed {
+		final ImmutableList<ImmutablePair<Character, Character>> intervals;
+		// the intervals packed as consecutive pairs of bounds, see packIntervals
+		final char[] bounds;
+		final int hash;
+		// membership bitmaps of the characters 0-63 and 64-127
+		final long lowAscii;
+		final long highAscii;
+
+		Packed(ImmutableList<ImmutablePair<Character, Character>> intervals) {
+			this.intervals = intervals;
+			this.bounds = packIntervals(intervals);
+			this.hash = Arrays.hashCode(bounds);
+			this.lowAscii = asciiBits(bounds, 0);
+			this.highAscii = asciiBits(bounds, 64);
+		}
+	}
+
+	private Packed packed() {
+		Packed p = packed;
+		if (p == null) {
+			p = new Packed(computeIntervals());
+			packed = p;
+		}
+		return p;
+	}
+
+	/**
+	 * @return the intervals of this predicate, sorted and with no two of them overlapping or touching
+	 */
+	public ImmutableList<ImmutablePair<Character, Character>> getIntervals() {
+		return packed().intervals;
+	}
+
+	// the interval i is [bounds[2*i], bounds[2*i+1]]
+	private static char[] packIntervals(ImmutableList<ImmutablePair<Character, Character>> intervals) {
+		char[] bounds = new char[2 * intervals.size()];
+		for (int i = 0; i < intervals.size(); i++) {
+			bounds[2 * i] = intervals.get(i).left;
+			bounds[2 * i + 1] = intervals.get(i).right;
+		}
+		return bounds;
+	}
+
+	// the bitmap of the characters from <code>from</code> to <code>from + 63</code> that are in the intervals
+	private static long asciiBits(char[] bounds, int from) {
+		long bits = 0;
+		for (int i = 0; i < bounds.length && bounds[i] < from + 64; i += 2) {
+			int left = Math.max(bounds[i], from);
+			int right = Math.min(bounds[i + 1], from + 63);
+			for (int c = left; c <= right; c++)
+				bits |= 1L << (c - from);
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the canonical instance of this predicate: all interned predicates with the same intervals are the same
+	 * object, so that they can be compared by reference. The table only keeps weak references. Return predicates are
+	 * not interned, and an interned predicate cannot be marked as return afterwards.
+	 */
+	public CharPred intern() {
+		if (isReturn || interned)
+			return this;
+		synchronized (INTERNED) {
+			WeakReference<CharPred> ref = INTERNED.get(this);
+			CharPred canonical = ref == null ? null : ref.get();
+			if (canonical == null) {
+				interned = true;
+				INTERNED.put(this, new WeakReference<CharPred>(this));
+				canonical = this;
+			}
+			return canonical;
+		}
+	}
+
+	/**
+	 * @return a predicate with the same intervals marked as return. The copy is never interned, so this also works on
+	 *         interned predicates such as the results of the solver connectives.
+	 */
+	public CharPred returnCopy() {
+		return new CharPred(getIntervals(), true, true);
+	}
+
+	/**
+	 * @deprecated the connectives of the solvers return interned predicates, which are shared and cannot be marked
+	 *             as return; use {@link #returnCopy()} instead
+	 */
+	@Deprecated
+	@Override
+	public void setAsReturn() {
+		checkState(!interned, "an interned predicate cannot be marked as return");
+		super.setAsReturn();
+	}
+
+	/**
+	 * @return the number of intervals of this predicate
+	 */
+	public int intervalCount() {
+		return packed().bounds.length / 2;
+	}
+
+	/**
+	 * @return the left end of the interval <code>i</code>
+	 */
+	public char intervalLeft(int i) {
+		return packed().bounds[2 * i];
+	}
+
+	/**
+	 * @return the right end of the interval <code>i</code>
+	 */
+	public char intervalRight(int i) {
+		return packed().bounds[2 * i + 1];
+	}
+
+	/**
+	 * @return the number of characters in this predicate
+	 */
+	public int cardinality() {
+		char[] bounds = packed().bounds;
+		int size = 0;
+		for (int i = 0; i < bounds.length; i += 2)
+			size += bounds[i + 1] - bounds[i] + 1;
+		return size;
+	}
+
+	/**
+	 * @return the <code>k</code>-th smallest character in this predicate, starting from 0
+	 */
+	public char nthChar(int k) {
+		checkArgument(k >= 0);
+		char[] bounds = packed().bounds;
+		int rest = k;
+		for (int i = 0; i < bounds.length; i += 2) {
+			int size = bounds[i + 1] - bounds[i] + 1;
+			if (rest < size)
+				return (char) (bounds[i] + rest);
+			rest -= size;
+		}
+		throw new IllegalArgumentException("the predicate has fewer than " + (k + 1) + " characters");
 	}
 
 	private static ImmutableList<ImmutablePair<Character, Character>> sortIntervals(
@@ -148,20 +347,32 @@ public class CharPred extends ICharPred{
         }
 
 	public boolean isSatisfiedBy(char c) {
-		for (ImmutablePair<Character, Character> interval : intervals) {
-			if (interval.left <= c && c <= interval.right) {
-				return true;
-			}
-		}
+		Packed p = packed();
+		// ASCII characters, which include the Basic Latin alphabet we learn over, are a single bit test
+		if (c < 64)
+			return (p.lowAscii & (1L << c)) != 0;
+		if (c < 128)
+			return (p.highAscii & (1L << (c - 64))) != 0;
 
-		return false;
+		char[] bounds = p.bounds;
+		// binary search for the last interval that starts at or before c
+		int lo = 0;
+		int hi = bounds.length / 2 - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (bounds[2 * mid] <= c)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		return hi >= 0 && c <= bounds[2 * hi + 1];
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("[");
-		for (ImmutablePair<Character, Character> pair : intervals) {
+		for (ImmutablePair<Character, Character> pair : getIntervals()) {
 			if (pair.left == pair.right)
 				sb.append(printChar(pair.left));
 			else {
@@ -177,8 +388,16 @@ public class CharPred extends ICharPred{
 
 	@Override
 	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
 		if (obj instanceof CharPred) {
-			return Objects.equals(intervals, ((CharPred)obj).intervals);
+			CharPred other = (CharPred) obj;
+			// two different interned predicates always have different intervals
+			if (interned && other.interned)
+				return false;
+			Packed p = packed();
+			Packed o = other.packed();
+			return p.hash == o.hash && Arrays.equals(p.bounds, o.bounds);
 		} else {
 			return false;
 		}
@@ -186,10 +405,14 @@ public class CharPred extends ICharPred{
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(CharPred.class, intervals);
+		return packed().hash;
 	}
 
-	public final ImmutableList<ImmutablePair<Character, Character>> intervals;
+	// set by the constructors, or on first use for the predicates whose intervals are computed lazily
+	private Packed packed;
+	private volatile boolean interned = false;
+
+	private static final Map<CharPred, WeakReference<CharPred>> INTERNED = new WeakHashMap<CharPred, WeakReference<CharPred>>();
 
 	public static final char MIN_CHAR = Character.MIN_VALUE;
     public static final char MAX_CHAR = Character.MAX_VALUE;
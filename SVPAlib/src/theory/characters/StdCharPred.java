@@ -6,8 +6,8 @@ import com.google.common.collect.ImmutableList;
 
 public class StdCharPred {
 
-	public final static CharPred TRUE = new CharPred(CharPred.MIN_CHAR, CharPred.MAX_CHAR);
-	public final static CharPred FALSE = new CharPred(ImmutableList.<ImmutablePair<Character, Character>>of());
+	public final static CharPred TRUE = new CharPred(CharPred.MIN_CHAR, CharPred.MAX_CHAR).intern();
+	public final static CharPred FALSE = new CharPred(ImmutableList.<ImmutablePair<Character, Character>>of()).intern();
 
 	public final static CharPred ALPHA = new CharPred(ImmutableList.of(
 			ImmutablePair.of('A', 'Z'),
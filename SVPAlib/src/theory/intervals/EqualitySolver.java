@@ -42,7 +42,7 @@ public class EqualitySolver extends BooleanAlgebra<ICharPred, Character> {
 		if (p instanceof CharPred) {
 			CharPred cp = usolver.MkNot((CharPred) p);
 			if(p.isReturn())
-				cp.setAsReturn();
+				return cp.returnCopy();
 			return cp;
 		} else {
 			BinaryCharPred u = (BinaryCharPred) p;				
@@ -82,9 +82,7 @@ public class EqualitySolver extends BooleanAlgebra<ICharPred, Character> {
 				if(u1c.isReturn()){
 					if(u2c.isReturn()){
 						// u1 is CharPred and return, u2 is CharPred and return
-						CharPred cp = usolver.MkOr(u1c, u2c);
-						cp.setAsReturn();
-						return cp;
+						return usolver.MkOr(u1c, u2c).returnCopy();
 					}else{
 						// u1 is CharPred and return, u2 is CharPred and call
 						throw new NotImplementedException("This should not happen for SVPA");
@@ -167,9 +165,7 @@ public class EqualitySolver extends BooleanAlgebra<ICharPred, Character> {
 				if(u1c.isReturn()){
 					if(u2c.isReturn()){
 						// u1 is CharPred and return, u2 is CharPred and return
-						CharPred cp = usolver.MkAnd(u1c, u2c);
-						cp.setAsReturn();
-						return cp;
+						return usolver.MkAnd(u1c, u2c).returnCopy();
 					}else{
 						// u1 is CharPred and return, u2 is CharPred and call
 						throw new NotImplementedException("This should not happen for SVPA");
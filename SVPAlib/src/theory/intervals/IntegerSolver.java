@@ -31,16 +31,50 @@ public class IntegerSolver extends BooleanAlgebra<IntPred, Integer> {
 
 	@Override
 	public IntPred MkOr(Collection<IntPred> pset) {
-		IntPred or = StdIntPred.FALSE;
+		// the constructor sorts the intervals and merges the ones that overlap or touch
+		ImmutableList.Builder<ImmutablePair<Integer, Integer>> intervals = ImmutableList.builder();
 		for (IntPred a : pset) {
-			or = MkOr(or, a);
+			intervals.addAll(checkNotNull(a).intervals);
 		}
-		return or;
+		return new IntPred(intervals.build());
 	}
 
 	@Override
 	public IntPred MkOr(IntPred p1, IntPred p2) {
-		return MkNot(MkAnd(MkNot(p1), MkNot(p2)));
+		if (checkNotNull(p1).intervals.isEmpty())
+			return new IntPred(checkNotNull(p2).intervals);
+		if (checkNotNull(p2).intervals.isEmpty())
+			return new IntPred(p1.intervals);
+
+		// merge the two sorted interval lists, null bounds are unbounded
+		ImmutableList.Builder<ImmutablePair<Integer, Integer>> newIntervals = ImmutableList.builder();
+		ImmutablePair<Integer, Integer> cur = null;
+		for (int i = 0, j = 0; i < p1.intervals.size() || j < p2.intervals.size(); ) {
+			ImmutablePair<Integer, Integer> next;
+			if (j == p2.intervals.size() || (i < p1.intervals.size() &&
+					startsBefore(p1.intervals.get(i), p2.intervals.get(j))))
+				next = p1.intervals.get(i++);
+			else
+				next = p2.intervals.get(j++);
+
+			if (cur == null) {
+				cur = next;
+			} else if (cur.right == null) {
+				break;
+			} else if (next.left == null || (long) next.left <= (long) cur.right + 1) {
+				Integer right = next.right == null ? null : Math.max(cur.right, next.right);
+				cur = ImmutablePair.of(cur.left, right);
+			} else {
+				newIntervals.add(cur);
+				cur = next;
+			}
+		}
+		newIntervals.add(cur);
+		return new IntPred(newIntervals.build());
+	}
+
+	private static boolean startsBefore(ImmutablePair<Integer, Integer> i1, ImmutablePair<Integer, Integer> i2) {
+		return i1.left == null || (i2.left != null && i1.left <= i2.left);
 	}
 
 	@Override
@@ -148,6 +182,70 @@ public class IntegerSolver extends BooleanAlgebra<IntPred, Integer> {
 		throw new UnsupportedOperationException("Not supported yet.");
 	}
 	
+	@Override
+	protected boolean hasOwnMinterms() {
+		return true;
+	}
+
+	@Override
+	protected int sizeOf(IntPred p) {
+		return checkNotNull(p).intervals.size();
+	}
+
+	/**
+	 * Computes the minterms of <code>predicates</code> with a single sweep over their interval endpoints instead of
+	 * the recursive splitting of BooleanAlgebra, so there is no limit on the number of predicates
+	 */
+	@Override
+	public Collection<Pair<IntPred, ArrayList<Integer>>> GetMinterms(ArrayList<IntPred> predicates, long timeout) {
+		List<long[]> bounds = new ArrayList<long[]>(predicates.size());
+		for (IntPred p : predicates)
+			bounds.add(toBounds(p));
+		return getMinterms(IntervalPartition.of(Integer.MIN_VALUE, Integer.MAX_VALUE, bounds));
+	}
+
+	/**
+	 * @return the partition of all integers without any predicates, see {@link #refine}
+	 */
+	public IntervalPartition newPartition() {
+		return new IntervalPartition(Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Refines <code>partition</code> with the predicate <code>p</code>, keeping the minterms computed so far
+	 */
+	public void refine(IntervalPartition partition, IntPred p) {
+		checkNotNull(partition).refine(toBounds(p));
+	}
+
+	/**
+	 * @return the minterms of <code>partition</code> in the format of GetMinterms
+	 */
+	public Collection<Pair<IntPred, ArrayList<Integer>>> getMinterms(IntervalPartition partition) {
+		List<Pair<IntPred, ArrayList<Integer>>> minterms = new ArrayList<Pair<IntPred, ArrayList<Integer>>>();
+		for (IntervalPartition.Minterm minterm : checkNotNull(partition).getMinterms()) {
+			ImmutableList.Builder<ImmutablePair<Integer, Integer>> intervals = ImmutableList.builder();
+			for (int i = 0; i < minterm.bounds.length; i += 2) {
+				// the ends of the range are unbounded
+				Integer left = minterm.bounds[i] == Integer.MIN_VALUE ? null : (int) minterm.bounds[i];
+				Integer right = minterm.bounds[i + 1] == Integer.MAX_VALUE ? null : (int) minterm.bounds[i + 1];
+				intervals.add(ImmutablePair.of(left, right));
+			}
+			minterms.add(new Pair<IntPred, ArrayList<Integer>>(new IntPred(intervals.build()), partition.getBits(minterm)));
+		}
+		return minterms;
+	}
+
+	private static long[] toBounds(IntPred p) {
+		long[] bounds = new long[2 * checkNotNull(p).intervals.size()];
+		for (int i = 0; i < p.intervals.size(); i++) {
+			ImmutablePair<Integer, Integer> interval = p.intervals.get(i);
+			bounds[2 * i] = interval.left == null ? Integer.MIN_VALUE : interval.left;
+			bounds[2 * i + 1] = interval.right == null ? Integer.MAX_VALUE : interval.right;
+		}
+		return bounds;
+	}
+
 	/**
 	 * Returns a list of disjoint predicates [p1,...,pn] that accepts the elements [S1...SN] and that has union equal to true.
 	 */
@@ -176,9 +274,12 @@ public class IntegerSolver extends BooleanAlgebra<IntPred, Integer> {
 		
 		Map<Integer, Integer> index = new HashMap<Integer, Integer>();
 		List<Integer> arr = new ArrayList<Integer>(); //the sorted evidence
+		//the intervals of every group, they are turned into predicates at the end
+		List<ImmutableList.Builder<ImmutablePair<Integer, Integer>>> groupIntervals =
+				new ArrayList<ImmutableList.Builder<ImmutablePair<Integer, Integer>>>();
 		
 		for (int i = 0; i < groups.size(); i++) {
-			out.add(False());
+			groupIntervals.add(ImmutableList.<ImmutablePair<Integer, Integer>>builder());
 			arr.addAll(groups.get(i));
 			for (Integer e : groups.get(i))
 				index.put(e, i);
@@ -193,12 +294,14 @@ public class IntegerSolver extends BooleanAlgebra<IntPred, Integer> {
 			//right = (int)Math.floor((double)(arr.get(i) + arr.get(i+1)) / 2.0); //this binary searches
 			right = arr.get(i+1) - 1; //this is optimal if you assume lexicographically minimal counterexamples
 			int ind = index.get(arr.get(i));
-			out.set(ind, MkOr(out.get(ind), new IntPred(left, right)));
+			groupIntervals.get(ind).add(ImmutablePair.of(left, right));
 			left = right + 1;
 		}
 		int ind = index.get(arr.get(arr.size() - 1));
-		out.set(ind,  MkOr(out.get(ind), new IntPred(left, null)));
+		groupIntervals.get(ind).add(ImmutablePair.of(left, (Integer) null));
 		
+		for (ImmutableList.Builder<ImmutablePair<Integer, Integer>> intervals : groupIntervals)
+			out.add(new IntPred(intervals.build()));
 		return out;
 	}
 
@@ -0,0 +1,216 @@
+package theory.intervals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partition of the integer range [min, max] into the minterms of a sequence of interval predicates.
+ * Every predicate is given as its sorted, disjoint intervals [bounds[2i], bounds[2i+1]]. The range is cut into
+ * segments at the endpoints of all predicates and every segment knows which predicates contain it; the minterms are
+ * the unions of the segments with the same set of predicates.
+ * A partition can be built at once with {@link #of}, which sorts all endpoints once, or refined one predicate at a
+ * time with {@link #refine}, which keeps the segments computed so far.
+ */
+public class IntervalPartition {
+
+	/**
+	 * A minterm: the intervals it contains and the predicates (by index) that contain it
+	 */
+	public static class Minterm {
+		public final long[] bounds;
+		public final BitSet predicates;
+
+		Minterm(long[] bounds, BitSet predicates) {
+			this.bounds = bounds;
+			this.predicates = predicates;
+		}
+	}
+
+	private final long min;
+	private final long max;
+
+	// segment i is [starts[i], starts[i+1]-1], the last one ends at max
+	private long[] starts;
+	private BitSet[] signatures;
+	private int segments;
+	private int predicates;
+
+	/**
+	 * The partition of [min, max] with no predicates, i.e. a single segment
+	 */
+	public IntervalPartition(long min, long max) {
+		if (min > max)
+			throw new IllegalArgumentException("empty range");
+		this.min = min;
+		this.max = max;
+		this.starts = new long[] { min };
+		this.signatures = new BitSet[] { new BitSet() };
+		this.segments = 1;
+		this.predicates = 0;
+	}
+
+	/**
+	 * Builds the partition of [min, max] for all the <code>predicates</code> with a single sweep over their
+	 * sorted endpoints
+	 */
+	public static IntervalPartition of(long min, long max, List<long[]> predicates) {
+		IntervalPartition partition = new IntervalPartition(min, max);
+		int events = 0;
+		for (long[] bounds : predicates)
+			events += bounds.length;
+
+		// an event is a point where a predicate starts or stops containing the range, owners holds the predicate
+		long[] points = new long[events];
+		int[] owners = new int[events];
+		Integer[] order = new Integer[events];
+		int n = 0;
+		for (int p = 0; p < predicates.size(); p++) {
+			long[] bounds = predicates.get(p);
+			for (int i = 0; i < bounds.length; i += 2) {
+				points[n] = bounds[i];
+				owners[n] = p;
+				n++;
+				points[n] = bounds[i + 1] + 1;
+				owners[n] = p;
+				n++;
+			}
+		}
+		for (int i = 0; i < events; i++)
+			order[i] = i;
+		final long[] sortedPoints = points;
+		Arrays.sort(order, (i, j) -> Long.compare(sortedPoints[i], sortedPoints[j]));
+
+		List<Long> starts = new ArrayList<Long>();
+		List<BitSet> signatures = new ArrayList<BitSet>();
+		BitSet active = new BitSet();
+		starts.add(min);
+		int e = 0;
+		while (e < events && points[order[e]] == min)
+			active.flip(owners[order[e++]]);
+		signatures.add((BitSet) active.clone());
+		while (e < events) {
+			long point = points[order[e]];
+			if (point > max)
+				break;
+			while (e < events && points[order[e]] == point)
+				active.flip(owners[order[e++]]);
+			starts.add(point);
+			signatures.add((BitSet) active.clone());
+		}
+
+		partition.segments = starts.size();
+		partition.starts = new long[partition.segments];
+		partition.signatures = signatures.toArray(new BitSet[partition.segments]);
+		for (int i = 0; i < partition.segments; i++)
+			partition.starts[i] = starts.get(i);
+		partition.predicates = predicates.size();
+		return partition;
+	}
+
+	/**
+	 * Adds the predicate with intervals <code>bounds</code> to the partition, it gets the next index. Segments that
+	 * are cut by an endpoint of the predicate are split, all others are kept.
+	 */
+	public void refine(long[] bounds) {
+		int index = predicates++;
+		long[] newStarts = new long[segments + bounds.length];
+		BitSet[] newSignatures = new BitSet[segments + bounds.length];
+		int n = 0;
+		int b = 0;
+		for (int s = 0; s < segments; s++) {
+			long end = s + 1 < segments ? starts[s + 1] - 1 : max;
+			long start = starts[s];
+			// split the segment at every endpoint of the predicate that falls inside it
+			while (start <= end) {
+				while (b < bounds.length && bounds[b + 1] < start)
+					b += 2;
+				boolean inside = b < bounds.length && bounds[b] <= start;
+				long pieceEnd;
+				if (inside)
+					pieceEnd = Math.min(end, bounds[b + 1]);
+				else if (b < bounds.length)
+					pieceEnd = Math.min(end, bounds[b] - 1);
+				else
+					pieceEnd = end;
+
+				BitSet signature = pieceEnd == end && start == starts[s] ? signatures[s] : (BitSet) signatures[s].clone();
+				if (inside)
+					signature.set(index);
+				if (n == newStarts.length) {
+					newStarts = Arrays.copyOf(newStarts, 2 * n);
+					newSignatures = Arrays.copyOf(newSignatures, 2 * n);
+				}
+				newStarts[n] = start;
+				newSignatures[n] = signature;
+				n++;
+				if (pieceEnd == max)
+					break;
+				start = pieceEnd + 1;
+			}
+		}
+		starts = newStarts;
+		signatures = newSignatures;
+		segments = n;
+	}
+
+	/**
+	 * @return the number of predicates the partition was built from
+	 */
+	public int predicateCount() {
+		return predicates;
+	}
+
+	/**
+	 * @return the number of segments the range is cut into
+	 */
+	public int segmentCount() {
+		return segments;
+	}
+
+	/**
+	 * @return the non-empty minterms, ordered by their smallest element
+	 */
+	public List<Minterm> getMinterms() {
+		Map<BitSet, List<Long>> intervals = new LinkedHashMap<BitSet, List<Long>>();
+		for (int s = 0; s < segments; s++) {
+			long end = s + 1 < segments ? starts[s + 1] - 1 : max;
+			List<Long> bounds = intervals.get(signatures[s]);
+			if (bounds == null) {
+				bounds = new ArrayList<Long>();
+				intervals.put(signatures[s], bounds);
+			}
+			// neighbouring segments with the same signature become one interval
+			if (!bounds.isEmpty() && bounds.get(bounds.size() - 1) + 1 == starts[s]) {
+				bounds.set(bounds.size() - 1, end);
+			} else {
+				bounds.add(starts[s]);
+				bounds.add(end);
+			}
+		}
+
+		List<Minterm> minterms = new ArrayList<Minterm>();
+		for (Map.Entry<BitSet, List<Long>> entry : intervals.entrySet()) {
+			long[] bounds = new long[entry.getValue().size()];
+			for (int i = 0; i < bounds.length; i++)
+				bounds[i] = entry.getValue().get(i);
+			// the signatures can still change when the partition is refined
+			minterms.add(new Minterm(bounds, (BitSet) entry.getKey().clone()));
+		}
+		return minterms;
+	}
+
+	/**
+	 * @return the bits of <code>minterm</code> in the format of BooleanAlgebra.GetMinterms: 1 for the predicates
+	 * that contain it, 0 for the others
+	 */
+	public ArrayList<Integer> getBits(Minterm minterm) {
+		ArrayList<Integer> bits = new ArrayList<Integer>(predicates);
+		for (int p = 0; p < predicates; p++)
+			bits.add(minterm.predicates.get(p) ? 1 : 0);
+		return bits;
+	}
+}
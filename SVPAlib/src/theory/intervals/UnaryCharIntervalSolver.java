@@ -10,8 +10,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Random;
 
 import com.sun.xml.internal.bind.annotation.XmlLocation;
@@ -33,18 +36,18 @@ public class UnaryCharIntervalSolver extends BooleanAlgebraSubst<CharPred, CharF
 		List<ImmutablePair<Character,Character>> newIntervals =
 				new ArrayList<ImmutablePair<Character, Character>>();
 
-		if(checkNotNull(u).intervals.isEmpty()) {
+		if(checkNotNull(u).getIntervals().isEmpty()) {
 			return StdCharPred.TRUE;
 		}
 
-		Character curBot = u.intervals.get(0).left;
+		Character curBot = u.getIntervals().get(0).left;
 		if(CharPred.MIN_CHAR < curBot) {
 			newIntervals.add(ImmutablePair.of(CharPred.MIN_CHAR, (char)(curBot - 1)));
 		}
 
-		char prevTop = u.intervals.get(0).right;
-		for(int i = 1; i < u.intervals.size(); i++) {
-			ImmutablePair<Character,Character> curr = u.intervals.get(i);
+		char prevTop = u.getIntervals().get(0).right;
+		for(int i = 1; i < u.getIntervals().size(); i++) {
+			ImmutablePair<Character,Character> curr = u.getIntervals().get(i);
 			curBot = curr.left;
 			char newIntLo = (char)(prevTop + 1);
 			char newIntHi = (char)(curBot - 1);
@@ -59,44 +62,120 @@ public class UnaryCharIntervalSolver extends BooleanAlgebraSubst<CharPred, CharF
 			newIntervals.add(ImmutablePair.of((char)(prevTop + 1), CharPred.MAX_CHAR));
 		}
 
-		return new CharPred(ImmutableList.copyOf(newIntervals));
+		return CharPred.ofNormalizedIntervals(ImmutableList.copyOf(newIntervals));
 	}
 
 	@Override
 	public CharPred MkOr(Collection<CharPred> clctn) {
-		CharPred or = StdCharPred.FALSE;
-		for(CharPred a : clctn) {
-			or = MkOr(or, a);
+		// k-way merge: the heap holds for every predicate the index of its next interval
+		final List<CharPred> preds = new ArrayList<CharPred>();
+		for (CharPred a : clctn) {
+			if (!checkNotNull(a).getIntervals().isEmpty())
+				preds.add(a);
 		}
-		return or;
+		if (preds.isEmpty())
+			return False();
+		if (preds.size() == 1)
+			return canonical(preds.get(0));
+
+		final int[] next = new int[preds.size()];
+		PriorityQueue<Integer> heap = new PriorityQueue<Integer>(preds.size(), new Comparator<Integer>() {
+			public int compare(Integer p1, Integer p2) {
+				return preds.get(p1).getIntervals().get(next[p1]).left - preds.get(p2).getIntervals().get(next[p2]).left;
+			}
+		});
+		for (int p = 0; p < preds.size(); p++)
+			heap.add(p);
+
+		IntervalMerger merger = new IntervalMerger();
+		while (!heap.isEmpty()) {
+			int p = heap.poll();
+			merger.add(preds.get(p).getIntervals().get(next[p]));
+			next[p]++;
+			if (next[p] < preds.get(p).getIntervals().size())
+				heap.add(p);
+		}
+		return merger.build();
 	}
 
 	@Override
 	public CharPred MkOr(CharPred u1, CharPred u2) {
-		return MkNot(MkAnd(MkNot(u1), MkNot(u2)));
+		if (checkNotNull(u1).getIntervals().isEmpty())
+			return canonical(checkNotNull(u2));
+		if (checkNotNull(u2).getIntervals().isEmpty())
+			return canonical(u1);
+
+		IntervalMerger merger = new IntervalMerger();
+		int i = 0, j = 0;
+		while (i < u1.getIntervals().size() || j < u2.getIntervals().size()) {
+			if (j == u2.getIntervals().size() ||
+					(i < u1.getIntervals().size() && u1.getIntervals().get(i).left <= u2.getIntervals().get(j).left)) {
+				merger.add(u1.getIntervals().get(i++));
+			} else {
+				merger.add(u2.getIntervals().get(j++));
+			}
+		}
+		return merger.build();
 	}
 
 	@Override
 	public CharPred MkAnd(Collection<CharPred> clctn) {
-		CharPred and = StdCharPred.TRUE;
-		for(CharPred a : clctn) {
-			and = MkAnd(and, a);
+		// sweep over the interval endpoints of all predicates, a character is in the conjunction when it is
+		// covered by all of them
+		int k = clctn.size();
+		if (k == 0)
+			return True();
+		int total = 0;
+		for (CharPred a : clctn) {
+			if (checkNotNull(a).getIntervals().isEmpty())
+				return False();
+			total += a.getIntervals().size();
+		}
+		if (k == 1)
+			return canonical(clctn.iterator().next());
+
+		int[] starts = new int[total];
+		int[] ends = new int[total];
+		int n = 0;
+		for (CharPred a : clctn) {
+			for (ImmutablePair<Character, Character> interval : a.getIntervals()) {
+				starts[n] = interval.left;
+				ends[n] = interval.right + 1;
+				n++;
+			}
+		}
+		Arrays.sort(starts);
+		Arrays.sort(ends);
+
+		ImmutableList.Builder<ImmutablePair<Character, Character>> newIntervals = ImmutableList.builder();
+		int covered = 0;
+		for (int i = 0, j = 0; i < total; ) {
+			// intervals of one predicate never touch, so ends are handled before starts at the same point
+			if (ends[j] <= starts[i]) {
+				covered--;
+				j++;
+			} else {
+				covered++;
+				if (covered == k)
+					newIntervals.add(ImmutablePair.of((char) starts[i], (char) (ends[j] - 1)));
+				i++;
+			}
 		}
-		return and;
+		return CharPred.ofNormalizedIntervals(newIntervals.build());
 	}
 
 	@Override
 	public CharPred MkAnd(CharPred u1, CharPred u2) {
-		if(checkNotNull(u1).intervals.isEmpty() || checkNotNull(u2).intervals.isEmpty()) {
+		if(checkNotNull(u1).getIntervals().isEmpty() || checkNotNull(u2).getIntervals().isEmpty()) {
 			return False();
 		}
 
 		List<ImmutablePair<Character,Character>> newIntervals =
 				new ArrayList<ImmutablePair<Character, Character>>();
 
-		for (int i = 0, j = 0; i < u1.intervals.size() && j < u2.intervals.size(); ) {
-			ImmutablePair<Character, Character> cur1 = u1.intervals.get(i);
-			ImmutablePair<Character, Character> cur2 = u2.intervals.get(j);
+		for (int i = 0, j = 0; i < u1.getIntervals().size() && j < u2.getIntervals().size(); ) {
+			ImmutablePair<Character, Character> cur1 = u1.getIntervals().get(i);
+			ImmutablePair<Character, Character> cur2 = u2.getIntervals().get(j);
 
 			char lo = (char)Math.max(cur1.left, cur2.left);
 			char hi = (char)Math.min(cur1.right, cur2.right);
@@ -111,7 +190,7 @@ public class UnaryCharIntervalSolver extends BooleanAlgebraSubst<CharPred, CharF
 			}
 		}
 
-		return new CharPred(ImmutableList.copyOf(newIntervals));
+		return CharPred.ofNormalizedIntervals(ImmutableList.copyOf(newIntervals));
 	}
 
 	@Override
@@ -136,7 +215,7 @@ public class UnaryCharIntervalSolver extends BooleanAlgebraSubst<CharPred, CharF
 
 	@Override
 	public boolean IsSatisfiable(CharPred u) {
-		return !checkNotNull(u).intervals.isEmpty();
+		return !checkNotNull(u).getIntervals().isEmpty();
 	}
 
 	@Override
@@ -151,12 +230,12 @@ public class UnaryCharIntervalSolver extends BooleanAlgebraSubst<CharPred, CharF
 
 	@Override
 	public Character generateWitness(CharPred u) {
-		if (checkNotNull(u).intervals.isEmpty()) {
+		if (checkNotNull(u).getIntervals().isEmpty()) {
 			return null;
 		} else {
 			Random r = new Random();
-			int whichInterval = r.nextInt(u.intervals.size());
-			ImmutablePair<Character, Character> interval = u.intervals.get(whichInterval);
+			int whichInterval = r.nextInt(u.getIntervals().size());
+			ImmutablePair<Character, Character> interval = u.getIntervals().get(whichInterval);
 			int diff = interval.right-interval.left;
 			Character c= (char)(Character.valueOf(interval.left) + (diff==0?0:r.nextInt(diff+1)));
 			return c;
@@ -214,7 +293,7 @@ public class UnaryCharIntervalSolver extends BooleanAlgebraSubst<CharPred, CharF
 			p = this.MkAnd(f.substIn(True(), this), p);
 			// Then compute y based on x
 			ImmutableList.Builder<ImmutablePair<Character,Character>> intervals = ImmutableList.builder();
-			for (ImmutablePair<Character, Character> interval : checkNotNull(p).intervals) {
+			for (ImmutablePair<Character, Character> interval : checkNotNull(p).getIntervals()) {
 				long leftPrime = interval.left + ((CharOffset) f).increment;
 				long rightPrime = interval.right + ((CharOffset) f).increment;
 				intervals.add(ImmutablePair.of((char)leftPrime, (char)rightPrime));
@@ -223,6 +302,72 @@ public class UnaryCharIntervalSolver extends BooleanAlgebraSubst<CharPred, CharF
 		}
 	}
 
+	@Override
+	protected boolean hasOwnMinterms() {
+		return true;
+	}
+
+	@Override
+	protected int sizeOf(CharPred p) {
+		return checkNotNull(p).intervalCount();
+	}
+
+	/**
+	 * Computes the minterms of <code>predicates</code> with a single sweep over their interval endpoints instead of
+	 * the recursive splitting of BooleanAlgebra, so there is no limit on the number of predicates
+	 */
+	@Override
+	public Collection<Pair<CharPred, ArrayList<Integer>>> GetMinterms(ArrayList<CharPred> predicates, long timeout) {
+		List<long[]> bounds = new ArrayList<long[]>(predicates.size());
+		for (CharPred p : predicates)
+			bounds.add(toBounds(p));
+		return getMinterms(IntervalPartition.of(CharPred.MIN_CHAR, CharPred.MAX_CHAR, bounds));
+	}
+
+	/**
+	 * @return the partition of all characters without any predicates, see {@link #refine}
+	 */
+	public IntervalPartition newPartition() {
+		return new IntervalPartition(CharPred.MIN_CHAR, CharPred.MAX_CHAR);
+	}
+
+	/**
+	 * Refines <code>partition</code> with the predicate <code>p</code>, keeping the minterms computed so far
+	 */
+	public void refine(IntervalPartition partition, CharPred p) {
+		checkNotNull(partition).refine(toBounds(p));
+	}
+
+	/**
+	 * @return the minterms of <code>partition</code> in the format of GetMinterms
+	 */
+	public Collection<Pair<CharPred, ArrayList<Integer>>> getMinterms(IntervalPartition partition) {
+		List<Pair<CharPred, ArrayList<Integer>>> minterms = new ArrayList<Pair<CharPred, ArrayList<Integer>>>();
+		for (IntervalPartition.Minterm minterm : checkNotNull(partition).getMinterms()) {
+			ImmutableList.Builder<ImmutablePair<Character, Character>> intervals = ImmutableList.builder();
+			for (int i = 0; i < minterm.bounds.length; i += 2)
+				intervals.add(ImmutablePair.of((char) minterm.bounds[i], (char) minterm.bounds[i + 1]));
+			minterms.add(new Pair<CharPred, ArrayList<Integer>>(CharPred.ofNormalizedIntervals(intervals.build()),
+					partition.getBits(minterm)));
+		}
+		return minterms;
+	}
+
+	// the result of a connective that equals one of its operands: the interned instance, which is never a return
+	// predicate, so that a caller cannot get or modify the operand itself
+	private static CharPred canonical(CharPred p) {
+		return CharPred.ofNormalizedIntervals(p.getIntervals());
+	}
+
+	private static long[] toBounds(CharPred p) {
+		long[] bounds = new long[2 * checkNotNull(p).intervalCount()];
+		for (int i = 0; i < p.intervalCount(); i++) {
+			bounds[2 * i] = p.intervalLeft(i);
+			bounds[2 * i + 1] = p.intervalRight(i);
+		}
+		return bounds;
+	}
+
 	/**
 	 * returns a string of a list of CharPred
 	 * @param charPreds
@@ -251,7 +396,44 @@ public class UnaryCharIntervalSolver extends BooleanAlgebraSubst<CharPred, CharF
 
 	@Override
 	public CharPred MkAtom(Character s) {
-		return new CharPred(s);
+		return new CharPred(s).intern();
+	}
+
+	@Override
+	public CharPred MkAtoms(Collection<Character> elements) {
+		char[] chars = new char[checkNotNull(elements).size()];
+		int n = 0;
+		for (Character c : elements)
+			chars[n++] = checkNotNull(c);
+		Arrays.sort(chars);
+		return CharPred.ofSortedChars(chars, n);
+	}
+
+	// appends intervals sorted by their left end, merging the ones that overlap or touch
+	private static class IntervalMerger {
+		private final ImmutableList.Builder<ImmutablePair<Character, Character>> intervals = ImmutableList.builder();
+		private int left = -1;
+		private int right = -1;
+
+		void add(ImmutablePair<Character, Character> interval) {
+			if (left != -1 && interval.left <= right + 1) {
+				right = Math.max(right, interval.right);
+			} else {
+				flush();
+				left = interval.left;
+				right = interval.right;
+			}
+		}
+
+		private void flush() {
+			if (left != -1)
+				intervals.add(ImmutablePair.of((char) left, (char) right));
+		}
+
+		CharPred build() {
+			flush();
+			return CharPred.ofNormalizedIntervals(intervals.build());
+		}
 	}
 
 }
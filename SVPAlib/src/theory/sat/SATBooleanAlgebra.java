@@ -26,6 +26,14 @@ public class SATBooleanAlgebra extends BooleanAlgebra<Integer, boolean[]> {
 	private HashMap<Set<Integer>, Integer> orCache;
 	private HashMap<Integer, Pair<Boolean, TreeSet<Integer>>> reverseCache;
 
+	// Query memoization. Every clause added to the solver defines a fresh
+	// variable in terms of existing ones, so the answer to a query over
+	// existing literals never changes and can be cached by formula id.
+	private HashMap<Integer, Boolean> satCache;
+	private HashMap<Pair<Integer, Integer>, Boolean> equivCache;
+	private int solverCalls;
+	private int cacheHits;
+
 	public SATBooleanAlgebra(ISolver s, int universeSize) {
 		if (universeSize < 0) {
 			throw new IllegalArgumentException("Universe size must be >= 0");
@@ -35,6 +43,8 @@ public class SATBooleanAlgebra extends BooleanAlgebra<Integer, boolean[]> {
 		andCache = new HashMap<>();
 		orCache = new HashMap<>();
 		reverseCache = new HashMap<>();
+		satCache = new HashMap<>();
+		equivCache = new HashMap<>();
 		maxid = universeSize + 2;
 		VecInt trueClause = new VecInt();
 		trueClause.push(universe + 1);
@@ -118,6 +128,7 @@ public class SATBooleanAlgebra extends BooleanAlgebra<Integer, boolean[]> {
 	}
 
 	private boolean unsafeIsSatisfiable(VecInt assumptions) {
+		solverCalls++;
 		try {
 			return solver.isSatisfiable(assumptions, false);
 		} catch (TimeoutException ex) {
@@ -234,22 +245,68 @@ public class SATBooleanAlgebra extends BooleanAlgebra<Integer, boolean[]> {
 		return solver;
 	}
 
+	/**
+	 * @return the number of queries posed to the underlying solver
+	 */
+	public int getSolverCalls() {
+		return solverCalls;
+	}
+
+	/**
+	 * @return the number of satisfiability and equivalence queries answered
+	 *         from the memo tables
+	 */
+	public int getCacheHits() {
+		return cacheHits;
+	}
+
 	public Integer MkNot(Integer id) {
 		return -id;
 	}
 
+	/**
+	 * Decides p <=> q with two queries under assumptions ({p, -q} and {-p,
+	 * q}), so no clauses are added to the solver.
+	 */
 	@Override
 	public boolean AreEquivalent(Integer p, Integer q) {
-		VecInt equiv = new VecInt();
-		equiv.push(-MkOr(MkAnd(p, q), MkAnd(-p, -q)));
-		return !unsafeIsSatisfiable(equiv);
+		if (p.equals(q)) {
+			return true;
+		} else if (p.equals(-q)) {
+			return false;
+		}
+		Pair<Integer, Integer> key = p < q ? new Pair<>(p, q) : new Pair<>(q, p);
+		Boolean cached = equivCache.get(key);
+		if (cached != null) {
+			cacheHits++;
+			return cached;
+		}
+		VecInt pNotQ = new VecInt();
+		pNotQ.push(p);
+		pNotQ.push(-q);
+		boolean equivalent = !unsafeIsSatisfiable(pNotQ);
+		if (equivalent) {
+			VecInt qNotP = new VecInt();
+			qNotP.push(-p);
+			qNotP.push(q);
+			equivalent = !unsafeIsSatisfiable(qNotP);
+		}
+		equivCache.put(key, equivalent);
+		return equivalent;
 	}
 
 	@Override
 	public boolean IsSatisfiable(Integer p) {
+		Boolean cached = satCache.get(p);
+		if (cached != null) {
+			cacheHits++;
+			return cached;
+		}
 		VecInt pclause = new VecInt();
 		pclause.push(p);
-		return unsafeIsSatisfiable(pclause);
+		boolean sat = unsafeIsSatisfiable(pclause);
+		satCache.put(p, sat);
+		return sat;
 	}
 
 	@Override
@@ -276,7 +333,12 @@ public class SATBooleanAlgebra extends BooleanAlgebra<Integer, boolean[]> {
 
 	@Override
 	public boolean[] generateWitness(Integer p) {
-		if (!IsSatisfiable(p)) {
+		// always ask the solver: a cached answer would leave a stale model
+		VecInt pclause = new VecInt();
+		pclause.push(p);
+		boolean sat = unsafeIsSatisfiable(pclause);
+		satCache.put(p, sat);
+		if (!sat) {
 			throw new IllegalArgumentException("Cannot generate witness (unsatisfiable)");
 		}
 		boolean[] model = new boolean[universe];
@@ -10,6 +10,7 @@
 package transducers.sft;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.junit.rules.Timeout;
@@ -30,6 +31,8 @@ import specifications.CyberchefSpecifications;
 import theory.BooleanAlgebraSubst;
 import theory.characters.*;
 import theory.intervals.UnaryCharIntervalSolver;
+import utilities.IntArrayDeque;
+import utilities.LongIntHashMap;
 import utilities.Pair;
 
 
@@ -60,6 +63,13 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 	protected Map<Integer, Collection<SFTEpsilon<P, F, S>>> epsTransitionsFrom;
 	protected Map<Integer, Collection<SFTEpsilon<P, F, S>>> epsTransitionsTo;
 
+	// access strings and distinguishing suffixes, computed on demand for the algebra they were asked for
+	private SFTStateAnalysis<P, F, S> stateAnalysis;
+	private BooleanAlgebraSubst<P, F, S> stateAnalysisAlgebra;
+
+	// the algebra of the static access string helper, shared so that its analysis is reused
+	private static final UnaryCharIntervalSolver accessAlgebra = new UnaryCharIntervalSolver();
+
 	public Integer stateCount() {
 		return states.size();
 	}
@@ -100,6 +110,19 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 	public static <P extends CharPred, F extends TermInterface, S> SFT<P, F, S> MkSFT(Collection<SFTMove<P, F, S>> transitions, Integer initialState,
 																					  Map<Integer, Set<List<S>>> finalStatesAndTails,
 																					  BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		SFT<P, F, S> aut = MkSFT(transitions, initialState, finalStatesAndTails, ba, false);
+		if (aut != null)
+			aut.isDeterministic = aut.checkDeterminism(ba);
+		return aut;
+	}
+
+	/**
+	 * Create a SFT whose determinism is known already, for instance because it was stored together with the SFT, so
+	 * that the guards of every state are not compared pairwise
+	 */
+	public static <P extends CharPred, F extends TermInterface, S> SFT<P, F, S> MkSFT(Collection<SFTMove<P, F, S>> transitions, Integer initialState,
+																					  Map<Integer, Set<List<S>>> finalStatesAndTails,
+																					  BooleanAlgebraSubst<P, F, S> ba, boolean isDeterministic) throws TimeoutException {
 		SFT<P, F, S> aut = new SFT<P, F, S>();
 
 		// Initialize state set
@@ -127,7 +150,7 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 			return null;
 		}
 
-		aut.isDeterministic = aut.checkDeterminism(ba);
+		aut.isDeterministic = isDeterministic;
 		return aut;
 	}
 
@@ -135,13 +158,24 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 		if (!isEpsilonFree) {
 			return false;
 		} else { // check whether transitions of one state have overlapped guards
+			// the intervals of one guard are disjoint, so two of the intervals of a state overlap iff two of its guards
+			// do; after sorting the intervals it is enough to compare neighbours
 			for (Integer state : getStates()) {
-				ArrayList<SFTInputMove<P, F, S>> trset = new ArrayList<SFTInputMove<P, F, S>>(getInputMovesFrom(state));
-				for (int i = 0; i < trset.size(); i++) {
-					for (int j = i + 1; j < trset.size(); j++) {
-						if (ba.IsSatisfiable(ba.MkAnd(trset.get(i).guard, trset.get(j).guard))) {
-							return false;
-						}
+				Collection<SFTInputMove<P, F, S>> trset = getInputMovesFrom(state);
+				if (trset.size() < 2)
+					continue;
+				int count = 0;
+				for (SFTInputMove<P, F, S> t : trset)
+					count += t.guard.intervalCount();
+				long[] intervals = new long[count];
+				int k = 0;
+				for (SFTInputMove<P, F, S> t : trset)
+					for (int i = 0; i < t.guard.intervalCount(); i++)
+						intervals[k++] = ((long) t.guard.intervalLeft(i) << 16) | t.guard.intervalRight(i);
+				Arrays.sort(intervals);
+				for (int i = 1; i < count; i++) {
+					if ((intervals[i] >>> 16) <= (intervals[i - 1] & 0xFFFF)) {
+						return false;
 					}
 				}
 			}
@@ -211,58 +245,255 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 	 */
 	public static <P extends CharPred, F extends TermInterface, S> List<S> outputOn(SFT<P, F, S> sftWithEps, List<S> input,
 												 BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		// codes for nondeterministic but single-valued symbolic finite transducers, so the first output is enough
+		Iterator<List<S>> outputs = outputsOn(sftWithEps, input, ba);
+		try {
+			if (outputs.hasNext())
+				return outputs.next();
+			else
+				return null;
+		} catch (IllegalStateException e) {
+			// the iterator wraps the timeouts of the boolean algebra
+			if (e.getCause() instanceof TimeoutException)
+				throw (TimeoutException) e.getCause();
+			throw e;
+		}
+	}
 
-		// codes for nondeterministic but single-valued symbolic finite transducers
-		List<List<S>> outputs = new ArrayList<List<S>>();
+	public Iterator<List<S>> outputsOn(List<S> input, BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		return outputsOn(this, input, ba);
+	}
 
+	/**
+	 * Lazily enumerates the outputs produced when reading input. The runs of the SFT are explored depth first and
+	 * the next output is only computed when it is asked for. Pairs (state, position) from which no run reaches a
+	 * final state are remembered, so failing branches are explored only once.
+	 * If the underlying boolean algebra times out during the enumeration, the TimeoutException is thrown as the cause
+	 * of an IllegalStateException.
+	 *
+	 * @param sftWithEps symbolic finite transducer
+	 * @param input input sequence
+	 * @param ba boolean algebra
+	 * @return iterator over all output sequences (an output is returned more than once if there are several runs
+	 * producing it)
+	 * @throws TimeoutException
+	 */
+	public static <P extends CharPred, F extends TermInterface, S> Iterator<List<S>> outputsOn(SFT<P, F, S> sftWithEps, List<S> input,
+												 BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
 		SFT<P, F, S> sft = sftWithEps.removeEpsilonMoves(ba);
 		// guarantee that there are no epsilon transitions for now
+		return new OutputIterator<P, F, S>(sft, input, ba);
+	}
 
-		backtrack(outputs, new ArrayList<S>(), sft, sft.getInitialState(), input, 0, ba);
+	public long countDistinctOutputs(List<S> input, BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		return countDistinctOutputs(this, input, ba);
+	}
 
-		// if you want the method to be adapt to non single-valued symbolic finite transducers, you could just return
-		// the whole outputs.
-		if (outputs.size() != 0)
-			return outputs.get(0);
-		else
-			return null;
+	/**
+	 * Counts the distinct outputs produced when reading input without building them one by one. The runs of the SFT
+	 * are explored depth first, as in {@link #outputsOn}, and every output symbol moves down a trie of the outputs
+	 * found so far, so outputs that share a prefix share its nodes. An output is counted the first time its last node
+	 * is reached at the end of the input, so the count is exact.
+	 *
+	 * @param sftWithEps symbolic finite transducer
+	 * @param input input sequence
+	 * @param ba boolean algebra
+	 * @return number of distinct output sequences
+	 * @throws TimeoutException
+	 */
+	public static <P extends CharPred, F extends TermInterface, S> long countDistinctOutputs(SFT<P, F, S> sftWithEps, List<S> input,
+												 BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		SFT<P, F, S> sft = sftWithEps.removeEpsilonMoves(ba);
+		Set<Long> dead = new HashSet<Long>();
+		long count = 0;
+		LinkedList<CountFrame<P, F, S>> stack = new LinkedList<CountFrame<P, F, S>>();
+		stack.push(new CountFrame<P, F, S>(sft, sft.getInitialState(), 0, input.size(), new OutputTrie<S>()));
+		while (!stack.isEmpty()) {
+			CountFrame<P, F, S> top = stack.peek();
+			if (top.position == input.size() && sft.isFinalState(top.state)) {
+				top.productive = true;
+				if (sft.getFinalStatesAndTails().get(top.state).size() == 0) {
+					count += top.output.mark();
+				} else {
+					for (List<S> tail: sft.getFinalStatesAndTails().get(top.state)) {
+						OutputTrie<S> node = top.output;
+						for (S s: tail)
+							node = node.child(s);
+						count += node.mark();
+					}
+				}
+			}
+			if (top.moves.hasNext()) {
+				SFTInputMove<P, F, S> transition = top.moves.next();
+				S c = input.get(top.position);
+				if (dead.contains(deadKey(transition.to, top.position + 1)) || !ba.HasModel(transition.guard, c))
+					continue;
+				OutputTrie<S> node = top.output;
+				for (F outputFunc: transition.outputFunctions)
+					node = node.child(ba.MkSubstFuncConst(outputFunc, c));
+				stack.push(new CountFrame<P, F, S>(sft, transition.to, top.position + 1, input.size(), node));
+			} else {
+				stack.pop();
+				if (!top.productive)
+					dead.add(deadKey(top.state, top.position));
+				else if (!stack.isEmpty())
+					stack.peek().productive = true;
+			}
+		}
+		return count;
+	}
+
+	// a state of the depth first search of countDistinctOutputs: the SFT is in state at position of the input and
+	// has produced the output that leads to the trie node output
+	private static class CountFrame<P extends CharPred, F extends TermInterface, S> {
+		final Integer state;
+		final int position;
+		final OutputTrie<S> output;
+		final Iterator<SFTInputMove<P, F, S>> moves;
+		boolean productive;
+
+		CountFrame(SFT<P, F, S> sft, Integer state, int position, int inputLength, OutputTrie<S> output) {
+			this.state = state;
+			this.position = position;
+			this.output = output;
+			if (position < inputLength)
+				this.moves = sft.getInputMovesFrom(state).iterator();
+			else
+				this.moves = Collections.<SFTInputMove<P, F, S>>emptyList().iterator();
+		}
+	}
+
+	// a node of the trie of the outputs counted by countDistinctOutputs
+	private static class OutputTrie<S> {
+		private Map<S, OutputTrie<S>> children;
+		private boolean isOutput;
+
+		OutputTrie<S> child(S s) {
+			if (children == null)
+				children = new HashMap<S, OutputTrie<S>>();
+			OutputTrie<S> child = children.get(s);
+			if (child == null) {
+				child = new OutputTrie<S>();
+				children.put(s, child);
+			}
+			return child;
+		}
+
+		// marks the output leading to this node as found, 1 if it was not found before
+		int mark() {
+			if (isOutput)
+				return 0;
+			isOutput = true;
+			return 1;
+		}
 	}
 
-	// use backtrack method to get all possible outputs
-	private static <P extends CharPred, F extends TermInterface, S> void backtrack(List<List<S>> outputs, List<S> tempList, SFT<P, F, S> sft,
-											Integer currentState, List<S> input, int position,
-											BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+	private static long deadKey(Integer state, int position) {
+		return ((long) state << 32) | (position & 0xffffffffL);
+	}
 
-		if (position > input.size())
-			return;
-		else if (position == input.size()) {
-			if (sft.isFinalState(currentState)) {
-				if (sft.getFinalStatesAndTails().get(currentState).size() == 0) {
-					outputs.add(new ArrayList<S>(tempList));
+	/**
+	 * Depth first enumeration of the outputs of an epsilon-free SFT on a fixed input
+	 */
+	private static class OutputIterator<P extends CharPred, F extends TermInterface, S> implements Iterator<List<S>> {
+
+		// a state of the depth first search: the SFT is in state at position of the input and has produced
+		// the first outputLength elements of current
+		private class Frame {
+			final Integer state;
+			final int position;
+			final int outputLength;
+			final Iterator<SFTInputMove<P, F, S>> moves;
+			final Iterator<List<S>> tails;
+			boolean productive;
+
+			Frame(Integer state, int position) {
+				this.state = state;
+				this.position = position;
+				this.outputLength = current.size();
+				if (position < input.size()) {
+					this.moves = sft.getInputMovesFrom(state).iterator();
+					this.tails = Collections.<List<S>>emptyList().iterator();
 				} else {
-					for (List<S> tail: sft.getFinalStatesAndTails().get(currentState)) {
-						List<S> finalResult = new ArrayList<S>(tempList);
-						finalResult.addAll(tail);
-						outputs.add(new ArrayList<S>(finalResult));
-					}
+					this.moves = Collections.<SFTInputMove<P, F, S>>emptyList().iterator();
+					if (!sft.isFinalState(state))
+						this.tails = Collections.<List<S>>emptyList().iterator();
+					else if (sft.getFinalStatesAndTails().get(state).size() == 0)
+						this.tails = Collections.singletonList(Collections.<S>emptyList()).iterator();
+					else
+						this.tails = sft.getFinalStatesAndTails().get(state).iterator();
+				}
+			}
+		}
+
+		private final SFT<P, F, S> sft;
+		private final List<S> input;
+		private final BooleanAlgebraSubst<P, F, S> ba;
+		private final List<S> current;
+		private final LinkedList<Frame> stack;
+		private final Set<Long> dead;
+		private List<S> next;
+
+		OutputIterator(SFT<P, F, S> sft, List<S> input, BooleanAlgebraSubst<P, F, S> ba) {
+			this.sft = sft;
+			this.input = input;
+			this.ba = ba;
+			this.current = new ArrayList<S>();
+			this.stack = new LinkedList<Frame>();
+			this.dead = new HashSet<Long>();
+			stack.push(new Frame(sft.getInitialState(), 0));
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				try {
+					next = advance();
+				} catch (TimeoutException toe) {
+					throw new IllegalStateException(toe);
 				}
 			}
-			return;
-		} else {
-			Collection<SFTInputMove<P, F, S>> transitions = sft.getInputMovesFrom(currentState);
-			boolean canMove = false;
-			for (SFTInputMove<P, F, S> transition: transitions) {
-				if (ba.HasModel(transition.guard, input.get(position))) {
+			return next != null;
+		}
+
+		@Override
+		public List<S> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			List<S> result = next;
+			next = null;
+			return result;
+		}
+
+		// continues the depth first search until the next output is found, null if there are no more outputs
+		private List<S> advance() throws TimeoutException {
+			while (!stack.isEmpty()) {
+				Frame top = stack.peek();
+				if (top.tails.hasNext()) {
+					top.productive = true;
+					List<S> output = new ArrayList<S>(current);
+					output.addAll(top.tails.next());
+					return output;
+				}
+				if (top.moves.hasNext()) {
+					SFTInputMove<P, F, S> transition = top.moves.next();
+					S c = input.get(top.position);
+					if (dead.contains(deadKey(transition.to, top.position + 1)) || !ba.HasModel(transition.guard, c))
+						continue;
+					while (current.size() > top.outputLength)
+						current.remove(current.size() - 1);
 					for (F outputFunc: transition.outputFunctions)
-						tempList.add(ba.MkSubstFuncConst(outputFunc, input.get(position)));
-					backtrack(outputs, tempList, sft, transition.to, input, position + 1, ba);
-					for (int i = 0; i < transition.outputFunctions.size(); i++)
-						tempList.remove(tempList.size() - 1);
-					canMove = true;
+						current.add(ba.MkSubstFuncConst(outputFunc, c));
+					stack.push(new Frame(transition.to, top.position + 1));
+				} else {
+					stack.pop();
+					if (!top.productive)
+						dead.add(deadKey(top.state, top.position));
+					else if (!stack.isEmpty())
+						stack.peek().productive = true;
 				}
 			}
-			if (!canMove)
-				return;
+			return null;
 		}
 	}
 
@@ -294,31 +525,30 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 		Map<Integer, Set<List<S>>> sft2FinalStatesAndTails = new HashMap<Integer, Set<List<S>>>(sft2.getFinalStatesAndTails());
 		Map<Integer, Set<List<S>>> finalStatesAndTails = new HashMap<Integer, Set<List<S>>>();
 
-		Map<Pair<Integer, Integer>, Integer> reached = new HashMap<Pair<Integer, Integer>, Integer>();
-		LinkedList<Pair<Integer, Integer>> toVisit = new LinkedList<Pair<Integer, Integer>>();
+		// product states are pairs of states packed in a long, toVisit holds both states of a pair
+		LongIntHashMap reached = new LongIntHashMap();
+		IntArrayDeque toVisit = new IntArrayDeque();
 
 		// Add initial state
-		Pair<Integer, Integer> p = new Pair<Integer, Integer>(sft1.initialState, sft2.initialState);
-		initialState = 0;
-		reached.put(p, initialState);
-		toVisit.push(p);
+		initialState = getStateId(sft1.initialState, sft2.initialState, reached, toVisit);
 
-		// depth first search
+		// breadth first search
 		while (!toVisit.isEmpty()) {
-			Pair<Integer, Integer> currState = toVisit.pop();
-			int currStateId = reached.get(currState);
+			int currFirst = toVisit.removeFirst();
+			int currSecond = toVisit.removeFirst();
+			int currStateId = reached.getOrDefault(LongIntHashMap.pack(currFirst, currSecond), -1);
 
-			if (sft1.isFinalState(currState.first)) {
-				if (sft1FinalStatesAndTails.get(currState.first).size() == 0) {
+			if (sft1.isFinalState(currFirst)) {
+				if (sft1FinalStatesAndTails.get(currFirst).size() == 0) {
 					// Since I have removed all empty tails during making the SFT in method MkSFT, we do not have to
 					// worry about it now. So a final state has no tails is equivalent to the size of
-					// sft1FinalStatesAndTails.get(currState.first) is 0.
-					if (sft2.isFinalState(currState.second))
+					// sft1FinalStatesAndTails.get(currFirst) is 0.
+					if (sft2.isFinalState(currSecond))
 						// the composed sft accepts a string iff sft1 and sft2 both accept the string
-						finalStatesAndTails.put(currStateId, sft2FinalStatesAndTails.get(currState.second));
-				} else { // currState.first is a final state and it has non-empty tails
-					for (List<S> tail: sft1FinalStatesAndTails.get(currState.first)) {
-						List<List<SFTMove<P, F, S>>> chains = sft2.getPossibleTransitionChains(currState.second, tail.size());
+						finalStatesAndTails.put(currStateId, sft2FinalStatesAndTails.get(currSecond));
+				} else { // currFirst is a final state and it has non-empty tails
+					for (List<S> tail: sft1FinalStatesAndTails.get(currFirst)) {
+						List<List<SFTMove<P, F, S>>> chains = sft2.getPossibleTransitionChains(currSecond, tail.size());
 						for (List<SFTMove<P, F, S>> chain : chains) {
 							// according to the algorithm of method getPossibleTransitionChains, there is at least one
 							// SFTMove in a chain.
@@ -357,9 +587,9 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 				}
 			}
 
-			for (SFTInputMove<P, F, S> t1 : sft1.getInputMovesFrom(currState.first)) {
+			for (SFTInputMove<P, F, S> t1 : sft1.getInputMovesFrom(currFirst)) {
 				if (t1.outputFunctions.size() != 0) {
-					List<List<SFTMove<P, F, S>>> chains = sft2.getPossibleTransitionChains(currState.second, t1.outputFunctions.size());
+					List<List<SFTMove<P, F, S>>> chains = sft2.getPossibleTransitionChains(currSecond, t1.outputFunctions.size());
 					for (List<SFTMove<P, F, S>> chain : chains) {
 						// according to the algorithm of method getPossibleTransitionChains, there is at least one SFTMove
 						// in a chain.
@@ -379,8 +609,7 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 								outputFunctions.add(ba.MkSubstFuncFunc(t2OutputFunction, t1.outputFunctions.get(i)));
 						}
 						if (ba.IsSatisfiable(intersGuard)) {
-							Pair<Integer, Integer> nextState = new Pair<Integer, Integer>(t1.to, chain.get(chain.size() - 1).to);
-							int nextStateId = getStateId(nextState, reached, toVisit);
+							int nextStateId = getStateId(t1.to, chain.get(chain.size() - 1).to, reached, toVisit);
 
 							SFTInputMove<P, F, S> newTrans = new SFTInputMove<P, F, S>(currStateId, nextStateId,
 									intersGuard, outputFunctions);
@@ -390,8 +619,7 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 					}
 				} else { // t1.outputFunctions.size() == 0
 					if (ba.IsSatisfiable(t1.guard)) {
-						Pair<Integer, Integer> nextState = new Pair<Integer, Integer>(t1.to, currState.second);
-						int nextStateId = getStateId(nextState, reached, toVisit);
+						int nextStateId = getStateId(t1.to, currSecond, reached, toVisit);
 
 						SFTInputMove<P, F, S> newTrans = new SFTInputMove<>(currStateId, nextStateId,
 								t1.guard, new LinkedList<F>());
@@ -470,6 +698,58 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 		return MkSFT(transitions, sft.initialState, finalStatesAndTails, ba);
 	}
 
+	/**
+	 * return an equivalent copy that only contains states that are reachable from the initial state and that can
+	 * reach a final state
+	 */
+	protected static <P extends CharPred, F extends TermInterface, S> SFT<P, F, S> removeDeadOrUnreachableStates(SFT<P, F, S> sftWithEps,
+																			BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		SFT<P, F, S> sft = sftWithEps.removeEpsilonMoves(ba);
+
+		// forward search from the initial state
+		Set<Integer> reachableFromInit = new HashSet<Integer>();
+		LinkedList<Integer> toVisit = new LinkedList<Integer>();
+		reachableFromInit.add(sft.initialState);
+		toVisit.add(sft.initialState);
+		while (!toVisit.isEmpty()) {
+			Integer state = toVisit.pop();
+			for (SFTInputMove<P, F, S> t : sft.getInputMovesFrom(state))
+				if (reachableFromInit.add(t.to))
+					toVisit.add(t.to);
+		}
+
+		// backward search from the final states
+		Set<Integer> reachingFinal = new HashSet<Integer>(sft.getFinalStates());
+		toVisit.addAll(sft.getFinalStates());
+		while (!toVisit.isEmpty()) {
+			Integer state = toVisit.pop();
+			for (SFTInputMove<P, F, S> t : sft.getInputMovesTo(state))
+				if (reachingFinal.add(t.from))
+					toVisit.add(t.from);
+		}
+
+		Set<Integer> aliveStates = new HashSet<Integer>();
+		for (Integer state : reachableFromInit)
+			if (reachingFinal.contains(state))
+				aliveStates.add(state);
+
+		if (!aliveStates.contains(sft.initialState))
+			return getEmptySFT(ba);
+
+		Collection<SFTMove<P, F, S>> transitions = new ArrayList<SFTMove<P, F, S>>();
+		for (Integer state : aliveStates)
+			for (SFTInputMove<P, F, S> t : sft.getInputMovesFrom(state))
+				if (aliveStates.contains(t.to))
+					transitions.add(t);
+
+		Map<Integer, Set<List<S>>> finalStatesAndTails = new HashMap<Integer, Set<List<S>>>();
+		for (Integer state : sft.getFinalStates())
+			if (aliveStates.contains(state))
+				finalStatesAndTails.put(state, sft.getFinalStatesAndTails().get(state));
+
+		return MkSFT(transitions, sft.initialState, finalStatesAndTails, ba);
+	}
+
 	private Map<Integer, List<SFTEpsilon<P, F, S>>> getSFTEpsClosureAndPath(Integer currentState) {
 		return getSFTEpsClosureAndPath(this, currentState);
 	}
@@ -564,104 +844,53 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 		return chains;
 	}
 
-	// With help of: https://github.com/dineshappavoo/bfs-shortestpath/blob/master/src/com/bfs/shortestpath/graph/BFSShortestPath.java
-	public static List<Character> getAccessString(SFT<CharPred, CharFunc, Character> automaton, int endState) throws TimeoutException {
-		// End state == initial state thus the empty list suffices
-//		System.out.println(automaton.toString());
-		if (automaton.isInitialState(endState)) {
-			return new ArrayList<>();
-		}
-		// Initial state
-		int beginState = automaton.getInitialState();
-//		System.out.println("Start in begin state "+beginState);
-
-		// Maintain map of which states have been visited
-		Map<Integer, Boolean> visited = new HashMap<>();
-		for (int i=0; i < automaton.stateCount(); i++) {
-			visited.put(i, false);
-		}
-		visited.put(beginState, true);
-//		System.out.println("Visited: "+visited.toString());
-		Queue<Pair<Integer, List<Integer>>> queue = new LinkedList<>();
-		queue.add(new Pair<>(beginState, new ArrayList<>()));
-//		System.out.println("Queue: "+queue);
-		while (!queue.isEmpty()) {
-			Pair<Integer, List<Integer>> pair = queue.poll();
-//			System.out.println("Considering the pair "+pair.toString());
-			int current = pair.first;
-			List<Integer> path = pair.second;
-			path.add(current);
-			visited.put(current, true);
-
-			Collection<SFTInputMove<CharPred, CharFunc, Character>> trans = automaton.getInputMovesFrom(current);
-			List<Integer> neighbours = new ArrayList<>();
-			for (SFTInputMove<CharPred, CharFunc, Character> t : trans) {
-				neighbours.add(t.to);
-			}
-
-//			System.out.println("Neighbours: "+neighbours);
-			for (int neighbour : neighbours) {
-				if (neighbour == endState) {
-//					System.out.println("Neighbour is end state "+neighbour);
-					path.add(current);
-					path.add(neighbour);
-					return toInput(automaton, path);
-				}
-				if (visited.get(neighbour)) {
-//					System.out.println("Have already visisted "+neighbour);
-					continue;
-				}
-				path.add(current);
-				queue.add(new Pair<>(neighbour, path));
-				visited.put(neighbour, true);
-//				System.out.println("Current path: "+path);
-//				System.out.println("Current queue: "+queue);
-//				System.out.println("Current visited set: "+visited);
-			}
+	/**
+	 * Returns the access strings and distinguishing suffixes of the states of this SFT over <code>ba</code>. The
+	 * analysis is computed on the first call and reused as long as it is asked for with the same algebra.
+	 *
+	 * @throws TimeoutException
+	 */
+	public synchronized SFTStateAnalysis<P, F, S> getStateAnalysis(BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		if (stateAnalysis == null || stateAnalysisAlgebra != ba) {
+			stateAnalysis = new SFTStateAnalysis<P, F, S>(this, ba);
+			stateAnalysisAlgebra = ba;
 		}
+		return stateAnalysis;
+	}
 
-//		System.out.println("Was searching for access string of: "+endState);
-//		System.out.println("In the automaton: "+automaton);
-		return null;
+	/**
+	 * Returns a shortest input that leads from the initial state to <code>endState</code>, where every character is
+	 * chosen randomly from the guard of the corresponding transition. Null if <code>endState</code> is not reachable.
+	 *
+	 * @throws TimeoutException
+	 */
+	public static List<Character> getAccessString(SFT<CharPred, CharFunc, Character> automaton, int endState) throws TimeoutException {
+		List<SFTInputMove<CharPred, CharFunc, Character>> path = automaton.getStateAnalysis(accessAlgebra).getAccessPath(endState);
+		if (path == null)
+			return null;
+		return toInput(path);
 	}
 
-	// Construct a path from first state (represented by first integer in list) to last state (last integer in list)
+	// Construct an input that follows the transitions in path
 	// NOTE: ASSUMES Characters satisfy predicates!!
-	private static List<Character> toInput(SFT<CharPred, CharFunc, Character> automaton, List<Integer> path) throws TimeoutException {
-		// First state will be the first element in the list
-//		System.out.println("Constructing path from first state to last state");
+	private static List<Character> toInput(List<SFTInputMove<CharPred, CharFunc, Character>> path) throws TimeoutException {
 		List<Character> input = new ArrayList<>();
-		int i=0;
-		while (i < path.size()-1) {
-			int state = path.get(i);
-			Collection<SFTInputMove<CharPred, CharFunc, Character>> transitions = automaton.getInputMovesFrom(state);
-			for (SFTInputMove<CharPred, CharFunc, Character> t : transitions) {
-				if (t.to == path.get(i+1)) {
-					Character c = null;
-					boolean initialChar = true;
-					// Find random character that satisfies the transition
-					// NOTE: It chooses a random character from a RANGE of the actual complete algebra!
-
-					while (initialChar || !t.guard.isSatisfiedBy(c)) {
-                        int j = ThreadLocalRandom.current().nextInt(0, t.guard.intervals.size());
-//                        System.out.println("There are "+t.guard.intervals.size()+"intervals");
-//                        System.out.println("Chosen interval "+j);
-//                        System.out.println("left ="+t.guard.intervals.get(j).left+"=");
-//                        System.out.println("right ="+t.guard.intervals.get(j).right+"=");
-                        // TODO: CHANGE THIS LATER TO OTHER CLASS
-						c = TestMembershipOracleStream.getRandomCharacter(t.guard.intervals.get(j).right, t.guard.intervals.get(j).left);
-//						System.out.println("Found character "+c);
-						if (c == 0) {
-							System.out.println("toInput: could not find character to satisfy the guard "+t.guard);
-							continue;
-						}
-						initialChar = false;
-					}
-//					System.out.println("Found char that satisfies the guard");
-					input.add(c);
+		for (SFTInputMove<CharPred, CharFunc, Character> t : path) {
+			Character c = null;
+			boolean initialChar = true;
+			// Find random character that satisfies the transition
+			// NOTE: It chooses a random character from a RANGE of the actual complete algebra!
+			while (initialChar || !t.guard.isSatisfiedBy(c)) {
+				int j = ThreadLocalRandom.current().nextInt(0, t.guard.getIntervals().size());
+				// TODO: CHANGE THIS LATER TO OTHER CLASS
+				c = TestMembershipOracleStream.getRandomCharacter(t.guard.getIntervals().get(j).right, t.guard.getIntervals().get(j).left);
+				if (c == 0) {
+					System.out.println("toInput: could not find character to satisfy the guard "+t.guard);
+					continue;
 				}
+				initialChar = false;
 			}
-			i++;
+			input.add(c);
 		}
 		return input;
 	}
@@ -838,10 +1067,28 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 		return true;
 	}
 
+	/**
+	 * Same as decide1equality, but explores the product in parallel on the common ForkJoinPool
+	 *
+	 * @throws TimeoutException
+	 */
+	public boolean decide1equalityParallel(SFT<P, F, S> otherSftWithEps, BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		return SFTParallelEquivalence.decide1equality(this, otherSftWithEps, ba, ForkJoinPool.commonPool());
+	}
+
 	public List<S> witness1disequality(SFT<P, F, S> otherSft, BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
 		return witness1disequality(this, otherSft, ba);
 	}
 
+	/**
+	 * Same as witness1disequality, but explores the product in parallel on the common ForkJoinPool
+	 *
+	 * @throws TimeoutException
+	 */
+	public List<S> witness1disequalityParallel(SFT<P, F, S> otherSft, BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		return SFTParallelEquivalence.witness1disequality(this, otherSft, ba, ForkJoinPool.commonPool());
+	}
+
 	/**
 	 * generate a witness if <code>sft1withEps</code> and <code>sft2withEps</code> are not
 	 * 1-equality
@@ -1516,11 +1763,8 @@ public class SFT<P extends CharPred, F extends TermInterface, S> extends Automat
 //		}
 
 
-		SFT spec = getSpec();
-		List<Integer> path = new ArrayList<>();
-		path.add(0);
-		path.add(2);
-		System.out.println(toInput(spec, path));
+		SFT<CharPred, CharFunc, Character> spec = getSpec();
+		System.out.println(getAccessString(spec, 2));
 
 	}
 
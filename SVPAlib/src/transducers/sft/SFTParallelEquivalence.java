@@ -0,0 +1,245 @@
+/**
+ * SVPAlib
+ * transducers.sft
+ * @author Sophie Lathouwers
+ */
+
+package transducers.sft;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebraSubst;
+import theory.characters.CharPred;
+import theory.characters.TermInterface;
+import utilities.Pair;
+
+/**
+ * Parallel versions of {@link SFT#decide1equality} and {@link SFT#witness1disequality}.
+ *
+ * The product of the two SFTs is explored by a ForkJoinPool: every newly reached product state becomes a task that
+ * checks the transitions leaving it (Figure 3 lines 5-10 of the paper) and forks the states it reaches first.
+ * The tasks are CountedCompleters, as in {@link automata.sfa.SFAParallelConstructions}, so no task waits for the tasks
+ * it forks and the depth of the product does not grow the stack.
+ * The promises of the reached states are kept in a concurrent map; a state that is reached a second time with a
+ * different promise is a disagreement. The first disagreement cancels the whole exploration.
+ *
+ * @param <P>
+ *			The type of predicates forming the Boolean algebra
+ * @param <F>
+ *			The type of functions S->S in the Boolean Algebra
+ * @param <S>
+ *			The domain of the Boolean algebra
+ */
+public class SFTParallelEquivalence<P extends CharPred, F extends TermInterface, S> {
+
+	// a reached product state: its promise and the input that was used to reach it
+	private static class Node<S> {
+		final Pair<List<S>, List<S>> promise;
+		final List<S> path;
+
+		Node(Pair<List<S>, List<S>> promise, List<S> path) {
+			this.promise = promise;
+			this.path = path;
+		}
+	}
+
+	private final SFTProduct<P, F, S> product;
+	private final BooleanAlgebraSubst<P, F, S> ba;
+	private final boolean trackPaths;
+	private final Map<Integer, List<SFTProductInputMove<P, F, S>>> movesFrom;
+
+	private final ConcurrentHashMap<Integer, Node<S>> reached;
+	private final AtomicBoolean cancelled;
+	private final ConcurrentLinkedQueue<List<S>> witnesses;
+	private volatile TimeoutException timeout;
+
+	private SFTParallelEquivalence(SFT<P, F, S> sft1withEps, SFT<P, F, S> sft2withEps, BooleanAlgebraSubst<P, F, S> ba,
+								   boolean trackPaths) throws TimeoutException {
+		this.product = SFTProduct.MkSFTProduct(sft1withEps, sft2withEps, ba);
+		this.ba = ba;
+		this.trackPaths = trackPaths;
+		// the accessors of SFTProduct create missing entries, so all moves are looked up before the exploration starts
+		this.movesFrom = new HashMap<Integer, List<SFTProductInputMove<P, F, S>>>();
+		for (Integer state : product.getStates())
+			movesFrom.put(state, new ArrayList<SFTProductInputMove<P, F, S>>(product.getInputMovesFrom(state)));
+		this.reached = new ConcurrentHashMap<Integer, Node<S>>();
+		this.cancelled = new AtomicBoolean(false);
+		this.witnesses = new ConcurrentLinkedQueue<List<S>>();
+	}
+
+	/**
+	 * judge in parallel whether <code>sft1withEps</code> and <code>sft2withEps</code> are 1-equality
+	 * (partial equivalent), see {@link SFT#decide1equality}
+	 *
+	 * @param pool pool that runs the exploration
+	 * @throws TimeoutException
+	 */
+	public static <P extends CharPred, F extends TermInterface, S> boolean decide1equality(SFT<P, F, S> sft1withEps,
+													SFT<P, F, S> sft2withEps, BooleanAlgebraSubst<P, F, S> ba,
+													ForkJoinPool pool) throws TimeoutException {
+		SFTParallelEquivalence<P, F, S> exploration = new SFTParallelEquivalence<P, F, S>(sft1withEps, sft2withEps, ba, false);
+		exploration.run(pool);
+		return !exploration.cancelled.get();
+	}
+
+	/**
+	 * generate in parallel a witness if <code>sft1withEps</code> and <code>sft2withEps</code> are not 1-equality,
+	 * see {@link SFT#witness1disequality}. If several disagreements are found before the exploration is cancelled,
+	 * the shortest witness is returned.
+	 *
+	 * @param pool pool that runs the exploration
+	 * @return witness, null if the SFTs are 1-equality
+	 * @throws TimeoutException
+	 */
+	public static <P extends CharPred, F extends TermInterface, S> List<S> witness1disequality(SFT<P, F, S> sft1withEps,
+													SFT<P, F, S> sft2withEps, BooleanAlgebraSubst<P, F, S> ba,
+													ForkJoinPool pool) throws TimeoutException {
+		SFTParallelEquivalence<P, F, S> exploration = new SFTParallelEquivalence<P, F, S>(sft1withEps, sft2withEps, ba, true);
+		exploration.run(pool);
+		List<S> shortest = null;
+		for (List<S> witness : exploration.witnesses)
+			if (shortest == null || witness.size() < shortest.size())
+				shortest = witness;
+		return shortest;
+	}
+
+	private void run(ForkJoinPool pool) throws TimeoutException {
+		Integer initialState = product.getInitialState();
+		reached.put(initialState, new Node<S>(new Pair<List<S>, List<S>>(new ArrayList<S>(), new ArrayList<S>()),
+				new ArrayList<S>()));
+		pool.invoke(new ExploreTask(null, initialState));
+		if (timeout != null)
+			throw timeout;
+	}
+
+	// stops the exploration, witness is null when no witness is needed
+	private void disagree(List<S> witness) {
+		cancelled.set(true);
+		if (witness != null)
+			witnesses.add(witness);
+	}
+
+	private class ExploreTask extends CountedCompleter<Void> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Integer state;
+
+		ExploreTask(CountedCompleter<?> parent, Integer state) {
+			super(parent);
+			this.state = state;
+		}
+
+		@Override
+		public void compute() {
+			try {
+				Node<S> node = reached.get(state);
+				for (SFTProductInputMove<P, F, S> transition : movesFrom.get(state)) {
+					if (cancelled.get())
+						break;
+					explore(node, transition);
+				}
+			} catch (TimeoutException toe) {
+				timeout = toe;
+				cancelled.set(true);
+			}
+			tryComplete();
+		}
+
+		// checks one transition leaving state and forks a task for its target if it was not reached before
+		private void explore(Node<S> node, SFTProductInputMove<P, F, S> transition) throws TimeoutException {
+			List<S> previousPath = null;
+			if (trackPaths) {
+				previousPath = new ArrayList<S>(node.path);
+				previousPath.add(transition.getWitness(ba));
+			}
+
+			List<F> u = new ArrayList<F>();
+			List<F> v = new ArrayList<F>();
+			for (S a : node.promise.first)
+				u.add(ba.MkFuncConst(a));
+			for (S b : node.promise.second)
+				v.add(ba.MkFuncConst(b));
+			u.addAll(transition.outputFunctions1);
+			v.addAll(transition.outputFunctions2);
+
+			if (product.isFinalState(state) && !agreeAtFinalState(u, v, transition.guard)) {
+				disagree(previousPath);
+				return;
+			}
+
+			// the longer of u and v has to start with the shorter one, the rest becomes the promise of the target
+			boolean firstIsLonger = u.size() >= v.size();
+			List<F> longer = firstIsLonger ? u : v;
+			List<F> shorter = firstIsLonger ? v : u;
+			for (int i = 0; i < shorter.size(); i++)
+				if (!ba.CheckGuardedEquality(transition.guard, longer.get(i), shorter.get(i))) {
+					disagree(witnessThrough(previousPath, transition));
+					return;
+				}
+			S witness = transition.getWitness(ba);
+			List<S> c = new ArrayList<S>();
+			for (int i = shorter.size(); i < longer.size(); i++) {
+				F w = longer.get(i);
+				c.add(ba.MkSubstFuncConst(w, witness));
+				F cF = ba.MkSubstFuncFunc(w, ba.MkFuncConst(witness));
+				if (!ba.AreEquivalent(ba.MkSubstFuncPred(w, transition.guard), ba.MkSubstFuncPred(cF, transition.guard))) {
+					disagree(witnessThrough(previousPath, transition));
+					return;
+				}
+			}
+			Pair<List<S>, List<S>> promise = firstIsLonger
+					? new Pair<List<S>, List<S>>(c, new ArrayList<S>())
+					: new Pair<List<S>, List<S>>(new ArrayList<S>(), c);
+
+			Node<S> previous = reached.putIfAbsent(transition.to, new Node<S>(promise, previousPath));
+			if (previous == null) {
+				addToPendingCount(1);
+				new ExploreTask(this, transition.to).fork();
+			}
+			else if (!previous.promise.equals(promise))
+				disagree(witnessThrough(previousPath, transition));
+		}
+
+		// the modification of Figure 3 line 6 for SFTs with tails, see SFT.decide1equality
+		private boolean agreeAtFinalState(List<F> u, List<F> v, P guard) throws TimeoutException {
+			Set<List<S>> tails1 = checkNotNull(product.getFinalStatesAndTails().get(state).first);
+			Set<List<S>> tails2 = checkNotNull(product.getFinalStatesAndTails().get(state).second);
+			if (tails1.size() > 1 || tails2.size() > 1)
+				return false;
+			List<F> finalU = new ArrayList<F>(u);
+			List<F> finalV = new ArrayList<F>(v);
+			for (List<S> tail : tails1)
+				for (S element : tail)
+					finalU.add(ba.MkFuncConst(element));
+			for (List<S> tail : tails2)
+				for (S element : tail)
+					finalV.add(ba.MkFuncConst(element));
+			if (finalU.size() != finalV.size())
+				return false;
+			for (int i = 0; i < finalU.size(); i++)
+				if (!ba.CheckGuardedEquality(guard, finalU.get(i), finalV.get(i)))
+					return false;
+			return true;
+		}
+
+		// extends the path through transition to a final state of the product
+		private List<S> witnessThrough(List<S> previousPath, SFTProductInputMove<P, F, S> transition) {
+			if (previousPath == null)
+				return null;
+			List<S> suffix = product.getWitness(transition.to, ba);
+			if (suffix != null)
+				previousPath.addAll(suffix);
+			return previousPath;
+		}
+	}
+}
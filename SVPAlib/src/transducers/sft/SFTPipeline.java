@@ -0,0 +1,227 @@
+/**
+ * SVPAlib
+ * transducers.sft
+ * @author Sophie Lathouwers
+ */
+
+package transducers.sft;
+
+import java.util.*;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebraSubst;
+import theory.characters.CharPred;
+import theory.characters.TermInterface;
+
+/**
+ * A chain of symbolic finite transducers that are applied one after the other, e.g. a sanitizer that first lowercases
+ * its input, then HTML-encodes it and finally URL-encodes it.
+ *
+ * A pipeline can be built in two ways:
+ * - fused (see {@link #MkFused}): every stage keeps its own state register and every input character is pushed through
+ * all stages at once, so no intermediate string is ever built;
+ * - composed (see {@link #MkComposed}): the stages are composed into a single SFT up front, removing dead and
+ * unreachable states after every composition step.
+ * Both variants run on the same compiled representation of the stages, so a fused pipeline of n stages behaves
+ * like n single SFTs that are stepped in lock-step.
+ *
+ * The compiled stages follow the first transition whose guard is satisfied, hence every stage has to be
+ * deterministic.
+ *
+ * @param <P>
+ *			The type of predicates forming the Boolean algebra
+ * @param <F>
+ *			The type of functions S->S in the Boolean Algebra
+ * @param <S>
+ *			The domain of the Boolean algebra
+ */
+public class SFTPipeline<P extends CharPred, F extends TermInterface, S> {
+
+	private final List<SFT<P, F, S>> stages;
+	private final CompiledStage<P, F, S>[] compiled;
+	private final BooleanAlgebraSubst<P, F, S> ba;
+
+	@SuppressWarnings("unchecked")
+	private SFTPipeline(List<SFT<P, F, S>> stages, BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		this.stages = Collections.unmodifiableList(new ArrayList<SFT<P, F, S>>(stages));
+		this.ba = ba;
+		this.compiled = new CompiledStage[stages.size()];
+		for (int i = 0; i < stages.size(); i++)
+			this.compiled[i] = new CompiledStage<P, F, S>(stages.get(i), ba);
+	}
+
+	/**
+	 * Creates a pipeline that runs all <code>stages</code> in a single pass over the input
+	 *
+	 * @param stages the transducers in the order in which they are applied, every transducer should be deterministic
+	 * @param ba boolean algebra of the transducers
+	 * @return fused pipeline
+	 * @throws TimeoutException
+	 */
+	public static <P extends CharPred, F extends TermInterface, S> SFTPipeline<P, F, S> MkFused(List<SFT<P, F, S>> stages,
+																							 BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		if (stages.isEmpty())
+			throw new IllegalArgumentException("a pipeline needs at least one stage");
+		List<SFT<P, F, S>> epsilonFree = new ArrayList<SFT<P, F, S>>();
+		for (SFT<P, F, S> stage : stages)
+			epsilonFree.add(stage.removeEpsilonMoves(ba));
+		return new SFTPipeline<P, F, S>(epsilonFree, ba);
+	}
+
+	/**
+	 * Creates a pipeline that consists of the single SFT obtained by composing all <code>stages</code>
+	 *
+	 * @param stages the transducers in the order in which they are applied, every transducer should be deterministic
+	 * @param ba boolean algebra of the transducers
+	 * @return composed pipeline
+	 * @throws TimeoutException
+	 */
+	public static <P extends CharPred, F extends TermInterface, S> SFTPipeline<P, F, S> MkComposed(List<SFT<P, F, S>> stages,
+																								BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		return new SFTPipeline<P, F, S>(Collections.singletonList(composeAll(stages, ba)), ba);
+	}
+
+	/**
+	 * Composes <code>stages</code> from left to right, i.e. the output of stage i is the input of stage i+1.
+	 * After every composition step the dead and unreachable states are removed so that the intermediate
+	 * products stay small.
+	 *
+	 * @param stages the transducers in the order in which they are applied
+	 * @param ba boolean algebra of the transducers
+	 * @return the composition of all stages
+	 * @throws TimeoutException
+	 */
+	public static <P extends CharPred, F extends TermInterface, S> SFT<P, F, S> composeAll(List<SFT<P, F, S>> stages,
+																						BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		if (stages.isEmpty())
+			throw new IllegalArgumentException("a pipeline needs at least one stage");
+		SFT<P, F, S> result = SFT.removeDeadOrUnreachableStates(stages.get(0), ba);
+		for (int i = 1; i < stages.size(); i++)
+			result = SFT.removeDeadOrUnreachableStates(SFT.compose(result, stages.get(i), ba), ba);
+		return result;
+	}
+
+	/**
+	 * Computes the output of the pipeline on <code>input</code>
+	 *
+	 * @param input input sequence
+	 * @return output sequence, null if one of the stages rejects its input
+	 * @throws TimeoutException
+	 */
+	public List<S> outputOn(List<S> input) throws TimeoutException {
+		int[] registers = new int[compiled.length];
+		for (int i = 0; i < compiled.length; i++)
+			registers[i] = compiled[i].initialState;
+
+		List<S> output = new ArrayList<S>();
+		for (S c : input)
+			if (!push(0, c, registers, output))
+				return null;
+
+		// at the end of the input every stage has to be in a final state, the tail of stage i is input of stage i+1
+		for (int i = 0; i < compiled.length; i++) {
+			CompiledStage<P, F, S> stage = compiled[i];
+			if (!stage.isFinal[registers[i]])
+				return null;
+			for (S c : stage.tails[registers[i]])
+				if (!push(i + 1, c, registers, output))
+					return null;
+		}
+		return output;
+	}
+
+	/**
+	 * Feeds <code>c</code> to stage <code>index</code> and pushes everything it outputs to the next stage
+	 *
+	 * @return false if one of the stages got stuck
+	 * @throws TimeoutException
+	 */
+	private boolean push(int index, S c, int[] registers, List<S> output) throws TimeoutException {
+		if (index == compiled.length) {
+			output.add(c);
+			return true;
+		}
+		CompiledStage<P, F, S> stage = compiled[index];
+		int state = registers[index];
+		P[] guards = stage.guards[state];
+		for (int t = 0; t < guards.length; t++) {
+			if (ba.HasModel(guards[t], c)) {
+				registers[index] = stage.targets[state][t];
+				for (F outputFunction : stage.outputFunctions[state][t])
+					if (!push(index + 1, ba.MkSubstFuncConst(outputFunction, c), registers, output))
+						return false;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the stages of the pipeline, for a composed pipeline this is a single SFT
+	 */
+	public List<SFT<P, F, S>> getStages() {
+		return stages;
+	}
+
+	/**
+	 * Returns the number of stages that are stepped for every input character
+	 */
+	public int stageCount() {
+		return compiled.length;
+	}
+
+	/**
+	 * Array based copy of an epsilon-free deterministic SFT.
+	 * States are renumbered to 0..n-1 and the moves from state q are stored at index q.
+	 */
+	private static class CompiledStage<P extends CharPred, F extends TermInterface, S> {
+		final int initialState;
+		final boolean[] isFinal;
+		final List<S>[] tails;
+		final P[][] guards;
+		final int[][] targets;
+		final List<F>[][] outputFunctions;
+
+		@SuppressWarnings("unchecked")
+		CompiledStage(SFT<P, F, S> sft, BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+			Map<Integer, Integer> index = new HashMap<Integer, Integer>();
+			for (Integer state : sft.getStates())
+				index.put(state, index.size());
+			int n = index.size();
+
+			initialState = index.get(sft.getInitialState());
+			isFinal = new boolean[n];
+			tails = new List[n];
+			guards = (P[][]) new CharPred[n][];
+			targets = new int[n][];
+			outputFunctions = new List[n][];
+
+			for (Integer state : sft.getStates()) {
+				int q = index.get(state);
+				tails[q] = Collections.emptyList();
+				if (sft.isFinalState(state)) {
+					isFinal[q] = true;
+					// single-valued transducers only have one tail per final state
+					Set<List<S>> stateTails = sft.getFinalStatesAndTails().get(state);
+					if (stateTails != null && !stateTails.isEmpty())
+						tails[q] = stateTails.iterator().next();
+				}
+
+				List<SFTInputMove<P, F, S>> moves = new ArrayList<SFTInputMove<P, F, S>>(sft.getInputMovesFrom(state));
+				guards[q] = (P[]) new CharPred[moves.size()];
+				targets[q] = new int[moves.size()];
+				outputFunctions[q] = new List[moves.size()];
+				for (int t = 0; t < moves.size(); t++) {
+					SFTInputMove<P, F, S> move = moves.get(t);
+					for (int u = 0; u < t; u++)
+						if (ba.IsSatisfiable(ba.MkAnd(guards[q][u], move.guard)))
+							throw new IllegalArgumentException("state " + state + " of a pipeline stage is not deterministic");
+					guards[q][t] = move.guard;
+					targets[q][t] = index.get(move.to);
+					outputFunctions[q][t] = move.outputFunctions;
+				}
+			}
+		}
+	}
+}
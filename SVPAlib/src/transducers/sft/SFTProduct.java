@@ -29,6 +29,8 @@ import automata.sfa.SFAInputMove;
 import theory.BooleanAlgebraSubst;
 import theory.characters.CharPred;
 import theory.characters.TermInterface;
+import utilities.IntArrayDeque;
+import utilities.LongIntHashMap;
 import utilities.Pair;
 
 /**
@@ -89,32 +91,30 @@ public class SFTProduct<P extends CharPred, F extends TermInterface, S> extends
 		Collection<SFTMove<P, F, S>> transitions = new ArrayList<SFTMove<P, F, S>>();
 		Integer initialState;
 
-		HashMap<Pair<Integer, Integer>, Integer> reached = new HashMap<Pair<Integer, Integer>, Integer>();
-		LinkedList<Pair<Integer, Integer>> toVisit = new LinkedList<Pair<Integer, Integer>>();
+		// product states are pairs of states packed in a long, toVisit holds both states of a pair
+		LongIntHashMap reached = new LongIntHashMap();
+		IntArrayDeque toVisit = new IntArrayDeque();
 
-		// Add initial state
-		Pair<Integer, Integer> p = new Pair<Integer, Integer>(sft1.getInitialState(), sft2.getInitialState());
-
-		initialState = 0;
 		Map<Integer, Pair<Set<List<S>>, Set<List<S>>>> finalStatesAndTails = new HashMap<Integer, Pair<Set<List<S>>, Set<List<S>>>>();
 
-		reached.put(p, initialState);
-		toVisit.add(p);
+		// Add initial state
+		initialState = getStateId(sft1.getInitialState(), sft2.getInitialState(), reached, toVisit);
 
 		// Combined has set of variables the disjoint union of the two sets
 		while (!toVisit.isEmpty()) {
-			Pair<Integer, Integer> currState = toVisit.removeFirst();
-			int currStateId = reached.get(currState);
+			int currFirst = toVisit.removeFirst();
+			int currSecond = toVisit.removeFirst();
+			int currStateId = reached.getOrDefault(LongIntHashMap.pack(currFirst, currSecond), -1);
 
 			// If both states are final, combine is final
-			if (sft1.isFinalState(currState.first) && sft2.isFinalState(currState.second)) {
+			if (sft1.isFinalState(currFirst) && sft2.isFinalState(currSecond)) {
 				finalStatesAndTails.put(currStateId, new Pair<Set<List<S>>, Set<List<S>>>(
-						sft1.getFinalStatesAndTails().get(currState.first),
-						sft2.getFinalStatesAndTails().get(currState.second)));
+						sft1.getFinalStatesAndTails().get(currFirst),
+						sft2.getFinalStatesAndTails().get(currSecond)));
 			}
 
-			for (SFTInputMove<P, F, S> t1 : sft1.getInputMovesFrom(currState.first))
-				for (SFTInputMove<P, F, S> t2 : sft2.getInputMovesFrom(currState.second)) {
+			for (SFTInputMove<P, F, S> t1 : sft1.getInputMovesFrom(currFirst))
+				for (SFTInputMove<P, F, S> t2 : sft2.getInputMovesFrom(currSecond)) {
 					P intersGuard = null;
 					try {
 						intersGuard = ba.MkAnd(t1.guard, t2.guard);
@@ -123,8 +123,7 @@ public class SFTProduct<P extends CharPred, F extends TermInterface, S> extends
 					}
 					try {
 						if (ba.IsSatisfiable(intersGuard)) {
-							Pair<Integer, Integer> nextState = new Pair<Integer, Integer>(t1.to, t2.to);
-							int nextStateId = getStateId(nextState, reached, toVisit); // update reached and toVisit
+							int nextStateId = getStateId(t1.to, t2.to, reached, toVisit); // update reached and toVisit
 							SFTProductInputMove<P, F, S> newTrans = new SFTProductInputMove<P, F, S>(currStateId, nextStateId,
 									intersGuard, t1.outputFunctions, t2.outputFunctions);
 							transitions.add(newTrans);
@@ -0,0 +1,332 @@
+/**
+ * SVPAlib
+ * transducers.sft
+ * @author Sophie Lathouwers
+ */
+
+package transducers.sft;
+
+import java.util.*;
+
+import org.sat4j.specs.TimeoutException;
+
+import theory.BooleanAlgebraSubst;
+import theory.characters.CharPred;
+import theory.characters.TermInterface;
+
+/**
+ * Access strings and distinguishing suffixes for the states of an epsilon-free SFT.
+ *
+ * The access strings are read from a breadth first shortest-path tree rooted in the initial state, which is computed
+ * once for all states. The distinguishing suffixes are computed on demand for all pairs of states at the same time:
+ * first the pairs that are told apart by the empty suffix or by a single character are found, then every pair
+ * (p, q) that reaches an already distinguished pair (p', q') by a character on which p and q produce the same
+ * output is distinguished by that character followed by the suffix of (p', q').
+ * Two states are distinguished by a suffix w if the outputs (see {@link SFT#outputOn}) of w from these states differ,
+ * where an undefined output counts as an output. The search assumes that the SFT is deterministic.
+ *
+ * All tables are indexed by a dense renumbering 0..n-1 of the states, pair (i, j) with i < j is stored at i*n+j.
+ *
+ * @param <P>
+ *			The type of predicates forming the Boolean algebra
+ * @param <F>
+ *			The type of functions S->S in the Boolean Algebra
+ * @param <S>
+ *			The domain of the Boolean algebra
+ */
+public class SFTStateAnalysis<P extends CharPred, F extends TermInterface, S> {
+
+	private final SFT<P, F, S> sft;
+	private final BooleanAlgebraSubst<P, F, S> ba;
+
+	// dense numbering of the states
+	private final Map<Integer, Integer> index;
+	private final Integer[] stateOf;
+	private final List<SFTInputMove<P, F, S>>[] movesFrom;
+
+	// shortest-path tree: the move used to reach a state, null for the initial state and unreachable states
+	private final SFTInputMove<P, F, S>[] parentMove;
+	private final int[] depth;
+
+	// distinguishing suffixes, filled in by computeSuffixes
+	private boolean suffixesComputed;
+	private int[] suffixLength;
+	private int[] suffixNext;
+	private Object[] suffixChar;
+
+	@SuppressWarnings("unchecked")
+	SFTStateAnalysis(SFT<P, F, S> sftWithEps, BooleanAlgebraSubst<P, F, S> ba) throws TimeoutException {
+		this.sft = sftWithEps.removeEpsilonMoves(ba);
+		this.ba = ba;
+
+		int n = sft.getStates().size();
+		index = new HashMap<Integer, Integer>();
+		stateOf = new Integer[n];
+		movesFrom = new List[n];
+		for (Integer state : sft.getStates()) {
+			stateOf[index.size()] = state;
+			index.put(state, index.size());
+		}
+		for (int i = 0; i < n; i++)
+			movesFrom[i] = new ArrayList<SFTInputMove<P, F, S>>(sft.getInputMovesFrom(stateOf[i]));
+
+		// breadth first search from the initial state
+		parentMove = new SFTInputMove[n];
+		depth = new int[n];
+		Arrays.fill(depth, -1);
+		int[] queue = new int[n];
+		int head = 0, tail = 0;
+		int init = index.get(sft.getInitialState());
+		depth[init] = 0;
+		queue[tail++] = init;
+		while (head < tail) {
+			int current = queue[head++];
+			for (SFTInputMove<P, F, S> t : movesFrom[current]) {
+				int next = index.get(t.to);
+				if (depth[next] == -1) {
+					depth[next] = depth[current] + 1;
+					parentMove[next] = t;
+					queue[tail++] = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the moves on a shortest path from the initial state to <code>state</code>,
+	 * null if <code>state</code> is not reachable
+	 */
+	public List<SFTInputMove<P, F, S>> getAccessPath(Integer state) {
+		Integer i = index.get(state);
+		if (i == null || depth[i] == -1)
+			return null;
+		LinkedList<SFTInputMove<P, F, S>> path = new LinkedList<SFTInputMove<P, F, S>>();
+		while (parentMove[i] != null) {
+			path.addFirst(parentMove[i]);
+			i = index.get(parentMove[i].from);
+		}
+		return path;
+	}
+
+	/**
+	 * Returns a shortest input that leads from the initial state to <code>state</code>,
+	 * null if <code>state</code> is not reachable
+	 * @throws TimeoutException
+	 */
+	public List<S> getAccessString(Integer state) throws TimeoutException {
+		List<SFTInputMove<P, F, S>> path = getAccessPath(state);
+		if (path == null)
+			return null;
+		List<S> input = new ArrayList<S>(path.size());
+		for (SFTInputMove<P, F, S> t : path)
+			input.add(ba.generateWitness(t.guard));
+		return input;
+	}
+
+	/**
+	 * Returns a shortest suffix on which <code>state1</code> and <code>state2</code> produce different outputs,
+	 * null if no such suffix was found
+	 * @throws TimeoutException
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized List<S> getDistinguishingSuffix(Integer state1, Integer state2) throws TimeoutException {
+		Integer i = index.get(state1);
+		Integer j = index.get(state2);
+		if (i == null || j == null || i.equals(j))
+			return null;
+		if (!suffixesComputed)
+			computeSuffixes();
+
+		int pair = pairIndex(i, j);
+		if (suffixLength[pair] == -1)
+			return null;
+		List<S> suffix = new ArrayList<S>(suffixLength[pair]);
+		while (pair != -1) {
+			if (suffixChar[pair] != null)
+				suffix.add((S) suffixChar[pair]);
+			pair = suffixNext[pair];
+		}
+		return suffix;
+	}
+
+	private int pairIndex(int i, int j) {
+		int n = stateOf.length;
+		return i < j ? i * n + j : j * n + i;
+	}
+
+	private void computeSuffixes() throws TimeoutException {
+		int n = stateOf.length;
+		suffixLength = new int[n * n];
+		suffixNext = new int[n * n];
+		suffixChar = new Object[n * n];
+		Arrays.fill(suffixLength, -1);
+		Arrays.fill(suffixNext, -1);
+
+		P[] domain = domains();
+
+		// reverse edges of the pair graph as a linked list in int arrays: for every pair the first edge into it,
+		// for every edge the predecessor pair, the character and the next edge into the same pair
+		int[] firstEdge = new int[n * n];
+		Arrays.fill(firstEdge, -1);
+		int[] edgeFrom = new int[16];
+		int[] edgeNext = new int[16];
+		Object[] edgeChar = new Object[16];
+		int edgeCount = 0;
+
+		int[] queue = new int[n * (n - 1) / 2];
+		int head = 0, tail = 0;
+
+		for (int i = 0; i < n; i++)
+			for (int j = i + 1; j < n; j++) {
+				int pair = i * n + j;
+
+				// the empty suffix
+				if (!Objects.equals(outputAt(i), outputAt(j))) {
+					suffixLength[pair] = 0;
+					queue[tail++] = pair;
+					continue;
+				}
+
+				// a single character
+				S c = distinguishingCharacter(i, j, domain);
+				if (c != null) {
+					suffixLength[pair] = 1;
+					suffixChar[pair] = c;
+					queue[tail++] = pair;
+					continue;
+				}
+
+				// characters on which i and j move to another pair with the same output
+				for (SFTInputMove<P, F, S> t1 : movesFrom[i])
+					for (SFTInputMove<P, F, S> t2 : movesFrom[j]) {
+						int next1 = index.get(t1.to), next2 = index.get(t2.to);
+						if (next1 == next2 || !sameOutputs(t1, t2))
+							continue;
+						P guard = ba.MkAnd(t1.guard, t2.guard);
+						if (!ba.IsSatisfiable(guard))
+							continue;
+						if (edgeCount == edgeFrom.length) {
+							edgeFrom = Arrays.copyOf(edgeFrom, 2 * edgeCount);
+							edgeNext = Arrays.copyOf(edgeNext, 2 * edgeCount);
+							edgeChar = Arrays.copyOf(edgeChar, 2 * edgeCount);
+						}
+						int target = pairIndex(next1, next2);
+						edgeFrom[edgeCount] = pair;
+						edgeChar[edgeCount] = ba.generateWitness(guard);
+						edgeNext[edgeCount] = firstEdge[target];
+						firstEdge[target] = edgeCount++;
+					}
+			}
+
+		// backwards breadth first search from the pairs that are distinguished by at most one character,
+		// the pairs distinguished by the empty suffix have to be visited first
+		int[] base = Arrays.copyOf(queue, tail);
+		tail = 0;
+		for (int length = 0; length <= 1; length++)
+			for (int pair : base)
+				if (suffixLength[pair] == length)
+					queue[tail++] = pair;
+		while (head < tail) {
+			int pair = queue[head++];
+			for (int e = firstEdge[pair]; e != -1; e = edgeNext[e]) {
+				int from = edgeFrom[e];
+				if (suffixLength[from] == -1) {
+					suffixLength[from] = suffixLength[pair] + 1;
+					suffixChar[from] = edgeChar[e];
+					suffixNext[from] = pair;
+					queue[tail++] = from;
+				}
+			}
+		}
+		suffixesComputed = true;
+	}
+
+	// for every state the union of the guards of its moves
+	@SuppressWarnings("unchecked")
+	private P[] domains() throws TimeoutException {
+		P[] domain = (P[]) new CharPred[stateOf.length];
+		for (int i = 0; i < stateOf.length; i++) {
+			domain[i] = ba.False();
+			for (SFTInputMove<P, F, S> t : movesFrom[i])
+				domain[i] = ba.MkOr(domain[i], t.guard);
+		}
+		return domain;
+	}
+
+	// returns a character c such that the outputs of i and j on c differ, null if none is found
+	private S distinguishingCharacter(int i, int j, P[] domain) throws TimeoutException {
+		for (int k = 0; k < 2; k++) {
+			int from = k == 0 ? i : j;
+			int other = k == 0 ? j : i;
+			for (SFTInputMove<P, F, S> t : movesFrom[from]) {
+				// characters on which the other state gets stuck
+				P stuck = ba.MkAnd(t.guard, ba.MkNot(domain[other]));
+				if (ba.IsSatisfiable(stuck)) {
+					S c = ba.generateWitness(stuck);
+					if (!Objects.equals(outputOn(i, c), outputOn(j, c)))
+						return c;
+				}
+			}
+		}
+		for (SFTInputMove<P, F, S> t1 : movesFrom[i])
+			for (SFTInputMove<P, F, S> t2 : movesFrom[j]) {
+				P guard = ba.MkAnd(t1.guard, t2.guard);
+				if (!ba.IsSatisfiable(guard))
+					continue;
+				// the output functions of t1 and t2 can agree on a few characters only, skip these
+				for (int tries = 0; tries <= t1.outputFunctions.size() + 1 && ba.IsSatisfiable(guard); tries++) {
+					S c = ba.generateWitness(guard);
+					if (!Objects.equals(outputOn(i, c), outputOn(j, c)))
+						return c;
+					if (sameOutputs(t1, t2))
+						break;
+					guard = ba.MkAnd(guard, ba.MkNot(ba.MkAtom(c)));
+				}
+			}
+		return null;
+	}
+
+	// checks whether t1 and t2 produce the same output on every character that satisfies both guards
+	private boolean sameOutputs(SFTInputMove<P, F, S> t1, SFTInputMove<P, F, S> t2) {
+		if (t1.outputFunctions.size() != t2.outputFunctions.size())
+			return false;
+		P guard;
+		try {
+			guard = ba.MkAnd(t1.guard, t2.guard);
+		} catch (TimeoutException toe) {
+			return false;
+		}
+		for (int k = 0; k < t1.outputFunctions.size(); k++)
+			if (!ba.CheckGuardedEquality(guard, t1.outputFunctions.get(k), t2.outputFunctions.get(k)))
+				return false;
+		return true;
+	}
+
+	// the output of state i on the empty input, null if i is not final
+	private List<S> outputAt(int i) {
+		Integer state = stateOf[i];
+		if (!sft.isFinalState(state))
+			return null;
+		Set<List<S>> tails = sft.getFinalStatesAndTails().get(state);
+		if (tails.isEmpty())
+			return Collections.emptyList();
+		return tails.iterator().next();
+	}
+
+	// the output of state i on the input c, null if undefined
+	private List<S> outputOn(int i, S c) throws TimeoutException {
+		for (SFTInputMove<P, F, S> t : movesFrom[i]) {
+			if (ba.HasModel(t.guard, c)) {
+				List<S> tail = outputAt(index.get(t.to));
+				if (tail == null)
+					return null;
+				List<S> output = new ArrayList<S>();
+				for (F f : t.outputFunctions)
+					output.add(ba.MkSubstFuncConst(f, c));
+				output.addAll(tail);
+				return output;
+			}
+		}
+		return null;
+	}
+}
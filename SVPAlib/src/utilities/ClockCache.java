@@ -0,0 +1,183 @@
+package utilities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Bounded cache that evicts with the CLOCK policy: every entry has a reference bit that is set when it is read, and
+ * the clock hand clears bits until it finds an entry that was not read since the last sweep.
+ * Every entry has a weight, 1 unless it is given to {@link #put(Object, Object, int)}, and the total weight of the
+ * entries is at most the capacity, so that callers can bound the size of what they cache rather than the number of
+ * entries.
+ * All methods are synchronized, callers that want more concurrency can stripe several caches.
+ */
+public class ClockCache<K, V> {
+
+	private final int capacity;
+	// slots are reused after an eviction, keys[slot] is null for a free slot
+	private Object[] keys;
+	private Object[] values;
+	private int[] weights;
+	private boolean[] referenced;
+	private int[] free;
+	private int freeCount;
+	// the slots from used on have never been occupied
+	private int used;
+	private final HashMap<K, Integer> slots;
+	private int hand;
+	private int size;
+	private int weight;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * A cache whose entries weigh at most <code>capacity</code> in total
+	 */
+	public ClockCache(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive");
+		this.capacity = capacity;
+		int slotCount = Math.min(capacity, 16);
+		keys = new Object[slotCount];
+		values = new Object[slotCount];
+		weights = new int[slotCount];
+		referenced = new boolean[slotCount];
+		free = new int[slotCount];
+		slots = new HashMap<K, Integer>();
+	}
+
+	/**
+	 * Returns the value of <code>key</code>, null if it is not cached
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized V get(K key) {
+		Integer slot = slots.get(key);
+		if (slot == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		referenced[slot] = true;
+		return (V) values[slot];
+	}
+
+	/**
+	 * Caches <code>value</code> for <code>key</code> with weight 1, evicting entries if the cache is full
+	 */
+	public void put(K key, V value) {
+		put(key, value, 1);
+	}
+
+	/**
+	 * Caches <code>value</code> for <code>key</code> with weight <code>entryWeight</code>, at least 1, evicting
+	 * entries until it fits. An entry heavier than the capacity is not cached.
+	 */
+	public synchronized void put(K key, V value, int entryWeight) {
+		int w = Math.max(1, entryWeight);
+		Integer old = slots.get(key);
+		if (old != null)
+			remove(old);
+		if (w > capacity)
+			return;
+		while (weight + w > capacity) {
+			remove(victim());
+			evictions++;
+		}
+		int slot = freeSlot();
+		keys[slot] = key;
+		values[slot] = value;
+		weights[slot] = w;
+		referenced[slot] = false;
+		slots.put(key, slot);
+		size++;
+		weight += w;
+	}
+
+	private void remove(int slot) {
+		slots.remove(keys[slot]);
+		keys[slot] = null;
+		values[slot] = null;
+		referenced[slot] = false;
+		free[freeCount++] = slot;
+		size--;
+		weight -= weights[slot];
+	}
+
+	// every entry weighs at least 1, so there are never more than capacity slots
+	private int freeSlot() {
+		if (freeCount > 0)
+			return free[--freeCount];
+		if (used == keys.length) {
+			int slotCount = (int) Math.min(capacity, 2L * keys.length);
+			keys = Arrays.copyOf(keys, slotCount);
+			values = Arrays.copyOf(values, slotCount);
+			weights = Arrays.copyOf(weights, slotCount);
+			referenced = Arrays.copyOf(referenced, slotCount);
+			free = Arrays.copyOf(free, slotCount);
+		}
+		return used++;
+	}
+
+	// advances the hand to the first entry that was not referenced since the last sweep, there is at least one entry
+	private int victim() {
+		while (keys[hand] == null || referenced[hand]) {
+			referenced[hand] = false;
+			hand = (hand + 1) % used;
+		}
+		int slot = hand;
+		hand = (hand + 1) % used;
+		return slot;
+	}
+
+	public synchronized void clear() {
+		for (int i = 0; i < used; i++) {
+			keys[i] = null;
+			values[i] = null;
+			referenced[i] = false;
+		}
+		slots.clear();
+		freeCount = 0;
+		used = 0;
+		size = 0;
+		weight = 0;
+		hand = 0;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return the total weight of the entries
+	 */
+	public synchronized int weight() {
+		return weight;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+}
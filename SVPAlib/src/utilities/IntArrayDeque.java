@@ -0,0 +1,94 @@
+package utilities;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Double ended queue of primitive ints backed by a circular array that grows when it is full.
+ */
+public class IntArrayDeque {
+
+	private int[] elements;
+	private int head;
+	private int size;
+
+	public IntArrayDeque() {
+		this(16);
+	}
+
+	public IntArrayDeque(int initialCapacity) {
+		elements = new int[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Inserts <code>e</code> at the front of the deque
+	 */
+	public void addFirst(int e) {
+		if (size == elements.length)
+			grow();
+		head = (head - 1 + elements.length) % elements.length;
+		elements[head] = e;
+		size++;
+	}
+
+	/**
+	 * Inserts <code>e</code> at the end of the deque
+	 */
+	public void addLast(int e) {
+		if (size == elements.length)
+			grow();
+		elements[(head + size) % elements.length] = e;
+		size++;
+	}
+
+	/**
+	 * Removes and returns the first element of the deque
+	 */
+	public int removeFirst() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		int e = elements[head];
+		head = (head + 1) % elements.length;
+		size--;
+		return e;
+	}
+
+	/**
+	 * Removes and returns the last element of the deque
+	 */
+	public int removeLast() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		size--;
+		return elements[(head + size) % elements.length];
+	}
+
+	/**
+	 * Returns the first element of the deque without removing it
+	 */
+	public int peekFirst() {
+		if (size == 0)
+			throw new NoSuchElementException();
+		return elements[head];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	private void grow() {
+		int[] newElements = new int[2 * elements.length];
+		for (int i = 0; i < size; i++)
+			newElements[i] = elements[(head + i) % elements.length];
+		elements = newElements;
+		head = 0;
+	}
+}
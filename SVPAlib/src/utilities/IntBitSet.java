@@ -0,0 +1,153 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of small non-negative ints stored as a bitmap of longs, with its hash computed once.
+ * It is meant as a hash key for the subset states of a determinization: the elements are dense state indices, and
+ * two sets are equal iff their trimmed words are equal.
+ */
+public final class IntBitSet {
+
+	private static final long[] NO_WORDS = new long[0];
+
+	public static final IntBitSet EMPTY = new IntBitSet(NO_WORDS);
+
+	private final long[] words;
+	private final int hash;
+
+	// words must not be shared and must not end with a zero word
+	private IntBitSet(long[] words) {
+		this.words = words;
+		this.hash = Arrays.hashCode(words);
+	}
+
+	/**
+	 * The set of the bits of <code>words</code>, the array is copied so the caller can reuse it
+	 */
+	public static IntBitSet of(long[] words) {
+		int length = words.length;
+		while (length > 0 && words[length - 1] == 0)
+			length--;
+		if (length == 0)
+			return EMPTY;
+		return new IntBitSet(Arrays.copyOf(words, length));
+	}
+
+	/**
+	 * The set containing only <code>element</code>
+	 */
+	public static IntBitSet singleton(int element) {
+		long[] words = new long[wordIndex(element) + 1];
+		words[wordIndex(element)] = 1L << element;
+		return new IntBitSet(words);
+	}
+
+	/**
+	 * Number of longs needed to store the elements smaller than <code>bound</code>
+	 */
+	public static int wordsFor(int bound) {
+		return (bound + 63) >>> 6;
+	}
+
+	/**
+	 * Adds <code>element</code> to the bitmap <code>words</code>
+	 */
+	public static void set(long[] words, int element) {
+		words[wordIndex(element)] |= 1L << element;
+	}
+
+	private static int wordIndex(int element) {
+		return element >>> 6;
+	}
+
+	public boolean contains(int element) {
+		int w = wordIndex(element);
+		return w < words.length && (words[w] & (1L << element)) != 0;
+	}
+
+	public boolean intersects(IntBitSet other) {
+		int n = Math.min(words.length, other.words.length);
+		for (int i = 0; i < n; i++)
+			if ((words[i] & other.words[i]) != 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return true if every element of this set is in <code>other</code>
+	 */
+	public boolean isSubsetOf(IntBitSet other) {
+		if (words.length > other.words.length)
+			return false;
+		for (int i = 0; i < words.length; i++)
+			if ((words[i] & ~other.words[i]) != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return the elements that are both in this set and in <code>other</code>
+	 */
+	public IntBitSet and(IntBitSet other) {
+		int n = Math.min(words.length, other.words.length);
+		long[] res = new long[n];
+		for (int i = 0; i < n; i++)
+			res[i] = words[i] & other.words[i];
+		return of(res);
+	}
+
+	public boolean isEmpty() {
+		return words.length == 0;
+	}
+
+	public int size() {
+		int size = 0;
+		for (long word : words)
+			size += Long.bitCount(word);
+		return size;
+	}
+
+	/**
+	 * @return the smallest element greater or equal to <code>from</code>, -1 if there is none
+	 */
+	public int nextSetBit(int from) {
+		int w = wordIndex(from);
+		if (w >= words.length)
+			return -1;
+		long word = words[w] & (-1L << from);
+		while (true) {
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			if (++w == words.length)
+				return -1;
+			word = words[w];
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof IntBitSet))
+			return false;
+		IntBitSet other = (IntBitSet) obj;
+		return hash == other.hash && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+			if (sb.length() > 1)
+				sb.append(", ");
+			sb.append(i);
+		}
+		return sb.append('}').toString();
+	}
+}
@@ -0,0 +1,142 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive longs to primitive ints using open addressing with linear probing.
+ * It is meant for the state pairs that are explored when building products of automata: a pair of int states is
+ * packed in one long by {@link #pack(int, int)} so that no Pair and Integer objects are needed.
+ */
+public class LongIntHashMap {
+
+	// marks an empty slot, the key itself is stored separately
+	private static final long FREE = Long.MIN_VALUE;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	private boolean hasFreeKey;
+	private int freeValue;
+
+	public LongIntHashMap() {
+		this(16);
+	}
+
+	public LongIntHashMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity < 2 * expectedSize)
+			capacity <<= 1;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Packs the pair (first, second) in a single long
+	 */
+	public static long pack(int first, int second) {
+		return ((long) first << 32) | (second & 0xffffffffL);
+	}
+
+	/**
+	 * Returns the first element of a pair packed by {@link #pack(int, int)}
+	 */
+	public static int first(long pair) {
+		return (int) (pair >>> 32);
+	}
+
+	/**
+	 * Returns the second element of a pair packed by {@link #pack(int, int)}
+	 */
+	public static int second(long pair) {
+		return (int) pair;
+	}
+
+	/**
+	 * Returns the value of <code>key</code>, <code>defaultValue</code> if there is none
+	 */
+	public int getOrDefault(long key, int defaultValue) {
+		if (key == FREE)
+			return hasFreeKey ? freeValue : defaultValue;
+		int slot = slot(key);
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key)
+				return values[slot];
+			slot = (slot + 1) & mask;
+		}
+		return defaultValue;
+	}
+
+	public boolean containsKey(long key) {
+		if (key == FREE)
+			return hasFreeKey;
+		int slot = slot(key);
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key)
+				return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * Associates <code>value</code> with <code>key</code>
+	 */
+	public void put(long key, int value) {
+		if (key == FREE) {
+			if (!hasFreeKey)
+				size++;
+			hasFreeKey = true;
+			freeValue = value;
+			return;
+		}
+		int slot = slot(key);
+		while (keys[slot] != FREE) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		// keep the load factor below 1/2
+		if (2 * size > keys.length)
+			rehash(2 * keys.length);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, FREE);
+		mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int slot = slot(oldKeys[i]);
+				while (keys[slot] != FREE)
+					slot = (slot + 1) & mask;
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
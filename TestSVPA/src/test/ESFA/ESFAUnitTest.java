@@ -35,6 +35,24 @@ public class ESFAUnitTest {
 	}
 
 	
+	@Test
+	public void testBatchAccepts() throws TimeoutException {
+		List<List<Character>> inputs = Arrays.asList(la, lb, lab, lnot, lOfS(""), lOfS("aaa"));
+		for (boolean parallel : new boolean[] { false, true }) {
+			boolean[] results = autA.accepts(inputs, ba, parallel);
+			assertTrue(Arrays.equals(new boolean[] { true, false, false, false, false, false }, results));
+		}
+
+		// (abc)* where ab is read by a single move
+		Collection<ESFAMove<CharPred, Character>> transitions = new LinkedList<ESFAMove<CharPred, Character>>();
+		transitions.add(new CartesianESFAInputMove<CharPred, Character>(0, 1, Arrays.asList(a, b)));
+		transitions.add(new CartesianESFAInputMove<CharPred, Character>(1, 0, Arrays.asList(c)));
+		CartesianESFA<CharPred, Character> abc = CartesianESFA.MkESFA(transitions, 0, Arrays.asList(0), ba);
+		inputs = Arrays.asList(lOfS(""), lOfS("abc"), lOfS("abcabc"), lOfS("ab"), lOfS("abca"), lOfS("acb"));
+		assertTrue(Arrays.equals(new boolean[] { true, true, true, false, false, false },
+				abc.accepts(inputs, ba, false)));
+	}
+
 	UnaryCharIntervalSolver ba = new UnaryCharIntervalSolver();
 	CharPred alpha = StdCharPred.LOWER_ALPHA;
 	CharPred allAlpha = StdCharPred.ALPHA;
@@ -0,0 +1,50 @@
+package test.SAFA;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.sat4j.specs.TimeoutException;
+
+import automata.safa.SAFA;
+import automata.safa.booleanexpression.SumOfProductsFactory;
+import logic.ltl.And;
+import logic.ltl.Eventually;
+import logic.ltl.LTLFormula;
+import logic.ltl.Predicate;
+import logic.ltl.True;
+import theory.sat.SATBooleanAlgebra;
+import utilities.Timers;
+
+/**
+ * Runtime of the bisimulation up to congruence on the SAT-based LTL workloads of LTLUnitTest:
+ * F p1 & ... & F pn against the same conjunction nested the other way round. Prints the time
+ * spent in the solver and in the congruence checks, the number of explored pairs, and how many
+ * predicate queries were answered from the memo tables of SATBooleanAlgebra.
+ */
+public class SATEquivalenceBenchmark {
+
+	public static void main(String[] args) throws TimeoutException {
+		for (int size = 2; size <= 8; size++) {
+			SATBooleanAlgebra ba = new SATBooleanAlgebra(size + 1);
+
+			List<LTLFormula<Integer, boolean[]>> conjuncts = new LinkedList<>();
+			for (int i = 1; i < size; i++)
+				conjuncts.add(new Eventually<>(new Predicate<Integer, boolean[]>(i)));
+			SAFA<Integer, boolean[]> safa1 = new And<>(conjuncts).getSAFA(ba);
+
+			LTLFormula<Integer, boolean[]> tot = new True<>();
+			for (int i = size - 1; i >= 1; i--)
+				tot = new And<>(new Eventually<>(new Predicate<Integer, boolean[]>(i)), tot);
+			SAFA<Integer, boolean[]> safa2 = tot.getSAFA(ba);
+
+			long start = System.currentTimeMillis();
+			boolean equivalent = SAFA.isEquivalent(safa1, safa2, ba, SumOfProductsFactory.getInstance()).first;
+			long elapsed = System.currentTimeMillis() - start;
+
+			System.out.println("size " + size + ": equivalent=" + equivalent + " total=" + elapsed + "ms solver="
+					+ Timers.getSolver() + "ms congruence=" + Timers.getSubsumption() + "ms pairs="
+					+ Timers.exploredStates + " solverCalls=" + ba.getSolverCalls() + " cacheHits="
+					+ ba.getCacheHits());
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package test.SFA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.sat4j.specs.TimeoutException;
+
+import automata.sfa.SFA;
+import automata.sfa.SFAInputMove;
+import automata.sfa.SFAMove;
+import theory.characters.CharPred;
+import theory.intervals.UnaryCharIntervalSolver;
+
+/**
+ * Compares the minimization over local minterms with the Hopcroft minimization on large determinized automata.
+ */
+public class MinimizationBenchmark {
+
+	static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws TimeoutException {
+		UnaryCharIntervalSolver ba = new UnaryCharIntervalSolver();
+
+		List<String> names = new ArrayList<String>();
+		List<SFA<CharPred, Character>> auts = new ArrayList<SFA<CharPred, Character>>();
+		for (int n = 8; n <= 12; n += 2) {
+			names.add("nth last is a, n=" + n);
+			auts.add(nthLastIsA(ba, n).determinize(ba));
+		}
+		for (int k = 20; k <= 80; k *= 2) {
+			names.add("a mod " + k + " x b mod " + k);
+			auts.add(counters(ba, k, k));
+		}
+
+		System.out.println(String.format("%-28s %8s %8s %14s %14s", "automaton", "states", "minimal",
+				"refinement (ms)", "hopcroft (ms)"));
+		for (int i = 0; i < auts.size(); i++) {
+			SFA<CharPred, Character> aut = auts.get(i);
+
+			long start = System.currentTimeMillis();
+			SFA<CharPred, Character> min = null;
+			for (int round = 0; round < ROUNDS; round++)
+				min = aut.minimize(ba, false);
+			long refinementTime = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			SFA<CharPred, Character> hopcroftMin = null;
+			for (int round = 0; round < ROUNDS; round++)
+				hopcroftMin = aut.minimize(ba, true);
+			long hopcroftTime = System.currentTimeMillis() - start;
+
+			if (!min.stateCount().equals(hopcroftMin.stateCount()))
+				throw new IllegalStateException("Different minimal automata for " + names.get(i));
+			System.out.println(String.format("%-28s %8d %8d %14d %14d", names.get(i), aut.stateCount(),
+					min.stateCount(), refinementTime, hopcroftTime));
+		}
+	}
+
+	// (a|b)*a(a|b)^(n-1), its determinization has 2^n states and is minimal
+	static SFA<CharPred, Character> nthLastIsA(UnaryCharIntervalSolver ba, int n) throws TimeoutException {
+		Collection<SFAMove<CharPred, Character>> transitions = new LinkedList<SFAMove<CharPred, Character>>();
+		transitions.add(new SFAInputMove<CharPred, Character>(0, 0, new CharPred('a', 'b')));
+		transitions.add(new SFAInputMove<CharPred, Character>(0, 1, new CharPred('a')));
+		for (int i = 1; i < n; i++)
+			transitions.add(new SFAInputMove<CharPred, Character>(i, i + 1, new CharPred('a', 'b')));
+		return SFA.MkSFA(transitions, 0, Arrays.asList(n), ba);
+	}
+
+	// counts the a's modulo ka and the b's modulo kb, but only accepts
+	// depending on the a's, so the kb copies of each state are equivalent
+	static SFA<CharPred, Character> counters(UnaryCharIntervalSolver ba, int ka, int kb) throws TimeoutException {
+		Collection<SFAMove<CharPred, Character>> transitions = new LinkedList<SFAMove<CharPred, Character>>();
+		Collection<Integer> finalStates = new LinkedList<Integer>();
+		CharPred other = ba.MkNot(new CharPred('a', 'b'));
+		for (int i = 0; i < ka; i++)
+			for (int j = 0; j < kb; j++) {
+				int state = i * kb + j;
+				transitions.add(new SFAInputMove<CharPred, Character>(state, ((i + 1) % ka) * kb + j, new CharPred('a')));
+				transitions.add(new SFAInputMove<CharPred, Character>(state, i * kb + (j + 1) % kb, new CharPred('b')));
+				transitions.add(new SFAInputMove<CharPred, Character>(state, state, other));
+				if (i == 0)
+					finalStates.add(state);
+			}
+		SFA<CharPred, Character> aut = SFA.MkSFA(transitions, 0, finalStates, ba);
+		aut.setIsDet(true);
+		return aut;
+	}
+}
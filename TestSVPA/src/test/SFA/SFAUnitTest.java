@@ -7,11 +7,19 @@ package test.SFA;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
 
 import org.junit.Test;
 import org.sat4j.specs.TimeoutException;
@@ -20,9 +28,12 @@ import automata.sfa.SFA;
 import automata.sfa.SFAEpsilon;
 import automata.sfa.SFAInputMove;
 import automata.sfa.SFAMove;
+import automata.sfa.UniformWordSampler;
+import automata.sfa.WitnessEnumerator;
 import theory.characters.CharPred;
 import theory.characters.StdCharPred;
 import theory.intervals.UnaryCharIntervalSolver;
+import utilities.Pair;
 
 public class SFAUnitTest {
 
@@ -148,6 +159,25 @@ public class SFAUnitTest {
 		assertTrue(min.isEquivalentTo(autM, ba));
 	}
 
+	@Test
+	public void testHopcroftMinimization() throws TimeoutException {
+		List<SFA<CharPred, Character>> auts = new ArrayList<SFA<CharPred, Character>>();
+		auts.add(getSFAtoMin2(ba));
+		auts.add(autA);
+		auts.add(autB);
+		auts.add(getNthLastIsA(ba, 6));
+		auts.add(getNthLastIsA(ba, 3).unionWith(getNthLastIsA(ba, 4), ba));
+		auts.add(SFA.getFullSFA(ba));
+
+		for (SFA<CharPred, Character> aut : auts) {
+			SFA<CharPred, Character> min = aut.minimize(ba);
+			SFA<CharPred, Character> hopcroftMin = aut.minimize(ba, true);
+			assertTrue(hopcroftMin.isDeterministic(ba));
+			assertTrue(hopcroftMin.stateCount().equals(min.stateCount()));
+			assertTrue(hopcroftMin.isEquivalentTo(aut, ba));
+		}
+	}
+
 	@Test
 	public void testDeterminization() throws TimeoutException {
 		SFA<CharPred, Character> detAutA = autA.determinize(ba);
@@ -157,6 +187,277 @@ public class SFAUnitTest {
 		assertFalse(autA.isDeterministic(ba));
 	}
 
+	@Test
+	public void testDeterminizationSubsets() throws TimeoutException {
+		// (a|b)*a(a|b)^6, states start at 100
+		int k = 6;
+		Collection<SFAMove<CharPred, Character>> transitions = new LinkedList<SFAMove<CharPred, Character>>();
+		transitions.add(new SFAInputMove<CharPred, Character>(100, 100, new CharPred('a', 'b')));
+		transitions.add(new SFAInputMove<CharPred, Character>(100, 101, new CharPred('a')));
+		for (int i = 1; i <= k; i++)
+			transitions.add(new SFAInputMove<CharPred, Character>(100 + i, 101 + i, new CharPred('a', 'b')));
+		SFA<CharPred, Character> nfa = SFA.MkSFA(transitions, 100, Arrays.asList(101 + k), ba);
+		SFA<CharPred, Character> dfa = nfa.determinize(ba);
+		assertTrue(dfa.isDeterministic(ba));
+		assertTrue(dfa.getStates().size() == 1 << (k + 1));
+		assertTrue(dfa.accepts(lOfS("bbabbbbbb"), ba));
+		assertFalse(dfa.accepts(lOfS("babbbbb"), ba));
+		assertTrue(nfa.isEquivalentTo(dfa, ba));
+
+		try {
+			SFA.determinize(nfa, ba, Long.MAX_VALUE, 10);
+			assertTrue(false);
+		} catch (TimeoutException e) {
+			// expected, the budget is smaller than the 128 subset states
+		}
+
+		// a subset with more states than fit in one word: a[0-9]b
+		transitions = new LinkedList<SFAMove<CharPred, Character>>();
+		for (int i = 1; i <= 100; i++) {
+			transitions.add(new SFAInputMove<CharPred, Character>(0, i, new CharPred('a')));
+			transitions.add(new SFAInputMove<CharPred, Character>(i, 200 + i % 10, new CharPred((char) ('0' + i % 10))));
+			transitions.add(new SFAInputMove<CharPred, Character>(200 + i % 10, 300, new CharPred('b')));
+		}
+		SFA<CharPred, Character> wide = SFA.MkSFA(transitions, 0, Arrays.asList(300), ba).determinize(ba);
+		assertTrue(wide.isDeterministic(ba));
+		assertTrue(wide.accepts(lOfS("a7b"), ba));
+		assertFalse(wide.accepts(lOfS("a7"), ba));
+		assertFalse(wide.accepts(lOfS("ab"), ba));
+	}
+
+	@Test
+	public void testParallelConstructions() throws TimeoutException {
+		SFA<CharPred, Character> nfa = getNthLastIsA(ba, 6);
+
+		SFA<CharPred, Character> dfa = nfa.determinize(ba);
+		SFA<CharPred, Character> parallelDfa = nfa.determinizeParallel(ba);
+		assertTrue(parallelDfa.isDeterministic(ba));
+		assertTrue(parallelDfa.stateCount().equals(dfa.stateCount()));
+		assertTrue(parallelDfa.isEquivalentTo(dfa, ba));
+		// the renumbering makes the result independent of the scheduling
+		for (int run = 0; run < 5; run++)
+			assertTrue(sortedMoves(nfa.determinizeParallel(ba)).equals(sortedMoves(parallelDfa)));
+
+		SFA<CharPred, Character> intersection = autA.intersectionParallelWith(autB, ba);
+		assertTrue(intersection.isEquivalentTo(autA.intersectionWith(autB, ba), ba));
+		assertTrue(intersection.accepts(lab, ba));
+		assertFalse(intersection.accepts(la, ba));
+
+		SFA<CharPred, Character> union = autA.unionParallelWith(autB, ba);
+		assertTrue(union.isEpsilonFree());
+		assertTrue(union.isEquivalentTo(autA.unionWith(autB, ba), ba));
+		assertTrue(union.accepts(la, ba));
+		assertTrue(union.accepts(lb, ba));
+		assertFalse(union.accepts(lnot, ba));
+		assertTrue(dfa.unionParallelWith(getSFAc(ba), ba).isDeterministic(ba));
+	}
+
+	@Test
+	public void testAntichainInclusion() throws TimeoutException {
+		SFA<CharPred, Character> nfa = getNthLastIsA(ba, 6);
+		Collection<SFAMove<CharPred, Character>> transitions = new LinkedList<SFAMove<CharPred, Character>>(
+				getNthLastIsA(ba, 1).getTransitions());
+		transitions.add(new SFAInputMove<CharPred, Character>(1, 1, new CharPred('a', 'b')));
+		SFA<CharPred, Character> containsA = SFA.MkSFA(transitions, 0, Arrays.asList(1), ba);
+
+		assertTrue(nfa.isIncludedIn(containsA, ba));
+		Pair<Boolean, List<Character>> result = containsA.isIncludedPlusWitnessIn(nfa, ba);
+		assertFalse(result.first);
+		assertTrue(result.second.size() == 1);
+		assertTrue(containsA.accepts(result.second, ba));
+		assertFalse(nfa.accepts(result.second, ba));
+
+		// nondeterministic and epsilon automata are handled without determinizing
+		assertTrue(nfa.isEquivalentTo(nfa.determinize(ba), ba));
+		assertFalse(nfa.isEquivalentTo(getNthLastIsA(ba, 5), ba));
+		assertTrue(getEpsAmbSFA(ba).isEquivalentTo(getEpsUnambSFA(ba), ba));
+		assertTrue(getAmbSFA(ba).isEquivalentTo(getUnambSFA(ba), ba));
+		assertTrue(SFA.getEmptySFA(ba).isIncludedIn(nfa, ba));
+		assertFalse(SFA.getFullSFA(ba).isIncludedIn(nfa, ba));
+
+		Pair<Boolean, List<Character>> equivalence = nfa.isEquivalentPlusWitnessTo(getNthLastIsA(ba, 7), ba);
+		assertFalse(equivalence.first);
+		assertTrue(nfa.accepts(equivalence.second, ba) != getNthLastIsA(ba, 7).accepts(equivalence.second, ba));
+
+		// the left automaton reaches state 1 after a with the subset {1, 2} of the right one, and after ba with the
+		// smaller subset {1}: the first pair still yields the shortest witness aa
+		Collection<SFAMove<CharPred, Character>> leftTransitions = new LinkedList<SFAMove<CharPred, Character>>();
+		leftTransitions.add(new SFAInputMove<CharPred, Character>(0, 1, new CharPred('a')));
+		leftTransitions.add(new SFAInputMove<CharPred, Character>(0, 2, new CharPred('b')));
+		leftTransitions.add(new SFAInputMove<CharPred, Character>(2, 1, new CharPred('a')));
+		leftTransitions.add(new SFAInputMove<CharPred, Character>(1, 3, new CharPred('a')));
+		SFA<CharPred, Character> left = SFA.MkSFA(leftTransitions, 0, Arrays.asList(3), ba);
+		Collection<SFAMove<CharPred, Character>> rightTransitions = new LinkedList<SFAMove<CharPred, Character>>();
+		rightTransitions.add(new SFAInputMove<CharPred, Character>(0, 1, new CharPred('a')));
+		rightTransitions.add(new SFAInputMove<CharPred, Character>(0, 2, new CharPred('a')));
+		rightTransitions.add(new SFAInputMove<CharPred, Character>(0, 3, new CharPred('b')));
+		rightTransitions.add(new SFAInputMove<CharPred, Character>(3, 1, new CharPred('a')));
+		rightTransitions.add(new SFAInputMove<CharPred, Character>(1, 4, new CharPred('c')));
+		rightTransitions.add(new SFAInputMove<CharPred, Character>(2, 4, new CharPred('c')));
+		SFA<CharPred, Character> right = SFA.MkSFA(rightTransitions, 0, Arrays.asList(4), ba);
+		Pair<Boolean, List<Character>> shortest = left.isIncludedPlusWitnessIn(right, ba);
+		assertFalse(shortest.first);
+		assertTrue(shortest.second.equals(Arrays.asList('a', 'a')));
+	}
+
+	@Test
+	public void testOnTheFlyEmptiness() throws TimeoutException {
+		SFA<CharPred, Character> nfa = getNthLastIsA(ba, 6);
+
+		List<Character> witness = autA.intersectionWitnessWith(autB, ba);
+		assertTrue(autA.accepts(witness, ba));
+		assertTrue(autB.accepts(witness, ba));
+		assertFalse(autA.isIntersectionEmptyWith(autB, ba));
+		assertTrue(autA.isIntersectionEmptyWith(autA.complement(ba), ba));
+		assertTrue(nfa.isIntersectionEmptyWith(SFA.getEmptySFA(ba), ba));
+
+		// epsilon moves and missing moves on either side
+		witness = getEpsAmbSFA(ba).intersectionWitnessWith(SFA.getFullSFA(ba), ba);
+		assertTrue(witness.isEmpty());
+		assertTrue(getEpsUnambSFA(ba).isIntersectionEmptyWith(getAmbSFA(ba), ba));
+
+		witness = SFA.getFullSFA(ba).differenceWitnessWith(nfa, ba);
+		assertFalse(nfa.accepts(witness, ba));
+		assertTrue(nfa.isDifferenceEmptyWith(SFA.getFullSFA(ba), ba));
+		assertTrue(nfa.isDifferenceEmptyWith(getNthLastIsA(ba, 6).determinize(ba), ba));
+		assertTrue(nfa.differenceWitnessWith(getNthLastIsA(ba, 5), ba).size() == 6);
+	}
+
+	@Test
+	public void testBatchAccepts() throws TimeoutException {
+		Random r = new Random(0);
+		List<List<Character>> inputs = new ArrayList<List<Character>>();
+		for (int i = 0; i < 500; i++) {
+			List<Character> input = new ArrayList<Character>();
+			for (int k = r.nextInt(12); k > 0; k--)
+				input.add((char) ('a' + r.nextInt(3)));
+			inputs.add(input);
+		}
+
+		List<SFA<CharPred, Character>> auts = new ArrayList<SFA<CharPred, Character>>();
+		auts.add(getNthLastIsA(ba, 4));
+		auts.add(autA.unionWith(autB, ba));
+		auts.add(getEpsAmbSFA(ba));
+		auts.add(getAmbSFA(ba));
+		for (SFA<CharPred, Character> aut : auts)
+			for (boolean parallel : new boolean[] { false, true }) {
+				boolean[] results = aut.accepts(inputs, ba, parallel);
+				for (int i = 0; i < inputs.size(); i++)
+					assertTrue(results[i] == aut.accepts(inputs.get(i), ba));
+			}
+	}
+
+	@Test
+	public void testWitnessEnumeration() throws TimeoutException {
+		// all the words over a, b whose third symbol from the end is an a
+		List<List<Character>> expected = new ArrayList<List<Character>>();
+		for (int length = 3; length <= 6; length++)
+			for (int bits = (1 << length) - 1; bits >= 0; bits--) {
+				List<Character> word = new ArrayList<Character>();
+				for (int k = length - 1; k >= 0; k--)
+					word.add((bits & (1 << k)) != 0 ? 'a' : 'b');
+				if (word.get(length - 3) == 'a')
+					expected.add(word);
+			}
+		Collections.sort(expected, new Comparator<List<Character>>() {
+			@Override
+			public int compare(List<Character> w1, List<Character> w2) {
+				if (w1.size() != w2.size())
+					return w1.size() - w2.size();
+				return w1.toString().compareTo(w2.toString());
+			}
+		});
+
+		WitnessEnumerator<CharPred, Character> enumerator = WitnessEnumerator.of(getNthLastIsA(ba, 3), ba);
+		assertTrue(enumerator.isInfinite());
+		List<List<Character>> words = new ArrayList<List<Character>>();
+		for (Iterator<List<Character>> it = enumerator.iterator(0, 6); it.hasNext();)
+			words.add(it.next());
+		assertTrue(words.equals(expected));
+		assertTrue(enumerator.countOfLength(40).equals(BigInteger.ONE.shiftLeft(39)));
+
+		Iterator<List<Character>> unbounded = enumerator.iterator();
+		for (int i = 0; i < expected.size(); i++)
+			assertTrue(unbounded.next().equals(expected.get(i)));
+		assertTrue(unbounded.next().size() == 7);
+
+		// a finite language: the enumeration ends
+		Collection<SFAMove<CharPred, Character>> transitions = new LinkedList<SFAMove<CharPred, Character>>();
+		transitions.add(new SFAInputMove<CharPred, Character>(0, 1, new CharPred('a')));
+		transitions.add(new SFAInputMove<CharPred, Character>(1, 2, new CharPred('b', 'c')));
+		SFA<CharPred, Character> finite = SFA.MkSFA(transitions, 0, Arrays.asList(1, 2), ba);
+		enumerator = WitnessEnumerator.of(finite, ba);
+		assertFalse(enumerator.isInfinite());
+		words.clear();
+		for (Iterator<List<Character>> it = enumerator.iterator(); it.hasNext();)
+			words.add(it.next());
+		assertTrue(words.equals(Arrays.asList(lOfS("a"), lOfS("ab"))));
+
+		// every accepted word of length 4 is sampled about equally often
+		enumerator = WitnessEnumerator.of(getNthLastIsA(ba, 3), ba);
+		Random random = new Random(0);
+		Map<List<Character>, Integer> frequency = new HashMap<List<Character>, Integer>();
+		for (int i = 0; i < 8000; i++) {
+			List<Character> word = enumerator.sample(4, random);
+			assertTrue(getNthLastIsA(ba, 3).accepts(word, ba));
+			Integer seen = frequency.get(word);
+			frequency.put(word, seen == null ? 1 : seen + 1);
+		}
+		assertTrue(frequency.size() == 8);
+		for (Integer seen : frequency.values())
+			assertTrue(seen > 800 && seen < 1200);
+		assertTrue(enumerator.sample(2, random) == null);
+	}
+
+	@Test
+	public void testUniformWordSampler() throws TimeoutException {
+		// [a-c]x | [b-d]y, where b and c start both
+		Collection<SFAMove<CharPred, Character>> transitions = new LinkedList<SFAMove<CharPred, Character>>();
+		transitions.add(new SFAInputMove<CharPred, Character>(0, 1, new CharPred('a', 'c')));
+		transitions.add(new SFAInputMove<CharPred, Character>(0, 2, new CharPred('b', 'd')));
+		transitions.add(new SFAInputMove<CharPred, Character>(1, 3, new CharPred('x')));
+		transitions.add(new SFAInputMove<CharPred, Character>(2, 3, new CharPred('y')));
+		SFA<CharPred, Character> aut = SFA.MkSFA(transitions, 0, Arrays.asList(1, 2, 3), ba);
+
+		UniformWordSampler<CharPred, Character> sampler = UniformWordSampler.of(aut, ba);
+		assertTrue(sampler.countOfLength(0).equals(BigInteger.ZERO));
+		assertTrue(sampler.countOfLength(1).equals(BigInteger.valueOf(4)));
+		assertTrue(sampler.countOfLength(2).equals(BigInteger.valueOf(6)));
+		assertTrue(sampler.sample(3, new Random(0)) == null);
+		assertTrue(sampler.sample(3, 10, 0, true).isEmpty());
+
+		Random random = new Random(0);
+		Map<List<Character>, Integer> frequency = new HashMap<List<Character>, Integer>();
+		for (int i = 0; i < 6000; i++) {
+			List<Character> word = sampler.sample(2, random);
+			assertTrue(aut.accepts(word, ba));
+			Integer seen = frequency.get(word);
+			frequency.put(word, seen == null ? 1 : seen + 1);
+		}
+		assertTrue(frequency.size() == 6);
+		for (Integer seen : frequency.values())
+			assertTrue(seen > 800 && seen < 1200);
+
+		// the streams give the same words in parallel
+		SFA<CharPred, Character> nthLast = getNthLastIsA(ba, 3);
+		sampler = UniformWordSampler.of(nthLast, ba);
+		assertTrue(sampler.countOfLength(10).equals(BigInteger.ONE.shiftLeft(9)));
+		List<List<Character>> words = sampler.sample(10, 1000, 42, false);
+		assertTrue(words.size() == 1000);
+		assertTrue(words.equals(sampler.sample(10, 1000, 42, true)));
+		for (List<Character> word : words)
+			assertTrue(nthLast.accepts(word, ba));
+	}
+
+	private static List<String> sortedMoves(SFA<CharPred, Character> aut) {
+		List<String> moves = new ArrayList<String>();
+		for (SFAMove<CharPred, Character> move : aut.getTransitions())
+			moves.add(move.toString());
+		Collections.sort(moves);
+		moves.add("final " + new TreeSet<Integer>(aut.getFinalStates()));
+		return moves;
+	}
+
 	@Test
 	public void testMkTotal() throws TimeoutException {
 		SFA<CharPred, Character> autcSfa = getSFAc(ba);
@@ -341,6 +642,16 @@ public class SFAUnitTest {
 	}
 
 	// [a-z]+ ambiguous
+	// (a|b)*a(a|b)^(n-1): the n-th symbol from the end is an a
+	private SFA<CharPred, Character> getNthLastIsA(UnaryCharIntervalSolver ba, int n) throws TimeoutException {
+		Collection<SFAMove<CharPred, Character>> transitions = new LinkedList<SFAMove<CharPred, Character>>();
+		transitions.add(new SFAInputMove<CharPred, Character>(0, 0, new CharPred('a', 'b')));
+		transitions.add(new SFAInputMove<CharPred, Character>(0, 1, new CharPred('a')));
+		for (int i = 1; i < n; i++)
+			transitions.add(new SFAInputMove<CharPred, Character>(i, i + 1, new CharPred('a', 'b')));
+		return SFA.MkSFA(transitions, 0, Arrays.asList(n), ba);
+	}
+
 	private SFA<CharPred, Character> getAmbSFA(UnaryCharIntervalSolver ba) {
 
 		Collection<SFAMove<CharPred, Character>> transitionsA = new LinkedList<SFAMove<CharPred, Character>>();
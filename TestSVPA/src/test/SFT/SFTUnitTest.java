@@ -15,15 +15,27 @@ import java.util.Set;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
 
 import theory.characters.*;
 import transducers.sft.SFT;
 import transducers.sft.SFTMove;
 import transducers.sft.SFTInputMove;
 import transducers.sft.SFTEpsilon;
+import transducers.sft.SFTPipeline;
+import transducers.sft.SFTStateAnalysis;
+import transducers.sft.SFTParallelEquivalence;
 import automata.sfa.SFA;
 import automata.sfa.SFAMove;
 import automata.sfa.SFAInputMove;
+import sftlearning.ModelFile;
+import sftlearning.ReadSpecification;
 
 import theory.intervals.UnaryCharIntervalSolver;
 
@@ -515,6 +527,145 @@ public class SFTUnitTest {
 		// empty sft is just case 1.1, so no more test is needed
 	}
 
+	/**
+	 *
+	 * Method: ModelFile.write(SFT<CharPred, CharFunc, Character> sft, String path), ModelFile.open(String path)
+	 *
+	 */
+	@Test
+	public void testModelFile() throws Exception {
+		File file = File.createTempFile("model", ".sft");
+		file.deleteOnExit();
+		String path = file.getPath();
+
+		List<SFT<CharPred, CharFunc, Character>> sfts = new ArrayList<SFT<CharPred, CharFunc, Character>>(allSFTs);
+		// a final state with tails
+		List<SFTMove<CharPred, CharFunc, Character>> transitions = new ArrayList<SFTMove<CharPred, CharFunc, Character>>();
+		List<CharFunc> outputs = new ArrayList<CharFunc>();
+		outputs.add(CharOffset.TO_UPPER_CASE);
+		outputs.add(new CharConstant('-'));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(0, 0, new CharPred('a', 'z'), outputs));
+		Map<Integer, Set<List<Character>>> finalStatesAndTails = new HashMap<Integer, Set<List<Character>>>();
+		finalStatesAndTails.put(0, new HashSet<List<Character>>());
+		finalStatesAndTails.get(0).add(stringToListOfCharacter("!\u00e9"));
+		finalStatesAndTails.get(0).add(stringToListOfCharacter("?"));
+		sfts.add(SFT.MkSFT(transitions, 0, finalStatesAndTails, ba));
+
+		for (SFT<CharPred, CharFunc, Character> sft: sfts) {
+			ModelFile.write(sft, path);
+			ModelFile model = ModelFile.open(path);
+			assertTrue(model.isSFT());
+			assertEquals(sft.stateCount().intValue(), model.stateCount());
+			assertEquals(sft.transitionCount().intValue(), model.transitionCount());
+			SFT<CharPred, CharFunc, Character> read = model.toSFT();
+			assertTrue(read == model.toSFT());
+			assertEquals(sft.getInitialState(), read.getInitialState());
+			assertEquals(sft.getFinalStatesAndTails(), read.getFinalStatesAndTails());
+			assertEquals(sft.isDeterministic(), read.isDeterministic());
+			assertEquals(sortedTransitions(sft), sortedTransitions(read));
+		}
+
+		SFA<CharPred, Character> domain = mySFT311.getDomain(ba);
+		ModelFile.write(domain, path);
+		ModelFile model = ModelFile.open(path);
+		assertFalse(model.isSFT());
+		assertTrue(domain.isEquivalentTo(model.toSFA(), ba));
+		try {
+			model.toSFT();
+			assertTrue(false);
+		} catch (IOException e) {
+			// the file holds an SFA
+		}
+
+		// overwriting a file replaces it, the models still open keep decoding the old content
+		ModelFile opened = ModelFile.open(path);
+		ModelFile.write(mySFT311, path);
+		assertTrue(domain.isEquivalentTo(opened.toSFA(), ba));
+		assertTrue(ModelFile.open(path).isSFT());
+
+		// a truncated file is rejected when it is opened
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 1);
+		raf.close();
+		try {
+			ModelFile.open(path);
+			assertTrue(false);
+		} catch (IOException e) {
+			// the size does not match the header
+		}
+	}
+
+	/**
+	 *
+	 * Method: ReadSpecification.read(String filePath)
+	 *
+	 */
+	@Test
+	public void testReadSpecification() throws Exception {
+		File dir = File.createTempFile("models", "");
+		dir.delete();
+		dir.mkdir();
+		dir.deleteOnExit();
+		String path = dir.getPath() + File.separator;
+
+		List<SFT<CharPred, CharFunc, Character>> sfts = new ArrayList<SFT<CharPred, CharFunc, Character>>(allSFTs);
+		// escaped characters, negative offsets and constant spaces in the labels, many transitions
+		List<SFTMove<CharPred, CharFunc, Character>> transitions = new ArrayList<SFTMove<CharPred, CharFunc, Character>>();
+		List<CharFunc> outputs = new ArrayList<CharFunc>();
+		outputs.add(new CharConstant(' '));
+		outputs.add(CharOffset.TO_UPPER_CASE);
+		outputs.add(new CharConstant('"'));
+		outputs.add(new CharConstant('\u00e9'));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(0, 1, new CharPred('[', ']'), outputs));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(0, 1, new CharPred('-'), new ArrayList<CharFunc>()));
+		for (int i = 1; i < 3000; i++) {
+			outputs = new ArrayList<CharFunc>();
+			outputs.add(CharOffset.IDENTITY);
+			transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(i, i + 1, new CharPred('a', 'z'), outputs));
+		}
+		Map<Integer, Set<List<Character>>> finalStatesAndTails = new HashMap<Integer, Set<List<Character>>>();
+		finalStatesAndTails.put(3000, new HashSet<List<Character>>());
+		sfts.add(SFT.MkSFT(transitions, 0, finalStatesAndTails, ba));
+
+		for (SFT<CharPred, CharFunc, Character> sft: sfts) {
+			assertTrue(sft.createDotFile("model", path));
+			new File(path + "model.dot").deleteOnExit();
+			SFT<CharPred, CharFunc, Character> read = ReadSpecification.read(path + "model.dot");
+			assertEquals(sft.getInitialState(), read.getInitialState());
+			assertEquals(new HashSet<Integer>(sft.getFinalStates()), new HashSet<Integer>(read.getFinalStates()));
+			assertEquals(sft.isDeterministic(), read.isDeterministic());
+			assertEquals(sortedTransitions(sft), sortedTransitions(read));
+		}
+
+		// errors are reported with their line
+		try {
+			ReadSpecification.read(path + "missing.dot");
+			assertTrue(false);
+		} catch (IOException e) {
+			// the file does not exist
+		}
+		try {
+			ReadSpecification.read(new StringReader("digraph m{\n0[label=0]\nXX0 -> 0\n0 -> 0 [label=\"[b-a]\"]\n}"), "m");
+			assertTrue(false);
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("m:4:"));
+		}
+		try {
+			ReadSpecification.read(new StringReader("digraph m{\n0[label=0]\n0 -> 0 [label=\"[a]\"]\n}"), "m");
+			assertTrue(false);
+		} catch (IOException e) {
+			// no initial state
+		}
+	}
+
+	private static List<String> sortedTransitions(SFT<CharPred, CharFunc, Character> sft) {
+		List<String> transitions = new ArrayList<String>();
+		for (SFTMove<CharPred, CharFunc, Character> move: sft.getTransitions())
+			transitions.add(move.toString());
+		Collections.sort(transitions);
+		return transitions;
+	}
+
 	/**
 	 *
 	 * Method: outputOn(List<S> input, BooleanAlgebraSubst<P, F, S> ba)
@@ -535,6 +686,53 @@ public class SFTUnitTest {
 		// it is tested in method testCompose
 	}
 
+	/**
+	 *
+	 * Method: outputsOn(SFT<P, F, S> sftWithEps, List<S> input, BooleanAlgebraSubst<P, F, S> ba) and
+	 * countDistinctOutputs(SFT<P, F, S> sftWithEps, List<S> input, BooleanAlgebraSubst<P, F, S> ba)
+	 *
+	 */
+	@Test
+	public void testOutputsOn() throws Exception {
+		// 0 -a/x-> 1, 0 -a/y-> 1, 0 -a/x-> 2 where only state 1 is final and 1 -[a-z]/id-> 1
+		List<SFTMove<CharPred, CharFunc, Character>> transitions = new LinkedList<SFTMove<CharPred, CharFunc, Character>>();
+		List<CharFunc> outputX = new ArrayList<CharFunc>();
+		outputX.add(new CharConstant('x'));
+		List<CharFunc> outputY = new ArrayList<CharFunc>();
+		outputY.add(new CharConstant('y'));
+		List<CharFunc> identity = new ArrayList<CharFunc>();
+		identity.add(CharOffset.IDENTITY);
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(0, 1, new CharPred('a'), outputX));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(0, 1, new CharPred('a'), outputY));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(0, 2, new CharPred('a'), outputX));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(2, 2, new CharPred('a', 'z'), identity));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(1, 1, new CharPred('a', 'z'), identity));
+		Map<Integer, Set<List<Character>>> finStatesAndTails = new HashMap<Integer, Set<List<Character>>>();
+		finStatesAndTails.put(1, new HashSet<List<Character>>());
+		SFT<CharPred, CharFunc, Character> sft = SFT.MkSFT(transitions, 0, finStatesAndTails, ba);
+
+		Set<List<Character>> outputs = new HashSet<List<Character>>();
+		Iterator<List<Character>> it = sft.outputsOn(stringToListOfCharacter("abc"), ba);
+		while (it.hasNext())
+			outputs.add(it.next());
+		Set<List<Character>> expected = new HashSet<List<Character>>();
+		expected.add(stringToListOfCharacter("xbc"));
+		expected.add(stringToListOfCharacter("ybc"));
+		assertEquals(expected, outputs);
+		assertEquals(2, sft.countDistinctOutputs(stringToListOfCharacter("abc"), ba));
+		assertTrue(expected.contains(sft.outputOn(stringToListOfCharacter("abc"), ba)));
+
+		// the runs are explored without recursion, so long inputs do not grow the stack
+		StringBuilder longInput = new StringBuilder("a");
+		for (int i = 0; i < 100000; i++)
+			longInput.append('b');
+		assertEquals(2, sft.countDistinctOutputs(stringToListOfCharacter(longInput.toString()), ba));
+
+		assertFalse(sft.outputsOn(stringToListOfCharacter("b"), ba).hasNext());
+		assertEquals(0, sft.countDistinctOutputs(stringToListOfCharacter("b"), ba));
+		assertEquals(null, sft.outputOn(stringToListOfCharacter("b"), ba));
+	}
+
 	/**
 	 *
 	 * Method: composeWith(SFT<P, F, S> sft, BooleanAlgebraSubst<P, F, S> ba)
@@ -626,6 +824,132 @@ public class SFTUnitTest {
 
 	}
 
+	/**
+	 *
+	 * Method: getStateAnalysis(BooleanAlgebraSubst<P, F, S> ba)
+	 *
+	 */
+	@Test
+	public void testStateAnalysis() throws Exception {
+		// 0 -[b-z]/id-> 0, 0 -a/id-> 1, 1 -[a-z]/id-> 2, 2 -[a-z]/x-> 2 where all states are final
+		List<SFTMove<CharPred, CharFunc, Character>> transitions = new LinkedList<SFTMove<CharPred, CharFunc, Character>>();
+		List<CharFunc> identity = new ArrayList<CharFunc>();
+		identity.add(CharOffset.IDENTITY);
+		List<CharFunc> outputX = new ArrayList<CharFunc>();
+		outputX.add(new CharConstant('x'));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(0, 0, new CharPred('b', 'z'), identity));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(0, 1, new CharPred('a'), identity));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(1, 2, new CharPred('a', 'z'), identity));
+		transitions.add(new SFTInputMove<CharPred, CharFunc, Character>(2, 2, new CharPred('a', 'z'), outputX));
+		Map<Integer, Set<List<Character>>> finStatesAndTails = new HashMap<Integer, Set<List<Character>>>();
+		finStatesAndTails.put(0, new HashSet<List<Character>>());
+		finStatesAndTails.put(1, new HashSet<List<Character>>());
+		finStatesAndTails.put(2, new HashSet<List<Character>>());
+		SFT<CharPred, CharFunc, Character> sft = SFT.MkSFT(transitions, 0, finStatesAndTails, ba);
+
+		SFTStateAnalysis<CharPred, CharFunc, Character> analysis = sft.getStateAnalysis(ba);
+		assertTrue(analysis == sft.getStateAnalysis(ba));
+		// an analysis over another algebra is not reused
+		UnaryCharIntervalSolver otherBa = new UnaryCharIntervalSolver();
+		SFTStateAnalysis<CharPred, CharFunc, Character> otherAnalysis = sft.getStateAnalysis(otherBa);
+		assertTrue(otherAnalysis != analysis);
+		assertTrue(otherAnalysis == sft.getStateAnalysis(otherBa));
+		analysis = sft.getStateAnalysis(ba);
+		assertEquals(0, analysis.getAccessString(0).size());
+		assertEquals(stringToListOfCharacter("a"), analysis.getAccessString(1));
+		assertEquals(2, analysis.getAccessString(2).size());
+		assertEquals(null, analysis.getAccessString(3));
+
+		assertEquals(1, analysis.getDistinguishingSuffix(1, 2).size());
+		assertEquals(1, analysis.getDistinguishingSuffix(0, 2).size());
+		List<Character> suffix = analysis.getDistinguishingSuffix(0, 1);
+		assertEquals(2, suffix.size());
+		assertEquals(suffix, analysis.getDistinguishingSuffix(1, 0));
+		assertEquals(null, analysis.getDistinguishingSuffix(1, 1));
+	}
+
+	/**
+	 *
+	 * Method: SFTParallelEquivalence.decide1equality(SFT<P, F, S> sft1withEps, SFT<P, F, S> sft2withEps, BooleanAlgebraSubst<P, F, S> ba, ForkJoinPool pool) and
+	 * SFTParallelEquivalence.witness1disequality(SFT<P, F, S> sft1withEps, SFT<P, F, S> sft2withEps, BooleanAlgebraSubst<P, F, S> ba, ForkJoinPool pool)
+	 *
+	 */
+	@Test
+	public void testDecide1equalityParallel() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (SFT<CharPred, CharFunc, Character> sft1 : allSFTs) {
+			if (!sft1.isDeterministic() || !sft1.getEpsilonMovesFrom(sft1.getStates()).isEmpty())
+				continue;
+			for (SFT<CharPred, CharFunc, Character> sft2 : allSFTs) {
+				if (!sft2.isDeterministic() || !sft2.getEpsilonMovesFrom(sft2.getStates()).isEmpty())
+					continue;
+				boolean equal = sft1.decide1equality(sft2, ba);
+				assertEquals(equal, SFTParallelEquivalence.decide1equality(sft1, sft2, ba, pool));
+				List<Character> witness = SFTParallelEquivalence.witness1disequality(sft1, sft2, ba, pool);
+				assertEquals(equal, witness == null);
+			}
+		}
+
+		// a product as deep as its number of states must not grow the stack of the workers
+		List<SFTMove<CharPred, CharFunc, Character>> chainTransitions = new LinkedList<SFTMove<CharPred, CharFunc, Character>>();
+		int length = 20000;
+		for (int i = 0; i < length; i++) {
+			List<CharFunc> output = new ArrayList<CharFunc>();
+			output.add(CharOffset.IDENTITY);
+			chainTransitions.add(new SFTInputMove<CharPred, CharFunc, Character>(i, i + 1, new CharPred('a'), output));
+		}
+		Map<Integer, Set<List<Character>>> chainFinStatesAndTails = new HashMap<Integer, Set<List<Character>>>();
+		chainFinStatesAndTails.put(length, new HashSet<List<Character>>());
+		SFT<CharPred, CharFunc, Character> chain = SFT.MkSFT(chainTransitions, 0, chainFinStatesAndTails, ba);
+		assertTrue(SFTParallelEquivalence.decide1equality(chain, chain, ba, pool));
+		assertEquals(null, SFTParallelEquivalence.witness1disequality(chain, chain, ba, pool));
+		pool.shutdown();
+	}
+
+	/**
+	 *
+	 * Method: SFTPipeline.MkFused(List<SFT<P, F, S>> stages, BooleanAlgebraSubst<P, F, S> ba) and
+	 * SFTPipeline.MkComposed(List<SFT<P, F, S>> stages, BooleanAlgebraSubst<P, F, S> ba)
+	 *
+	 */
+	@Test
+	public void testPipeline() throws Exception {
+		List<List<Character>> inputs = new ArrayList<List<Character>>();
+		inputs.add(stringToListOfCharacter(""));
+		inputs.add(stringToListOfCharacter("a"));
+		inputs.add(stringToListOfCharacter("b"));
+		inputs.add(stringToListOfCharacter("c"));
+		inputs.add(stringToListOfCharacter("bb"));
+		inputs.add(stringToListOfCharacter("ab"));
+		inputs.add(stringToListOfCharacter("abcz"));
+		inputs.add(stringToListOfCharacter("1b- *&@3"));
+
+		List<SFT<CharPred, CharFunc, Character>> deterministicSFTs = new ArrayList<SFT<CharPred, CharFunc, Character>>();
+		for (SFT<CharPred, CharFunc, Character> sft: allSFTs)
+			if (sft.isDeterministic() && sft.getEpsilonMovesFrom(sft.getStates()).isEmpty())
+				deterministicSFTs.add(sft);
+
+		for (SFT<CharPred, CharFunc, Character> first: deterministicSFTs)
+			for (SFT<CharPred, CharFunc, Character> second: deterministicSFTs) {
+				List<SFT<CharPred, CharFunc, Character>> stages = new ArrayList<SFT<CharPred, CharFunc, Character>>();
+				stages.add(first);
+				stages.add(second);
+				stages.add(first);
+				SFTPipeline<CharPred, CharFunc, Character> fused = SFTPipeline.MkFused(stages, ba);
+				SFTPipeline<CharPred, CharFunc, Character> composed = SFTPipeline.MkComposed(stages, ba);
+				assertEquals(3, fused.stageCount());
+				assertEquals(1, composed.stageCount());
+				for (List<Character> input: inputs) {
+					List<Character> expected = input;
+					for (SFT<CharPred, CharFunc, Character> stage: stages)
+						if (expected != null)
+							expected = stage.outputOn(expected, ba);
+					assertEquals(expected, fused.outputOn(input));
+					assertEquals(expected, composed.outputOn(input));
+				}
+			}
+	}
+
 	/**
 	 * convert a string into a list of characters
 	 * @param input a string
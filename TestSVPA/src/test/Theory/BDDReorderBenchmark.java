@@ -0,0 +1,102 @@
+package test.Theory;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.sat4j.specs.TimeoutException;
+
+import automata.safa.SAFA;
+import automata.safa.booleanexpression.BDDExpressionFactory;
+import logic.ltl.And;
+import logic.ltl.Eventually;
+import logic.ltl.LTLFormula;
+import logic.ltl.Predicate;
+import logic.ltl.True;
+import theory.bdd.BDD;
+import theory.bdd.BDDFactory;
+import theory.bdd.JFactory;
+import theory.bddalgebra.BDDSolver;
+
+/**
+ * Peak node count and runtime of the BDD workloads of LTLUnitTest with and without automatic
+ * reordering: the emptiness of F p0 & ... & F pn (testLargeEmptinessBDD) and the equivalence of
+ * that conjunction with the one nested the other way round (both check congruence with
+ * SATRelation), and the reverse equivalence of testLargeEquiv, which only computes minterms of the
+ * predicates. Both the predicates and the SAFA state expressions are built with
+ * BDDSolver(numVars, ReorderMethod), and the peaks of the two factories are reported separately.
+ */
+public class BDDReorderBenchmark {
+
+	static final int MIN_SIZE = 5;
+	static final int MAX_SIZE = 10;
+
+	// a table this small fills up on the larger sizes, which triggers the reorderings
+	static final int NODES = 1000;
+
+	static final BDDFactory.ReorderMethod[] METHODS = { BDDFactory.REORDER_NONE, BDDFactory.REORDER_SIFT,
+			BDDFactory.REORDER_SIFTITE, BDDFactory.REORDER_WIN2, BDDFactory.REORDER_WIN2ITE };
+
+	interface Workload {
+		boolean run(BDDSolver predicates, BDDExpressionFactory states, int size) throws TimeoutException;
+	}
+
+	public static void main(String[] args) throws TimeoutException {
+		run("LTL emptiness: F p0 & ... & F pn", new Workload() {
+			public boolean run(BDDSolver bs, BDDExpressionFactory bef, int size) throws TimeoutException {
+				SAFA<BDD, BDD> safa = new And<>(eventualities(bs, size)).getSAFA(bs);
+				return SAFA.isEquivalent(safa, SAFA.getEmptySAFA(bs), bs, bef).first;
+			}
+		});
+		run("SAFA equivalence: F p0 & ... & F pn against F pn & ... & F p0", new Workload() {
+			public boolean run(BDDSolver bs, BDDExpressionFactory bef, int size) throws TimeoutException {
+				List<LTLFormula<BDD, BDD>> conjuncts = eventualities(bs, size);
+				SAFA<BDD, BDD> safa1 = new And<>(conjuncts).getSAFA(bs);
+				LTLFormula<BDD, BDD> tot = new True<>();
+				for (LTLFormula<BDD, BDD> conjunct : conjuncts)
+					tot = new And<>(conjunct, tot);
+				SAFA<BDD, BDD> safa2 = tot.getSAFA(bs);
+				return SAFA.isEquivalent(safa1, safa2, bs, bef).first;
+			}
+		});
+		run("Reverse equivalence: F p0 & ... & F pn against F p0 & ... & F pn-1", REVERSE_EQUIVALENCE);
+	}
+
+	// does not build state expressions, only the minterms of the predicates
+	static final Workload REVERSE_EQUIVALENCE = new Workload() {
+		public boolean run(BDDSolver bs, BDDExpressionFactory bef, int size) throws TimeoutException {
+			List<LTLFormula<BDD, BDD>> conjuncts = eventualities(bs, size);
+			SAFA<BDD, BDD> safa1 = new And<>(conjuncts).getSAFA(bs);
+			SAFA<BDD, BDD> safa2 = new And<>(conjuncts.subList(0, size - 1)).getSAFA(bs);
+			return SAFA.areReverseEquivalent(safa1, safa2, bs);
+		}
+	};
+
+	static List<LTLFormula<BDD, BDD>> eventualities(BDDSolver bs, int size) {
+		List<LTLFormula<BDD, BDD>> conjuncts = new LinkedList<>();
+		for (int i = 0; i < size; i++)
+			conjuncts.add(new Eventually<>(new Predicate<BDD, BDD>(bs.factory.ithVar(i))));
+		return conjuncts;
+	}
+
+	static void run(String name, Workload workload) throws TimeoutException {
+		System.out.println(name);
+		System.out.println(String.format("  %-4s %-8s %7s %10s %12s %12s %10s", "size", "method", "result",
+				"time (ms)", "peak preds", "peak states", "reorders"));
+		for (int size = MIN_SIZE; size <= MAX_SIZE; size++) {
+			for (BDDFactory.ReorderMethod method : METHODS) {
+				BDDSolver bs = new BDDSolver(size, NODES, NODES, method);
+				BDDSolver states = new BDDSolver(size, NODES, NODES, method);
+
+				long start = System.currentTimeMillis();
+				boolean result = workload.run(bs, new BDDExpressionFactory(states), size);
+				long time = System.currentTimeMillis() - start;
+
+				System.out.println(String.format("  %-4d %-8s %7s %10d %12d %12d %10d", size, method, result, time,
+						((JFactory) bs.factory).getPeakNodeNum(), ((JFactory) states.factory).getPeakNodeNum(),
+						bs.factory.getReorderStats().num + states.factory.getReorderStats().num));
+				bs.factory.done();
+				states.factory.done();
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package test.Theory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.sat4j.specs.TimeoutException;
+
+import specifications.CyberchefSpecifications;
+import theory.BooleanAlgebraSubst;
+import theory.bddalgebra.BDDCharSolver;
+import theory.characters.CharFunc;
+import theory.characters.CharPred;
+import theory.intervals.UnaryCharIntervalSolver;
+import transducers.sft.SFT;
+
+/**
+ * Compares the interval and the BDD solver for characters on the bundled specifications and on predicates made of
+ * many scattered characters, like the ones learned from entity tables.
+ */
+public class CharSolverBenchmark {
+
+	static final int ROUNDS = 20;
+
+	public static void main(String[] args) throws TimeoutException {
+		List<SFT<CharPred, CharFunc, Character>> specs = new ArrayList<SFT<CharPred, CharFunc, Character>>();
+		specs.add(CyberchefSpecifications.getLowercaseSpec());
+		specs.add(CyberchefSpecifications.getRemoveNullBytesSpec());
+		specs.add(CyberchefSpecifications.getRemoveWhitespaceSpec());
+
+		List<BooleanAlgebraSubst<CharPred, CharFunc, Character>> solvers = new ArrayList<BooleanAlgebraSubst<CharPred, CharFunc, Character>>();
+		solvers.add(new UnaryCharIntervalSolver());
+		solvers.add(new BDDCharSolver());
+
+		System.out.println(String.format("%-28s %12s %12s", "solver", "specs (ms)", "scattered (ms)"));
+		for (BooleanAlgebraSubst<CharPred, CharFunc, Character> ba : solvers) {
+			long start = System.currentTimeMillis();
+			for (int round = 0; round < ROUNDS; round++) {
+				for (SFT<CharPred, CharFunc, Character> sft1 : specs) {
+					sft1.getDomain(ba);
+					for (SFT<CharPred, CharFunc, Character> sft2 : specs) {
+						sft1.composeWith(sft2, ba);
+						sft1.decide1equality(sft2, ba);
+					}
+				}
+			}
+			long specsTime = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			scattered(ba);
+			long scatteredTime = System.currentTimeMillis() - start;
+			System.out.println(String.format("%-28s %12d %12d", ba.getClass().getSimpleName(), specsTime, scatteredTime));
+		}
+	}
+
+	// unions, intersections and complements of sets of 200 random characters
+	static void scattered(BooleanAlgebraSubst<CharPred, CharFunc, Character> ba) throws TimeoutException {
+		Random r = new Random(0);
+		List<CharPred> preds = new ArrayList<CharPred>();
+		for (int n = 0; n < 100; n++) {
+			List<Character> chars = new ArrayList<Character>();
+			for (int k = 0; k < 200; k++)
+				chars.add((char) r.nextInt(10000));
+			preds.add(ba.MkAtoms(chars));
+		}
+		CharPred union = ba.MkOr(preds);
+		for (CharPred p1 : preds) {
+			ba.MkAnd(p1, ba.MkNot(union));
+			for (CharPred p2 : preds)
+				ba.AreEquivalent(ba.MkAnd(p1, p2), ba.MkAnd(p2, p1));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package test.Theory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import specifications.CyberchefSpecifications;
+import theory.bddalgebra.BDDCharSolver;
+import theory.characters.CharConstant;
+import theory.characters.CharFunc;
+import theory.characters.CharOffset;
+import theory.characters.CharPred;
+import theory.characters.StdCharPred;
+import theory.intervals.UnaryCharIntervalSolver;
+import transducers.sft.SFT;
+
+public class TestBDDCharTheory {
+
+	BDDCharSolver ba = new BDDCharSolver();
+	UnaryCharIntervalSolver intervals = new UnaryCharIntervalSolver();
+
+	@Test
+	public void testConnectives() {
+		Random r = new Random(0);
+		for (int n = 0; n < 200; n++) {
+			CharPred p1 = randomPred(r);
+			CharPred p2 = randomPred(r);
+			assertEquals(intervals.MkAnd(p1, p2), ba.MkAnd(p1, p2));
+			assertEquals(intervals.MkOr(p1, p2), ba.MkOr(p1, p2));
+			assertEquals(intervals.MkNot(p1), ba.MkNot(p1));
+			assertEquals(intervals.MkOr(Arrays.asList(p1, p2, p1)), ba.MkOr(Arrays.asList(p1, p2, p1)));
+			assertEquals(p1.equals(p2), ba.AreEquivalent(p1, p2));
+			assertTrue(ba.AreEquivalent(p1, ba.MkNot(ba.MkNot(p1))));
+			assertEquals(p1, ba.toPred(ba.toBDD(p1)));
+		}
+		assertEquals(StdCharPred.TRUE, ba.MkOr(new CharPred('a', 'b'), ba.MkNot(new CharPred('a', 'b'))));
+		assertEquals(StdCharPred.FALSE, ba.MkAnd(StdCharPred.TRUE, StdCharPred.FALSE));
+		assertEquals(new CharPred(CharPred.MAX_CHAR), ba.MkNot(new CharPred(CharPred.MIN_CHAR, (char) (CharPred.MAX_CHAR - 1))));
+	}
+
+	@Test
+	public void testLazyResults() {
+		Random r = new Random(3);
+		for (int n = 0; n < 50; n++) {
+			CharPred p1 = randomPred(r);
+			CharPred p2 = randomPred(r);
+			CharPred or = ba.MkOr(p1, p2);
+			// membership and satisfiability are decided on the BDD, before the intervals are read
+			for (char c = 0; c < 200; c++)
+				assertEquals(p1.isSatisfiedBy(c) || p2.isSatisfiedBy(c), ba.HasModel(or, c));
+			assertEquals(intervals.IsSatisfiable(intervals.MkAnd(p1, p2)), ba.IsSatisfiable(ba.MkAnd(p1, p2)));
+			CharPred expected = intervals.MkOr(p1, p2);
+			assertEquals(expected.hashCode(), or.hashCode());
+			assertEquals(expected.getIntervals(), or.getIntervals());
+			assertTrue(or.intern() == expected);
+		}
+	}
+
+	@Test
+	public void testScatteredCharacters() {
+		List<Character> chars = new ArrayList<Character>();
+		for (char c = 0; c < 2000; c += 3)
+			chars.add(c);
+		CharPred p = ba.MkAtoms(chars);
+		assertEquals(chars.size(), p.intervalCount());
+		assertEquals(intervals.MkNot(p), ba.MkNot(p));
+		CharPred q = ba.MkAnd(p, ba.MkNot(new CharPred((char) 0, (char) 999)));
+		for (char c = 0; c < 2100; c++)
+			assertEquals(c >= 1000 && c < 2000 && c % 3 == 0, q.isSatisfiedBy(c));
+	}
+
+	@Test
+	public void testSubstitution() {
+		Random r = new Random(1);
+		for (int n = 0; n < 20; n++) {
+			CharPred p = randomPred(r);
+			CharFunc f = new CharOffset(r.nextInt(60) - 30);
+			CharPred subst = ba.MkSubstFuncPred(f, p);
+			CharPred output = ba.getRestrictedOutput(p, f);
+			for (char c = 0; c < 200; c++) {
+				assertEquals(p.isSatisfiedBy(f.instantiateWith(c)), subst.isSatisfiedBy(c));
+				if (p.isSatisfiedBy(c))
+					assertTrue(output.isSatisfiedBy(f.instantiateWith(c)));
+			}
+			assertEquals(ba.MkSubstFuncPred(f, p), ba.MkSubstFuncPred(f, p));
+		}
+		CharPred max = new CharPred(CharPred.MAX_CHAR);
+		assertTrue(ba.MkSubstFuncPred(new CharOffset(5), max).isSatisfiedBy((char) (CharPred.MAX_CHAR - 3)));
+		assertTrue(ba.MkSubstFuncPred(new CharOffset(-5), new CharPred(CharPred.MIN_CHAR)).isSatisfiedBy('\u0003'));
+		assertEquals(StdCharPred.TRUE, ba.MkSubstFuncPred(new CharConstant('a'), new CharPred('a')));
+		assertEquals(new CharPred('a', 'z'), ba.getRestrictedOutput(new CharPred('A', 'Z'), CharOffset.TO_LOWER_CASE));
+
+		assertTrue(ba.CheckGuardedEquality(new CharPred('a'), CharOffset.IDENTITY, new CharConstant('a')));
+		assertFalse(ba.CheckGuardedEquality(new CharPred('a', 'b'), CharOffset.IDENTITY, new CharConstant('a')));
+		assertTrue(ba.CheckGuardedEquality(new CharPred('A'), CharOffset.TO_LOWER_CASE, new CharConstant('a')));
+	}
+
+	@Test
+	public void testWitness() {
+		Random r = new Random(2);
+		for (int n = 0; n < 100; n++) {
+			CharPred p = randomPred(r);
+			Character c = ba.generateWitness(p);
+			if (p.getIntervals().isEmpty())
+				assertEquals(null, c);
+			else
+				assertTrue(p.isSatisfiedBy(c));
+		}
+	}
+
+	@Test
+	public void testTransducers() throws Exception {
+		SFT<CharPred, CharFunc, Character> lowercase = CyberchefSpecifications.getLowercaseSpec();
+		SFT<CharPred, CharFunc, Character> nullBytes = CyberchefSpecifications.getRemoveNullBytesSpec();
+		assertTrue(lowercase.getDomain(ba).isEquivalentTo(lowercase.getDomain(intervals), intervals));
+		assertTrue(lowercase.decide1equality(lowercase, ba));
+		assertEquals(lowercase.decide1equality(nullBytes, intervals), lowercase.decide1equality(nullBytes, ba));
+		SFT<CharPred, CharFunc, Character> composed = lowercase.composeWith(nullBytes, ba);
+		List<Character> input = Arrays.asList('A', '\u0000', 'b');
+		assertEquals(lowercase.composeWith(nullBytes, intervals).outputOn(input, intervals), composed.outputOn(input, ba));
+	}
+
+	private CharPred randomPred(Random r) {
+		ImmutableList.Builder<ImmutablePair<Character, Character>> intervals = ImmutableList.builder();
+		for (int k = r.nextInt(5); k > 0; k--) {
+			char left = (char) r.nextInt(180);
+			intervals.add(ImmutablePair.of(left, (char) (left + r.nextInt(8))));
+		}
+		return new CharPred(intervals.build());
+	}
+}
@@ -0,0 +1,108 @@
+package test.Theory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+import org.sat4j.specs.TimeoutException;
+
+import automata.safa.SAFA;
+import logic.ltl.And;
+import logic.ltl.Eventually;
+import logic.ltl.LTLFormula;
+import logic.ltl.Predicate;
+import theory.bdd.BDD;
+import theory.bdd.BDDFactory;
+import theory.bdd.JFactory;
+import theory.bddalgebra.BDDSolver;
+
+public class TestBDDReordering {
+
+	static final int PAIRS = 10;
+
+	@Test
+	public void testReorderWithoutBlocks() {
+		BDDFactory f = JFactory.init(10000, 1000);
+		f.setVarNum(2 * PAIRS);
+		BDD pairs = pairs(f);
+		int before = pairs.nodeCount();
+		double models = pairs.satCount();
+
+		f.reorder(BDDFactory.REORDER_SIFT);
+		assertTrue(pairs.nodeCount() < before / 4);
+		assertEquals(models, pairs.satCount(), 0);
+		assertEquals(1, f.getReorderStats().num);
+		assertTrue(f.getReorderStats().gain() > 0);
+	}
+
+	@Test
+	public void testAutomaticReordering() {
+		BDDFactory reference = JFactory.init(10000, 1000);
+		reference.setVarNum(2 * PAIRS);
+		BDD expected = pairs(reference);
+
+		for (BDDFactory.ReorderMethod method : new BDDFactory.ReorderMethod[] { BDDFactory.REORDER_SIFT,
+				BDDFactory.REORDER_WIN2ITE, BDDFactory.REORDER_SIFTITE }) {
+			JFactory f = (JFactory) JFactory.init(500, 1000);
+			f.setVarNum(2 * PAIRS);
+			f.setReorderGrowth(1.5);
+			f.autoReorder(method);
+			BDD pairs = pairs(f);
+			assertTrue(f.getReorderStats().num > 0);
+			assertEquals(expected.satCount(), pairs.satCount(), 0);
+			// windows of two adjacent variables cannot pull the pairs together, sifting can
+			if (method == BDDFactory.REORDER_WIN2ITE)
+				assertTrue(pairs.nodeCount() <= expected.nodeCount());
+			else
+				assertTrue(pairs.nodeCount() < expected.nodeCount() / 4);
+			assertTrue(f.getPeakNodeNum() >= pairs.nodeCount());
+		}
+	}
+
+	@Test
+	public void testSolverWithReordering() {
+		BDDSolver solver = new BDDSolver(2 * PAIRS, BDDFactory.REORDER_SIFT);
+		assertEquals(BDDFactory.REORDER_SIFT, solver.factory.getReorderMethod());
+		BDD pairs = pairs(solver.factory);
+		assertTrue(solver.AreEquivalent(pairs, solver.MkNot(solver.MkNot(pairs))));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSolverRejectsWin3() {
+		new BDDSolver(2 * PAIRS, BDDFactory.REORDER_WIN3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSolverRejectsWin3Ite() {
+		new BDDSolver(2 * PAIRS, 1000, 1000, BDDFactory.REORDER_WIN3ITE);
+	}
+
+	@Test
+	public void testReorderingGrowsTable() throws TimeoutException {
+		// the reverse equivalence of the LTL tests fills a small table, and sifting has to grow it
+		int size = 9;
+		BDDSolver solver = new BDDSolver(size, 1000, 1000, BDDFactory.REORDER_SIFT);
+		List<LTLFormula<BDD, BDD>> conjuncts = new LinkedList<>();
+		for (int i = 0; i < size; i++)
+			conjuncts.add(new Eventually<>(new Predicate<BDD, BDD>(solver.factory.ithVar(i))));
+		SAFA<BDD, BDD> safa1 = new And<>(conjuncts).getSAFA(solver);
+		SAFA<BDD, BDD> safa2 = new And<>(conjuncts.subList(0, size - 1)).getSAFA(solver);
+
+		assertFalse(SAFA.areReverseEquivalent(safa1, safa2, solver));
+		assertTrue(solver.factory.getReorderStats().num > 0);
+	}
+
+	// (x0 & xn) | (x1 & xn+1) | ..., whose size is exponential in the initial order and linear after sifting
+	private static BDD pairs(BDDFactory f) {
+		BDD res = f.zero();
+		for (int i = 0; i < PAIRS; i++) {
+			BDD pair = f.ithVar(i).and(f.ithVar(i + PAIRS));
+			res.orWith(pair);
+		}
+		return res;
+	}
+}
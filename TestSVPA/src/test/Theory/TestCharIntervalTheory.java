@@ -0,0 +1,286 @@
+package test.Theory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import theory.CachingBooleanAlgebra;
+import theory.characters.CharPred;
+import theory.characters.StdCharPred;
+import theory.intervals.IntPred;
+import theory.intervals.IntervalPartition;
+import theory.intervals.IntegerSolver;
+import theory.intervals.UnaryCharIntervalSolver;
+import utilities.Pair;
+
+public class TestCharIntervalTheory {
+
+	UnaryCharIntervalSolver ba = new UnaryCharIntervalSolver();
+	IntegerSolver intBa = new IntegerSolver();
+
+	@Test
+	public void testOr() {
+		Random r = new Random(0);
+		for (int n = 0; n < 200; n++) {
+			CharPred p1 = randomPred(r);
+			CharPred p2 = randomPred(r);
+			assertEquals(ba.MkNot(ba.MkAnd(ba.MkNot(p1), ba.MkNot(p2))), ba.MkOr(p1, p2));
+		}
+		assertEquals(StdCharPred.TRUE, ba.MkOr(new CharPred('a', 'b'), ba.MkNot(new CharPred('a', 'b'))));
+		assertEquals(new CharPred('a', 'c'), ba.MkOr(new CharPred('a'), new CharPred('b', 'c')));
+	}
+
+	@Test
+	public void testNaryOrAnd() {
+		Random r = new Random(1);
+		for (int n = 0; n < 100; n++) {
+			List<CharPred> preds = new ArrayList<CharPred>();
+			CharPred or = StdCharPred.FALSE;
+			CharPred and = StdCharPred.TRUE;
+			for (int k = r.nextInt(6); k > 0; k--) {
+				CharPred p = randomPred(r);
+				preds.add(p);
+				or = ba.MkOr(or, p);
+				and = ba.MkAnd(and, p);
+			}
+			assertEquals(or, ba.MkOr(preds));
+			assertEquals(and, ba.MkAnd(preds));
+		}
+	}
+
+	@Test
+	public void testAtoms() {
+		CharPred p = ba.MkAtoms(Arrays.asList('d', 'a', 'c', 'x', 'a', 'z'));
+		assertEquals(new CharPred(ImmutableList.of(ImmutablePair.of('a', 'a'), ImmutablePair.of('c', 'd'),
+				ImmutablePair.of('x', 'x'), ImmutablePair.of('z', 'z'))), p);
+		assertEquals(StdCharPred.FALSE, ba.MkAtoms(new ArrayList<Character>()));
+		assertEquals(new CharPred(ImmutableList.of(ImmutablePair.of(CharPred.MIN_CHAR, '\u0002'), ImmutablePair.of('a', 'b'))),
+				CharPred.ofSortedChars(new char[] { CharPred.MIN_CHAR, '\u0001', '\u0002', 'a', 'b', 'z' }, 5));
+	}
+
+	@Test
+	public void testInterning() {
+		CharPred p1 = ba.MkOr(new CharPred('a', 'c'), new CharPred('x'));
+		CharPred p2 = ba.MkAnd(new CharPred('a', 'z'), ba.MkOr(new CharPred('x'), new CharPred('a', 'c')));
+		assertTrue(p1 == p2);
+		assertTrue(ba.MkAtom('q') == ba.MkAtom('q'));
+		assertTrue(StdCharPred.TRUE == ba.MkNot(StdCharPred.FALSE));
+
+		CharPred p3 = new CharPred(ImmutableList.of(ImmutablePair.of('x', 'x'), ImmutablePair.of('a', 'c')));
+		assertFalse(p1 == p3);
+		assertEquals(p1, p3);
+		assertEquals(p1.hashCode(), p3.hashCode());
+		assertTrue(p3.intern() == p1);
+		assertEquals(2, p1.intervalCount());
+		assertEquals('x', p1.intervalLeft(1));
+		assertEquals('c', p1.intervalRight(0));
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test(expected = IllegalStateException.class)
+	public void testInternedReturnPredicate() {
+		ba.MkAtom('r').setAsReturn();
+	}
+
+	@Test
+	public void testReturnCopy() {
+		CharPred atom = ba.MkAtom('r');
+		CharPred ret = atom.returnCopy();
+		assertTrue(ret.isReturn());
+		assertFalse(atom.isReturn());
+		assertEquals(atom, ret);
+		assertTrue(ret.intern() == ret);
+		assertTrue(ba.MkOr(ret, ba.MkAtom('s')).returnCopy().isReturn());
+	}
+
+	@Test
+	public void testCachingAlgebra() throws Exception {
+		CachingBooleanAlgebra<CharPred, Character> cached = new CachingBooleanAlgebra<CharPred, Character>(ba, 64);
+		Random r = new Random(2);
+		List<CharPred> preds = new ArrayList<CharPred>();
+		for (int n = 0; n < 20; n++)
+			preds.add(randomPred(r));
+		for (int round = 0; round < 2; round++) {
+			for (CharPred p1 : preds) {
+				for (CharPred p2 : preds) {
+					assertEquals(ba.MkAnd(p1, p2), cached.MkAnd(p2, p1));
+					assertEquals(ba.MkOr(p1, p2), cached.MkOr(p1, p2));
+					assertEquals(ba.AreEquivalent(p1, p2), cached.AreEquivalent(p1, p2));
+				}
+				assertEquals(ba.MkNot(p1), cached.MkNot(p1));
+				assertEquals(ba.IsSatisfiable(p1), cached.IsSatisfiable(p1));
+			}
+		}
+		assertTrue(cached.getHits() > 0);
+		assertTrue(cached.getEvictions() > 0);
+		assertTrue(cached.weight() <= 64);
+
+		cached.clear();
+		cached.resetStatistics();
+		// weighs 1 + 2, which fits in a stripe of weight 4
+		CharPred p = new CharPred('a', 'c');
+		cached.MkNot(p);
+		cached.MkNot(p);
+		assertEquals(1, cached.getMisses());
+		assertEquals(1, cached.getHits());
+
+		// the solver computes the minterms itself, so the cache delegates them
+		ArrayList<CharPred> predicates = new ArrayList<CharPred>(preds);
+		assertEquals(new HashSet<Pair<CharPred, ArrayList<Integer>>>(ba.GetMinterms(predicates, Long.MAX_VALUE)),
+				new HashSet<Pair<CharPred, ArrayList<Integer>>>(cached.GetMinterms(predicates, Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void testCachingAlgebraWeights() throws Exception {
+		// 16 stripes of weight 100, a result weighs the intervals of its operands and of itself
+		CachingBooleanAlgebra<CharPred, Character> cached = new CachingBooleanAlgebra<CharPred, Character>(ba, 1600);
+		cached.MkNot(everyOther(40));
+		assertEquals(1, cached.size());
+		assertEquals(40 + 41, cached.weight());
+		cached.MkNot(everyOther(60));
+		assertEquals(1, cached.size());
+		assertEquals(40 + 41, cached.weight());
+	}
+
+	// the characters 'a', 'c', 'e', ... as n intervals
+	private CharPred everyOther(int n) {
+		List<Character> chars = new ArrayList<Character>();
+		for (int i = 0; i < n; i++)
+			chars.add((char) ('a' + 2 * i));
+		return ba.MkAtoms(chars);
+	}
+
+	@Test
+	public void testMembership() {
+		Random r = new Random(3);
+		for (int n = 0; n < 50; n++) {
+			ImmutableList.Builder<ImmutablePair<Character, Character>> intervals = ImmutableList.builder();
+			for (int k = r.nextInt(12); k > 0; k--) {
+				char left = (char) r.nextInt(400);
+				intervals.add(ImmutablePair.of(left, (char) (left + r.nextInt(70))));
+			}
+			CharPred p = new CharPred(intervals.build());
+			for (char c = 0; c < 500; c++) {
+				boolean inInterval = false;
+				for (ImmutablePair<Character, Character> interval : p.getIntervals())
+					inInterval |= interval.left <= c && c <= interval.right;
+				assertEquals(inInterval, ba.HasModel(p, c));
+			}
+		}
+		assertTrue(StdCharPred.TRUE.isSatisfiedBy(CharPred.MAX_CHAR));
+		assertTrue(StdCharPred.TRUE.isSatisfiedBy(CharPred.MIN_CHAR));
+		assertFalse(StdCharPred.FALSE.isSatisfiedBy('a'));
+		assertFalse(new CharPred('a').isSatisfiedBy(CharPred.MAX_CHAR));
+	}
+
+	@Test
+	public void testMinterms() throws Exception {
+		Random r = new Random(4);
+		for (int n = 0; n < 30; n++) {
+			ArrayList<CharPred> preds = new ArrayList<CharPred>();
+			for (int k = r.nextInt(8); k >= 0; k--)
+				preds.add(randomPred(r));
+
+			Collection<Pair<CharPred, ArrayList<Integer>>> minterms = ba.GetMinterms(preds);
+			IntervalPartition partition = ba.newPartition();
+			for (CharPred p : preds)
+				ba.refine(partition, p);
+			Collection<Pair<CharPred, ArrayList<Integer>>> incremental = ba.getMinterms(partition);
+
+			// every character belongs to exactly one minterm, whose bits say which predicates contain it
+			Set<ArrayList<Integer>> signatures = new HashSet<ArrayList<Integer>>();
+			for (char c = CharPred.MIN_CHAR; ; c++) {
+				ArrayList<Integer> bits = new ArrayList<Integer>();
+				for (CharPred p : preds)
+					bits.add(p.isSatisfiedBy(c) ? 1 : 0);
+				signatures.add(bits);
+				int found = 0;
+				for (Pair<CharPred, ArrayList<Integer>> minterm : minterms)
+					if (minterm.first.isSatisfiedBy(c)) {
+						found++;
+						assertEquals(bits, minterm.second);
+					}
+				assertEquals(1, found);
+				if (c == CharPred.MAX_CHAR)
+					break;
+			}
+			assertEquals(signatures.size(), minterms.size());
+			assertEquals(new HashSet<Pair<CharPred, ArrayList<Integer>>>(minterms),
+					new HashSet<Pair<CharPred, ArrayList<Integer>>>(incremental));
+		}
+	}
+
+	@Test
+	public void testIntegerMinterms() throws Exception {
+		ArrayList<IntPred> preds = new ArrayList<IntPred>();
+		preds.add(new IntPred(null, 5));
+		preds.add(new IntPred(3, 10));
+		preds.add(new IntPred(ImmutableList.of(ImmutablePair.of(-2, -1), ImmutablePair.of(20, (Integer) null))));
+		Collection<Pair<IntPred, ArrayList<Integer>>> minterms = intBa.GetMinterms(preds);
+		for (int n = -10; n <= 30; n++) {
+			int found = 0;
+			for (Pair<IntPred, ArrayList<Integer>> minterm : minterms)
+				if (minterm.first.isSatisfiedBy(n)) {
+					found++;
+					for (int i = 0; i < preds.size(); i++)
+						assertEquals(preds.get(i).isSatisfiedBy(n) ? 1 : 0, (int) minterm.second.get(i));
+				}
+			assertEquals(1, found);
+		}
+		assertEquals(6, minterms.size());
+		List<IntPred> union = new ArrayList<IntPred>();
+		for (Pair<IntPred, ArrayList<Integer>> minterm : minterms)
+			union.add(minterm.first);
+		assertTrue(intBa.AreEquivalent(intBa.True(), intBa.MkOr(union)));
+	}
+
+	@Test
+	public void testIntegerOr() {
+		IntPred p1 = new IntPred(ImmutableList.of(ImmutablePair.of((Integer) null, -5), ImmutablePair.of(3, 4)));
+		IntPred p2 = new IntPred(ImmutableList.of(ImmutablePair.of(-4, 0), ImmutablePair.of(5, (Integer) null)));
+		IntPred or = intBa.MkOr(p1, p2);
+		assertEquals(intBa.MkNot(intBa.MkAnd(intBa.MkNot(p1), intBa.MkNot(p2))).intervals, or.intervals);
+		assertEquals(or.intervals, intBa.MkOr(Arrays.asList(p1, p2)).intervals);
+		for (int n = -10; n <= 10; n++)
+			assertEquals(p1.isSatisfiedBy(n) || p2.isSatisfiedBy(n), or.isSatisfiedBy(n));
+		assertTrue(intBa.AreEquivalent(intBa.True(), intBa.MkOr(p1, intBa.MkNot(p1))));
+	}
+
+	@Test
+	public void testSingleOperandShortcuts() {
+		CharPred p = new CharPred(ImmutableList.of(ImmutablePair.of('a', 'c')), true);
+		List<CharPred> results = Arrays.asList(ba.MkOr(p, ba.False()), ba.MkOr(ba.False(), p),
+				ba.MkOr(Arrays.asList(p, ba.False())), ba.MkAnd(Arrays.asList(p)));
+		for (CharPred result : results) {
+			assertTrue(result != p);
+			assertFalse(result.isReturn());
+			assertEquals(p, result);
+		}
+
+		IntPred q = new IntPred(3, 4);
+		assertTrue(q != intBa.MkOr(q, intBa.False()));
+		assertEquals(q.intervals, intBa.MkOr(intBa.False(), q).intervals);
+	}
+
+	private CharPred randomPred(Random r) {
+		ImmutableList.Builder<ImmutablePair<Character, Character>> intervals = ImmutableList.builder();
+		for (int k = r.nextInt(4); k > 0; k--) {
+			char left = (char) ('a' + r.nextInt(26));
+			intervals.add(ImmutablePair.of(left, (char) (left + r.nextInt(5))));
+		}
+		return new CharPred(intervals.build());
+	}
+}
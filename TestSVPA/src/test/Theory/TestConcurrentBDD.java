@@ -0,0 +1,107 @@
+package test.Theory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import theory.bdd.BDD;
+import theory.bdd.BDDFactory;
+import theory.bdd.ConcurrentFactory;
+import theory.bddalgebra.BDDSolver;
+
+public class TestConcurrentBDD {
+
+	static final int VARS = 10;
+
+	@Test
+	public void testAgainstJFactory() {
+		BDDFactory concurrent = ConcurrentFactory.init(1000, 1000);
+		BDDFactory reference = BDDFactory.init("j", 1000, 1000);
+		concurrent.setVarNum(VARS);
+		reference.setVarNum(VARS);
+		for (int n = 0; n < 100; n++) {
+			long seed = n;
+			BDD c = randomFormula(concurrent, new Random(seed), 4);
+			BDD r = randomFormula(reference, new Random(seed), 4);
+			assertEquals(r.satCount(), c.satCount(), 0);
+			assertEquals(r.pathCount(), c.pathCount(), 0);
+			assertEquals(r.nodeCount(), c.nodeCount());
+			assertEquals(r.isZero(), c.isZero());
+
+			BDD cube = concurrent.ithVar(1).and(concurrent.ithVar(4));
+			BDD refCube = reference.ithVar(1).and(reference.ithVar(4));
+			assertEquals(r.exist(refCube).satCount(), c.exist(cube).satCount(), 0);
+			assertEquals(r.forAll(refCube).satCount(), c.forAll(cube).satCount(), 0);
+			assertEquals(r.restrict(reference.nithVar(2)).satCount(), c.restrict(concurrent.nithVar(2)).satCount(), 0);
+			if (!c.isZero())
+				assertTrue(c.satOne().imp(c).isOne());
+		}
+	}
+
+	@Test
+	public void testCanonicity() {
+		BDDFactory f = ConcurrentFactory.init(1000, 1000);
+		f.setVarNum(VARS);
+		BDD a = f.ithVar(0);
+		BDD b = f.ithVar(1);
+		assertTrue(a.and(b).not().equals(a.not().or(b.not())));
+		assertTrue(a.xor(b).equals(a.biimp(b).not()));
+		assertTrue(a.imp(b).equals(a.not().or(b)));
+		assertTrue(a.ite(b, f.zero()).equals(a.and(b)));
+		assertTrue(a.and(b).compose(b, 0).equals(b));
+		assertEquals(2, a.and(b).support().nodeCount());
+	}
+
+	@Test
+	public void testParallelConstruction() throws Exception {
+		final BDDSolver solver = new BDDSolver(VARS, true);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<BDD>>> results = new ArrayList<Future<List<BDD>>>();
+			for (int t = 0; t < 4; t++) {
+				results.add(executor.submit(new Callable<List<BDD>>() {
+					public List<BDD> call() {
+						List<BDD> formulas = new ArrayList<BDD>();
+						for (int n = 0; n < 200; n++)
+							formulas.add(randomFormula(solver.factory, new Random(n), 5));
+						return formulas;
+					}
+				}));
+			}
+			List<BDD> first = results.get(0).get();
+			for (Future<List<BDD>> result : results) {
+				List<BDD> formulas = result.get();
+				for (int n = 0; n < formulas.size(); n++)
+					assertTrue(solver.AreEquivalent(first.get(n), formulas.get(n)));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static BDD randomFormula(BDDFactory f, Random r, int depth) {
+		if (depth == 0 || r.nextInt(4) == 0)
+			return r.nextBoolean() ? f.ithVar(r.nextInt(VARS)) : f.nithVar(r.nextInt(VARS));
+		BDD left = randomFormula(f, r, depth - 1);
+		BDD right = randomFormula(f, r, depth - 1);
+		switch (r.nextInt(4)) {
+		case 0:
+			return left.and(right);
+		case 1:
+			return left.or(right);
+		case 2:
+			return left.xor(right);
+		default:
+			return left.imp(right).not();
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package test.Theory;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -36,4 +37,21 @@ public class TestEqualityTheory {
 		ICharPred notEquality = ba.MkNot(equality);
 		assertTrue(ba.IsSatisfiable(notEquality));		
 	}
+	
+	@Test
+	public void testReturnConnectives() throws Exception {
+		CharPred retAlpha = new CharPred('a', 'z', true);
+		CharPred retNum = new CharPred('0', '9', true);
+		
+		ICharPred not = ba.MkNot(retAlpha);
+		ICharPred or = ba.MkOr(retAlpha, retNum);
+		ICharPred and = ba.MkAnd(retAlpha, new CharPred('a', 'c', true));
+		
+		assertTrue(not.isReturn() && or.isReturn() && and.isReturn());
+		assertTrue(ba.HasModel(not, '0') && !ba.HasModel(not, 'b'));
+		assertTrue(ba.HasModel(or, '5') && ba.HasModel(or, 'q'));
+		assertTrue(ba.HasModel(and, 'b') && !ba.HasModel(and, 'd'));
+		// the connectives of call predicates are not marked as return
+		assertFalse(ba.MkNot(alpha).isReturn());
+	}
 }
@@ -0,0 +1,101 @@
+package test.Theory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sat4j.specs.TimeoutException;
+
+import theory.DisjointUnionAlgebra;
+import theory.ProductAlgebra;
+import theory.cartesian.CartesianProduct;
+import theory.intervals.BoundedIntegerSolver;
+import theory.intervals.IntPred;
+import utilities.Pair;
+import utilities.choice.InL;
+import utilities.choice.InR;
+
+public class TestProductAlgebra {
+
+	static final int MAX = 20;
+
+	BoundedIntegerSolver ba = new BoundedIntegerSolver(0, MAX);
+	ProductAlgebra<IntPred, Integer, IntPred, Integer> prod = new ProductAlgebra<IntPred, Integer, IntPred, Integer>(ba, ba);
+
+	@Test
+	public void testConnectives() throws TimeoutException {
+		Random r = new Random(0);
+		for (int n = 0; n < 40; n++) {
+			CartesianProduct<IntPred, IntPred> p1 = randomProduct(r);
+			CartesianProduct<IntPred, IntPred> p2 = randomProduct(r);
+			CartesianProduct<IntPred, IntPred> and = prod.MkAnd(p1, p2);
+			CartesianProduct<IntPred, IntPred> or = prod.MkOr(p1, p2);
+			CartesianProduct<IntPred, IntPred> not = prod.MkNot(p1);
+			for (int x = 0; x <= MAX; x++)
+				for (int y = 0; y <= MAX; y++) {
+					Pair<Integer, Integer> el = new Pair<Integer, Integer>(x, y);
+					boolean in1 = prod.HasModel(p1, el);
+					boolean in2 = prod.HasModel(p2, el);
+					assertEquals(in1 && in2, prod.HasModel(and, el));
+					assertEquals(in1 || in2, prod.HasModel(or, el));
+					assertEquals(!in1, prod.HasModel(not, el));
+				}
+			assertTrue(prod.AreEquivalent(p1, prod.MkNot(not)));
+			assertFalse(prod.AreEquivalent(p1, not));
+			assertFalse(prod.IsSatisfiable(prod.MkAnd(p1, not)));
+			assertTrue(prod.AreEquivalent(prod.True(), prod.MkOr(p1, not)));
+		}
+	}
+
+	@Test
+	public void testHashConsing() throws TimeoutException {
+		CartesianProduct<IntPred, IntPred> p1 = new CartesianProduct<IntPred, IntPred>(Arrays.asList(
+				new Pair<IntPred, IntPred>(new IntPred(0, 5), new IntPred(0, 10)),
+				new Pair<IntPred, IntPred>(new IntPred(3, 8), new IntPred(0, 10))));
+		CartesianProduct<IntPred, IntPred> p2 = new CartesianProduct<IntPred, IntPred>(Arrays.asList(
+				new Pair<IntPred, IntPred>(new IntPred(6, 8), new IntPred(0, 10)),
+				new Pair<IntPred, IntPred>(new IntPred(0, 6), new IntPred(0, 10))));
+		CartesianProduct<IntPred, IntPred> c1 = prod.canonical(p1);
+		assertTrue(c1 == prod.canonical(p2));
+		assertTrue(c1.isNormalized());
+		assertFalse(p1.isNormalized());
+		assertEquals(1, c1.getProducts().size());
+
+		assertTrue(prod.MkNot(prod.MkNot(c1)) == c1);
+		assertTrue(prod.MkAnd(p1, prod.True()) == c1);
+		assertTrue(prod.MkOr(p2, prod.False()) == c1);
+		assertTrue(prod.False() == prod.MkAnd(c1, prod.MkNot(c1)));
+
+		p1.normalize(ba, ba);
+		assertEquals(c1, p1);
+		assertEquals(c1.hashCode(), p1.hashCode());
+	}
+
+	@Test
+	public void testDisjointUnion() throws TimeoutException {
+		DisjointUnionAlgebra<IntPred, Integer, IntPred, Integer> union = new DisjointUnionAlgebra<IntPred, Integer, IntPred, Integer>(ba, ba);
+		Pair<IntPred, IntPred> p = new Pair<IntPred, IntPred>(new IntPred(2, 4), new IntPred(10, 12));
+		Pair<IntPred, IntPred> q = union.MkNot(union.MkNot(p));
+		assertTrue(union.AreEquivalent(p, q));
+		assertTrue(union.HasModel(p, new InL<Integer, Integer>(3)));
+		assertFalse(union.HasModel(p, new InR<Integer, Integer>(3)));
+		assertFalse(union.IsSatisfiable(union.MkAnd(p, union.MkNot(q))));
+	}
+
+	private CartesianProduct<IntPred, IntPred> randomProduct(Random r) {
+		List<Pair<IntPred, IntPred>> products = new ArrayList<Pair<IntPred, IntPred>>();
+		for (int k = r.nextInt(4); k > 0; k--) {
+			int x = r.nextInt(MAX);
+			int y = r.nextInt(MAX);
+			products.add(new Pair<IntPred, IntPred>(new IntPred(x, x + r.nextInt(MAX - x + 1)),
+					new IntPred(y, y + r.nextInt(MAX - y + 1))));
+		}
+		return new CartesianProduct<IntPred, IntPred>(products);
+	}
+}
@@ -0,0 +1,198 @@
+package test.Utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import utilities.IntArrayDeque;
+import utilities.LongIntHashMap;
+
+public class TestPrimitiveCollections {
+
+	@Test
+	public void testPack() {
+		int[] values = { 0, 1, -1, 42, Integer.MIN_VALUE, Integer.MAX_VALUE };
+		for (int first : values)
+			for (int second : values) {
+				long pair = LongIntHashMap.pack(first, second);
+				assertEquals(first, LongIntHashMap.first(pair));
+				assertEquals(second, LongIntHashMap.second(pair));
+			}
+		// a negative second element must not spill into the first one
+		assertTrue(LongIntHashMap.pack(0, -1) != LongIntHashMap.pack(-1, -1));
+	}
+
+	@Test
+	public void testMapPackedKeys() {
+		LongIntHashMap map = new LongIntHashMap();
+		assertTrue(map.isEmpty());
+
+		// the dead state of the parallel products is Integer.MIN_VALUE, and
+		// packing it with 0 yields Long.MIN_VALUE, the key marking free slots
+		long deadZero = LongIntHashMap.pack(Integer.MIN_VALUE, 0);
+		long deadOne = LongIntHashMap.pack(Integer.MIN_VALUE, 1);
+		long oneDead = LongIntHashMap.pack(1, Integer.MIN_VALUE);
+		assertEquals(Long.MIN_VALUE, deadZero);
+		assertFalse(map.containsKey(deadZero));
+		assertEquals(-1, map.getOrDefault(deadZero, -1));
+
+		map.put(deadZero, 7);
+		map.put(deadOne, 8);
+		map.put(oneDead, 9);
+		map.put(LongIntHashMap.pack(-1, -1), 10);
+		assertEquals(4, map.size());
+		assertTrue(map.containsKey(deadZero));
+		assertEquals(7, map.getOrDefault(deadZero, -1));
+		assertEquals(8, map.getOrDefault(deadOne, -1));
+		assertEquals(9, map.getOrDefault(oneDead, -1));
+		assertEquals(10, map.getOrDefault(LongIntHashMap.pack(-1, -1), -1));
+		assertFalse(map.containsKey(LongIntHashMap.pack(0, Integer.MIN_VALUE)));
+		assertFalse(map.containsKey(LongIntHashMap.pack(-1, 0)));
+
+		// overwriting does not change the size, also for the free key
+		map.put(deadZero, 11);
+		map.put(deadOne, 12);
+		assertEquals(4, map.size());
+		assertEquals(11, map.getOrDefault(deadZero, -1));
+		assertEquals(12, map.getOrDefault(deadOne, -1));
+	}
+
+	@Test
+	public void testMapResizeAndCollisions() {
+		// keys that only differ in their high or their low bits, many of them
+		// end up in the same slot of the small initial table
+		LongIntHashMap map = new LongIntHashMap(1);
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		for (int i = 0; i < 2000; i++) {
+			long[] keys = { LongIntHashMap.pack(i, 0), LongIntHashMap.pack(0, i), LongIntHashMap.pack(-i, i),
+					(long) i << 48 };
+			for (long key : keys) {
+				map.put(key, i);
+				expected.put(key, i);
+			}
+			// every key put so far is still found while the table grows
+			if (Integer.bitCount(i) == 1)
+				for (Map.Entry<Long, Integer> entry : expected.entrySet())
+					assertEquals(entry.getValue().intValue(), map.getOrDefault(entry.getKey(), -1));
+		}
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+			assertTrue(map.containsKey(entry.getKey()));
+			assertEquals(entry.getValue().intValue(), map.getOrDefault(entry.getKey(), -1));
+		}
+		for (int i = 1; i < 2000; i++) {
+			assertFalse(map.containsKey(LongIntHashMap.pack(i, i)));
+			assertEquals(-1, map.getOrDefault(LongIntHashMap.pack(i, -i), -1));
+		}
+	}
+
+	@Test
+	public void testMapRandom() {
+		Random random = new Random(0);
+		LongIntHashMap map = new LongIntHashMap();
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		for (int i = 0; i < 20000; i++) {
+			// few distinct keys, so that most of them are put more than once
+			long key = LongIntHashMap.pack(random.nextInt(64) - 32, random.nextInt(64) - 32);
+			if (random.nextBoolean()) {
+				map.put(key, i);
+				expected.put(key, i);
+			} else {
+				assertEquals(expected.containsKey(key), map.containsKey(key));
+				int value = expected.containsKey(key) ? expected.get(key) : -1;
+				assertEquals(value, map.getOrDefault(key, -1));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+	}
+
+	@Test
+	public void testDequeWrapAround() {
+		IntArrayDeque deque = new IntArrayDeque(4);
+		assertTrue(deque.isEmpty());
+
+		// move the head around the array several times without growing it
+		for (int i = 0; i < 10; i++) {
+			deque.addLast(2 * i);
+			deque.addLast(2 * i + 1);
+			assertEquals(2 * i, deque.peekFirst());
+			assertEquals(2 * i, deque.removeFirst());
+			assertEquals(2 * i + 1, deque.removeFirst());
+		}
+		assertTrue(deque.isEmpty());
+
+		// addFirst wraps the head below 0
+		deque.addFirst(1);
+		deque.addFirst(0);
+		deque.addLast(2);
+		deque.addLast(3);
+		assertEquals(4, deque.size());
+		assertEquals(0, deque.removeFirst());
+		assertEquals(3, deque.removeLast());
+		assertEquals(1, deque.removeFirst());
+		assertEquals(2, deque.removeLast());
+		assertTrue(deque.isEmpty());
+	}
+
+	@Test
+	public void testDequeGrowth() {
+		// grow while the elements wrap around the end of the array
+		IntArrayDeque deque = new IntArrayDeque(1);
+		deque.addLast(0);
+		deque.addLast(1);
+		deque.removeFirst();
+		for (int i = 2; i < 100; i++)
+			deque.addLast(i);
+		for (int i = 0; i > -100; i--)
+			deque.addFirst(i);
+		assertEquals(199, deque.size());
+		for (int i = -99; i < 100; i++)
+			assertEquals(i, deque.removeFirst());
+		assertTrue(deque.isEmpty());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testDequeClear() {
+		IntArrayDeque deque = new IntArrayDeque();
+		deque.addLast(5);
+		deque.clear();
+		assertTrue(deque.isEmpty());
+		deque.removeLast();
+	}
+
+	@Test
+	public void testDequeRandom() {
+		Random random = new Random(0);
+		IntArrayDeque deque = new IntArrayDeque(2);
+		ArrayDeque<Integer> expected = new ArrayDeque<Integer>();
+		for (int i = 0; i < 20000; i++) {
+			switch (expected.isEmpty() ? random.nextInt(2) : random.nextInt(5)) {
+			case 0:
+				deque.addFirst(i);
+				expected.addFirst(i);
+				break;
+			case 1:
+				deque.addLast(i);
+				expected.addLast(i);
+				break;
+			case 2:
+				assertEquals(expected.removeFirst().intValue(), deque.removeFirst());
+				break;
+			case 3:
+				assertEquals(expected.removeLast().intValue(), deque.removeLast());
+				break;
+			default:
+				assertEquals(expected.peekFirst().intValue(), deque.peekFirst());
+			}
+			assertEquals(expected.size(), deque.size());
+		}
+	}
+}